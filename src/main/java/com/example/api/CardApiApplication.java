@@ -1,15 +1,18 @@
 package com.example.api;
 
+import com.example.api.config.properties.AdmissionProperties;
 import com.example.api.config.properties.CryptoProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(
         scanBasePackages = {
                 "com.example.api",
         })
-@EnableConfigurationProperties(CryptoProperties.class)
+@EnableConfigurationProperties({CryptoProperties.class, AdmissionProperties.class})
+@EnableScheduling
 public class CardApiApplication {
 
 	public static void main(String[] args) {
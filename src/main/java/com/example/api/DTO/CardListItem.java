@@ -0,0 +1,5 @@
+package com.example.api.DTO;
+
+/** linha da listagem: só colunas de projeção, nada de PAN (nem cifrado) */
+public record CardListItem(String id, String token, String bin, String last4, String brand, String cardType,
+                           int expiryMonth, int expiryYear) {}
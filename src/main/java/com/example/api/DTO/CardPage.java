@@ -0,0 +1,6 @@
+package com.example.api.DTO;
+
+import java.util.List;
+
+/** {@code next} = cursor opaco da próxima página; null na última */
+public record CardPage(List<CardListItem> items, String next) {}
@@ -0,0 +1,8 @@
+package com.example.api.DTO;
+
+import java.time.Instant;
+import java.util.Map;
+
+/** contagens por BIN, bandeira e validade ({@code yyyy-MM}); {@code flushedAt} = último flush deste nó */
+public record CardStats(long total, Map<String, Long> bins, Map<String, Long> brands, Map<String, Long> expiry,
+                        Instant flushedAt) {}
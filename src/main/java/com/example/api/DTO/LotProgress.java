@@ -0,0 +1,16 @@
+package com.example.api.DTO;
+
+import com.example.api.entity.LotIngestion;
+
+import java.time.Instant;
+
+/** progresso de um lote; {@code active} = há um upload com lease válido processando agora */
+public record LotProgress(String lot, String status, int qty, int processed,
+                          int created, int duplicates, int failed, boolean active, Instant updatedAt) {
+
+    public static LotProgress of(LotIngestion l, Instant now) {
+        boolean active = l.getOwner() != null && l.getLeaseUntil() != null && l.getLeaseUntil().isAfter(now);
+        return new LotProgress(l.getLot(), l.getStatus().name(), l.getQty(), l.getProcessed(),
+                l.getCreated(), l.getDuplicates(), l.getFailed(), active, l.getUpdatedAt());
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.api.config;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache de JWTs já validados (assinatura + claims) na frente de outro {@link JwtDecoder}.
+ * <p>
+ * Clientes reaproveitam o mesmo token por todo o tempo de vida dele; sem cache cada chamada
+ * refazia a verificação RSA. A chave é o SHA-256 do token bruto (o bearer não fica no heap),
+ * a entrada vale até o {@code exp} do token e só decodificações bem-sucedidas entram.
+ * O tamanho é limitado: cheio, varre os expirados e, se ainda não couber, não cacheia.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private record Entry(Jwt jwt, Instant expiresAt) {}
+
+    private static final long SWEEP_INTERVAL_MS = 1_000;
+
+    private final JwtDecoder delegate;
+    private final int maxEntries;
+    private final Clock clock;
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong();
+
+    public CachingJwtDecoder(JwtDecoder delegate, int maxEntries, Clock clock) {
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = sha256(token);
+        Instant now = clock.instant();
+        Entry hit = cache.get(key);
+        if (hit != null) {
+            if (now.isBefore(hit.expiresAt())) return hit.jwt();
+            cache.remove(key, hit);
+        }
+
+        Jwt jwt = delegate.decode(token);            // inválido lança e não entra no cache
+        Instant exp = jwt.getExpiresAt();
+        if (exp != null && now.isBefore(exp) && hasRoom(now)) cache.put(key, new Entry(jwt, exp));
+        return jwt;
+    }
+
+    public int size() { return cache.size(); }
+
+    private boolean hasRoom(Instant now) {
+        if (cache.size() < maxEntries) return true;
+        long t = now.toEpochMilli(), last = lastSweep.get();
+        if (t - last >= SWEEP_INTERVAL_MS && lastSweep.compareAndSet(last, t))
+            cache.values().removeIf(e -> !now.isBefore(e.expiresAt()));
+        return cache.size() < maxEntries;
+    }
+
+    private static String sha256(String token) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(d);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -14,28 +14,37 @@ import org.springframework.context.annotation.Configuration;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
+/**
+ * Primitivas Tink. Nada no caminho do cartão usa Tink (o {@code CryptoServiceImpl} vai direto no JCA), então
+ * os beans são {@code @Lazy} e o registro dos key managers só acontece quando alguém pede um deles, fora do start.
+ */
 @Configuration
 @Slf4j
 public class CryptoConfig {
 
-    static {
-        try { AeadConfig.register(); MacConfig.register(); }
-        catch (Exception e) { throw new RuntimeException("Tink register failed", e); }
-    }
+    private static volatile boolean registered;
 
-    @Bean
+    @Bean @Lazy
     public Aead aead(@Value("${crypto.tink.aead.keyset:}") String aeadKeysetB64) throws Exception {
         KeysetHandle handle = loadOrGenerateKeyset(aeadKeysetB64, AesGcmKeyManager.aes256GcmTemplate(), "AEAD");
         return handle.getPrimitive(Aead.class);
     }
 
-    @Bean
+    @Bean @Lazy
     public com.google.crypto.tink.Mac mac(@Value("${crypto.tink.mac.keyset:}") String macKeysetB64) throws Exception {
         KeysetHandle handle = loadOrGenerateKeyset(macKeysetB64, HmacKeyManager.hmacSha256HalfDigestTemplate(), "MAC");
         return handle.getPrimitive(com.google.crypto.tink.Mac.class);
     }
 
+    private static synchronized void register() {
+        if (registered) return;
+        try { AeadConfig.register(); MacConfig.register(); }
+        catch (Exception e) { throw new RuntimeException("Tink register failed", e); }
+        registered = true;
+    }
+
     private KeysetHandle loadOrGenerateKeyset(String b64, KeyTemplate tmpl, String label) throws Exception {
+        register();
         if (b64 != null && !b64.isBlank()) {
             byte[] json = Base64.getDecoder().decode(b64.getBytes(StandardCharsets.US_ASCII));
             return CleartextKeysetHandle.read(JsonKeysetReader.withBytes(json));
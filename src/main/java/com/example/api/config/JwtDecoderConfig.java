@@ -1,24 +1,62 @@
 package com.example.api.config;
 
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.DefaultResourceRetriever;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.oauth2.jwt.*;
 import org.springframework.security.oauth2.core.*;
 
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.time.Clock;
+
 @Configuration
 public class JwtDecoderConfig {
 
+    /**
+     * JWKS com cache e refresh antecipado agendado: as chaves são renovadas em background antes
+     * de expirar, então uma rotação não bloqueia a thread da requisição.
+     */
+    @Bean
+    JWKSource<SecurityContext> jwkSource(
+            // pega as chaves do Keycloak via hostname do cluster (alcançável pela app)
+            @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri:http://keycloak:8081/realms/cards/protocol/openid-connect/certs}") String jwks,
+            @Value("${cards.security.jwks.ttl-ms:300000}") long ttlMs,
+            @Value("${cards.security.jwks.refresh-ahead-ms:60000}") long refreshAheadMs) throws MalformedURLException {
+        return jwkSource(jwks, ttlMs, refreshAheadMs);
+    }
+
     @Bean
-    JwtDecoder jwtDecoder() {
-        // pega as chaves do Keycloak via hostname do cluster (alcançável pela app)
-        String jwks = "http://keycloak:8081/realms/cards/protocol/openid-connect/certs";
-        NimbusJwtDecoder decoder = NimbusJwtDecoder.withJwkSetUri(jwks).build();
+    JwtDecoder jwtDecoder(JWKSource<SecurityContext> jwkSource,
+                          // valida o issuer exatamente como o token emite (localhost:8081)
+                          @Value("${cards.security.issuer:http://localhost:8081/realms/cards}") String issuer,
+                          @Value("${cards.security.jwt-cache.max-entries:10000}") int maxEntries) {
+        return jwtDecoder(jwkSource, issuer, maxEntries, Clock.systemUTC());
+    }
+
+    static JWKSource<SecurityContext> jwkSource(String jwks, long ttlMs, long refreshAheadMs) throws MalformedURLException {
+        return JWKSourceBuilder.<SecurityContext>create(URI.create(jwks).toURL(), new DefaultResourceRetriever(2_000, 2_000))
+                .cache(ttlMs, 15_000)
+                .refreshAheadCache(refreshAheadMs, true)
+                .retrying(true)
+                .build();
+    }
 
-        // valida o issuer exatamente como o token emite (localhost:8081)
-        OAuth2TokenValidator<Jwt> validator =
-                JwtValidators.createDefaultWithIssuer("http://localhost:8081/realms/cards");
+    static CachingJwtDecoder jwtDecoder(JWKSource<SecurityContext> jwkSource, String issuer, int maxEntries, Clock clock) {
+        var processor = new DefaultJWTProcessor<SecurityContext>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource));
+        processor.setJWTClaimsSetVerifier((claims, context) -> { }); // claims validadas pelo OAuth2TokenValidator abaixo
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
 
+        OAuth2TokenValidator<Jwt> validator = JwtValidators.createDefaultWithIssuer(issuer);
         decoder.setJwtValidator(validator);
-        return decoder;
+        return new CachingJwtDecoder(decoder, maxEntries, clock);
     }
 }
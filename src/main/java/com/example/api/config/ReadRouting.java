@@ -0,0 +1,78 @@
+package com.example.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Escolhe a réplica de leitura para um trecho de código (ver {@link ReplicaDataSourceConfig}).
+ * <p>
+ * Dentro de {@link #replica} as conexões novas vêm do pool da réplica. Quem já está numa transação segue
+ * na conexão dela (primário): o que a própria transação escreveu continua visível. Sem
+ * {@code cards.datasource.replica.url} tudo roda direto no único banco.
+ * <p>
+ * Read-your-writes: o que esta instância gravou ({@link #wrote}) fica marcado por
+ * {@code cards.datasource.replica.max-lag}; só essas chaves, se a réplica ainda não tem, são confirmadas no
+ * primário. Uma busca que simplesmente não acha nada fica na réplica.
+ */
+@Component
+public class ReadRouting {
+
+    private static final ThreadLocal<Boolean> REPLICA = new ThreadLocal<>();
+
+    @Value("${cards.datasource.replica.url:}")
+    private String replicaUrl = "";
+
+    /** atraso de replicação tolerado: depois disso a réplica responde sozinha também pelo que foi gravado aqui */
+    @Value("${cards.datasource.replica.max-lag:5s}")
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    /** chave -> nanoTime até quando ela ainda pode estar faltando na réplica */
+    private final ConcurrentHashMap<String, Long> recent = new ConcurrentHashMap<>();
+    private volatile long nextSweep = System.nanoTime();
+
+    public boolean routed() { return !replicaUrl.isBlank(); }
+
+    /** marca uma escrita já commitada no primário (chave = a mesma usada em {@link #replicaOrPrimary}) */
+    public void wrote(String key) {
+        if (!routed()) return;
+        long now = System.nanoTime(), lag = maxLag.toNanos();
+        if (now - nextSweep >= 0) {                        // varre os vencidos no máximo uma vez por max-lag
+            nextSweep = now + lag;
+            recent.values().removeIf(until -> until - now <= 0);
+        }
+        recent.put(key, now + lag);
+    }
+
+    public <T> T replica(Supplier<T> work) {
+        // transação aberta: a conexão (ou a física, com o proxy lazy) já é do primário e precisa continuar sendo
+        if (!routed() || REPLICA.get() != null || TransactionSynchronizationManager.isActualTransactionActive()) return work.get();
+        REPLICA.set(Boolean.TRUE);
+        try { return work.get(); }
+        finally { REPLICA.remove(); }
+    }
+
+    /**
+     * lê da réplica; se ela não acha e {@code key} foi gravada aqui há menos de max-lag, confirma no primário
+     * (quem faz POST e logo depois o lookup). Fora da janela a ausência vale: a réplica já estaria em dia.
+     */
+    public <T> Optional<T> replicaOrPrimary(String key, Supplier<Optional<T>> work) {
+        var r = replica(work);
+        return r.isPresent() || !routed() || !recentlyWritten(key) ? r : work.get();
+    }
+
+    private boolean recentlyWritten(String key) {
+        Long until = recent.get(key);
+        if (until == null) return false;
+        if (until - System.nanoTime() > 0) return true;
+        recent.remove(key, until);
+        return false;
+    }
+
+    static boolean onReplica() { return REPLICA.get() != null; }
+}
@@ -0,0 +1,71 @@
+package com.example.api.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Primário + réplica de leitura, cada um com seu pool Hikari (tamanho e métricas {@code hikaricp.*} por
+ * {@code pool=primary|replica}). Só liga com {@code cards.datasource.replica.url}; sem ela o Boot monta o
+ * DataSource único de sempre.
+ * <p>
+ * O DataSource da aplicação (JPA, JdbcTemplate, DDL) roteia cada conexão nova: réplica dentro de
+ * {@link ReadRouting#replica}, primário no resto. O {@link LazyConnectionDataSourceProxy} só pega a conexão
+ * física no 1º comando, então uma transação que não chega a consultar nada não ocupa nenhum dos pools.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "cards.datasource.replica", name = "url")
+public class ReplicaDataSourceConfig {
+
+    enum Route { PRIMARY, REPLICA }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties props) {
+        var ds = props.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        ds.setPoolName("primary");
+        return ds;
+    }
+
+    @Bean
+    @ConfigurationProperties("cards.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties props,
+                                              @Value("${cards.datasource.replica.url}") String url,
+                                              @Value("${cards.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${cards.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        var ds = DataSourceBuilder.create().type(HikariDataSource.class)
+                .driverClassName(props.determineDriverClassName())
+                .url(url).username(username).password(password)
+                .build();
+        ds.setPoolName("replica");
+        ds.setReadOnly(true);                       // conexão da réplica nunca escreve, nem por engano
+        return ds;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica) {
+        var routing = new AbstractRoutingDataSource() {
+            @Override protected Object determineCurrentLookupKey() {
+                return ReadRouting.onReplica() ? Route.REPLICA : Route.PRIMARY;
+            }
+        };
+        routing.setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -3,6 +3,7 @@ package com.example.api.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.web.SecurityFilterChain;
 
@@ -13,8 +14,13 @@ public class SecurityConfig {
         http
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                        // operações de escrita do actuator (rebuild de card_stats, faixas de shard, tabela BIN...) são de operação
+                        .requestMatchers(HttpMethod.POST, "/actuator/**").hasAuthority("SCOPE_card:admin")
+                        .requestMatchers(HttpMethod.DELETE, "/actuator/**").hasAuthority("SCOPE_card:admin")
                         .requestMatchers("/auth/validate").authenticated()
+                        .requestMatchers(HttpMethod.POST, "/cards/detokenize").hasAuthority("SCOPE_card:detokenize")
+                        .requestMatchers(HttpMethod.GET, "/cards/export").hasAuthority("SCOPE_card:export")
                         .requestMatchers("/cards/**").authenticated()
                         .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
                         .anyRequest().authenticated()
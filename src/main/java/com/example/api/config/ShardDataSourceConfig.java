@@ -0,0 +1,94 @@
+package com.example.api.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * card_tokens (e o outbox de cada cartão) espalhados em N bancos pelo HMAC do PAN ({@link ShardRouter}).
+ * Só liga com {@code cards.shards.urls} (URLs separadas por vírgula dos shards 1..N); o shard 0 é o
+ * {@code spring.datasource} de sempre e guarda também as tabelas globais (lotes, card_stats, faixas e o
+ * diretório token/id). O schema dos shards 1..N não é criado pelo Hibernate: aplique o mesmo DDL em cada um.
+ * <p>
+ * Cada shard tem seu pool Hikari ({@code pool=shard-0..N} nas métricas {@code hikaricp.*}); os 1..N usam
+ * {@code cards.shards.hikari.*}. O DataSource da aplicação escolhe o pool em cada conexão nova pelo shard
+ * da thread; com o {@link LazyConnectionDataSourceProxy} a conexão física só sai no 1º comando, então um
+ * método {@code @Transactional} ainda pode escolher o shard depois de abrir a transação.
+ * Não combina com a réplica de leitura ({@link ReplicaDataSourceConfig}).
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "cards.shards", name = "urls")
+public class ShardDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource shard0DataSource(DataSourceProperties props) {
+        var ds = props.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        ds.setPoolName("shard-0");
+        return ds;
+    }
+
+    @Bean
+    public ShardDataSources shardDataSources(@Qualifier("shard0DataSource") HikariDataSource home,
+                                             DataSourceProperties props, Environment env,
+                                             ObjectProvider<MeterRegistry> meters,
+                                             @Value("${cards.shards.urls}") String urls,
+                                             @Value("${cards.shards.username:${spring.datasource.username:}}") String username,
+                                             @Value("${cards.shards.password:${spring.datasource.password:}}") String password) {
+        var pools = new ArrayList<HikariDataSource>();
+        pools.add(home);
+        var binder = Binder.get(env);
+        for (String url : Arrays.stream(urls.split(",")).map(String::strip).filter(u -> !u.isEmpty()).toList()) {
+            var ds = DataSourceBuilder.create().type(HikariDataSource.class)
+                    .driverClassName(props.determineDriverClassName())
+                    .url(url).username(username).password(password)
+                    .build();
+            binder.bind("cards.shards.hikari", Bindable.ofInstance(ds));
+            ds.setPoolName("shard-" + pools.size());
+            meters.ifAvailable(r -> ds.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(r)));
+            pools.add(ds);
+        }
+        return new ShardDataSources(pools);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardDataSources shards, @Value("${cards.datasource.replica.url:}") String replicaUrl) {
+        if (!replicaUrl.isBlank())
+            throw new IllegalStateException("cards.shards.urls and cards.datasource.replica.url cannot be combined");
+        var routing = new AbstractRoutingDataSource() {
+            @Override protected Object determineCurrentLookupKey() {
+                Integer s = ShardRouter.current();
+                return s == null ? ShardRouter.HOME : s;
+            }
+        };
+        Map<Object, Object> targets = new HashMap<>();
+        for (int s = 0; s < shards.size(); s++) targets.put(s, shards.get(s));
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(shards.get(ShardRouter.HOME));
+        routing.setLenientFallback(false);               // shard inexistente é erro, não o shard 0
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.api.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Pools dos shards, na ordem de {@code cards.shards.urls} depois do shard 0 ({@code spring.datasource}).
+ * Os pools 1..N não são beans: fecham aqui (o shard 0 fecha como bean).
+ */
+public record ShardDataSources(List<HikariDataSource> pools) implements AutoCloseable {
+
+    public DataSource get(int shard) { return pools.get(shard); }
+
+    public int size() { return pools.size(); }
+
+    /** shard 0 sem roteamento nem transação: cada comando commita sozinho */
+    public JdbcTemplate homeJdbc() { return new JdbcTemplate(pools.get(ShardRouter.HOME)); }
+
+    @Override
+    public void close() {
+        for (int s = 1; s < pools.size(); s++) pools.get(s).close();
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.api.config;
+
+import com.example.api.entity.ShardRange;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Shard dono de cada cartão (ver {@link ShardDataSourceConfig}).
+ * <p>
+ * O HMAC do PAN é uniforme: os 4 primeiros dígitos hex dão o balde (0..65535) e cada faixa de baldes tem um
+ * shard dono ({@link ShardRange}, carregadas pelo {@link com.example.api.service.ShardRebalancer}). Até a
+ * carga vale a divisão em faixas iguais, a mesma que a tabela recebe na primeira subida.
+ * <p>
+ * Dentro de {@link #on} as conexões novas vêm do pool do shard; fora, do shard 0 (que também guarda as
+ * tabelas globais). Quem já está numa transação segue na conexão dela: escolha o shard antes do 1º comando.
+ * Sem {@code cards.shards.urls} há um shard só e tudo roda direto.
+ */
+@Component
+public class ShardRouter {
+
+    public static final int BUCKETS = 1 << 16;
+    public static final int HOME = 0;
+
+    private static final ThreadLocal<Integer> SHARD = new ThreadLocal<>();
+
+    /** dono e, numa faixa em migração, o dono anterior (-1 = nenhum); trocados juntos */
+    private record Routes(short[] owner, short[] previous, List<ShardRange> ranges) {}
+
+    private final int shards;
+    private final ObjectProvider<ShardDataSources> sources;
+    private final TransactionTemplate writeTx, readTx;
+    private volatile Routes map;
+    private volatile ExecutorService pool;
+    private volatile JdbcTemplate home;
+
+    /** um shard só (testes de unidade) */
+    public ShardRouter() {
+        this("", null, null);
+    }
+
+    @Autowired
+    public ShardRouter(@Value("${cards.shards.urls:}") String urls, ObjectProvider<ShardDataSources> sources,
+                       PlatformTransactionManager txManager) {
+        this.shards = 1 + (int) Arrays.stream(urls.split(",")).filter(u -> !u.isBlank()).count();
+        this.sources = sources;
+        if (txManager != null) {
+            writeTx = new TransactionTemplate(txManager);
+            readTx = new TransactionTemplate(txManager);
+            readTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            readTx.setReadOnly(true);
+        } else {
+            writeTx = readTx = null;
+        }
+        this.map = build(uniform(shards));
+    }
+
+    public boolean sharded() { return shards > 1; }
+
+    public int shards() { return shards; }
+
+    /** balde do HMAC (hex minúsculo) */
+    public static int bucket(String hmacHex) {
+        return HexFormat.fromHexDigits(hmacHex, 0, 4);
+    }
+
+    /** shard que recebe as escritas do HMAC */
+    public int ownerOf(String hmacHex) { return sharded() ? map.owner()[bucket(hmacHex)] : HOME; }
+
+    public int ownerOfBucket(int bucket) { return sharded() ? map.owner()[bucket] : HOME; }
+
+    /** shard que ainda pode ter o cartão durante uma migração da faixa; -1 fora de migração */
+    public int previousOf(String hmacHex) { return sharded() ? map.previous()[bucket(hmacHex)] : -1; }
+
+    public int previousOfBucket(int bucket) { return sharded() ? map.previous()[bucket] : -1; }
+
+    public List<ShardRange> ranges() { return map.ranges(); }
+
+    /** troca o mapa inteiro (faixas já validadas: cobrem 0..65535 sem buraco) */
+    public void apply(List<ShardRange> ranges) { map = build(ranges); }
+
+    /** roda {@code work} com as conexões novas vindo do {@code shard} */
+    public <T> T on(int shard, Supplier<T> work) {
+        if (!sharded()) return work.get();
+        Integer prev = SHARD.get();
+        SHARD.set(shard);
+        try { return work.get(); }
+        finally { if (prev == null) SHARD.remove(); else SHARD.set(prev); }
+    }
+
+    public void run(int shard, Runnable work) { on(shard, () -> { work.run(); return null; }); }
+
+    /** transação só de leitura no shard, suspendendo a atual (que pode estar presa a outro shard) */
+    public <T> T read(int shard, Supplier<T> work) {
+        if (!sharded()) return work.get();
+        return on(shard, () -> readTx.execute(s -> work.get()));
+    }
+
+    /** transação no shard; para threads sem transação aberta (ex.: {@link #fanOut}) */
+    public <T> T write(int shard, Supplier<T> work) {
+        if (!sharded()) return work.get();
+        return on(shard, () -> writeTx.execute(s -> work.get()));
+    }
+
+    /**
+     * Transação no shard (ou a atual, se já houver uma), com ou sem shards: para quem decide o que fazer
+     * antes de pegar conexão e só então abre a transação.
+     */
+    public <T> T inTransaction(int shard, Supplier<T> work) {
+        if (writeTx == null) return work.get();
+        return on(shard, () -> writeTx.execute(s -> work.get()));
+    }
+
+    /**
+     * {@code work(shard)} para cada shard pedido, em paralelo, cada um já dentro de {@link #on}; espera todos.
+     * Falha em um não desfaz os outros: o chamador precisa tolerar (operações idempotentes).
+     */
+    public <T> Map<Integer, T> fanOut(Collection<Integer> targets, IntFunction<T> work) {
+        var out = new TreeMap<Integer, T>();
+        if (targets.size() <= 1 || !sharded()) {
+            for (int s : targets) out.put(s, on(s, () -> work.apply(s)));
+            return out;
+        }
+        var parts = new LinkedHashMap<Integer, CompletableFuture<T>>();
+        for (int s : targets) parts.put(s, CompletableFuture.supplyAsync(() -> on(s, () -> work.apply(s)), pool()));
+        try {
+            CompletableFuture.allOf(parts.values().toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            throw e;
+        }
+        parts.forEach((s, f) -> out.put(s, f.join()));
+        return out;
+    }
+
+    public List<Integer> all() {
+        var out = new ArrayList<Integer>(shards);
+        for (int s = 0; s < shards; s++) out.add(s);
+        return out;
+    }
+
+    /** JdbcTemplate direto no shard 0, fora do roteamento e de qualquer transação (autocommit); null sem shards */
+    public JdbcTemplate home() {
+        var h = home;
+        if (h == null && sources != null) {
+            var ds = sources.getIfAvailable();
+            if (ds != null) home = h = ds.homeJdbc();
+        }
+        return h;
+    }
+
+    /** shard escolhido na thread; null = shard 0 */
+    public static Integer current() { return SHARD.get(); }
+
+    @PreDestroy
+    void stop() {
+        var p = pool;
+        if (p != null) p.shutdownNow();
+    }
+
+    private ExecutorService pool() {
+        var p = pool;
+        if (p != null) return p;
+        synchronized (this) {
+            if (pool == null) pool = Executors.newFixedThreadPool(shards, Thread.ofPlatform().name("shard-", 0).daemon().factory());
+            return pool;
+        }
+    }
+
+    /** faixas iguais: balde b vai para o shard b * n / 65536 */
+    public static List<ShardRange> uniform(int n) {
+        var out = new ArrayList<ShardRange>(n);
+        for (int s = 0; s < n; s++) {
+            int first = (int) (((long) s * BUCKETS + n - 1) / n), last = (int) (((long) (s + 1) * BUCKETS + n - 1) / n) - 1;
+            out.add(ShardRange.builder().firstBucket(first).lastBucket(last).shard(s).build());
+        }
+        return out;
+    }
+
+    private Routes build(List<ShardRange> ranges) {
+        var owner = new short[BUCKETS];
+        var previous = new short[BUCKETS];
+        Arrays.fill(owner, (short) -1);
+        for (var r : ranges) {
+            if (r.getShard() < 0 || r.getShard() >= shards)
+                throw new IllegalStateException("shard_range_unknown_shard: " + r.getShard() + " (configured " + shards + ")");
+            short prev = (short) (r.getMovingFrom() == null ? -1 : r.getMovingFrom());
+            for (int b = r.getFirstBucket(); b <= r.getLastBucket(); b++) { owner[b] = (short) r.getShard(); previous[b] = prev; }
+        }
+        for (int b = 0; b < BUCKETS; b++) if (owner[b] < 0) throw new IllegalStateException("shard_range_gap: bucket " + b);
+        var sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingInt(ShardRange::getFirstBucket));
+        return new Routes(owner, previous, List.copyOf(sorted));
+    }
+}
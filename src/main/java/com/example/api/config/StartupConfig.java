@@ -0,0 +1,59 @@
+package com.example.api.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+/**
+ * Start mais curto sem {@code spring.main.lazy-initialization} global (que adiaria para a 1ª requisição
+ * erros de configuração e o aquecimento do que é crítico: pool, JPA, segurança, binders).
+ * <p>
+ * Só os beans de {@code cards.startup.lazy-packages} (prefixos de pacote ou classe; no perfil prod,
+ * {@code org.springdoc}) viram lazy: criados no primeiro uso. Um bean casa pelo tipo, pela classe
+ * {@code @Configuration} que o declara ou pelo tipo de retorno do método {@code @Bean}. Com AOT o
+ * flag fica gravado no código gerado no build.
+ */
+@Configuration(proxyBeanMethods = false)
+@Slf4j
+public class StartupConfig {
+
+    @Bean
+    static BeanFactoryPostProcessor lazyBeans(Environment env) {
+        List<String> prefixes = Binder.get(env).bind("cards.startup.lazy-packages", Bindable.listOf(String.class)).orElse(List.of());
+        return bf -> {
+            if (prefixes.isEmpty()) return;
+            int n = 0;
+            for (String name : bf.getBeanDefinitionNames()) {
+                var bd = bf.getBeanDefinition(name);
+                if (bd.isLazyInit() || bd.getRole() == BeanDefinition.ROLE_INFRASTRUCTURE || !matches(bf, bd, prefixes)) continue;
+                bd.setLazyInit(true);
+                n++;
+            }
+            log.info("{} beans under {} set to lazy init", n, prefixes);
+        };
+    }
+
+    private static boolean matches(ConfigurableListableBeanFactory bf, BeanDefinition bd, List<String> prefixes) {
+        String type = bd.getBeanClassName();
+        if (type == null && bd.getFactoryBeanName() != null && bf.containsBeanDefinition(bd.getFactoryBeanName()))
+            type = bf.getBeanDefinition(bd.getFactoryBeanName()).getBeanClassName();   // @Bean: classe que declara
+        if (matches(type, prefixes)) return true;
+        return bd instanceof AnnotatedBeanDefinition a && a.getFactoryMethodMetadata() != null
+                && matches(a.getFactoryMethodMetadata().getReturnTypeName(), prefixes);
+    }
+
+    private static boolean matches(String type, List<String> prefixes) {
+        if (type == null) return false;
+        for (String p : prefixes) if (type.startsWith(p)) return true;
+        return false;
+    }
+}
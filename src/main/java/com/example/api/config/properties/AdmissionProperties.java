@@ -0,0 +1,42 @@
+package com.example.api.config.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "cards.admission")
+public record AdmissionProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("4") int stripes,      // stripes por balde (clientes quentes disputam menos o CAS)
+        Lane lookup,                         // GET /cards/** — lane interativa
+        Lane write,                          // POST /cards
+        Capped upload,                       // POST /cards/upload — lane de carga
+        Capped bulk                          // GET /cards/export, POST /cards/detokenize — respostas em massa
+) {
+    /** taxa por client id; rate <= 0 = sem limite */
+    public record Lane(double rate, int burst) {
+        public Lane { if (burst < 1) burst = Math.max(1, (int) Math.ceil(rate)); }
+    }
+
+    /** taxa + teto de requisições simultâneas (por client id e global; <= 0 = sem teto) */
+    public record Capped(double rate, int burst,
+                         int maxPerClient,   // simultâneas por client id
+                         int maxGlobal,      // simultâneas no total (deixe abaixo do pool do Hikari)
+                         Duration retryAfter) {
+        public Capped {
+            if (burst < 1) burst = Math.max(1, (int) Math.ceil(rate));
+            if (retryAfter == null) retryAfter = Duration.ofSeconds(5);
+        }
+
+        public Lane lane() { return new Lane(rate, burst); }
+    }
+
+    public AdmissionProperties {
+        if (stripes < 1) stripes = 1;
+        if (lookup == null) lookup = new Lane(200, 400);
+        if (write == null) write = new Lane(50, 100);
+        if (upload == null) upload = new Capped(0.2, 2, 1, 4, Duration.ofSeconds(5));
+        if (bulk == null) bulk = new Capped(1, 2, 1, 2, Duration.ofSeconds(5));
+    }
+}
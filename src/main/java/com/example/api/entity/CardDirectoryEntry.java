@@ -0,0 +1,18 @@
+package com.example.api.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * Índice global token/id -> balde do HMAC, no shard 0. Guarda o balde e não o shard: mover faixas entre
+ * shards não mexe aqui. Só existe com sharding ligado (ver {@link com.example.api.service.CardDirectory}).
+ */
+@Entity @Table(name="card_directory")
+@Getter @Setter @Builder @NoArgsConstructor @AllArgsConstructor
+public class CardDirectoryEntry {
+    @Id @Column(length=32) private String token;
+    @Column(nullable=false, unique=true, columnDefinition="BINARY(16)") private UUID id;
+    @Column(nullable=false) private int bucket;
+}
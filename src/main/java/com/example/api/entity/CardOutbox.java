@@ -0,0 +1,23 @@
+package com.example.api.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+
+/**
+ * Outbox de eventos de cartão: gravado na mesma transação do {@code card_tokens} e drenado pelo relay.
+ * Só id/token/last4/bin — nenhum dado do PAN. {@code id} crescente = ordem de publicação.
+ */
+@Entity @Table(name="card_outbox")
+@Getter @Setter @Builder @NoArgsConstructor @AllArgsConstructor
+public class CardOutbox {
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY) private Long id;
+    @Column(nullable=false, length=32) private String type;
+    @Column(nullable=false, length=36) private String cardId;
+    @Column(nullable=false, length=32) private String token;
+    @Column(nullable=false, length=4)  private String last4;
+    @Column(nullable=false, length=8)  private String bin;
+    @CreationTimestamp @Column(updatable=false) private Instant createdAt;
+}
@@ -0,0 +1,20 @@
+package com.example.api.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Agregado de contagem de cartões por balde: {@code bin:445689}, {@code brand:VISA}, {@code expiry:2027-05}.
+ * <p>
+ * Mantido por incremento ({@code cards = cards + delta}) a partir dos contadores em memória de cada nó;
+ * ver {@link com.example.api.service.CardStatsService}. Poucas centenas de linhas, nunca varre card_tokens.
+ */
+@Entity @Table(name="card_stats")
+@Getter @Setter @Builder @NoArgsConstructor @AllArgsConstructor
+public class CardStat {
+    @Id @Column(length=80) private String bucket;
+    @Column(nullable=false) private long cards;
+    private Instant updatedAt;
+}
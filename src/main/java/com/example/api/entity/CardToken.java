@@ -10,8 +10,9 @@ import java.time.Instant;
 import java.util.UUID;
 
 @Entity @Table(name="card_tokens",
-        indexes = {@Index(name="idx_expiry", columnList="expiryYear,expiryMonth"),
-                @Index(name="idx_bin",    columnList="bin")}
+        // id no fim: a listagem por keyset ordena por (coluna, id) direto no índice
+        indexes = {@Index(name="idx_expiry", columnList="expiryYear,expiryMonth,id"),
+                @Index(name="idx_bin",    columnList="bin,id")}
 )
 @Getter @Setter @Builder @NoArgsConstructor @AllArgsConstructor
 @ToString(exclude = {"panEnc"})
@@ -23,6 +24,7 @@ public class CardToken {
     @Column(nullable=false, length=8)  private String bin;
     @Column(nullable=false, length=4)  private String last4;
     private String brand;
+    @Column(length=16) private String cardType;
     @Column(nullable=false) private int expiryMonth;
     @Column(nullable=false) private int expiryYear;
     @CreationTimestamp @Column(updatable=false) private Instant createdAt;
@@ -0,0 +1,18 @@
+package com.example.api.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Lease de um job que só pode rodar em um nó por vez (ex.: o relay do outbox). Fica no shard 0.
+ * Quem tem o lease renova antes de cada passo; sem renovação por {@code ttl}, outro nó assume.
+ */
+@Entity @Table(name="job_lease")
+@Getter @Setter @Builder @NoArgsConstructor @AllArgsConstructor
+public class JobLease {
+    @Id @Column(length=32) private String name;
+    @Column(length=32) private String owner;
+    private Instant leaseUntil;
+}
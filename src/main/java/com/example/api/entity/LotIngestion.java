@@ -0,0 +1,43 @@
+package com.example.api.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Estado da ingestão de um lote (chave = {@code lot} do header do arquivo).
+ * <p>
+ * {@code processed} é o checkpoint: quantos detalhes do arquivo já foram aplicados e commitados.
+ * Os contadores são acumulados entre tentativas; um reenvio do mesmo lote pula os {@code processed}
+ * primeiros detalhes e soma só o que falta.
+ * <p>
+ * {@code owner}/{@code leaseUntil} formam o lease entre nós: só quem tem o lease processa o lote, e cada
+ * checkpoint renova o prazo (heartbeat). Lease vencido pode ser tomado por outro upload do mesmo lote.
+ */
+@Entity @Table(name="lot_ingestion")
+@Getter @Setter @Builder @NoArgsConstructor @AllArgsConstructor
+public class LotIngestion {
+
+    public enum Status { RUNNING, COMPLETED }
+
+    @Id @Column(length=16) private String lot;
+    @Column(nullable=false, length=32) private String name;
+    @Column(nullable=false) private LocalDate fileDate;
+    @Column(nullable=false) private int qty;
+    @Enumerated(EnumType.STRING) @Column(nullable=false, length=16) private Status status;
+    @Column(nullable=false) private int processed;
+    @Column(nullable=false) private int lastLine;
+    private Integer lastSeq;
+    @Column(nullable=false) private int created;
+    @Column(nullable=false) private int duplicates;
+    @Column(nullable=false) private int failed;
+    @Column(nullable=false) private int attempts;
+    @Column(length=32) private String owner;
+    private Instant leaseUntil;
+    @CreationTimestamp @Column(updatable=false) private Instant startedAt;
+    @UpdateTimestamp private Instant updatedAt;
+}
@@ -0,0 +1,23 @@
+package com.example.api.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Faixa de baldes do HMAC do PAN (4 primeiros dígitos hex, 0..65535) e o shard dono.
+ * <p>
+ * {@code movingFrom} preenchido = faixa em migração: escritas já vão para {@code shard}, leituras que não
+ * acham lá ainda consultam {@code movingFrom} (ver {@link com.example.api.service.ShardRebalancer}).
+ * Fica no shard 0, junto das tabelas globais.
+ */
+@Entity @Table(name="shard_ranges")
+@Getter @Setter @Builder @NoArgsConstructor @AllArgsConstructor
+public class ShardRange {
+    @Id private int firstBucket;
+    @Column(nullable=false) private int lastBucket;
+    @Column(nullable=false) private int shard;
+    private Integer movingFrom;
+    private Instant updatedAt;
+}
@@ -0,0 +1,73 @@
+package com.example.api.messaging;
+
+import com.example.api.service.interfaces.CardSecureService;
+import com.example.api.web.request.CardCreateRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Consumidor em lote de {@code cardCreate-in-0} (Spring Cloud Stream, batch-mode).
+ * <p>
+ * O lote passa por {@link CardSecureService#createOrGetBatch} numa transação; só depois do commit os
+ * resultados são publicados em {@value #RESULTS}, um por cartão, e o método retorna — o ack do lote
+ * (modo AUTO) acontece nesse retorno. Exceção aqui = lote devolvido e reentregue; como a criação é
+ * idempotente pelo HMAC, reentrega vira "duplicate" (entrega pelo menos uma vez).
+ * Conflito de chave única com outra instância derruba a transação do lote; aí cai para item a item.
+ * Validade fora da faixa volta como "invalid" sem chegar ao serviço.
+ */
+@Component("cardCreate")
+@RequiredArgsConstructor
+@Slf4j
+public class CardCreateConsumer implements Consumer<List<CardCreateMessage>> {
+
+    static final String RESULTS = "cardCreateResult-out-0";
+
+    private final CardSecureService secureService;
+    private final StreamBridge bridge;
+
+    @Override
+    public void accept(List<CardCreateMessage> batch) {
+        var results = new CardSecureService.BatchResult[batch.size()];
+        var reqs = new ArrayList<CardCreateRequest>(batch.size());
+        var slots = new ArrayList<Integer>(batch.size());           // posição no lote de cada req válida
+        for (int i = 0; i < batch.size(); i++) {
+            var r = batch.get(i).toRequest();
+            var error = CardCreateMessage.invalid(r);
+            if (error != null) results[i] = CardSecureService.BatchResult.invalid(error);
+            else { reqs.add(r); slots.add(i); }
+        }
+
+        List<CardSecureService.BatchResult> created = List.of();
+        if (!reqs.isEmpty()) {
+            try {
+                created = secureService.createOrGetBatch(reqs);
+            } catch (RuntimeException e) {
+                log.warn("card batch of {} failed ({}), retrying item by item", reqs.size(), e.toString());
+                created = oneByOne(reqs);
+            }
+        }
+        for (int j = 0; j < created.size(); j++) results[slots.get(j)] = created.get(j);
+        for (int i = 0; i < batch.size(); i++) {
+            bridge.send(RESULTS, CardCreateResult.of(batch.get(i).requestId(), results[i]));
+        }
+    }
+
+    /** cada item na própria transação; só erro de validação vira resultado, o resto devolve o lote */
+    private List<CardSecureService.BatchResult> oneByOne(List<CardCreateRequest> reqs) {
+        var out = new ArrayList<CardSecureService.BatchResult>(reqs.size());
+        for (var r : reqs) {
+            try {
+                out.add(CardSecureService.BatchResult.ok(secureService.createOrGet(r, null, null)));
+            } catch (IllegalArgumentException invalid) {
+                out.add(CardSecureService.BatchResult.invalid(invalid.getMessage()));
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.api.messaging;
+
+import com.example.api.web.request.CardCreateRequest;
+
+/** mensagem de criação de cartão (fila {@code cards.create}); {@code requestId} volta no resultado */
+public record CardCreateMessage(
+        String requestId,
+        String cardNumber,
+        String holderName,
+        Integer expiryMonth,
+        Integer expiryYear,
+        String brand
+) {
+    /** mesmos defaults da ingestão por arquivo quando o campo não vem */
+    public CardCreateRequest toRequest() {
+        return new CardCreateRequest(cardNumber == null ? "" : cardNumber,
+                holderName == null ? "UNKNOWN" : holderName,
+                expiryMonth == null ? 12 : expiryMonth,
+                expiryYear == null ? 2099 : expiryYear,
+                brand, null);
+    }
+
+    /**
+     * Mesmas faixas do {@code @Min}/{@code @Max} de {@link CardCreateRequest} (a fila não passa pelo
+     * {@code @Valid} do controller); código do erro ou null.
+     */
+    public static String invalid(CardCreateRequest r) {
+        if (r.expiryMonth() < 1 || r.expiryMonth() > 12) return "invalid_expiry_month";
+        if (r.expiryYear() < 2000) return "invalid_expiry_year";
+        return null;
+    }
+}
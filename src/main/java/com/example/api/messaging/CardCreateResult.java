@@ -0,0 +1,19 @@
+package com.example.api.messaging;
+
+import com.example.api.service.interfaces.CardSecureService;
+
+/** resultado por cartão (destino {@code cards.create.result}); nunca carrega o PAN */
+public record CardCreateResult(
+        String requestId,
+        String status,      // created | duplicate | invalid
+        String id,
+        String token,
+        String last4,
+        String error
+) {
+    public static CardCreateResult of(String requestId, CardSecureService.BatchResult r) {
+        if (r.error() != null) return new CardCreateResult(requestId, "invalid", null, null, null, r.error());
+        var p = r.result();
+        return new CardCreateResult(requestId, p.duplicate() ? "duplicate" : "created", p.id(), p.token(), p.last4(), null);
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.api.messaging;
+
+import java.time.Instant;
+
+/** evento publicado em {@code cards.created} pelo relay do outbox; nunca carrega o PAN */
+public record CardCreatedMessage(long sequence, String id, String token, String last4, String bin, Instant createdAt) {}
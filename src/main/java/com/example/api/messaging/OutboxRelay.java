@@ -0,0 +1,183 @@
+package com.example.api.messaging;
+
+import com.example.api.config.ShardRouter;
+import com.example.api.entity.CardOutbox;
+import com.example.api.entity.JobLease;
+import com.example.api.repository.CardOutboxRepository;
+import com.example.api.repository.JobLeaseRepository;
+import com.example.api.util.RequestIds;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drena o {@code card_outbox} para {@code cardCreated-out-0} (destino {@code cards.created}).
+ * <p>
+ * A cada {@code cards.outbox.linger} lê até {@code batch-size} linhas em ordem de id, publica na mesma ordem
+ * (ordem por cartão preservada) e apaga só o prefixo que o broker confirmou — o resto fica para a próxima
+ * rodada. Publicado e não apagado (queda no meio) sai de novo: entrega pelo menos uma vez; consumidores
+ * deduplicam por {@code sequence}. Com {@code wait-confirms} cada lote espera os publisher confirms do Rabbit.
+ * Com sharding, cada shard é drenado em sequência (a ordem vale por cartão, e o cartão está num shard só).
+ * <p>
+ * Um relay por vez entre os nós: antes de cada lote o nó toma/renova o lease {@code outbox-relay}
+ * ({@code job_lease}, shard 0); quem não tem o lease não lê o outbox. Nó parado sem soltar o lease é
+ * substituído depois de {@code lease-ttl} (maior que {@code confirm-timeout}). Publicação e espera dos
+ * confirms ficam fora de transação; só o DELETE do prefixo confirmado abre uma, curta.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OutboxRelay implements MeterBinder {
+
+    static final String BINDING = "cardCreated-out-0";
+    static final String LEASE = "outbox-relay";
+
+    private final CardOutboxRepository outbox;
+    private final StreamBridge bridge;
+    private final TransactionTemplate tx;
+    private final ShardRouter shards;
+    private final JobLeaseRepository leases;
+    private final String owner = RequestIds.next();
+
+    @Value("${cards.outbox.batch-size:200}")
+    private int batchSize = 200;
+
+    @Value("${cards.outbox.wait-confirms:true}")
+    private boolean waitConfirms = true;
+
+    @Value("${cards.outbox.confirm-timeout:10s}")
+    private Duration confirmTimeout = Duration.ofSeconds(10);
+
+    @Value("${cards.outbox.lease-ttl:30s}")
+    private Duration leaseTtl = Duration.ofSeconds(30);
+
+    private final LongAdder published = new LongAdder(), failed = new LongAdder();
+
+    @Scheduled(fixedDelayString = "${cards.outbox.linger:500ms}")
+    public void relay() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            log.warn("outbox relay failed: {}", e.toString());
+        }
+    }
+
+    /** publica lotes até o outbox ficar abaixo de um lote cheio; devolve quantos saíram (0 sem o lease) */
+    public int drain() {
+        int total = 0;
+        for (int s : shards.all()) {                      // cada shard tem o outbox dos seus cartões
+            for (;;) {
+                if (!lease()) return total;                // outro nó é o relay
+                int n = shards.on(s, this::publishBatch);
+                total += n;
+                if (n < batchSize) break;
+            }
+        }
+        return total;
+    }
+
+    /** solta o lease no shutdown: outro nó assume sem esperar o TTL */
+    @PreDestroy
+    void stop() {
+        try {
+            tx.executeWithoutResult(s -> leases.release(LEASE, owner));
+        } catch (RuntimeException e) {
+            log.debug("outbox relay lease not released: {}", e.toString());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cards.outbox.published", published, LongAdder::sum)
+                .description("outbox events confirmed and removed")
+                .register(registry);
+        FunctionCounter.builder("cards.outbox.failed", failed, LongAdder::sum)
+                .description("outbox events not confirmed (kept for the next round)")
+                .register(registry);
+    }
+
+    private int publishBatch() {
+        List<CardOutbox> rows = outbox.findAllByOrderByIdAsc(PageRequest.of(0, batchSize));
+        if (rows.isEmpty()) return 0;
+
+        var confirms = new ArrayList<CorrelationData>(rows.size());
+        int sent = 0;
+        for (var r : rows) {
+            var msg = MessageBuilder
+                    .withPayload(new CardCreatedMessage(r.getId(), r.getCardId(), r.getToken(), r.getLast4(), r.getBin(), r.getCreatedAt()))
+                    .setHeader("cardId", r.getCardId())
+                    .setHeader("type", r.getType());
+            CorrelationData cd = waitConfirms ? new CorrelationData(String.valueOf(r.getId())) : null;
+            if (cd != null) msg.setHeader(AmqpHeaders.PUBLISH_CONFIRM_CORRELATION, cd);
+            if (!bridge.send(BINDING, msg.build())) break;
+            confirms.add(cd);
+            sent++;
+        }
+        int ok = waitConfirms ? confirmedPrefix(confirms) : sent;
+
+        if (ok > 0) {
+            var ids = rows.subList(0, ok).stream().map(CardOutbox::getId).toList();
+            tx.executeWithoutResult(s -> outbox.deleteAllByIdInBatch(ids));
+        }
+        published.add(ok);
+        if (ok < rows.size()) {
+            failed.add(rows.size() - ok);
+            log.warn("outbox relay: {} of {} events published, rest kept for retry", ok, rows.size());
+            return 0;                                    // para o loop: tenta de novo no próximo ciclo
+        }
+        return ok;
+    }
+
+    /** toma ou renova o lease do relay (transação curta no shard 0); a linha é criada na 1ª vez */
+    private boolean lease() {
+        if (acquire()) return true;
+        if (leases.existsById(LEASE)) return false;
+        try {
+            tx.executeWithoutResult(s -> leases.save(JobLease.builder().name(LEASE).build()));
+        } catch (DataIntegrityViolationException race) {
+            // outro nó criou a linha ao mesmo tempo; a disputa segue pelo UPDATE
+        }
+        return acquire();
+    }
+
+    private boolean acquire() {
+        var now = Instant.now();
+        Integer n = tx.execute(s -> leases.acquire(LEASE, owner, now, now.plus(leaseTtl)));
+        return n != null && n == 1;
+    }
+
+    /** quantos, a partir do início, o broker confirmou (para no primeiro nack/timeout para manter a ordem) */
+    private int confirmedPrefix(List<CorrelationData> confirms) {
+        long deadline = System.nanoTime() + confirmTimeout.toNanos();
+        for (int i = 0; i < confirms.size(); i++) {
+            try {
+                var c = confirms.get(i).getFuture().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (!c.isAck()) return i;
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+                return i;
+            }
+        }
+        return confirms.size();
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.api.observability;
+
+import com.example.api.util.MpscRingBuffer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Auditoria HTTP fora da thread da requisição.
+ * <p>
+ * A requisição só monta um {@link Entry} e faz {@link #offer(Entry)} numa fila circular sem lock;
+ * formatação e I/O ficam com uma thread dedicada ({@code audit-writer}) que drena em lotes e escreve
+ * no logger {@code http.audit} uma linha {@code chave=valor} por requisição.
+ * Fila cheia não bloqueia ninguém: o registro é descartado e contado ({@code cards.audit.dropped}),
+ * com um WARN periódico enquanto houver descarte.
+ */
+@Component
+@Slf4j
+public class AuditLog implements MeterBinder {
+
+    private static final Logger AUDIT = LoggerFactory.getLogger("http.audit");
+
+    /** um registro consolidado por requisição */
+    public record Entry(long epochMillis, String requestId, String method, String path, int status,
+                        long durationMs, String remote, String userAgent, String clientId, String sub) {}
+
+    @Value("${cards.audit.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${cards.audit.capacity:65536}")
+    private int capacity = 65536;
+
+    @Value("${cards.audit.batch-size:512}")
+    private int batchSize = 512;
+
+    @Value("${cards.audit.idle-park:2ms}")
+    private Duration idlePark = Duration.ofMillis(2);
+
+    @Value("${cards.audit.drop-report-interval:10s}")
+    private Duration dropReportInterval = Duration.ofSeconds(10);
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private MpscRingBuffer<Entry> ring;
+    private Thread writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        ring = new MpscRingBuffer<>(capacity);
+        running = true;
+        writer = Thread.ofPlatform().name("audit-writer").daemon().start(this::drainLoop);
+    }
+
+    /** para o writer depois de esvaziar a fila */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer == null) return;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /** nunca bloqueia; false = descartado (fila cheia) */
+    public boolean offer(Entry e) {
+        if (!enabled) return true;
+        if (ring.offer(e)) return true;
+        dropped.increment();
+        return false;
+    }
+
+    public boolean enabled() { return enabled; }
+    public long dropped() { return dropped.sum(); }
+    public long written() { return written.sum(); }
+    public int pending() { return ring == null ? 0 : ring.size(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cards.audit.dropped", dropped, LongAdder::sum)
+                .description("audit records dropped because the queue was full")
+                .register(registry);
+        FunctionCounter.builder("cards.audit.written", written, LongAdder::sum)
+                .description("audit records written")
+                .register(registry);
+        Gauge.builder("cards.audit.pending", this, AuditLog::pending)
+                .description("audit records waiting for the writer")
+                .register(registry);
+    }
+
+    /* ---------- writer ---------- */
+
+    private void drainLoop() {
+        var sb = new StringBuilder(256);                 // reaproveitado: só esta thread formata
+        long park = idlePark.toNanos(), reportEvery = dropReportInterval.toNanos();
+        long lastReport = System.nanoTime(), reportedDrops = 0;
+        while (running || ring.size() > 0) {
+            int n;
+            try {
+                n = ring.drain(e -> write(sb, e), batchSize);
+            } catch (RuntimeException ex) {               // appender com problema não pode matar o writer
+                log.warn("audit write failed: {}", ex.toString());
+                n = 0;
+            }
+            if (n > 0) written.add(n);
+            long now = System.nanoTime();
+            if (now - lastReport >= reportEvery) {
+                long d = dropped.sum();
+                if (d > reportedDrops) log.warn("audit queue full: {} records dropped ({} total)", d - reportedDrops, d);
+                reportedDrops = d;
+                lastReport = now;
+            }
+            if (n == 0 && running) LockSupport.parkNanos(park);
+        }
+    }
+
+    private void write(StringBuilder sb, Entry e) {
+        if (!AUDIT.isInfoEnabled()) return;
+        sb.setLength(0);
+        sb.append("ts=").append(Instant.ofEpochMilli(e.epochMillis()));
+        kv(sb, "requestId", e.requestId());
+        kv(sb, "method", e.method());
+        kv(sb, "path", e.path());
+        sb.append(" status=").append(e.status());
+        sb.append(" durationMs=").append(e.durationMs());
+        kv(sb, "remote", e.remote());
+        kv(sb, "clientId", e.clientId());
+        kv(sb, "sub", e.sub());
+        kv(sb, "userAgent", e.userAgent());
+        AUDIT.info(sb.toString());
+    }
+
+    /** logfmt: aspas só quando o valor tem espaço, aspas ou '=' */
+    static void kv(StringBuilder sb, String k, String v) {
+        if (v == null) return;
+        sb.append(' ').append(k).append('=');
+        boolean quote = v.isEmpty();
+        for (int i = 0; i < v.length() && !quote; i++) {
+            char c = v.charAt(i);
+            quote = c <= ' ' || c == '"' || c == '=';
+        }
+        if (!quote) { sb.append(v); return; }
+        sb.append('"');
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < ' ') sb.append(' ');
+            else sb.append(c);
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.api.observability;
+
+import jdk.jfr.*;
+
+/** Um lote em {@code createOrGetBatch}. Um evento por lote (volume baixo): ligado por padrão. */
+@Name("cards.CardBatchPersist")
+@Label("Card Batch Persist")
+@Category({"Cards", "Ingestion"})
+@StackTrace(false)
+public class CardBatchPersistEvent extends Event {
+    @Label("Items") public int items;
+    @Label("Invalid") public int invalid;
+    @Label("Created") public int created;
+    @Label("Duplicates") public int duplicates;
+    @Label("Coalesced") public int coalesced;
+    @Label("Shards") public int shards;
+}
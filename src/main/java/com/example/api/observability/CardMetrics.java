@@ -0,0 +1,73 @@
+package com.example.api.observability;
+
+import io.micrometer.core.instrument.*;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Métricas do caminho quente de ingestão/consulta (expostas em /actuator/prometheus).
+ * <p>
+ * Os timers são criados uma vez por estágio; no caminho quente é só {@link #start()} +
+ * {@link #stop(Stage, long)}, sem lookup de tags nem lambda. Os percentis saem do histograma
+ * (agregado no Prometheus), que custa um incremento de bucket por registro.
+ */
+@Component
+public class CardMetrics {
+
+    /** VALIDATE = pré-checagem do PAN na ingestão por arquivo; NORMALIZE = o mesmo passo dentro do serviço */
+    public enum Stage { PARSE, VALIDATE, NORMALIZE, HMAC, ENCRYPT, LOOKUP, INSERT }
+
+    private final Timer[] stages = new Timer[Stage.values().length];
+    private final Counter created, duplicates, invalid;
+    private final DistributionSummary uploadLines;
+    private final AtomicInteger uploadsInFlight = new AtomicInteger();
+
+    public CardMetrics(MeterRegistry registry) {
+        for (Stage s : Stage.values()) {
+            stages[s.ordinal()] = Timer.builder("cards.stage")
+                    .description("hot-path stage latency")
+                    .tag("stage", s.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+        created    = items(registry, "created");
+        duplicates = items(registry, "duplicate");
+        invalid    = items(registry, "invalid");
+        uploadLines = DistributionSummary.builder("cards.upload.lines")
+                .description("detail lines per upload")
+                .publishPercentileHistogram()
+                .register(registry);
+        Gauge.builder("cards.upload.inflight", uploadsInFlight, AtomicInteger::get)
+                .description("uploads being processed")
+                .register(registry);
+    }
+
+    public long start() { return System.nanoTime(); }
+
+    /** registra o estágio e devolve a duração (ns), para quem também quiser usá-la (ex.: eventos JFR) */
+    public long stop(Stage stage, long startNanos) {
+        long d = System.nanoTime() - startNanos;
+        stages[stage.ordinal()].record(d, TimeUnit.NANOSECONDS);
+        return d;
+    }
+
+    public void uploadStarted() { uploadsInFlight.incrementAndGet(); }
+
+    /** fecha um upload: contadores por resultado somados uma vez, não por linha */
+    public void uploadFinished(int lines, int created, int duplicates, int invalid) {
+        uploadsInFlight.decrementAndGet();
+        uploadLines.record(lines);
+        this.created.increment(created);
+        this.duplicates.increment(duplicates);
+        this.invalid.increment(invalid);
+    }
+
+    private static Counter items(MeterRegistry registry, String result) {
+        return Counter.builder("cards.upload.items")
+                .description("upload lines by outcome")
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.api.observability;
+
+import jdk.jfr.*;
+
+/**
+ * Uma linha/cartão em {@code createOrGet}, com a divisão cripto x DB.
+ * Desligado por padrão (alto volume): a gravação por upload liga com threshold/amostragem.
+ */
+@Name("cards.CardPersist")
+@Label("Card Persist")
+@Category({"Cards", "Ingestion"})
+@Enabled(false)
+@StackTrace(false)
+public class CardPersistEvent extends Event {
+    @Label("Lot") public String lot;
+    @Label("Sequence") public int seq;
+    @Label("Duplicate") public boolean duplicate;
+    @Label("Coalesced") public boolean coalesced;
+    @Label("Normalize") @Timespan public long normalizeNanos;
+    @Label("HMAC") @Timespan public long hmacNanos;
+    @Label("Lookup") @Timespan public long lookupNanos;
+    @Label("Encrypt") @Timespan public long encryptNanos;
+    @Label("Insert") @Timespan public long insertNanos;
+}
@@ -0,0 +1,14 @@
+package com.example.api.observability;
+
+import jdk.jfr.*;
+
+/** Operação de {@code CryptoServiceImpl} (hmac/encrypt). Desligado por padrão. */
+@Name("cards.Crypto")
+@Label("Card Crypto")
+@Category({"Cards", "Crypto"})
+@Enabled(false)
+@StackTrace(false)
+public class CryptoEvent extends Event {
+    @Label("Operation") public String op;
+    @Label("Bytes") @DataAmount public int bytes;
+}
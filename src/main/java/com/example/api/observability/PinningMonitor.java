@@ -0,0 +1,130 @@
+package com.example.api.observability;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Detecta virtual threads presas à carrier ({@code jdk.VirtualThreadPinned}) via JFR em streaming.
+ * <p>
+ * Cada evento acima de {@code cards.vthreads.pinning.threshold} conta em {@code cards.vthread.pinned}
+ * e é agrupado por "local": primeiro frame fora do mecanismo de park + primeiro frame do nosso código.
+ * O primeiro evento de cada local vai para o log com a pilha; os totais por local ficam em
+ * {@code /actuator/pinning}. Ligado por padrão quando {@code spring.threads.virtual.enabled=true}.
+ */
+@Component
+@Slf4j
+public class PinningMonitor {
+
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "com.example.api.";
+    private static final int MAX_SITES = 200, LOGGED_FRAMES = 12;
+
+    @Value("${cards.vthreads.pinning.enabled:${spring.threads.virtual.enabled:false}}")
+    private boolean enabled;
+
+    @Value("${cards.vthreads.pinning.threshold:20ms}")
+    private Duration threshold = Duration.ofMillis(20);
+
+    private final Counter pinned;
+    private final Timer pinnedTime;
+    private final Map<String, LongAdder> sites = new ConcurrentHashMap<>();
+    private RecordingStream stream;
+
+    public PinningMonitor(MeterRegistry registry) {
+        pinned = Counter.builder("cards.vthread.pinned")
+                .description("virtual thread pinned events above the threshold")
+                .register(registry);
+        pinnedTime = Timer.builder("cards.vthread.pinned.duration")
+                .description("time virtual threads stayed pinned to the carrier")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        try {
+            var rs = new RecordingStream();
+            rs.enable(EVENT).withThreshold(threshold).withStackTrace();
+            rs.onEvent(EVENT, this::onPinned);
+            rs.startAsync();
+            stream = rs;
+            log.info("virtual thread pinning monitor started (threshold={})", threshold);
+        } catch (RuntimeException e) {                  // JFR indisponível (ex.: imagem sem o módulo)
+            log.warn("virtual thread pinning monitor not started: {}", e.toString());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) stream.close();
+    }
+
+    public boolean running() { return stream != null; }
+    public long total() { return (long) pinned.count(); }
+
+    /** locais ordenados do mais frequente para o menos */
+    public Map<String, Long> sites() {
+        var out = new LinkedHashMap<String, Long>();
+        sites.entrySet().stream()
+                .sorted(Map.Entry.<String, LongAdder>comparingByValue(Comparator.comparingLong(LongAdder::sum)).reversed())
+                .forEach(e -> out.put(e.getKey(), e.getValue().sum()));
+        return out;
+    }
+
+    void onPinned(RecordedEvent e) {
+        pinned.increment();
+        pinnedTime.record(e.getDuration());
+        List<RecordedFrame> frames = e.getStackTrace() == null ? List.of() : e.getStackTrace().getFrames();
+        String site = site(frames);
+        var n = sites.get(site);
+        if (n == null) {
+            if (sites.size() >= MAX_SITES) site = "other";
+            n = sites.computeIfAbsent(site, k -> new LongAdder());
+            if (n.sum() == 0) log.warn("virtual thread pinned for {} ms at {}\n{}", e.getDuration().toMillis(), site, stack(frames));
+        }
+        n.increment();
+    }
+
+    static String site(List<RecordedFrame> frames) {
+        if (frames.isEmpty()) return "unknown";
+        String top = null;
+        for (var f : frames) {
+            if (top == null && !parking(f.getMethod().getType().getName())) top = frame(f);
+            if (f.getMethod().getType().getName().startsWith(APP_PACKAGE)) {
+                String app = frame(f);
+                return top == null || app.equals(top) ? app : top + " <- " + app;
+            }
+        }
+        return top != null ? top : frame(frames.get(0));
+    }
+
+    /** frames do próprio mecanismo de park: o topo da pilha é sempre um deles e não diz nada */
+    private static boolean parking(String type) {
+        return type.equals("java.lang.VirtualThread") || type.equals("java.lang.Thread")
+                || type.equals("java.util.concurrent.locks.LockSupport") || type.startsWith("jdk.internal.");
+    }
+
+    private static String frame(RecordedFrame f) {
+        return f.getMethod().getType().getName() + "." + f.getMethod().getName() + ":" + f.getLineNumber();
+    }
+
+    private static String stack(List<RecordedFrame> frames) {
+        var sb = new StringBuilder();
+        for (int i = 0; i < Math.min(LOGGED_FRAMES, frames.size()); i++) sb.append("\tat ").append(frame(frames.get(i))).append('\n');
+        return sb.toString();
+    }
+}
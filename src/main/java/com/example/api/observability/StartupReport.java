@@ -0,0 +1,40 @@
+package com.example.api.observability;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aot.AotDetector;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Uma linha no log quando a aplicação fica pronta: tempo desde o start do JVM e se o start usou o código
+ * AOT ({@code -Dspring.aot.enabled=true}) e o arquivo CDS. A JVM desliga o CDS em silêncio quando o arquivo
+ * não bate (outro JDK, classpath diferente); {@code cds=off} aqui é o sinal. O mesmo tempo sai na métrica
+ * {@code application.ready.time} do Boot.
+ */
+@Component
+@Slf4j
+public class StartupReport {
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ready(ApplicationReadyEvent e) {
+        long jvm = ManagementFactory.getRuntimeMXBean().getUptime();
+        log.info("ready in {} ms since jvm start ({} ms in spring), aot={}, cds={}",
+                jvm, e.getTimeTaken() == null ? -1 : e.getTimeTaken().toMillis(), AotDetector.useGeneratedArtifacts(), cds());
+    }
+
+    /** "off", "default" (arquivo do JDK) ou o caminho do arquivo da aplicação */
+    static String cds() {
+        String info = System.getProperty("java.vm.info", "");
+        if (!info.contains("sharing")) return "off";
+        try {
+            String file = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class).getVMOption("SharedArchiveFile").getValue();
+            return file == null || file.isBlank() ? "default" : file;
+        } catch (RuntimeException ex) {                   // JVM sem a flag (não HotSpot)
+            return "on";
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.api.observability;
+
+import jdk.jfr.*;
+
+/** Um upload de lote inteiro: duração total e tempo gasto em cada estágio */
+@Name("cards.Upload")
+@Label("Card Upload")
+@Category({"Cards", "Ingestion"})
+@StackTrace(false)
+public class UploadEvent extends Event {
+    @Label("Lot") public String lot;
+    @Label("Lines") public int lines;
+    @Label("Created") public int created;
+    @Label("Duplicates") public int duplicates;
+    @Label("Failed") public int failed;
+    @Label("Parse") @Timespan public long parseNanos;
+    @Label("Validate") @Timespan public long validateNanos;
+    @Label("Persist") @Timespan public long persistNanos;
+}
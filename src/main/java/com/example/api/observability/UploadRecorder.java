@@ -0,0 +1,115 @@
+package com.example.api.observability;
+
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Gravações JFR escopadas a um upload.
+ * <p>
+ * Um lote é "armado" ({@link #arm(String)}); quando o upload desse lote começa, {@link #begin(String)}
+ * inicia uma {@link Recording} com os eventos {@code cards.*} ligados e, ao terminar, ela é parada e
+ * gravada em {@code cards.jfr.dump-dir}. Sem lote armado o custo é um {@code isEmpty()} no mapa.
+ * Eventos de outros uploads simultâneos também entram na gravação; filtre pelo campo {@code lot}.
+ */
+@Component
+@Slf4j
+public class UploadRecorder {
+
+    /** escopo de uma gravação; fechar para e grava o arquivo */
+    public interface Scope extends AutoCloseable {
+        @Override void close();
+    }
+
+    private static final Scope NONE = () -> { };
+    private static final int RECENT_DUMPS = 20;
+
+    @Value("${cards.jfr.dump-dir:${java.io.tmpdir}/cards-jfr}")
+    private Path dumpDir;
+
+    /** só grava linhas mais lentas que isso */
+    @Value("${cards.jfr.line-threshold:0ms}")
+    private Duration lineThreshold;
+
+    @Value("${cards.jfr.crypto-threshold:1ms}")
+    private Duration cryptoThreshold;
+
+    /** 1 = toda linha; N = ~1 a cada N linhas */
+    @Value("${cards.jfr.line-sample-every:1}")
+    private int lineSampleEvery = 1;
+
+    @Value("${cards.jfr.execution-sample-period:20ms}")
+    private Duration executionSamplePeriod;
+
+    @Value("${cards.jfr.max-duration:30m}")
+    private Duration maxDuration;
+
+    private final Map<String, Instant> armed = new ConcurrentHashMap<>();
+    private final Map<String, Recording> running = new ConcurrentHashMap<>();
+    private final Deque<String> dumps = new ConcurrentLinkedDeque<>();
+
+    public void arm(String lot) { armed.put(lot, Instant.now()); }
+
+    /** desarma o lote ou, se a gravação já está rodando, para e grava agora; retorna o arquivo, se houver */
+    public Optional<Path> stop(String lot) {
+        armed.remove(lot);
+        Recording r = running.remove(lot);
+        return r == null ? Optional.empty() : Optional.ofNullable(dump(lot, r));
+    }
+
+    public Scope begin(String lot) {
+        if (armed.isEmpty() || lot == null || armed.remove(lot) == null) return NONE;
+        var r = new Recording();
+        r.setName("upload-" + lot);
+        r.setDuration(maxDuration);                       // rede de segurança se o upload nunca terminar
+        r.enable(UploadEvent.class);
+        r.enable(CardPersistEvent.class).withThreshold(lineThreshold);
+        r.enable(CryptoEvent.class).withThreshold(cryptoThreshold);
+        r.enable("jdk.ExecutionSample").withPeriod(executionSamplePeriod);
+        r.enable("jdk.JavaMonitorEnter").withThreshold(Duration.ofMillis(10));
+        r.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(10));
+        r.enable("jdk.GarbageCollection");
+        r.start();
+        running.put(lot, r);
+        log.info("jfr recording started for lot={}", lot);
+        return () -> { if (running.remove(lot, r)) dump(lot, r); };
+    }
+
+    /** amostragem das linhas: decide se esta linha emite {@link CardPersistEvent} */
+    public boolean sampleLine() {
+        int n = lineSampleEvery;
+        return n <= 1 || ThreadLocalRandom.current().nextInt(n) == 0;
+    }
+
+    public Set<String> armedLots() { return Set.copyOf(armed.keySet()); }
+    public Set<String> runningLots() { return Set.copyOf(running.keySet()); }
+    public List<String> recentDumps() { return List.copyOf(dumps); }
+
+    private Path dump(String lot, Recording r) {
+        try (r) {
+            if (r.getState() == RecordingState.RUNNING) r.stop();
+            Files.createDirectories(dumpDir);
+            Path out = dumpDir.resolve("upload-" + lot.replaceAll("[^A-Za-z0-9_-]", "_") + "-" + System.currentTimeMillis() + ".jfr");
+            r.dump(out);
+            dumps.addFirst(out.toString());
+            while (dumps.size() > RECENT_DUMPS) dumps.pollLast();
+            log.info("jfr recording for lot={} written to {}", lot, out);
+            return out;
+        } catch (IOException | IllegalStateException e) {
+            log.warn("jfr recording for lot={} not written: {}", lot, e.toString());
+            return null;
+        }
+    }
+}
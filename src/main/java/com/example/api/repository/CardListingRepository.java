@@ -0,0 +1,178 @@
+package com.example.api.repository;
+
+import com.example.api.DTO.CardListItem;
+import com.example.api.config.ReadRouting;
+import com.example.api.config.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.sql.ResultSet;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Listagem de {@code card_tokens} por keyset (seek), em SQL direto: só as colunas de projeção, sem entidade.
+ * <p>
+ * A ordem segue o índice do filtro: {@code (bin, id)} com prefixo de BIN, {@code (expiry_year, expiry_month, id)}
+ * só com validade, PK sem filtro. A continuação "depois de (a, b, id)" vira uma perna {@code UNION ALL} por
+ * coluna — igual nas anteriores, maior nesta — cada uma com {@code LIMIT}. Assim todo banco faz um range
+ * no índice por perna (uma comparação de tupla ou um {@code OR} nem sempre vira range), e a página N lê
+ * no máximo colunas × limite linhas, como a página 1. O {@code id} fecha a ordem, então não há empates.
+ * <p>
+ * Lê da réplica quando configurada ({@link ReadRouting}); a listagem, a exportação e a varredura do purge
+ * toleram o atraso de replicação (o DELETE do purge revalida no primário).
+ * <p>
+ * Com sharding, dentro de {@link ShardRouter#on} lê só aquele shard; fora, cada shard devolve sua página e
+ * elas são intercaladas na mesma ordem (a página tem no máximo shards × limite linhas lidas), e a exportação
+ * concatena os shards.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CardListingRepository {
+
+    public enum Order {
+        ID("id"), BIN("bin", "id"), EXPIRY("expiry_year", "expiry_month", "id");
+
+        final String[] columns;
+        Order(String... columns) { this.columns = columns; }
+    }
+
+    /** filtros da listagem; qualquer um pode ser null */
+    public record Filter(String binPrefix, YearMonth expiryFrom, YearMonth expiryTo) {
+        /** com BIN e validade juntos, o BIN (mais seletivo) dirige e a validade é filtro residual */
+        public Order order() {
+            if (binPrefix != null) return Order.BIN;
+            return expiryFrom != null || expiryTo != null ? Order.EXPIRY : Order.ID;
+        }
+    }
+
+    record Sql(String sql, List<Object> args) {}
+
+    static final String COLUMNS = "id, token, bin, last4, brand, card_type, expiry_month, expiry_year";
+
+    static final RowMapper<CardListItem> ROW = (rs, i) -> new CardListItem(
+            uuid(rs.getBytes(1)).toString(), rs.getString(2), rs.getString(3), rs.getString(4),
+            rs.getString(5), rs.getString(6), rs.getInt(7), rs.getInt(8));
+
+    private final JdbcTemplate jdbc;
+    private final ReadRouting reads;
+    private final ShardRouter shards;
+
+    /**
+     * até {@code limit} linhas depois da posição {@code after} (valores das colunas de {@link Filter#order()},
+     * ver {@link #keyOf}); {@code after} null = primeira página
+     */
+    public List<CardListItem> page(Filter f, List<Object> after, int limit) {
+        var q = sql(f, after, limit);
+        if (!shards.sharded() || ShardRouter.current() != null)
+            return reads.replica(() -> jdbc.query(q.sql(), ROW, q.args().toArray()));
+        var all = new ArrayList<CardListItem>();
+        shards.fanOut(shards.all(), s -> jdbc.query(q.sql(), ROW, q.args().toArray())).values().forEach(all::addAll);
+        all.sort(comparator(f.order()));
+        return all.size() > limit ? List.copyOf(all.subList(0, limit)) : all;
+    }
+
+    /**
+     * a tabela inteira num cursor forward-only, sem ordem (varredura mais barata) e sem entidade: memória
+     * constante. No MySQL o {@code fetchSize} só vale com {@code useCursorFetch=true} na URL; sem isso o driver
+     * traz tudo. Leitura MVCC comum, sem lock: INSERTs concorrentes seguem. Feche o Stream para soltar a conexão.
+     */
+    public Stream<CardListItem> streamAll(int fetchSize) {
+        if (!shards.sharded() || ShardRouter.current() != null) return scan(fetchSize);
+        // um shard por vez: cada cursor só abre quando o anterior terminou (e fecha junto com o Stream)
+        return shards.all().stream().flatMap(s -> shards.on(s, () -> scan(fetchSize)));
+    }
+
+    private Stream<CardListItem> scan(int fetchSize) {
+        return reads.replica(() -> jdbc.queryForStream(con -> {
+            var ps = con.prepareStatement("select " + COLUMNS + " from card_tokens",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, ROW));
+    }
+
+    /** posição de uma linha na ordem do filtro, para continuar depois dela */
+    public static List<Object> keyOf(Order o, CardListItem r) {
+        byte[] id = bytes(UUID.fromString(r.id()));
+        return switch (o) {
+            case ID -> List.of(id);
+            case BIN -> List.of(r.bin(), id);
+            case EXPIRY -> List.of(r.expiryYear(), r.expiryMonth(), id);
+        };
+    }
+
+    /** a mesma ordem do SQL: BINARY(16) compara byte a byte sem sinal */
+    static Comparator<CardListItem> comparator(Order o) {
+        Comparator<CardListItem> byId = Comparator.comparing((CardListItem r) -> bytes(UUID.fromString(r.id())), Arrays::compareUnsigned);
+        return switch (o) {
+            case ID -> byId;
+            case BIN -> Comparator.comparing(CardListItem::bin).thenComparing(byId);
+            case EXPIRY -> Comparator.comparingInt(CardListItem::expiryYear).thenComparingInt(CardListItem::expiryMonth).thenComparing(byId);
+        };
+    }
+
+    static Sql sql(Filter f, List<Object> after, int limit) {
+        var o = f.order();
+        String orderBy = String.join(", ", o.columns);
+        var args = new ArrayList<Object>();
+        if (after == null) {
+            var sb = new StringBuilder("select ").append(COLUMNS).append(" from card_tokens");
+            where(sb, args, f, o, null, 0);
+            sb.append(" order by ").append(orderBy).append(" limit ?");
+            args.add(limit);
+            return new Sql(sb.toString(), args);
+        }
+        var sb = new StringBuilder("select * from (");
+        for (int k = o.columns.length - 1; k >= 0; k--) {
+            if (k < o.columns.length - 1) sb.append(" union all ");
+            sb.append("(select ").append(COLUMNS).append(" from card_tokens");
+            where(sb, args, f, o, after, k);
+            sb.append(" order by ").append(orderBy).append(" limit ?)");
+            args.add(limit);
+        }
+        sb.append(") t order by ").append(orderBy).append(" limit ?");
+        args.add(limit);
+        return new Sql(sb.toString(), args);
+    }
+
+    /** filtros + (se há cursor) perna {@code k}: colunas 0..k-1 iguais ao cursor, coluna k maior */
+    private static void where(StringBuilder sb, List<Object> args, Filter f, Order o, List<Object> after, int k) {
+        var conds = new ArrayList<String>();
+        if (f.binPrefix() != null) {
+            // prefixo como faixa [p, p+1): range no índice sem depender do LIKE
+            String p = f.binPrefix();
+            conds.add("bin >= ?"); args.add(p);
+            conds.add("bin < ?");  args.add(p.substring(0, p.length() - 1) + (char) (p.charAt(p.length() - 1) + 1));
+        }
+        if (f.expiryFrom() != null) {
+            conds.add("expiry_year >= ?");
+            conds.add("(expiry_year > ? or expiry_month >= ?)");
+            args.add(f.expiryFrom().getYear()); args.add(f.expiryFrom().getYear()); args.add(f.expiryFrom().getMonthValue());
+        }
+        if (f.expiryTo() != null) {
+            conds.add("expiry_year <= ?");
+            conds.add("(expiry_year < ? or expiry_month <= ?)");
+            args.add(f.expiryTo().getYear()); args.add(f.expiryTo().getYear()); args.add(f.expiryTo().getMonthValue());
+        }
+        if (after != null) {
+            for (int j = 0; j < k; j++) { conds.add(o.columns[j] + " = ?"); args.add(after.get(j)); }
+            conds.add(o.columns[k] + " > ?");
+            args.add(after.get(k));
+        }
+        if (!conds.isEmpty()) sb.append(" where ").append(String.join(" and ", conds));
+    }
+
+    static UUID uuid(byte[] b) {
+        var bb = ByteBuffer.wrap(b);
+        return new UUID(bb.getLong(), bb.getLong());
+    }
+
+    static byte[] bytes(UUID id) {
+        return ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array();
+    }
+}
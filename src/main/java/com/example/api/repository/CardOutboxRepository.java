@@ -0,0 +1,11 @@
+package com.example.api.repository;
+
+import com.example.api.entity.CardOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface CardOutboxRepository extends JpaRepository<CardOutbox, Long> {
+    List<CardOutbox> findAllByOrderByIdAsc(Pageable page);
+}
@@ -0,0 +1,10 @@
+package com.example.api.repository;
+
+import com.example.api.entity.CardToken;
+
+import java.util.List;
+
+/** inserção em lote: {@code persist} direto (o id vem preenchido, e {@code saveAll} faria merge = SELECT por linha) */
+public interface CardTokenBatchRepository {
+    void persistAll(List<CardToken> cards);
+}
@@ -0,0 +1,22 @@
+package com.example.api.repository;
+
+import com.example.api.entity.CardToken;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+class CardTokenBatchRepositoryImpl implements CardTokenBatchRepository {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /** com hibernate.jdbc.batch_size configurado, o flush vira um único batch de INSERTs */
+    @Override
+    @Transactional
+    public void persistAll(List<CardToken> cards) {
+        for (CardToken c : cards) em.persist(c);
+        em.flush();
+    }
+}
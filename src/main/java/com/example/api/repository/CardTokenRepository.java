@@ -3,9 +3,17 @@ package com.example.api.repository;
 import com.example.api.entity.CardToken;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
-public interface CardTokenRepository extends JpaRepository<CardToken, UUID> {
+public interface CardTokenRepository extends JpaRepository<CardToken, UUID>, CardTokenBatchRepository {
     Optional<CardToken> findByPanHmacHex(String panHmacHex);
+    List<CardToken> findByPanHmacHexIn(Collection<String> panHmacHexes);
+
+    /** só o necessário para detokenizar (sem carregar a entidade inteira) */
+    interface TokenCipher { String getToken(); String getPanEnc(); }
+
+    List<TokenCipher> findByTokenIn(Collection<String> tokens);
 }
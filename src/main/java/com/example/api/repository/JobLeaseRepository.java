@@ -0,0 +1,26 @@
+package com.example.api.repository;
+
+import com.example.api.entity.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+
+    /** toma ou renova o lease se é nosso, está livre ou venceu; 1 = é nosso, 0 = outro nó tem (ou a linha não existe) */
+    @Modifying(clearAutomatically = true)
+    @Query("""
+            update JobLease j
+               set j.owner = :owner, j.leaseUntil = :until
+             where j.name = :name
+               and (j.owner is null or j.owner = :owner or j.leaseUntil < :now)
+            """)
+    int acquire(@Param("name") String name, @Param("owner") String owner, @Param("now") Instant now, @Param("until") Instant until);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update JobLease j set j.owner = null, j.leaseUntil = null where j.name = :name and j.owner = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner);
+}
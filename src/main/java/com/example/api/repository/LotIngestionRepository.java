@@ -0,0 +1,44 @@
+package com.example.api.repository;
+
+import com.example.api.entity.LotIngestion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+
+public interface LotIngestionRepository extends JpaRepository<LotIngestion, String> {
+
+    /** toma o lease se está livre ou vencido; 1 = é nosso, 0 = outro upload tem o lote */
+    @Modifying(clearAutomatically = true)
+    @Query("""
+            update LotIngestion l
+               set l.owner = :owner, l.leaseUntil = :until, l.attempts = l.attempts + 1, l.updatedAt = :now
+             where l.lot = :lot and l.status = :running
+               and (l.owner is null or l.leaseUntil < :now)
+            """)
+    int acquire(@Param("lot") String lot, @Param("owner") String owner, @Param("running") LotIngestion.Status running,
+                @Param("now") Instant now, @Param("until") Instant until);
+
+    /**
+     * checkpoint acumulado num único UPDATE, que também renova o lease; só vale para o dono atual
+     * e só avança (0 = lease perdido para outro upload)
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("""
+            update LotIngestion l
+               set l.processed = :processed, l.lastLine = :lastLine, l.lastSeq = :lastSeq,
+                   l.created = l.created + :created, l.duplicates = l.duplicates + :duplicates,
+                   l.failed = l.failed + :failed, l.status = :status, l.leaseUntil = :until, l.updatedAt = :now
+             where l.lot = :lot and l.owner = :owner and l.processed <= :processed
+            """)
+    int checkpoint(@Param("lot") String lot, @Param("owner") String owner, @Param("processed") int processed,
+                   @Param("lastLine") int lastLine, @Param("lastSeq") Integer lastSeq,
+                   @Param("created") int created, @Param("duplicates") int duplicates, @Param("failed") int failed,
+                   @Param("status") LotIngestion.Status status, @Param("now") Instant now, @Param("until") Instant until);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update LotIngestion l set l.owner = null, l.leaseUntil = null where l.lot = :lot and l.owner = :owner")
+    int release(@Param("lot") String lot, @Param("owner") String owner);
+}
@@ -0,0 +1,19 @@
+package com.example.api.repository;
+
+import com.example.api.entity.ShardRange;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface ShardRangeRepository extends JpaRepository<ShardRange, Integer> {
+
+    List<ShardRange> findAllByOrderByFirstBucketAsc();
+
+    /** trava as faixas até o commit: duas migrações (ou dois nós) não editam o mapa ao mesmo tempo */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from ShardRange r order by r.firstBucket")
+    List<ShardRange> lockAll();
+}
@@ -0,0 +1,164 @@
+package com.example.api.service;
+
+import com.example.api.repository.CardTokenRepository;
+import com.example.api.service.interfaces.CryptoService;
+import com.example.api.util.ValidationException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Detokenização em lote: token -> PAN, em NDJSON ({@code {"token":..,"pan":..}} por linha, na ordem pedida).
+ * <p>
+ * Os tokens são buscados em blocos de {@code cards.detokenize.chunk-size} com {@code IN} na coluna única
+ * {@code token} (com sharding, uma consulta por shard dono, via {@link CardDirectory}); cada bloco é decifrado em paralelo num pool fixo (CPU) e escrito em seguida. O PAN nunca
+ * vira {@link String}: vai de {@code byte[]} decifrado direto para a resposta e o array é zerado logo
+ * depois (o buffer do container não é nosso para zerar). Token desconhecido sai com {@code "error":"not_found"}.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CardDetokenizeService implements MeterBinder {
+
+    private static final byte[] OPEN = "{\"token\":\"".getBytes(US_ASCII);
+    private static final byte[] PAN = "\",\"pan\":\"".getBytes(US_ASCII);
+    private static final byte[] CLOSE = "\"}\n".getBytes(US_ASCII);
+    private static final byte[] NOT_FOUND = "\",\"error\":\"not_found\"}\n".getBytes(US_ASCII);
+    private static final byte[] FAILED_LINE = "\",\"error\":\"decrypt_failed\"}\n".getBytes(US_ASCII);
+    private static final byte[] FAILED = new byte[0];          // sentinela (comparado por identidade)
+    private static final int MIN_SLICE = 64;                   // abaixo disso não compensa despachar para o pool
+
+    private final CardTokenRepository repo;
+    private final CryptoService crypto;
+    private final CardDirectory directory;
+
+    @Value("${cards.detokenize.max-tokens:10000}")
+    private int maxTokens = 10_000;
+
+    @Value("${cards.detokenize.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    /** 0 = nº de CPUs */
+    @Value("${cards.detokenize.parallelism:0}")
+    private int parallelism;
+
+    private ExecutorService pool;
+    private int threads;
+
+    private final LongAdder found = new LongAdder(), missing = new LongAdder(), failed = new LongAdder();
+
+    @PostConstruct
+    void start() {
+        threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("detokenize-", 0).daemon().factory());
+    }
+
+    @PreDestroy
+    void stop() { pool.shutdownNow(); }
+
+    /** valida antes de abrir a resposta: erro aqui ainda vira 400 normal */
+    public List<String> validate(List<String> tokens) {
+        if (tokens.size() > maxTokens) throw new ValidationException("too_many_tokens (max " + maxTokens + ")");
+        for (int i = 0; i < tokens.size(); i++)
+            if (!wellFormed(tokens.get(i))) throw new ValidationException("invalid_token (index " + i + ")");
+        return tokens;
+    }
+
+    /** escreve uma linha NDJSON por token pedido; {@code tokens} já passou por {@link #validate} */
+    public void write(List<String> tokens, OutputStream out) throws IOException {
+        for (int from = 0; from < tokens.size(); from += chunkSize) {
+            var chunk = tokens.subList(from, Math.min(tokens.size(), from + chunkSize));
+            var ciphers = new HashMap<String, String>(chunk.size() * 2);
+            for (var r : directory.byTokens(new HashSet<>(chunk), repo::findByTokenIn)) ciphers.put(r.getToken(), r.getPanEnc());
+
+            byte[][] plain = decryptAll(chunk, ciphers);
+            try {
+                for (int i = 0; i < chunk.size(); i++) {
+                    out.write(OPEN);
+                    out.write(chunk.get(i).getBytes(US_ASCII));
+                    byte[] p = plain[i];
+                    if (p == null)         { out.write(NOT_FOUND); missing.increment(); }
+                    else if (p == FAILED)  { out.write(FAILED_LINE); failed.increment(); }
+                    else                   { out.write(PAN); out.write(p); out.write(CLOSE); found.increment(); }
+                }
+            } finally {
+                wipe(plain);
+            }
+            out.flush();                                       // entrega bloco a bloco
+        }
+        log.info("detokenized {} tokens", tokens.size());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cards.detokenize.tokens", found, LongAdder::sum).tag("result", "found").register(registry);
+        FunctionCounter.builder("cards.detokenize.tokens", missing, LongAdder::sum).tag("result", "not_found").register(registry);
+        FunctionCounter.builder("cards.detokenize.tokens", failed, LongAdder::sum).tag("result", "decrypt_failed").register(registry);
+    }
+
+    /** fatias contíguas do bloco, uma por thread; cada posição do resultado é escrita por uma só fatia */
+    private byte[][] decryptAll(List<String> chunk, Map<String, String> ciphers) {
+        int n = chunk.size();
+        byte[][] out = new byte[n][];
+        int slices = Math.min(threads, Math.max(1, n / MIN_SLICE));
+        if (slices == 1) {
+            decrypt(chunk, ciphers, out, 0, n);
+            return out;
+        }
+        var parts = new CompletableFuture<?>[slices];
+        for (int s = 0; s < slices; s++) {
+            int lo = (int) ((long) n * s / slices), hi = (int) ((long) n * (s + 1) / slices);
+            parts[s] = CompletableFuture.runAsync(() -> decrypt(chunk, ciphers, out, lo, hi), pool);
+        }
+        try {
+            CompletableFuture.allOf(parts).join();
+        } catch (CompletionException e) {
+            wipe(out);
+            throw e;
+        }
+        return out;
+    }
+
+    private void decrypt(List<String> chunk, Map<String, String> ciphers, byte[][] out, int lo, int hi) {
+        for (int i = lo; i < hi; i++) {
+            String enc = ciphers.get(chunk.get(i));
+            if (enc == null) continue;
+            try { out[i] = crypto.decrypt(enc); }
+            catch (RuntimeException e) {
+                out[i] = FAILED;
+                log.warn("decrypt failed for a stored card: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static void wipe(byte[][] plain) {
+        for (byte[] p : plain) if (p != null) Arrays.fill(p, (byte) 0);
+    }
+
+    /** formato do {@link com.example.api.util.TokenGenerator}: {@code tok_} + 24 hex minúsculos */
+    static boolean wellFormed(String t) {
+        if (t == null || t.length() != 28 || !t.startsWith("tok_")) return false;
+        for (int i = 4; i < 28; i++) {
+            char c = t.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) return false;
+        }
+        return true;
+    }
+}
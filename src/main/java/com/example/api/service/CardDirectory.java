@@ -0,0 +1,79 @@
+package com.example.api.service;
+
+import com.example.api.config.ShardRouter;
+import com.example.api.entity.CardToken;
+import com.example.api.service.events.CardsPurgedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Índice global token -> balde do HMAC ({@code card_directory} no shard 0) para achar o shard de um cartão
+ * pelo token. Sem sharding não faz nada: o único banco responde direto.
+ * <p>
+ * A entrada é gravada (autocommit, fora da transação do cartão) antes do INSERT no shard: um cartão nunca
+ * existe sem ela. Se o INSERT não commitar a entrada é removida; se nem isso der certo, sobra uma entrada
+ * para um token que nunca existiu, que a busca trata como ausente.
+ */
+@Service
+@RequiredArgsConstructor
+public class CardDirectory {
+
+    private final ShardRouter router;
+
+    public void register(List<CardToken> cards) {
+        if (!router.sharded() || cards.isEmpty()) return;
+        router.home().batchUpdate("insert into card_directory (token, id, bucket) values (?, ?, ?)",
+                cards.stream().map(c -> new Object[]{c.getToken(), bytes(c.getId()), ShardRouter.bucket(c.getPanHmacHex())}).toList());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+        var tokens = cards.stream().map(CardToken::getToken).toList();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override public void afterCompletion(int status) { if (status != STATUS_COMMITTED) forget(tokens); }
+        });
+    }
+
+    public void forget(Collection<String> tokens) {
+        if (!router.sharded() || tokens.isEmpty()) return;
+        var list = List.copyOf(tokens);
+        router.home().update("delete from card_directory where token in (" + marks(list.size()) + ")", list.toArray());
+    }
+
+    /**
+     * roda {@code query} nos shards que têm os tokens, cada um com a sua parte, e junta o resultado.
+     * Token numa faixa em migração é consultado nos dois shards. Sem sharding, uma chamada com tudo.
+     */
+    public <T> List<T> byTokens(Collection<String> tokens, Function<Collection<String>, List<T>> query) {
+        if (!router.sharded()) return query.apply(tokens);
+        if (tokens.isEmpty()) return List.of();
+        var list = List.copyOf(tokens);
+        var groups = new HashMap<Integer, List<String>>();
+        router.home().query("select token, bucket from card_directory where token in (" + marks(list.size()) + ")", rs -> {
+            int bucket = rs.getInt(2);
+            groups.computeIfAbsent(router.ownerOfBucket(bucket), k -> new ArrayList<>()).add(rs.getString(1));
+            int prev = router.previousOfBucket(bucket);
+            if (prev >= 0) groups.computeIfAbsent(prev, k -> new ArrayList<>()).add(rs.getString(1));
+        }, list.toArray());
+        var out = new ArrayList<T>(list.size());
+        router.fanOut(groups.keySet(), s -> query.apply(groups.get(s))).values().forEach(out::addAll);
+        return out;
+    }
+
+    @EventListener
+    public void on(CardsPurgedEvent e) {
+        forget(e.tokens());                             // o que o bloco não apagou já tinha sido apagado por outro nó
+    }
+
+    private static String marks(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+
+    private static byte[] bytes(UUID id) {
+        return ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array();
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.api.service;
+
+import com.example.api.DTO.CardListItem;
+import com.example.api.repository.CardListingRepository;
+import com.example.api.util.ValidationException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportação completa dos metadados de {@code card_tokens} (id/token/bin/last4/bandeira/tipo/validade) em CSV ou NDJSON.
+ * <p>
+ * Lê por cursor JDBC ({@link CardListingRepository#streamAll}) e escreve linha a linha num buffer fixo, com gzip
+ * opcional: a memória não cresce com a tabela. Vai para a resposta HTTP ou, no agendamento noturno
+ * ({@code cards.export.cron}), para um arquivo em {@code cards.export.dir} (gravado em .tmp e renomeado no fim).
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CardExportService {
+
+    public enum Format {
+        CSV("csv"), NDJSON("ndjson");
+
+        public final String extension;
+        Format(String extension) { this.extension = extension; }
+
+        public static Format of(String s) {
+            try { return valueOf(s.strip().toUpperCase(Locale.ROOT)); }
+            catch (IllegalArgumentException e) { throw new ValidationException("invalid_format (csv|ndjson)"); }
+        }
+    }
+
+    static final String CSV_HEADER = "id,token,bin,last4,brand,card_type,expiry_month,expiry_year\n";
+    private static final int BUFFER = 64 * 1024;
+
+    private final CardListingRepository listing;
+    private final ObjectMapper om;
+
+    @Value("${cards.export.fetch-size:1000}")
+    private int fetchSize = 1000;
+
+    @Value("${cards.export.dir:${java.io.tmpdir}/cards-export}")
+    private Path dir;
+
+    @Value("${cards.export.format:csv}")
+    private String scheduledFormat = "csv";
+
+    @Value("${cards.export.gzip:true}")
+    private boolean scheduledGzip = true;
+
+    /** escreve tudo em {@code out} (não fecha {@code out}); retorna o nº de linhas */
+    public long export(Format format, boolean gzip, OutputStream out) throws IOException {
+        long t0 = System.nanoTime(), rows = 0;
+        OutputStream sink = new FilterOutputStream(out) {            // fechar o gzip/writer não fecha a resposta
+            @Override public void write(byte[] b, int off, int len) throws IOException { out.write(b, off, len); }
+            @Override public void close() throws IOException { out.flush(); }
+        };
+        if (gzip) sink = new GZIPOutputStream(sink, BUFFER);
+        try (var w = new BufferedWriter(new OutputStreamWriter(sink, StandardCharsets.UTF_8), BUFFER);
+             var cards = listing.streamAll(fetchSize)) {
+            var rowWriter = format == Format.CSV ? csv(w) : ndjson(w);
+            for (var it = cards.iterator(); it.hasNext(); rows++) rowWriter.write(it.next());
+            rowWriter.finish();
+        }
+        log.info("export format={} gzip={} rows={} in {} ms", format, gzip, rows, (System.nanoTime() - t0) / 1_000_000);
+        return rows;
+    }
+
+    /** exportação noturna para arquivo; desligada por padrão ({@code cards.export.cron=-}) */
+    @Scheduled(cron = "${cards.export.cron:-}")
+    public void nightly() throws IOException {
+        exportToFile(Format.of(scheduledFormat), scheduledGzip, LocalDate.now());
+    }
+
+    public Path exportToFile(Format format, boolean gzip, LocalDate day) throws IOException {
+        Files.createDirectories(dir);
+        Path target = dir.resolve(fileName(format, gzip, day));
+        Path tmp = dir.resolve(target.getFileName() + ".tmp");
+        try (var out = new BufferedOutputStream(Files.newOutputStream(tmp), BUFFER)) {
+            export(format, gzip, out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        return Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static String fileName(Format format, boolean gzip, LocalDate day) {
+        return "cards-" + day + "." + format.extension + (gzip ? ".gz" : "");
+    }
+
+    /* ---------- formatos ---------- */
+
+    private interface RowWriter {
+        void write(CardListItem r) throws IOException;
+        default void finish() throws IOException { }
+    }
+
+    private static RowWriter csv(Writer w) throws IOException {
+        w.write(CSV_HEADER);
+        return r -> {
+            w.write(r.id()); w.write(',');
+            w.write(r.token()); w.write(',');
+            w.write(r.bin()); w.write(',');
+            w.write(r.last4()); w.write(',');
+            csvField(w, r.brand()); w.write(',');
+            csvField(w, r.cardType()); w.write(',');
+            w.write(Integer.toString(r.expiryMonth())); w.write(',');
+            w.write(Integer.toString(r.expiryYear())); w.write('\n');
+        };
+    }
+
+    /** RFC 4180: aspas só quando precisa (bandeira vem do cliente no POST /cards) */
+    static void csvField(Writer w, String v) throws IOException {
+        if (v == null) return;
+        boolean quote = false;
+        for (int i = 0; i < v.length() && !quote; i++) {
+            char c = v.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) { w.write(v); return; }
+        w.write('"');
+        w.write(v.replace("\"", "\"\""));
+        w.write('"');
+    }
+
+    private RowWriter ndjson(Writer w) throws IOException {
+        JsonGenerator g = om.getFactory().createGenerator(w);
+        g.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        g.setRootValueSeparator(null);                     // separador é a quebra de linha, não o espaço padrão
+        return new RowWriter() {
+            @Override public void write(CardListItem r) throws IOException {
+                g.writeStartObject();
+                g.writeStringField("id", r.id());
+                g.writeStringField("token", r.token());
+                g.writeStringField("bin", r.bin());
+                g.writeStringField("last4", r.last4());
+                g.writeStringField("brand", r.brand());
+                g.writeStringField("cardType", r.cardType());
+                g.writeNumberField("expiryMonth", r.expiryMonth());
+                g.writeNumberField("expiryYear", r.expiryYear());
+                g.writeEndObject();
+                g.writeRaw('\n');
+            }
+            @Override public void finish() throws IOException { g.close(); }
+        };
+    }
+}
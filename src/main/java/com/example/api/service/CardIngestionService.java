@@ -1,42 +1,151 @@
 package com.example.api.service;
 
+import com.example.api.observability.CardMetrics;
+import com.example.api.observability.UploadEvent;
+import com.example.api.observability.UploadRecorder;
 import com.example.api.service.interfaces.CardSecureService;
 import com.example.api.util.FixedLayoutParser;
+import com.example.api.util.LotBusyException;
+import com.example.api.util.PanService;
 import com.example.api.util.UploadResult;
+import com.example.api.util.ValidationException;
 import com.example.api.web.request.CardCreateRequest;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
 
 import java.io.InputStream;
+import java.time.Duration;
 import java.util.ArrayList;
 
+import static com.example.api.observability.CardMetrics.Stage.*;
+
+/**
+ * Ingestão do arquivo de layout fixo, retomável por lote.
+ * <p>
+ * A cada {@code cards.upload.checkpoint-every} linhas o progresso (linhas aplicadas + contadores) é
+ * commitado em {@link LotCheckpoints}. Reenviar o mesmo lote pula as linhas já aplicadas e o resumo
+ * soma as tentativas anteriores; {@code items} traz só as linhas processadas neste envio. Linhas entre
+ * o último checkpoint e a queda são refeitas: a criação é idempotente, elas voltam como duplicadas.
+ * Erro de infraestrutura (banco fora) interrompe o upload em vez de marcar as linhas como inválidas.
+ * <p>
+ * Só um upload por lote processa de cada vez (lease em {@link LotCheckpoints}); os demais recebem 409
+ * com o progresso. Se o dono some, o lease vence sem heartbeat e o próximo reenvio assume.
+ */
 @Service
+@Slf4j
 @RequiredArgsConstructor
 public class CardIngestionService {
 
     private final FixedLayoutParser parser;
     private final CardSecureService secureService;
+    private final PanService pan;
+    private final CardMetrics metrics;
+    private final UploadRecorder recorder;
+    private final LotCheckpoints lots;
+
+    @Value("${cards.upload.checkpoint-every:1000}")
+    private int checkpointEvery = 1000;
+
+    /** checkpoint no máximo a cada X mesmo com poucas linhas; precisa ficar bem abaixo de cards.upload.lease-ttl */
+    @Value("${cards.upload.heartbeat:10s}")
+    private Duration heartbeat = Duration.ofSeconds(10);
 
     public UploadResult ingestFixed(InputStream in) {
-        FixedLayoutParser.FixedBatch batch = parser.parse(in); // header + details + valida trailer
-        var items = new ArrayList<UploadResult.ItemResult>();
-        int created = 0, dup = 0, failed = 0;
-
-        for (var d : batch.details()) {
-            try {
-                var req = new CardCreateRequest(d.pan(), "UNKNOWN", 12, 2099, null, null);
-                var pr  = secureService.createOrGet(req, batch.header().lot(), d.seq());
-                if (pr.duplicate()) { dup++; items.add(UploadResult.ItemResult.duplicate(d.line(), pr.id(), pr.token(), pr.last4())); }
-                else                { created++; items.add(UploadResult.ItemResult.created(d.line(),   pr.id(), pr.token(), pr.last4())); }
-            } catch (Exception e) {
-                failed++;
-                items.add(UploadResult.ItemResult.invalid(d.line(), e.getMessage() == null ? "invalid" : e.getMessage()));
+        metrics.uploadStarted();
+        var ev = new UploadEvent();                  // JFR: custo ~zero sem gravação ativa
+        ev.begin();
+        UploadRecorder.Scope recording = null;
+        String lot = null, owner = null;
+        int lines = 0, created = 0, dup = 0, failed = 0;
+        long validateNanos = 0, persistNanos = 0;
+        try {
+            long t = metrics.start();
+            FixedLayoutParser.FixedBatch batch = parser.parse(in); // header + details + valida trailer
+            ev.parseNanos = metrics.stop(PARSE, t);
+            lot = batch.header().lot();
+            var details = batch.details();
+            var state = lots.open(batch.header());       // lease do lote (409 se outro upload está nele)
+            owner = state.getOwner();
+            int skip = state.getProcessed();
+            if (skip > details.size() || (skip > 0 && details.get(skip - 1).line() != state.getLastLine()))
+                throw new ValidationException("lot_checkpoint_mismatch");
+            recording = recorder.begin(lot);
+            var items = new ArrayList<UploadResult.ItemResult>(details.size() - skip);
+
+            // contadores do trecho ainda não commitado no checkpoint
+            int cCreated = 0, cDup = 0, cFailed = 0, pending = 0, lastLine = state.getLastLine();
+            Integer lastSeq = state.getLastSeq();
+            long beatAt = System.nanoTime() + heartbeat.toNanos();
+            for (int i = skip; i < details.size(); i++) {
+                var d = details.get(i);
+                lines++;
+                lastLine = d.line(); lastSeq = d.seq();
+                // validação sem exceção: linha ruim não passa pela transação nem monta stack trace
+                t = metrics.start();
+                var reject = pan.check(pan.digits(d.pan()));
+                validateNanos += metrics.stop(VALIDATE, t);
+                if (reject != null) {
+                    cFailed++;
+                    items.add(UploadResult.ItemResult.invalid(d.line(), reject.code()));
+                } else {
+                    t = metrics.start();
+                    try {
+                        var req = new CardCreateRequest(d.pan(), "UNKNOWN", 12, 2099, null, null);
+                        var pr  = secureService.createOrGet(req, lot, d.seq());
+                        if (pr.duplicate()) { cDup++; items.add(UploadResult.ItemResult.duplicate(d.line(), pr.id(), pr.token(), pr.last4())); }
+                        else                { cCreated++; items.add(UploadResult.ItemResult.created(d.line(),   pr.id(), pr.token(), pr.last4())); }
+                    } catch (DataAccessException | TransactionException e) {
+                        throw e;                                   // banco indisponível: para aqui, o reenvio retoma do checkpoint
+                    } catch (Exception e) {
+                        cFailed++;
+                        items.add(UploadResult.ItemResult.invalid(d.line(), e.getMessage() == null ? "invalid" : e.getMessage()));
+                    } finally {
+                        persistNanos += System.nanoTime() - t;
+                    }
+                }
+                // checkpoint por volume ou por tempo: também é o heartbeat do lease
+                if ((++pending >= checkpointEvery || System.nanoTime() - beatAt >= 0) && i + 1 < details.size()) {
+                    if (!lots.checkpoint(lot, owner, i + 1, lastLine, lastSeq, cCreated, cDup, cFailed, false)) throw leaseLost(lot);
+                    created += cCreated; dup += cDup; failed += cFailed;
+                    cCreated = cDup = cFailed = pending = 0;
+                    beatAt = System.nanoTime() + heartbeat.toNanos();
+                }
             }
+            if (owner != null && !lots.checkpoint(lot, owner, details.size(), lastLine, lastSeq, cCreated, cDup, cFailed, true))
+                throw leaseLost(lot);
+            owner = null;                                  // concluído: o checkpoint final já soltou o lease
+            created += cCreated; dup += cDup; failed += cFailed;
+
+            var summary = new UploadResult.UploadSummary(batch.header().qty(),
+                    state.getCreated() + created, state.getDuplicates() + dup, state.getFailed() + failed, skip);
+            var header  = new UploadResult.HeaderInfo(batch.header().name(), batch.header().date().toString(),
+                    lot, batch.header().qty());
+            return new UploadResult(header, summary, items);
+        } finally {
+            metrics.uploadFinished(lines, created, dup, failed);
+            ev.end();
+            if (ev.shouldCommit()) {
+                ev.lot = lot; ev.lines = lines;
+                ev.created = created; ev.duplicates = dup; ev.failed = failed;
+                ev.validateNanos = validateNanos; ev.persistNanos = persistNanos;
+                ev.commit();
+            }
+            if (recording != null) recording.close();
+            if (owner != null) release(lot, owner);
         }
+    }
+
+    /** outro upload assumiu o lote (nosso lease venceu): para sem gravar mais nada */
+    private LotBusyException leaseLost(String lot) {
+        return new LotBusyException(lots.progress(lot).orElse(null), Duration.ZERO);
+    }
 
-        var summary = new UploadResult.UploadSummary(batch.header().qty(), created, dup, failed);
-        var header  = new UploadResult.HeaderInfo(batch.header().name(), batch.header().date().toString(),
-                batch.header().lot(), batch.header().qty());
-        return new UploadResult(header, summary, items);
+    private void release(String lot, String owner) {
+        try { lots.release(lot, owner); }
+        catch (RuntimeException e) { log.warn("lease for lot={} not released, it expires on its own: {}", lot, e.toString()); }
     }
-}
\ No newline at end of file
+}
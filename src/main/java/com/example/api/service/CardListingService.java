@@ -0,0 +1,103 @@
+package com.example.api.service;
+
+import com.example.api.DTO.CardListItem;
+import com.example.api.DTO.CardPage;
+import com.example.api.repository.CardListingRepository;
+import com.example.api.repository.CardListingRepository.Filter;
+import com.example.api.repository.CardListingRepository.Order;
+import com.example.api.util.ValidationException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * {@code GET /cards}: filtros + paginação por cursor.
+ * <p>
+ * O cursor é opaco (base64url) e carrega a posição da última linha entregue e uma impressão dos filtros:
+ * usar o cursor com outros filtros é 400, não uma página sem sentido.
+ */
+@Service
+@RequiredArgsConstructor
+public class CardListingService {
+
+    private static final byte VERSION = 1;
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder B64D = Base64.getUrlDecoder();
+
+    private final CardListingRepository listing;
+
+    @Value("${cards.listing.max-page-size:1000}")
+    private int maxPageSize = 1000;
+
+    public CardPage page(String binPrefix, YearMonth expiryFrom, YearMonth expiryTo, int limit, String cursor) {
+        var f = filter(binPrefix, expiryFrom, expiryTo);
+        if (limit < 1 || limit > maxPageSize) throw new ValidationException("invalid_limit (1.." + maxPageSize + ")");
+        var after = cursor == null || cursor.isBlank() ? null : decode(cursor, f);
+
+        var rows = listing.page(f, after, limit + 1);             // +1: sabe se há próxima sem COUNT
+        boolean more = rows.size() > limit;
+        var items = more ? rows.subList(0, limit) : rows;
+        return new CardPage(List.copyOf(items), more ? encode(f, items.get(items.size() - 1)) : null);
+    }
+
+    static Filter filter(String binPrefix, YearMonth expiryFrom, YearMonth expiryTo) {
+        if (binPrefix != null && (binPrefix.isEmpty() || binPrefix.length() > 8 || !binPrefix.chars().allMatch(c -> c >= '0' && c <= '9')))
+            throw new ValidationException("invalid_bin_prefix");
+        if (expiryFrom != null && expiryTo != null && expiryFrom.isAfter(expiryTo))
+            throw new ValidationException("invalid_expiry_range");
+        return new Filter(binPrefix, expiryFrom, expiryTo);
+    }
+
+    /* ---------- cursor: versão | ordem | impressão dos filtros | chaves ---------- */
+
+    static String encode(Filter f, CardListItem last) {
+        var o = f.order();
+        var key = CardListingRepository.keyOf(o, last);
+        byte[] bin = o == Order.BIN ? ((String) key.get(0)).getBytes(StandardCharsets.US_ASCII) : new byte[0];
+        var bb = ByteBuffer.allocate(1 + 1 + 4 + 1 + bin.length + 4 + 16)
+                .put(VERSION).put((byte) o.ordinal()).putInt(fingerprint(f))
+                .put((byte) bin.length).put(bin);
+        switch (o) {
+            case EXPIRY -> bb.putShort(((Integer) key.get(0)).shortValue()).putShort(((Integer) key.get(1)).shortValue());
+            default -> bb.putInt(0);
+        }
+        bb.put((byte[]) key.get(key.size() - 1));
+        return B64.encodeToString(bb.array());
+    }
+
+    static List<Object> decode(String cursor, Filter f) {
+        try {
+            var bb = ByteBuffer.wrap(B64D.decode(cursor));
+            var o = f.order();
+            if (bb.get() != VERSION || bb.get() != o.ordinal() || bb.getInt() != fingerprint(f))
+                throw new ValidationException("cursor_mismatch");
+            byte[] bin = new byte[bb.get()];
+            bb.get(bin);
+            short year = bb.getShort(), month = bb.getShort();
+            byte[] id = new byte[16];
+            bb.get(id);
+            if (bb.hasRemaining()) throw new ValidationException("invalid_cursor");
+            return switch (o) {
+                case ID -> List.of(id);
+                case BIN -> List.of(new String(bin, StandardCharsets.US_ASCII), id);
+                case EXPIRY -> List.of((int) year, (int) month, id);
+            };
+        } catch (ValidationException e) {
+            throw e;
+        } catch (IllegalArgumentException | BufferUnderflowException | NegativeArraySizeException e) {
+            throw new ValidationException("invalid_cursor");   // base64 ruim ou truncado
+        }
+    }
+
+    private static int fingerprint(Filter f) {
+        return Objects.hash(f.binPrefix(), f.expiryFrom(), f.expiryTo());
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.api.service;
+
+import com.example.api.DTO.CardListItem;
+import com.example.api.config.ShardRouter;
+import com.example.api.repository.CardListingRepository;
+import com.example.api.repository.CardListingRepository.Filter;
+import com.example.api.service.events.CardsPurgedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Purge de cartões vencidos.
+ * <p>
+ * Vencido = validade anterior a (mês atual − {@code cards.purge.grace-months}); o cartão vale até o fim do mês
+ * impresso. A varredura segue o {@code idx_expiry} por keyset (mesma consulta do {@code GET /cards}), em blocos
+ * de {@code cards.purge.chunk-size}; cada bloco é um {@code DELETE ... WHERE id IN (...)} numa transação curta
+ * READ_COMMITTED. Só a leitura MVCC e locks de registro por PK: sem gap lock, INSERTs do {@code createOrGet}
+ * não esperam. O ritmo fica abaixo de {@code cards.purge.max-rows-per-sec}. Em dry-run só conta.
+ * Rodar em mais de um nó é seguro (o DELETE é idempotente), só repete leitura. Com sharding, um shard
+ * por vez, cada um com a sua varredura.
+ */
+@Service
+@Slf4j
+public class CardPurgeService implements MeterBinder {
+
+    public record Report(long matched, long deleted, boolean dryRun, YearMonth before) {}
+
+    private final CardListingRepository listing;
+    private final JdbcTemplate jdbc;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate tx;
+    private final ShardRouter shards;
+    private final Clock clock;
+
+    @Value("${cards.purge.enabled:false}")
+    private boolean enabled;
+
+    @Value("${cards.purge.dry-run:false}")
+    private boolean dryRun;
+
+    @Value("${cards.purge.grace-months:3}")
+    private int graceMonths = 3;
+
+    @Value("${cards.purge.chunk-size:500}")
+    private int chunkSize = 500;
+
+    @Value("${cards.purge.max-rows-per-sec:1000}")
+    private int maxRowsPerSec = 1000;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder deleted = new LongAdder(), matchedDry = new LongAdder();
+
+    @Autowired
+    public CardPurgeService(CardListingRepository listing, JdbcTemplate jdbc, ApplicationEventPublisher events,
+                            PlatformTransactionManager txManager, ShardRouter shards) {
+        this(listing, jdbc, events, txManager, shards, Clock.systemDefaultZone());
+    }
+
+    CardPurgeService(CardListingRepository listing, JdbcTemplate jdbc, ApplicationEventPublisher events,
+                     PlatformTransactionManager txManager, ShardRouter shards, Clock clock) {
+        this.listing = listing;
+        this.shards = shards;
+        this.jdbc = jdbc;
+        this.events = events;
+        this.clock = clock;
+        this.tx = new TransactionTemplate(txManager);
+        this.tx.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.tx.setTimeout(30);
+    }
+
+    @Scheduled(fixedDelayString = "${cards.purge.interval:1h}", initialDelayString = "${cards.purge.initial-delay:5m}")
+    public void scheduled() {
+        if (enabled) purge(dryRun);
+    }
+
+    /** uma passada completa; devolve null se já há uma rodando neste nó */
+    public Report purge(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) return null;
+        try {
+            var before = YearMonth.now(clock).minusMonths(graceMonths);
+            var f = new Filter(null, null, before.minusMonths(1));       // expiryTo é inclusivo
+            long matched = 0, removed = 0, t0 = System.nanoTime();
+            for (int shard : shards.all()) {
+                long[] r = shards.on(shard, () -> purgeShard(f, before, dryRun));
+                matched += r[0];
+                removed += r[1];
+            }
+            log.info("purge before={} dryRun={} matched={} deleted={} in {} ms", before, dryRun, matched, removed,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+            return new Report(matched, removed, dryRun, before);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /** varre um shard (ou o único banco); devolve {casados, apagados} */
+    private long[] purgeShard(Filter f, YearMonth before, boolean dryRun) {
+        long matched = 0, removed = 0;
+        List<Object> after = null;
+        for (;;) {
+            long chunkStart = System.nanoTime();
+            var rows = listing.page(f, after, chunkSize);
+            if (rows.isEmpty()) break;
+            matched += rows.size();
+            after = CardListingRepository.keyOf(f.order(), rows.get(rows.size() - 1));
+            if (dryRun) matchedDry.add(rows.size());
+            else removed += delete(rows, before);
+            if (rows.size() < chunkSize) break;
+            pace(rows.size(), chunkStart);
+        }
+        return new long[]{matched, removed};
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cards.purge.rows", deleted, LongAdder::sum)
+                .description("expired cards removed by the purge job").tag("mode", "deleted").register(registry);
+        FunctionCounter.builder("cards.purge.rows", matchedDry, LongAdder::sum)
+                .description("expired cards removed by the purge job").tag("mode", "dry_run").register(registry);
+    }
+
+    /** apaga o bloco (revalidando a validade) e avisa os caches depois do commit */
+    private int delete(List<CardListItem> rows, YearMonth before) {
+        var sql = new StringBuilder("delete from card_tokens where id in (");
+        var args = new ArrayList<Object>(rows.size() + 3);
+        for (int i = 0; i < rows.size(); i++) {
+            var r = rows.get(i);
+            sql.append(i == 0 ? "?" : ", ?");
+            args.add(CardListingRepository.keyOf(CardListingRepository.Order.ID, r).get(0));
+        }
+        sql.append(") and (expiry_year < ? or (expiry_year = ? and expiry_month < ?))");
+        args.add(before.getYear()); args.add(before.getYear()); args.add(before.getMonthValue());
+
+        Integer n = tx.execute(s -> jdbc.update(sql.toString(), args.toArray()));
+        int count = n == null ? 0 : n;
+        deleted.add(count);
+        events.publishEvent(new CardsPurgedEvent(List.copyOf(rows), count));
+        return count;
+    }
+
+    /** dorme o que faltar para o bloco não passar de max-rows-per-sec */
+    private void pace(int rows, long chunkStart) {
+        if (maxRowsPerSec <= 0) return;
+        long minNanos = rows * 1_000_000_000L / maxRowsPerSec;
+        long left = minNanos - (System.nanoTime() - chunkStart);
+        if (left > 0) LockSupport.parkNanos(left);
+    }
+}
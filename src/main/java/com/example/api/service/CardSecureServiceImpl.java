@@ -1,66 +1,407 @@
 package com.example.api.service;
 
 import com.example.api.DTO.CardRef;
+import com.example.api.config.ReadRouting;
+import com.example.api.config.ShardRouter;
 import com.example.api.entity.CardToken;
+import com.example.api.observability.CardBatchPersistEvent;
+import com.example.api.observability.CardMetrics;
+import com.example.api.observability.CardPersistEvent;
+import com.example.api.observability.UploadRecorder;
 import com.example.api.repository.CardTokenRepository;
+import com.example.api.service.events.CardCreatedEvent;
 import com.example.api.service.interfaces.CardSecureService;
 import com.example.api.service.interfaces.CryptoService;
+import com.example.api.service.interfaces.HmacIndex;
+import com.example.api.util.BinTable;
 import com.example.api.util.PanService;
 import com.example.api.util.TokenGenerator;
+import com.example.api.util.ValidationException;
 import com.example.api.web.request.CardCreateRequest;
-import jakarta.transaction.Transactional;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.example.api.observability.CardMetrics.Stage.*;
 
 @Service
 @RequiredArgsConstructor
-public class CardSecureServiceImpl implements CardSecureService {
+public class CardSecureServiceImpl implements CardSecureService, MeterBinder {
 
     private final CardTokenRepository repo;
     private final CryptoService crypto;
     private final PanService pan;
     private final TokenGenerator tokens;
+    private final BinTable bins;
+    private final CardMetrics metrics;
+    private final UploadRecorder recorder;
+    private final ApplicationEventPublisher events;
+    private final HmacIndex index;
+    private final ReadRouting reads;
+    private final ShardRouter shards;
+    private final CardDirectory directory;
+
+    /** quanto um chamador espera pelo líder antes de seguir sozinho */
+    @Value("${cards.create.coalesce-wait-ms:5000}")
+    private long coalesceWaitMs = 5000;
+
+    /** single-flight por HMAC: o 1º chamador faz cripto+DB, os concorrentes esperam o resultado dele */
+    private final ConcurrentHashMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
 
-    @Override @Transactional
+    private record Flight(Thread owner, CompletableFuture<PersistResult> result) {}
+
+    /**
+     * Sem {@code @Transactional}: quem chega com o mesmo PAN de uma chamada em andamento espera o líder
+     * antes de abrir transação, sem segurar conexão do pool. Só o líder (ou quem desistiu de esperar)
+     * abre a transação, já no shard dono.
+     */
+    @Override
     public PersistResult createOrGet(CardCreateRequest req, String lot, Integer seq) {
-        String panNorm = pan.normalize(req.cardNumber());
-        String hmac    = crypto.macHex(panNorm);
+        var ev = new CardPersistEvent();             // JFR: desligado por padrão, custo ~zero
+        ev.begin();
+        String panNorm = normalize(req.cardNumber(), ev);
+        String hmac    = mac(panNorm, ev);
+        int owner      = shards.ownerOf(hmac);
+
+        var mine   = new Flight(Thread.currentThread(), new CompletableFuture<>());
+        var leader = inFlight.putIfAbsent(hmac, mine);
+        if (leader != null) {
+            // mesma thread (ex.: lote numa transação maior) não pode esperar por si mesma
+            if (leader.owner() != Thread.currentThread()) {
+                coalesced.increment();
+                ev.coalesced = true;
+                var r = await(leader);
+                if (r != null) return emit(ev, new PersistResult(r.id(), r.token(), r.last4(), true), lot, seq);
+            }
+            return emit(ev, shards.inTransaction(owner, () -> lookupOrSave(req, panNorm, hmac, ev)), lot, seq);
+        }
+
+        try {
+            var r = shards.inTransaction(owner, () -> {
+                var saved = lookupOrSave(req, panNorm, hmac, ev);
+                completeAfterCommit(hmac, mine, saved);
+                return saved;
+            });
+            return emit(ev, r, lot, seq);
+        } catch (RuntimeException e) {
+            inFlight.remove(hmac, mine);
+            mine.result().completeExceptionally(e);
+            throw e;
+        }
+    }
 
-        return repo.findByPanHmacHex(hmac)
-                .map(e -> new PersistResult(e.getId().toString(), e.getToken(), e.getLast4(), true))
-                .orElseGet(() -> saveNew(req, panNorm, hmac));
+    /**
+     * Sem {@code @Transactional}, como o {@link #createOrGet}: PAN que outra chamada já está criando espera
+     * o líder antes de qualquer transação e sai dele como duplicado. Do resto o lote vira líder (chamadas
+     * individuais com esses PANs esperam o commit do lote). O lote nunca espera segurando voo próprio, então
+     * dois lotes não ficam um esperando o outro; PAN que outra chamada pegou depois da espera segue no lote,
+     * e um conflito ali cai no caminho documentado na interface.
+     */
+    @Override
+    public List<BatchResult> createOrGetBatch(List<CardCreateRequest> reqs) {
+        var ev = new CardBatchPersistEvent();
+        ev.begin();
+        int n = reqs.size();
+        var out   = new BatchResult[n];
+        var norms = new String[n];
+        var macs  = new String[n];
+        var first = new LinkedHashMap<String, Integer>(n * 2);    // HMAC -> 1º índice no lote
+        for (int i = 0; i < n; i++) {
+            try {
+                norms[i] = normalize(reqs.get(i).cardNumber(), null);
+            } catch (ValidationException e) {
+                out[i] = BatchResult.invalid(e.getMessage());
+                ev.invalid++;
+                continue;
+            }
+            macs[i] = mac(norms[i], null);
+            first.putIfAbsent(macs[i], i);
+        }
+        if (first.isEmpty()) return emit(ev, out);
+
+        // 1) espera quem já está criando algum destes PANs (ainda sem transação nem voo próprio)
+        var known = new HashMap<String, PersistResult>(first.size() * 2);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(coalesceWaitMs);
+        for (String h : first.keySet()) {
+            var leader = inFlight.get(h);
+            if (leader == null || leader.owner() == Thread.currentThread()) continue;
+            var r = await(leader, deadline);
+            if (r == null) continue;
+            known.put(h, new PersistResult(r.id(), r.token(), r.last4(), true));
+            coalesced.increment();
+            ev.coalesced++;
+        }
+
+        // 2) lidera o resto, um grupo por shard dono, cada um na sua transação (em paralelo se houver mais de um)
+        var groups = new HashMap<Integer, LinkedHashMap<String, Integer>>();
+        var mine   = new HashMap<String, Flight>(first.size() * 2);
+        for (var f : first.entrySet()) {
+            String h = f.getKey();
+            if (known.containsKey(h)) continue;
+            groups.computeIfAbsent(shards.ownerOf(h), k -> new LinkedHashMap<>()).put(h, f.getValue());
+            var flight = new Flight(Thread.currentThread(), new CompletableFuture<>());
+            if (inFlight.putIfAbsent(h, flight) == null) mine.put(h, flight);
+        }
+        ev.shards = groups.size();
+        try {
+            for (var part : shards.fanOut(groups.keySet(), s -> shards.inTransaction(s, () -> {
+                var group = groups.get(s);
+                var r = lookupOrPersist(reqs, norms, group);
+                var flights = new HashMap<String, Flight>(group.size() * 2);
+                for (String h : group.keySet()) { var f = mine.get(h); if (f != null) flights.put(h, f); }
+                completeAfterCommit(flights, r);
+                return r;
+            })).values()) known.putAll(part);
+        } catch (RuntimeException e) {
+            mine.forEach((h, f) -> { inFlight.remove(h, f); f.result().completeExceptionally(e); });
+            throw e;
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (out[i] != null) continue;
+            var r = known.get(macs[i]);
+            // repetição dentro do próprio lote: a 1ª ocorrência cria, as demais são duplicadas
+            out[i] = BatchResult.ok(first.get(macs[i]) == i ? r : new PersistResult(r.id(), r.token(), r.last4(), true));
+        }
+        return emit(ev, out);
+    }
+
+    /** busca os HMACs de uma vez e grava os que faltam; chave = HMAC, índice = 1ª ocorrência no lote */
+    private Map<String, PersistResult> lookupOrPersist(List<CardCreateRequest> reqs, String[] norms, Map<String, Integer> first) {
+        long t = metrics.start();
+        var known = new HashMap<String, PersistResult>(first.size() * 2);
+        for (var e : repo.findByPanHmacHexIn(first.keySet())) known.put(e.getPanHmacHex(), result(e, true));
+        var moving = new HashMap<Integer, List<String>>();
+        for (String h : first.keySet()) {
+            int prev = shards.previousOf(h);
+            if (prev >= 0 && !known.containsKey(h)) moving.computeIfAbsent(prev, k -> new ArrayList<>()).add(h);
+        }
+        moving.forEach((prev, hs) -> shards.read(prev, () -> repo.findByPanHmacHexIn(hs))
+                .forEach(e -> known.put(e.getPanHmacHex(), result(e, true))));
+        metrics.stop(LOOKUP, t);
+
+        var fresh = new ArrayList<CardToken>();
+        for (var f : first.entrySet()) {
+            if (known.containsKey(f.getKey())) continue;
+            int i = f.getValue();
+            var entity = newEntity(reqs.get(i), norms[i], f.getKey(), null);
+            fresh.add(entity);
+            known.put(f.getKey(), result(entity, false));
+        }
+        if (!fresh.isEmpty()) {
+            directory.register(fresh);
+            t = metrics.start();
+            repo.persistAll(fresh);
+            metrics.stop(INSERT, t);
+            for (var e : fresh) created(e);
+        }
+        return known;
     }
 
     public Optional<CardRef> findByPan(String rawPan) {
-        String norm = pan.normalize(rawPan);          // remove não-dígitos, valida len (e Luhn se ligado)
-        String hmac = crypto.macHex(norm);            // HMAC determinístico do PAN
-        return repo.findByPanHmacHex(hmac)
-                .map(e -> new CardRef(e.getId().toString(), e.getToken(), e.getLast4()));
+        String norm = normalize(rawPan, null);        // remove não-dígitos, valida len (e Luhn se ligado)
+        String hmac = mac(norm, null);                // HMAC determinístico do PAN
+        var hit = index.find(hmac);                   // índice local: acerto não vai ao banco
+        if (hit.isPresent()) return hit;
+        // réplica; cartão criado aqui há pouco e ainda não replicado é confirmado no primário (createOrGet sempre lê do primário)
+        return shards.on(shards.ownerOf(hmac), () -> reads.replicaOrPrimary(hmac, () -> findByHmac(hmac, null)))
+                .or(() -> onPreviousOwner(hmac, null))
+                .map(e -> { index.put(e); return new CardRef(e.getId().toString(), e.getToken(), e.getLast4()); });
+    }
+
+    /** chamadas que esperaram outro chamador com o mesmo PAN em vez de repetir cripto+DB */
+    public long coalescedCalls() { return coalesced.sum(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cards.create.coalesced", coalesced, LongAdder::sum)
+                .description("createOrGet calls served by an in-flight call for the same PAN")
+                .register(registry);
+        Gauge.builder("cards.create.inflight", inFlight, ConcurrentHashMap::size)
+                .description("distinct PANs currently being created")
+                .register(registry);
+    }
+
+    private PersistResult lookupOrSave(CardCreateRequest req, String panNorm, String hmac, CardPersistEvent ev) {
+        return findByHmac(hmac, ev)
+                .or(() -> onPreviousOwner(hmac, ev))
+                .map(e -> result(e, true))
+                .orElseGet(() -> saveNew(req, panNorm, hmac, ev));
+    }
+
+    /** fecha o evento JFR da linha (threshold + amostragem decidem se vai para a gravação) */
+    private PersistResult emit(CardPersistEvent ev, PersistResult r, String lot, Integer seq) {
+        ev.end();
+        if (ev.shouldCommit() && recorder.sampleLine()) {
+            ev.lot = lot;
+            ev.seq = seq == null ? -1 : seq;
+            ev.duplicate = r.duplicate();
+            ev.commit();
+        }
+        return r;
+    }
+
+    private static List<BatchResult> emit(CardBatchPersistEvent ev, BatchResult[] out) {
+        ev.end();
+        if (ev.shouldCommit()) {
+            ev.items = out.length;
+            for (var r : out) if (r.result() != null) { if (r.result().duplicate()) ev.duplicates++; else ev.created++; }
+            ev.commit();
+        }
+        return Arrays.asList(out);
+    }
+
+    /** libera os que esperam só depois do commit: antes disso o registro pode sumir num rollback */
+    private void completeAfterCommit(String hmac, Flight flight, PersistResult r) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            inFlight.remove(hmac, flight);
+            flight.result().complete(r);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override public void afterCompletion(int status) {
+                inFlight.remove(hmac, flight);
+                if (status == STATUS_COMMITTED) flight.result().complete(r);
+                else flight.result().completeExceptionally(new IllegalStateException("leader_rolled_back"));
+            }
+        });
     }
 
+    /** o mesmo para os voos de um grupo do lote: uma sincronização só */
+    private void completeAfterCommit(Map<String, Flight> flights, Map<String, PersistResult> results) {
+        if (flights.isEmpty()) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            flights.forEach((h, f) -> { inFlight.remove(h, f); f.result().complete(results.get(h)); });
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override public void afterCompletion(int status) {
+                flights.forEach((h, f) -> {
+                    inFlight.remove(h, f);
+                    if (status == STATUS_COMMITTED) f.result().complete(results.get(h));
+                    else f.result().completeExceptionally(new IllegalStateException("leader_rolled_back"));
+                });
+            }
+        });
+    }
+
+    /** resultado do líder, ou null se ele falhou/demorou (o chamador segue pelo caminho normal) */
+    private PersistResult await(Flight leader) {
+        return await(leader, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(coalesceWaitMs));
+    }
+
+    private PersistResult await(Flight leader, long deadlineNanos) {
+        try {
+            return leader.result().get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    private PersistResult saveNew(CardCreateRequest req, String panNorm, String hmac, CardPersistEvent ev) {
+        var entity = newEntity(req, panNorm, hmac, ev);
+        directory.register(List.of(entity));
+        long t = metrics.start();
+        try {
+            repo.saveAndFlush(entity);
+            ev.insertNanos = metrics.stop(INSERT, t);
+            created(entity);
+            return result(entity, false);
+        } catch (DataIntegrityViolationException dup) {
+            // corrida entre threads/instâncias: retorna o já existente
+            directory.forget(List.of(entity.getToken()));
+            return result(repo.findByPanHmacHex(hmac).orElseThrow(), true);
+        }
+    }
 
-    private PersistResult saveNew(CardCreateRequest req, String panNorm, String hmac) {
-        var entity = CardToken.builder()
+    private CardToken newEntity(CardCreateRequest req, String panNorm, String hmac, CardPersistEvent ev) {
+        var bin = bins.lookup(panNorm);               // tabela BIN vence; senão, o que o cliente informou
+        return CardToken.builder()
                 .id(tokens.newId())
                 .token(tokens.newToken())
                 .panHmacHex(hmac)
-                .panEnc(crypto.encryptUtf8(panNorm))
+                .panEnc(encrypt(panNorm, ev))
                 .bin(pan.bin(panNorm))
                 .last4(pan.last4(panNorm))
-                .brand(req.brand())
+                .brand(bin.brand() != null ? bin.brand() : req.brand())
+                .cardType(bin.type())
                 .expiryMonth(req.expiryMonth())
                 .expiryYear(req.expiryYear())
                 .build();
-        try {
-            repo.saveAndFlush(entity);
-            return new PersistResult(entity.getId().toString(), entity.getToken(), entity.getLast4(), false);
-        } catch (DataIntegrityViolationException dup) {
-            // corrida entre threads/instâncias: retorna o já existente
-            var e = repo.findByPanHmacHex(hmac).orElseThrow();
-            return new PersistResult(e.getId().toString(), e.getToken(), e.getLast4(), true);
-        }
     }
-}
\ No newline at end of file
+
+    /** outbox na mesma transação do INSERT (ver OutboxWriter); contadores de CardStats depois do commit */
+    private void created(CardToken e) {
+        events.publishEvent(new CardCreatedEvent(e.getId().toString(), e.getToken(), e.getLast4(), e.getBin(),
+                e.getBrand(), e.getExpiryMonth(), e.getExpiryYear()));
+        afterCommit(e);
+    }
+
+    /**
+     * índice local e janela de read-your-writes só recebem o que commitou: um rollback não pode deixar
+     * cartão fantasma no lookup
+     */
+    private void afterCommit(CardToken e) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) { committed(e); return; }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override public void afterCommit() { committed(e); }
+        });
+    }
+
+    private void committed(CardToken e) {
+        index.put(e);
+        reads.wrote(e.getPanHmacHex());
+    }
+
+    private static PersistResult result(CardToken e, boolean duplicate) {
+        return new PersistResult(e.getId().toString(), e.getToken(), e.getLast4(), duplicate);
+    }
+
+    /* ---------- estágios cronometrados (ev pode ser null fora da criação) ---------- */
+
+    private String normalize(String raw, CardPersistEvent ev) {
+        long t = metrics.start();
+        try { return pan.normalize(raw); }
+        finally { long d = metrics.stop(NORMALIZE, t); if (ev != null) ev.normalizeNanos = d; }
+    }
+
+    private String mac(String panNorm, CardPersistEvent ev) {
+        long t = metrics.start();
+        try { return crypto.macHex(panNorm); }
+        finally { long d = metrics.stop(HMAC, t); if (ev != null) ev.hmacNanos = d; }
+    }
+
+    private String encrypt(String panNorm, CardPersistEvent ev) {
+        long t = metrics.start();
+        try { return crypto.encryptUtf8(panNorm); }
+        finally { long d = metrics.stop(ENCRYPT, t); if (ev != null) ev.encryptNanos = d; }
+    }
+
+    /** faixa em migração: o cartão pode ainda estar só no dono anterior (transação própria, lá) */
+    private Optional<CardToken> onPreviousOwner(String hmac, CardPersistEvent ev) {
+        int prev = shards.previousOf(hmac);
+        return prev < 0 ? Optional.empty() : shards.read(prev, () -> findByHmac(hmac, ev));
+    }
+
+    private Optional<CardToken> findByHmac(String hmac, CardPersistEvent ev) {
+        long t = metrics.start();
+        try { return repo.findByPanHmacHex(hmac); }
+        finally { long d = metrics.stop(LOOKUP, t); if (ev != null) ev.lookupNanos += d; }
+    }
+}
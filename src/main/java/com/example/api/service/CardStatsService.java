@@ -0,0 +1,205 @@
+package com.example.api.service;
+
+import com.example.api.DTO.CardListItem;
+import com.example.api.DTO.CardStats;
+import com.example.api.config.ShardRouter;
+import com.example.api.service.events.CardCreatedEvent;
+import com.example.api.service.events.CardsPurgedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contagem de cartões por BIN, bandeira e mês de validade sem {@code GROUP BY} em card_tokens.
+ * <p>
+ * Criação (depois do commit) e purge somam deltas em {@link LongAdder}s por balde; a cada
+ * {@code cards.stats.flush-interval} os deltas viram {@code UPDATE card_stats SET cards = cards + ?} numa
+ * transação só, em ordem fixa de balde (dois nós não se travam). Como são deltas, vários nós gravam na
+ * mesma tabela sem coordenação. Flush que falha devolve os deltas para a próxima rodada.
+ * <p>
+ * {@code GET /cards/stats} lê a tabela (um registro por balde) e soma o que este nó ainda não gravou.
+ * Deriva (nó que caiu com deltas pendentes, purge concorrente em dois nós) se corrige com
+ * {@link #rebuild()}, que recalcula tudo de card_tokens; deltas de outros nós ainda não gravados no
+ * momento do rebuild entram em dobro, então rode-o com pouca escrita.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CardStatsService implements MeterBinder {
+
+    static final String BIN = "bin:", BRAND = "brand:", EXPIRY = "expiry:", UNKNOWN = "UNKNOWN";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final ShardRouter shards;
+
+    private final ConcurrentHashMap<String, LongAdder> pending = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();          // flush x rebuild
+    private final LongAdder flushes = new LongAdder(), flushFailures = new LongAdder(), drift = new LongAdder();
+    private volatile Instant flushedAt;
+
+    /** só depois do commit: rollback não conta, duplicata não chega aqui (não publica o evento) */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(CardCreatedEvent e) {
+        add(e.bin(), e.brand(), e.expiryYear(), e.expiryMonth(), 1);
+    }
+
+    @EventListener
+    public void on(CardsPurgedEvent e) {
+        if (e.deleted() != e.cards().size()) {
+            // não dá para saber quais linhas do bloco este nó apagou: fica para o rebuild
+            drift.increment();
+            log.warn("card stats may drift: purge chunk deleted {} of {} rows; run POST /actuator/cardstats",
+                    e.deleted(), e.cards().size());
+            return;
+        }
+        for (CardListItem c : e.cards()) add(c.bin(), c.brand(), c.expiryYear(), c.expiryMonth(), -1);
+    }
+
+    /** grava os deltas pendentes; devolve quantos baldes mudaram */
+    @Scheduled(fixedDelayString = "${cards.stats.flush-interval:5s}")
+    public int flush() {
+        synchronized (flushLock) {
+            var deltas = new TreeMap<String, Long>();
+            // sum + add(-v) em vez de sumThenReset: um incremento concorrente nunca se perde
+            pending.forEach((k, a) -> { long v = a.sum(); if (v != 0) { a.add(-v); deltas.put(k, v); } });
+            if (deltas.isEmpty()) return 0;
+            try {
+                tx.executeWithoutResult(s -> apply(deltas));
+            } catch (DataAccessException | TransactionException e) {
+                deltas.forEach((k, v) -> adder(k).add(v));
+                flushFailures.increment();
+                log.warn("card stats flush failed, {} buckets kept for the next run: {}", deltas.size(), e.toString());
+                return 0;
+            }
+            flushes.increment();
+            flushedAt = Instant.now();
+            return deltas.size();
+        }
+    }
+
+    /** contagens atuais: O(nº de baldes) */
+    public CardStats snapshot() {
+        var all = new HashMap<String, Long>();
+        jdbc.query("select bucket, cards from card_stats", rs -> { all.put(rs.getString(1), rs.getLong(2)); });
+        pending.forEach((k, a) -> { long v = a.sum(); if (v != 0) all.merge(k, v, Long::sum); });
+
+        var bins = new TreeMap<String, Long>();
+        var brands = new TreeMap<String, Long>();
+        var expiry = new TreeMap<String, Long>();
+        long total = 0;
+        for (var e : all.entrySet()) {
+            long v = e.getValue();
+            if (v <= 0) continue;
+            String k = e.getKey();
+            if (k.startsWith(BIN)) bins.put(k.substring(BIN.length()), v);
+            else if (k.startsWith(BRAND)) { brands.put(k.substring(BRAND.length()), v); total += v; }   // 1 bandeira por cartão
+            else if (k.startsWith(EXPIRY)) expiry.put(k.substring(EXPIRY.length()), v);
+        }
+        return new CardStats(total, bins, brands, expiry, flushedAt);
+    }
+
+    /** recalcula a tabela a partir de card_tokens (varre os índices idx_bin/idx_expiry uma vez) */
+    public CardStats rebuild() {
+        synchronized (flushLock) {
+            var counts = new TreeMap<String, Long>();
+            tx.executeWithoutResult(s -> {
+                pending.values().forEach(LongAdder::reset);     // o que já commitou entra na contagem nova
+                if (!shards.sharded()) count(counts);
+                else shards.fanOut(shards.all(), sh -> shards.read(sh, () -> count(new TreeMap<>()))).values()
+                        .forEach(m -> m.forEach((k, v) -> counts.merge(k, v, Long::sum)));     // card_stats fica no shard 0
+                jdbc.update("delete from card_stats");
+                var now = Timestamp.from(Instant.now());
+                jdbc.batchUpdate("insert into card_stats (bucket, cards, updated_at) values (?, ?, ?)",
+                        counts.entrySet().stream().map(e -> new Object[]{e.getKey(), e.getValue(), now}).toList());
+            });
+            flushedAt = Instant.now();
+            log.info("card stats rebuilt: {} buckets", counts.size());
+        }
+        return snapshot();
+    }
+
+    private Map<String, Long> count(Map<String, Long> counts) {
+        jdbc.query("select bin, count(*) from card_tokens group by bin",
+                rs -> { counts.merge(BIN + rs.getString(1), rs.getLong(2), Long::sum); });
+        jdbc.query("select brand, count(*) from card_tokens group by brand",
+                rs -> { counts.merge(brandKey(rs.getString(1)), rs.getLong(2), Long::sum); });
+        jdbc.query("select expiry_year, expiry_month, count(*) from card_tokens group by expiry_year, expiry_month",
+                rs -> { counts.merge(expiryKey(rs.getInt(1), rs.getInt(2)), rs.getLong(3), Long::sum); });
+        return counts;
+    }
+
+    /** primeira subida com a tabela vazia e cartões já cadastrados: monta do zero */
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        try {
+            Integer stats = jdbc.queryForObject("select count(*) from card_stats", Integer.class);
+            if (stats == null || stats > 0) return;
+            if (!jdbc.queryForList("select 1 from card_tokens limit 1", Integer.class).isEmpty()) rebuild();
+        } catch (DataAccessException e) {
+            log.warn("card stats bootstrap skipped: {}", e.toString());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cards.stats.flushes", flushes, LongAdder::sum)
+                .description("card stats deltas written to card_stats").tag("result", "ok").register(registry);
+        FunctionCounter.builder("cards.stats.flushes", flushFailures, LongAdder::sum)
+                .description("card stats deltas written to card_stats").tag("result", "failed").register(registry);
+        FunctionCounter.builder("cards.stats.drift", drift, LongAdder::sum)
+                .description("purge chunks not applied to card stats (rebuild fixes)").register(registry);
+        Gauge.builder("cards.stats.buckets", pending, ConcurrentHashMap::size)
+                .description("stat buckets tracked in memory").register(registry);
+    }
+
+    private void add(String bin, String brand, int year, int month, long delta) {
+        adder(BIN + bin).add(delta);
+        adder(brandKey(brand)).add(delta);
+        adder(expiryKey(year, month)).add(delta);
+    }
+
+    private LongAdder adder(String key) {
+        var a = pending.get(key);                          // caminho comum sem lock do computeIfAbsent
+        return a != null ? a : pending.computeIfAbsent(key, k -> new LongAdder());
+    }
+
+    private void apply(SortedMap<String, Long> deltas) {
+        var now = Timestamp.from(Instant.now());
+        var keys = new ArrayList<>(deltas.keySet());
+        int[] n = jdbc.batchUpdate("update card_stats set cards = cards + ?, updated_at = ? where bucket = ?",
+                keys.stream().map(k -> new Object[]{deltas.get(k), now, k}).toList());
+        var missing = new ArrayList<Object[]>();
+        for (int i = 0; i < n.length; i++) if (n[i] == 0) missing.add(new Object[]{keys.get(i), deltas.get(keys.get(i)), now});
+        // balde novo; se outro nó inserir antes, a chave duplicada desfaz a transação e o delta volta
+        if (!missing.isEmpty()) jdbc.batchUpdate("insert into card_stats (bucket, cards, updated_at) values (?, ?, ?)", missing);
+    }
+
+    static String brandKey(String brand) {
+        if (brand == null || brand.isBlank()) return BRAND + UNKNOWN;
+        brand = brand.strip().toUpperCase(Locale.ROOT);
+        return BRAND + (brand.length() > 64 ? brand.substring(0, 64) : brand);
+    }
+
+    static String expiryKey(int year, int month) {
+        return EXPIRY + year + (month < 10 ? "-0" : "-") + month;
+    }
+}
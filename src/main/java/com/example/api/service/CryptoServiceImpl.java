@@ -1,7 +1,9 @@
 package com.example.api.service;
 
 import com.example.api.config.properties.CryptoProperties;
+import com.example.api.observability.CryptoEvent;
 import com.example.api.service.interfaces.CryptoService;
+import com.example.api.util.SecureRandoms;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
@@ -12,18 +14,27 @@ import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 @Component
 @RequiredArgsConstructor
 public class CryptoServiceImpl implements CryptoService {
     private final CryptoProperties props;
-    private final SecureRandom rng = new SecureRandom();
+
+    /** chave AES derivada uma vez (o hex só é validado/convertido no 1º uso) */
+    private volatile SecretKey aes;
+
+    /** Ciphers de decrypt reaproveitados: getInstance custa mais que o próprio decrypt de um PAN */
+    private final Queue<Cipher> decryptors = new ConcurrentLinkedQueue<>();
 
     private SecretKey aesKey() {
-        byte[] k = hex(props.aesKeyHex());
-        if (k.length != 32) throw new IllegalStateException("cards.crypto.aesKeyHex must be 32 bytes (64 hex)");
-        return new SecretKeySpec(k, "AES");
+        SecretKey k = aes;
+        if (k != null) return k;
+        byte[] raw = hex(props.aesKeyHex());
+        if (raw.length != 32) throw new IllegalStateException("cards.crypto.aesKeyHex must be 32 bytes (64 hex)");
+        return aes = new SecretKeySpec(raw, "AES");
     }
 
     private SecretKey hmacKey() {
@@ -33,12 +44,16 @@ public class CryptoServiceImpl implements CryptoService {
     }
 
     public String encryptUtf8(String plain) {
+        var ev = new CryptoEvent();
+        ev.begin();
         try {
-            byte[] iv = new byte[12]; rng.nextBytes(iv);
+            byte[] iv = new byte[12]; SecureRandoms.nextBytes(iv);
             Cipher c = Cipher.getInstance("AES/GCM/NoPadding");
             c.init(Cipher.ENCRYPT_MODE, aesKey(), new GCMParameterSpec(128, iv));
-            byte[] ct = c.doFinal(plain.getBytes(StandardCharsets.UTF_8));
+            byte[] pt = plain.getBytes(StandardCharsets.UTF_8);
+            byte[] ct = c.doFinal(pt);
             byte[] packed = ByteBuffer.allocate(12 + ct.length).put(iv).put(ct).array();
+            commit(ev, "encrypt", pt.length);
             return java.util.Base64.getEncoder().encodeToString(packed);
         } catch (IllegalStateException e) { // validações de chave/hex aqui
             throw new IllegalStateException("encrypt_failed: " + e.getMessage(), e);
@@ -47,11 +62,36 @@ public class CryptoServiceImpl implements CryptoService {
         }
     }
 
+    public byte[] decrypt(String packedB64) {
+        var ev = new CryptoEvent();
+        ev.begin();
+        Cipher c = decryptors.poll();
+        try {
+            if (c == null) c = Cipher.getInstance("AES/GCM/NoPadding");
+            byte[] packed = Base64.getDecoder().decode(packedB64);
+            if (packed.length < 12 + 16) throw new IllegalArgumentException("ciphertext too short");
+            c.init(Cipher.DECRYPT_MODE, aesKey(), new GCMParameterSpec(128, packed, 0, 12));
+            byte[] pt = new byte[packed.length - 12 - 16];
+            int n = c.doFinal(packed, 12, packed.length - 12, pt, 0);
+            commit(ev, "decrypt", n);
+            decryptors.offer(c);                      // só volta ao pool depois de um doFinal bem-sucedido
+            return pt;
+        } catch (IllegalStateException e) {
+            throw new IllegalStateException("decrypt_failed: " + e.getMessage(), e);
+        } catch (Exception e) {
+            throw new IllegalStateException("decrypt_failed: " + e.getClass().getSimpleName() + ": " + e.getMessage(), e);
+        }
+    }
+
     public String macHex(String data) {
+        var ev = new CryptoEvent();
+        ev.begin();
         try {
             Mac mac = Mac.getInstance("HmacSHA256");
             mac.init(hmacKey());
-            byte[] out = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+            byte[] in = data.getBytes(StandardCharsets.UTF_8);
+            byte[] out = mac.doFinal(in);
+            commit(ev, "hmac", in.length);
             return toHex(out);
         } catch (IllegalStateException e) { // validação de hmacKey/hex
             throw new IllegalStateException("hmac_failed: " + e.getMessage(), e);
@@ -60,6 +100,11 @@ public class CryptoServiceImpl implements CryptoService {
         }
     }
 
+    private static void commit(CryptoEvent ev, String op, int bytes) {
+        ev.end();
+        if (ev.shouldCommit()) { ev.op = op; ev.bytes = bytes; ev.commit(); }
+    }
+
     private static String toHex(byte[] b){
         StringBuilder sb = new StringBuilder(b.length*2);
         for (byte x: b) sb.append(String.format("%02x", x));
@@ -0,0 +1,106 @@
+package com.example.api.service;
+
+import com.example.api.DTO.LotProgress;
+import com.example.api.entity.LotIngestion;
+import com.example.api.repository.LotIngestionRepository;
+import com.example.api.util.FixedLayoutParser;
+import com.example.api.util.LotBusyException;
+import com.example.api.util.RequestIds;
+import com.example.api.util.ValidationException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Estado persistido da ingestão por lote e o lease entre nós.
+ * <p>
+ * Cada chamada é sua própria transação curta: o checkpoint fica commitado mesmo que o upload morra
+ * logo depois. O lease é um UPDATE condicional na linha do lote (sem lock pessimista nem tabela extra);
+ * o dono é um id por upload, então dois uploads do mesmo lote no mesmo nó também se excluem.
+ * Os prazos usam o relógio de cada nó: o TTL precisa ser bem maior que a diferença entre eles.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class LotCheckpoints {
+
+    private final LotIngestionRepository repo;
+    private final TransactionTemplate tx;
+
+    /** sem checkpoint por esse tempo, o lease vence e outro upload do lote pode assumir */
+    @Value("${cards.upload.lease-ttl:30s}")
+    private Duration leaseTtl = Duration.ofSeconds(30);
+
+    /**
+     * abre (ou retoma) o lote e toma o lease; o header precisa bater com o da 1ª tentativa.
+     * Lote já concluído volta sem lease (não há o que processar).
+     *
+     * @throws LotBusyException outro upload tem o lease
+     */
+    public LotIngestion open(FixedLayoutParser.Header h) {
+        var state = find(h.lot()).orElse(null);
+        if (state == null) {
+            try {
+                tx.executeWithoutResult(s -> repo.saveAndFlush(LotIngestion.builder()
+                        .lot(h.lot()).name(h.name()).fileDate(h.date()).qty(h.qty())
+                        .status(LotIngestion.Status.RUNNING)
+                        .build()));
+            } catch (DataIntegrityViolationException race) {
+                // outro nó criou o lote ao mesmo tempo; a disputa segue pelo lease
+            }
+            state = find(h.lot()).orElseThrow();
+        }
+        if (state.getQty() != h.qty() || !Objects.equals(state.getName(), h.name()) || !Objects.equals(state.getFileDate(), h.date()))
+            throw new ValidationException("lot_header_mismatch");
+        if (state.getStatus() == LotIngestion.Status.COMPLETED) return state;
+
+        String owner = RequestIds.next();
+        var now = Instant.now();
+        Integer won = tx.execute(s -> repo.acquire(h.lot(), owner, LotIngestion.Status.RUNNING, now, now.plus(leaseTtl)));
+        var current = find(h.lot()).orElseThrow();
+        if (won == null || won == 0) {
+            if (current.getStatus() == LotIngestion.Status.COMPLETED) return current;   // terminou entre as leituras
+            var wait = current.getLeaseUntil() == null ? Duration.ZERO : Duration.between(now, current.getLeaseUntil());
+            throw new LotBusyException(LotProgress.of(current, now), wait.isNegative() ? Duration.ZERO : wait);
+        }
+        if (state.getOwner() != null) log.info("lot={} lease expired for {}, taken over by {}", h.lot(), state.getOwner(), owner);
+        return current;
+    }
+
+    /**
+     * avança o checkpoint para {@code processed}, soma os contadores do trecho e renova o lease;
+     * {@code done} fecha o lote e solta o lease. Retorna false se o lease foi perdido (outro upload assumiu).
+     */
+    public boolean checkpoint(String lot, String owner, int processed, int lastLine, Integer lastSeq,
+                              int created, int duplicates, int failed, boolean done) {
+        var now = Instant.now();
+        Boolean ok = tx.execute(s -> {
+            int n = repo.checkpoint(lot, owner, processed, lastLine, lastSeq, created, duplicates, failed,
+                    done ? LotIngestion.Status.COMPLETED : LotIngestion.Status.RUNNING, now, now.plus(leaseTtl));
+            if (n == 1 && done) repo.release(lot, owner);
+            return n == 1;
+        });
+        return Boolean.TRUE.equals(ok);
+    }
+
+    /** solta o lease sem concluir (upload falhou); o reenvio não precisa esperar o TTL */
+    public void release(String lot, String owner) {
+        tx.executeWithoutResult(s -> repo.release(lot, owner));
+    }
+
+    public Optional<LotIngestion> find(String lot) {
+        return repo.findById(lot);
+    }
+
+    public Optional<LotProgress> progress(String lot) {
+        return find(lot).map(l -> LotProgress.of(l, Instant.now()));
+    }
+}
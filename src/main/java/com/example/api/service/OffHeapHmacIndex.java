@@ -0,0 +1,214 @@
+package com.example.api.service;
+
+import com.example.api.DTO.CardRef;
+import com.example.api.config.ShardRouter;
+import com.example.api.entity.CardToken;
+import com.example.api.service.events.CardsPurgedEvent;
+import com.example.api.service.interfaces.CryptoService;
+import com.example.api.service.interfaces.HmacIndex;
+import com.example.api.util.HmacTable;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.time.YearMonth;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Índice em processo para {@code GET /cards/lookup}: acerto responde sem ir ao banco.
+ * <p>
+ * A tabela ({@link HmacTable}) fica fora do heap e, com {@code cards.index.file}, mapeada em arquivo: um
+ * restart limpo reabre o arquivo sem reler card_tokens. Sem arquivo válido (1ª subida, queda, outra chave
+ * HMAC, capacidade menor que a configurada) ela é reconstruída em segundo plano lendo card_tokens por
+ * cursor; até terminar, toda consulta vai ao banco.
+ * <p>
+ * Entram no índice os cartões criados neste nó (depois do commit) e os achados no banco por uma consulta
+ * que errou o índice, então cartões de outros nós aparecem no 1º lookup. Como o índice só é completo para
+ * o que ele viu, ausência nunca é resposta: cai no banco. A única remoção de cartões é o purge de vencidos,
+ * que pode rodar em outro nó; por isso uma entrada com validade já na janela do purge (com um mês de folga)
+ * é tratada como ausente e sai do índice, e um cartão nessa janela nem entra. Quando o purge roda neste nó,
+ * a janela é varrida de uma vez (o evento não traz os HMACs; a janela só anda uma vez por mês).
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OffHeapHmacIndex implements HmacIndex, MeterBinder {
+
+    private static final String COLUMNS = "pan_hmac_hex, id, token, last4, expiry_month, expiry_year";
+
+    private final JdbcTemplate jdbc;
+    private final CryptoService crypto;
+    private final ShardRouter shards;
+
+    @Value("${cards.index.enabled:false}")
+    private boolean enabled;
+
+    /** vazio = só memória (buffers diretos, reconstrói a cada start) */
+    @Value("${cards.index.file:}")
+    private String file = "";
+
+    @Value("${cards.index.max-entries:1000000}")
+    private long maxEntries = 1_000_000;
+
+    @Value("${cards.index.fetch-size:1000}")
+    private int fetchSize = 1000;
+
+    @Value("${cards.purge.grace-months:3}")
+    private int graceMonths = 3;
+
+    private volatile HmacTable table;           // null = desligado ou ainda não pronto
+    private volatile HmacTable building;        // recebe os put durante a reconstrução
+    private final AtomicReference<YearMonth> sweptBefore = new AtomicReference<>();
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), stale = new LongAdder(), rejected = new LongAdder();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        sweptBefore.set(null);                  // arquivo reaberto pode ter entradas de uma janela anterior
+        if (!file.isBlank()) {
+            try {
+                var t = HmacTable.open(Path.of(file), keyId());
+                if (t != null && t.maxEntries() >= maxEntries) {
+                    table = t;
+                    log.info("hmac index reopened from {}: {} entries", file, t.size());
+                    return;
+                }
+                if (t != null) t.close();
+            } catch (IOException e) {
+                log.warn("hmac index file {} not reused: {}", file, e.toString());
+            }
+        }
+        Thread.ofPlatform().name("hmac-index-build").daemon().start(this::rebuild);
+    }
+
+    @Override
+    public Optional<CardRef> find(String panHmacHex) {
+        var t = table;
+        if (t == null) return Optional.empty();
+        var e = t.get(panHmacHex);
+        if (e == null) { misses.increment(); return Optional.empty(); }
+        if (purgeable(e.expiryMonth(), e.expiryYear())) {
+            t.remove(panHmacHex);                 // o purge pode já ter apagado em outro nó
+            stale.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(new CardRef(e.id().toString(), e.token(), e.last4()));
+    }
+
+    @Override
+    public void put(CardToken c) {
+        var t = table;
+        var b = building;
+        if (t == null && b == null) return;
+        if (purgeable(c.getExpiryMonth(), c.getExpiryYear())) return;   // sairia no próximo find (ou o purge já apagou)
+        var e = new HmacTable.Entry(c.getId(), c.getToken(), c.getLast4(), c.getExpiryMonth(), c.getExpiryYear());
+        if (t != null && !t.put(c.getPanHmacHex(), e)) rejected.increment();
+        if (b != null) b.put(c.getPanHmacHex(), e);
+    }
+
+    /** o purge apagou um bloco: tira do índice tudo que já está na janela dele, uma vez por janela */
+    @EventListener
+    public void on(CardsPurgedEvent e) {
+        var t = table;
+        var before = purgeBefore();
+        var last = sweptBefore.get();
+        if (t == null || before.equals(last) || !sweptBefore.compareAndSet(last, before)) return;
+        long removed = t.removeExpiredBefore(before.getYear(), before.getMonthValue());
+        log.info("hmac index: {} entries expiring before {} removed after purge", removed, before);
+    }
+
+    /** false enquanto desligado ou reconstruindo (tudo vai ao banco) */
+    public boolean ready() { return table != null; }
+
+    @PreDestroy
+    public void close() {
+        var t = table;
+        table = null;
+        if (t != null) t.close();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cards.index.lookups", hits, LongAdder::sum).tag("result", "hit")
+                .description("PAN lookups answered by the local HMAC index").register(registry);
+        FunctionCounter.builder("cards.index.lookups", misses, LongAdder::sum).tag("result", "miss")
+                .description("PAN lookups answered by the local HMAC index").register(registry);
+        FunctionCounter.builder("cards.index.lookups", stale, LongAdder::sum).tag("result", "stale")
+                .description("PAN lookups answered by the local HMAC index").register(registry);
+        FunctionCounter.builder("cards.index.rejected", rejected, LongAdder::sum)
+                .description("cards not indexed (table full or unsupported token format)").register(registry);
+        Gauge.builder("cards.index.entries", this, i -> { var t = i.table; return t == null ? 0 : t.size(); })
+                .description("entries in the local HMAC index").register(registry);
+    }
+
+    /** monta uma tabela nova lendo card_tokens e troca; roda fora da thread de startup */
+    void rebuild() {
+        long t0 = System.nanoTime();
+        Path target = file.isBlank() ? null : Path.of(file), tmp = target == null ? null : Path.of(file + ".building");
+        try {
+            var fresh = tmp == null ? HmacTable.allocate(maxEntries) : HmacTable.create(tmp, maxEntries, keyId());
+            building = fresh;
+            long[] rows = {0}, skipped = {0};
+            for (int shard : shards.all()) shards.run(shard, () -> jdbc.query(con -> {
+                var ps = con.prepareStatement("select " + COLUMNS + " from card_tokens",
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(fetchSize);
+                return ps;
+            }, rs -> {
+                rows[0]++;
+                int month = rs.getInt(5), year = rs.getInt(6);
+                if (purgeable(month, year)) return;
+                ByteBuffer id = ByteBuffer.wrap(rs.getBytes(2));
+                var e = new HmacTable.Entry(new UUID(id.getLong(), id.getLong()), rs.getString(3), rs.getString(4), month, year);
+                if (!fresh.put(rs.getString(1), e)) skipped[0]++;
+            }));
+            if (target != null) Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            var old = table;
+            table = fresh;
+            building = null;
+            if (old != null) old.close();
+            if (skipped[0] > 0) rejected.add(skipped[0]);
+            log.info("hmac index built: {} entries from {} rows ({} not indexed) in {} ms", fresh.size(), rows[0], skipped[0],
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+        } catch (IOException | RuntimeException e) {
+            building = null;
+            log.warn("hmac index not built, lookups keep using the database: {}", e.toString());
+        }
+    }
+
+    /** validade que o purge (com um mês de folga) já pode ter apagado; mês inválido (linha antiga) fica fora */
+    private boolean purgeable(int month, int year) {
+        if (month < 1 || month > 12) return true;
+        return YearMonth.of(year, month).isBefore(purgeBefore());
+    }
+
+    private YearMonth purgeBefore() {
+        return YearMonth.now().minusMonths(graceMonths - 1L);
+    }
+
+    /** identidade da chave HMAC: arquivo gerado com outra chave não serve */
+    private long keyId() {
+        return HexFormat.fromHexDigitsToLong(crypto.macHex("cards.index.key-check"), 0, 16);
+    }
+}
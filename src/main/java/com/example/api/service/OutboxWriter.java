@@ -0,0 +1,32 @@
+package com.example.api.service;
+
+import com.example.api.entity.CardOutbox;
+import com.example.api.repository.CardOutboxRepository;
+import com.example.api.service.events.CardCreatedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/** grava o evento no outbox na transação de quem publicou (sem transação = erro, nunca grava solto) */
+@Component
+@RequiredArgsConstructor
+public class OutboxWriter {
+
+    static final String CARD_CREATED = "card.created";
+
+    private final CardOutboxRepository outbox;
+
+    @EventListener
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void on(CardCreatedEvent e) {
+        outbox.save(CardOutbox.builder()
+                .type(CARD_CREATED)
+                .cardId(e.id())
+                .token(e.token())
+                .last4(e.last4())
+                .bin(e.bin())
+                .build());
+    }
+}
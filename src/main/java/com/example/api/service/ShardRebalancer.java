@@ -0,0 +1,236 @@
+package com.example.api.service;
+
+import com.example.api.config.ShardRouter;
+import com.example.api.entity.ShardRange;
+import com.example.api.repository.ShardRangeRepository;
+import com.example.api.util.ValidationException;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Mapa de faixas dos shards ({@code shard_ranges} no shard 0) e migração online de uma faixa.
+ * <p>
+ * Todo nó recarrega o mapa a cada {@code cards.shards.refresh}. Mover os baldes {@code [first, last]} para
+ * outro shard, sem parar escritas:
+ * <ol>
+ *   <li>a faixa vira "em migração": escritas vão para o destino; leituras e a checagem de duplicata que
+ *       não acham lá consultam a origem;</li>
+ *   <li>espera {@code cards.shards.move-grace} (refresh de todos os nós + transações já abertas na origem);</li>
+ *   <li>copia as linhas da faixa da origem para o destino em blocos pela ordem do HMAC (pula o que já existe);</li>
+ *   <li>a faixa volta a estável com o novo dono e as linhas copiadas saem da origem.</li>
+ * </ol>
+ * Queda no meio deixa a faixa em migração, que continua correta (leitura nos dois); repetir o mesmo pedido
+ * retoma a cópia. O diretório token/id guarda o balde, não o shard, e não muda. Uma migração por vez.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ShardRebalancer {
+
+    public record Move(int firstBucket, int lastBucket, int from, int to, String state,
+                       long copied, long removed, Instant startedAt, String error) {
+        Move with(String state, long copied, long removed, String error) {
+            return new Move(firstBucket, lastBucket, from, to, state, copied, removed, startedAt, error);
+        }
+    }
+
+    private static final String COLUMNS = "id, token, pan_hmac_hex, pan_enc, bin, last4, brand, card_type, "
+            + "expiry_month, expiry_year, created_at, updated_at";
+    /** faixa de baldes [lo, hi) continuando depois do último HMAC lido ("" no 1º bloco) */
+    private static final String RANGE = " where pan_hmac_hex >= ? and pan_hmac_hex > ? and pan_hmac_hex < ?";
+
+    private final ShardRouter router;
+    private final ShardRangeRepository ranges;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+
+    /** > refresh + maior transação: depois disso nenhum nó escreve mais na origem */
+    @Value("${cards.shards.move-grace:45s}")
+    private Duration moveGrace = Duration.ofSeconds(45);
+
+    @Value("${cards.shards.move-chunk:500}")
+    private int chunk = 500;
+
+    private volatile Move current;
+
+    /** antes do 1º request: mapa errado espalharia o mesmo PAN em dois shards */
+    @PostConstruct
+    public void load() {
+        if (!router.sharded()) return;
+        var all = ranges.findAllByOrderByFirstBucketAsc();
+        if (all.isEmpty()) {
+            try {
+                tx.executeWithoutResult(s -> ranges.saveAll(ShardRouter.uniform(router.shards())));
+                log.info("shard ranges seeded: {} shards", router.shards());
+            } catch (DataIntegrityViolationException e) {
+                log.info("shard ranges seeded by another node");
+            }
+            all = ranges.findAllByOrderByFirstBucketAsc();
+        }
+        router.apply(all);
+    }
+
+    @Scheduled(fixedDelayString = "${cards.shards.refresh:5s}")
+    public void refresh() {
+        if (!router.sharded()) return;
+        try {
+            router.apply(ranges.findAllByOrderByFirstBucketAsc());
+        } catch (DataAccessException | IllegalStateException e) {
+            log.warn("shard ranges not refreshed, keeping the current map: {}", e.toString());
+        }
+    }
+
+    public List<ShardRange> map() { return router.ranges(); }
+
+    public Move status() { return current; }
+
+    /** marca a faixa e segue a migração numa thread própria; devolve o estado inicial */
+    public synchronized Move start(int first, int last, int to) {
+        if (!router.sharded()) throw new ValidationException("shards_disabled");
+        if (first < 0 || last >= ShardRouter.BUCKETS || first > last) throw new ValidationException("shard_move_buckets");
+        if (to < 0 || to >= router.shards()) throw new ValidationException("shard_move_target");
+        var c = current;
+        if (c != null && !c.state().equals("done") && !c.state().equals("failed")) throw new ValidationException("shard_move_running");
+
+        int from = Objects.requireNonNull(tx.execute(s -> mark(first, last, to)));
+        refresh();
+        var move = new Move(first, last, from, to, "draining", 0, 0, Instant.now(), null);
+        current = move;
+        log.info("shard move started: buckets {}..{} from shard {} to {}", first, last, from, to);
+        Thread.ofPlatform().name("shard-move").daemon().start(() -> run(move));
+        return move;
+    }
+
+    /** parte a faixa dona e marca o trecho como em migração; devolve a origem */
+    private int mark(int first, int last, int to) {
+        var all = ranges.lockAll();
+        ShardRange r = all.stream().filter(x -> x.getFirstBucket() <= first && last <= x.getLastBucket()).findFirst()
+                .orElseThrow(() -> new ValidationException("shard_move_spans_ranges"));
+        if (r.getMovingFrom() != null) {
+            // mesmo pedido depois de uma queda: retoma
+            if (r.getFirstBucket() == first && r.getLastBucket() == last && r.getShard() == to) return r.getMovingFrom();
+            throw new ValidationException("shard_range_moving");
+        }
+        if (all.stream().anyMatch(x -> x.getMovingFrom() != null)) throw new ValidationException("shard_move_running");
+        if (r.getShard() == to) throw new ValidationException("shard_move_same_shard");
+
+        int from = r.getShard(), oldLast = r.getLastBucket();
+        var now = Instant.now();
+        if (first > r.getFirstBucket()) {
+            r.setLastBucket(first - 1);
+            r.setUpdatedAt(now);
+            ranges.save(ShardRange.builder().firstBucket(first).lastBucket(last).shard(to).movingFrom(from).updatedAt(now).build());
+        } else {
+            r.setLastBucket(last);
+            r.setShard(to);
+            r.setMovingFrom(from);
+            r.setUpdatedAt(now);
+        }
+        if (last < oldLast)
+            ranges.save(ShardRange.builder().firstBucket(last + 1).lastBucket(oldLast).shard(from).updatedAt(now).build());
+        return from;
+    }
+
+    private void run(Move move) {
+        try {
+            LockSupport.parkNanos(moveGrace.toNanos());
+            current = move.with("copying", 0, 0, null);
+            long copied = copy(move);
+            current = move.with("flipping", copied, 0, null);
+            tx.executeWithoutResult(s -> flip(move));
+            refresh();
+            current = move.with("cleaning", copied, 0, null);
+            long removed = clean(move);
+            current = move.with("done", copied, removed, null);
+            log.info("shard move done: buckets {}..{} shard {} -> {}, {} copied, {} removed from source",
+                    move.firstBucket(), move.lastBucket(), move.from(), move.to(), copied, removed);
+        } catch (RuntimeException e) {
+            var c = current;
+            current = c.with("failed", c.copied(), c.removed(), e.toString());
+            log.warn("shard move failed (range stays readable on both shards; repeat the request to resume): {}", e.toString());
+        }
+    }
+
+    /** origem -> destino em blocos pela ordem do HMAC; o que já está no destino fica como está */
+    private long copy(Move m) {
+        String lo = lowerHex(m.firstBucket()), hi = lowerHex(m.lastBucket() + 1), after = "";
+        long copied = 0;
+        for (;;) {
+            String last = after;
+            List<Object[]> rows = router.read(m.from(), () -> jdbc.query(
+                    "select " + COLUMNS + " from card_tokens" + RANGE + " order by pan_hmac_hex limit ?",
+                    (rs, i) -> new Object[]{rs.getBytes(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5),
+                            rs.getString(6), rs.getString(7), rs.getString(8), rs.getInt(9), rs.getInt(10),
+                            rs.getTimestamp(11), rs.getTimestamp(12)},
+                    lo, last, hi, chunk));
+            if (rows.isEmpty()) return copied;
+            var hmacs = rows.stream().map(r -> (String) r[2]).toList();
+            copied += router.write(m.to(), () -> {
+                var present = new HashSet<>(existing(hmacs));
+                var missing = rows.stream().filter(r -> !present.contains((String) r[2])).toList();
+                if (!missing.isEmpty())
+                    jdbc.batchUpdate("insert into card_tokens (" + COLUMNS + ") values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", missing);
+                return missing.size();
+            });
+            current = m.with("copying", copied, 0, null);
+            if (rows.size() < chunk) return copied;
+            after = hmacs.get(hmacs.size() - 1);
+        }
+    }
+
+    private void flip(Move m) {
+        var all = ranges.lockAll();
+        var r = all.stream().filter(x -> x.getFirstBucket() == m.firstBucket()).findFirst()
+                .orElseThrow(() -> new IllegalStateException("shard_range_lost: " + m.firstBucket()));
+        r.setMovingFrom(null);
+        r.setUpdatedAt(Instant.now());
+    }
+
+    /** apaga da origem só o que o destino já tem */
+    private long clean(Move m) {
+        String lo = lowerHex(m.firstBucket()), hi = lowerHex(m.lastBucket() + 1), after = "";
+        long removed = 0;
+        for (;;) {
+            String last = after;
+            var hmacs = router.read(m.from(), () -> jdbc.queryForList(
+                    "select pan_hmac_hex from card_tokens" + RANGE + " order by pan_hmac_hex limit ?",
+                    String.class, lo, last, hi, chunk));
+            if (hmacs.isEmpty()) return removed;
+            var present = router.read(m.to(), () -> existing(hmacs));
+            if (!present.isEmpty()) removed += router.write(m.from(), () -> jdbc.update(
+                    "delete from card_tokens where pan_hmac_hex in (" + marks(present.size()) + ")", present.toArray()));
+            if (present.size() < hmacs.size())
+                log.warn("shard move: {} rows in buckets {}..{} not found on shard {}, kept on shard {}",
+                        hmacs.size() - present.size(), m.firstBucket(), m.lastBucket(), m.to(), m.from());
+            if (hmacs.size() < chunk) return removed;
+            after = hmacs.get(hmacs.size() - 1);
+        }
+    }
+
+    private List<String> existing(List<String> hmacs) {
+        return jdbc.queryForList("select pan_hmac_hex from card_tokens where pan_hmac_hex in (" + marks(hmacs.size()) + ")",
+                String.class, hmacs.toArray());
+    }
+
+    private static String marks(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+
+    /** menor HMAC do balde; acima do último balde, "g" (maior que qualquer hex) */
+    static String lowerHex(int bucket) {
+        return bucket >= ShardRouter.BUCKETS ? "g" : HexFormat.of().toHexDigits((short) bucket);
+    }
+}
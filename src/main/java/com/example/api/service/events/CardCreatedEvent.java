@@ -0,0 +1,5 @@
+package com.example.api.service.events;
+
+/** publicado dentro da transação que inseriu o cartão; só dados não sensíveis */
+public record CardCreatedEvent(String id, String token, String last4, String bin, String brand,
+                               int expiryMonth, int expiryYear) {}
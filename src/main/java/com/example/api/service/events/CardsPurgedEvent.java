@@ -0,0 +1,16 @@
+package com.example.api.service.events;
+
+import com.example.api.DTO.CardListItem;
+
+import java.util.List;
+
+/**
+ * publicado depois do commit de cada bloco apagado pelo purge; caches em memória descartam esses cartões.
+ * {@code deleted < cards.size()} = parte do bloco já tinha sumido (outro nó apagou antes).
+ */
+public record CardsPurgedEvent(List<CardListItem> cards, int deleted) {
+
+    public List<String> ids() { return cards.stream().map(CardListItem::id).toList(); }
+
+    public List<String> tokens() { return cards.stream().map(CardListItem::token).toList(); }
+}
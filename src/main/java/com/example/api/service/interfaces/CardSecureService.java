@@ -4,10 +4,25 @@ import com.example.api.DTO.CardRef;
 import com.example.api.service.CardSecureServiceImpl;
 import com.example.api.web.request.CardCreateRequest;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface CardSecureService {
     record PersistResult(String id, String token, String last4, boolean duplicate) {}
     PersistResult createOrGet(CardCreateRequest req, String lot, Integer seq);
+
+    /** resultado por item do lote: {@code result} ou o código de erro de validação em {@code error} */
+    record BatchResult(PersistResult result, String error) {
+        public static BatchResult ok(PersistResult r) { return new BatchResult(r, null); }
+        public static BatchResult invalid(String code) { return new BatchResult(null, code); }
+    }
+
+    /**
+     * Cria/recupera vários cartões numa transação por shard: uma consulta {@code IN} pelos HMACs e um batch de
+     * INSERTs. PAN que outra chamada deste nó já está criando sai dela (single-flight, como no
+     * {@link #createOrGet}). Resultados na ordem da entrada. Se outro processo inserir o mesmo PAN no meio, a
+     * transação falha (conflito de chave única) e quem chamou deve refazer item a item com {@link #createOrGet}.
+     */
+    List<BatchResult> createOrGetBatch(List<CardCreateRequest> reqs);
     Optional<CardRef> findByPan(String rawPan);
 }
@@ -3,4 +3,7 @@ package com.example.api.service.interfaces;
 public interface CryptoService {
     String encryptUtf8(String plaintext);
     String macHex(String data);
+
+    /** abre um valor de {@link #encryptUtf8}; o chamador é dono do array e deve zerá-lo depois de usar */
+    byte[] decrypt(String packedB64);
 }
@@ -0,0 +1,14 @@
+package com.example.api.service.interfaces;
+
+import com.example.api.DTO.CardRef;
+import com.example.api.entity.CardToken;
+
+import java.util.Optional;
+
+/** índice local HMAC do PAN -> cartão; vazio = não sei (consulte o banco), nunca "não existe" */
+public interface HmacIndex {
+    Optional<CardRef> find(String panHmacHex);
+
+    /** só com o cartão já commitado */
+    void put(CardToken card);
+}
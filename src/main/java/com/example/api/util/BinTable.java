@@ -0,0 +1,171 @@
+package com.example.api.util;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Tabela de faixas BIN/IIN (CSV local) para enriquecer bandeira e tipo do cartão.
+ * <p>
+ * Formato do CSV: {@code inicio,fim,bandeira,tipo} — início/fim com 6 ou 8 dígitos ({@code fim} vazio = início).
+ * Faixas podem se sobrepor; vence a mais específica (mais estreita) e, no empate, a que aparece por último.
+ * <p>
+ * As faixas são achatadas na carga em intervalos disjuntos no espaço de 8 dígitos e guardadas em arrays
+ * primitivos ordenados: a consulta é uma busca binária sem alocação. O índice é imutável e trocado
+ * atomicamente em {@link #reload()}, então consultas concorrentes nunca veem um estado parcial.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class BinTable {
+
+    public record BinInfo(String brand, String type) {}
+    public static final BinInfo UNKNOWN = new BinInfo(null, null);
+
+    private final ResourceLoader resources;
+
+    @Value("${cards.bin.table:classpath:bin-ranges.csv}")
+    private String location;
+
+    private volatile Index index = Index.EMPTY;
+    private volatile Instant loadedAt;
+    private volatile int ranges;
+
+    @PostConstruct
+    void init() {
+        try { reload(); }
+        catch (RuntimeException e) { log.warn("bin table not loaded from {}: {}", location, e.getMessage()); }
+    }
+
+    /** recarrega o CSV de {@code cards.bin.table}; em caso de erro mantém o índice atual */
+    public int reload() {
+        var res = resources.getResource(location);
+        try (InputStream in = res.getInputStream()) {
+            int n = load(in);
+            log.info("bin table loaded: {} ranges from {}", n, location);
+            return n;
+        } catch (IOException e) {
+            throw new UncheckedIOException("bin_table_load_failed: " + location, e);
+        }
+    }
+
+    /** carrega faixas de um CSV e troca o índice; retorna o nº de faixas lidas */
+    public int load(InputStream in) throws IOException {
+        List<Range> ranges = new ArrayList<>();
+        try (var br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line; int ln = 0;
+            while ((line = br.readLine()) != null) {
+                ln++;
+                line = line.strip();
+                if (line.isEmpty() || line.charAt(0) == '#' || !Character.isDigit(line.charAt(0))) continue; // comentário/cabeçalho
+                ranges.add(Range.parse(line, ln, ranges.size()));
+            }
+        }
+        index = Index.build(ranges);
+        loadedAt = Instant.now();
+        this.ranges = ranges.size();
+        return ranges.size();
+    }
+
+    /** bandeira/tipo pelo prefixo do PAN normalizado; nunca retorna null */
+    public BinInfo lookup(String pan) {
+        return index.find(pan);
+    }
+
+    public int ranges() { return ranges; }
+    public int intervals() { return index.starts.length; }
+    public String location() { return location; }
+    public Instant loadedAt() { return loadedAt; }
+
+    /* ---------- modelo/índice ---------- */
+
+    private record Range(int lo, int hi, BinInfo info, int order) {
+        int width() { return hi - lo; }
+
+        static Range parse(String line, int ln, int order) {
+            String[] c = line.split(",", -1);
+            if (c.length < 3) throw new IllegalArgumentException("bin_table_columns (line " + ln + ")");
+            String from = c[0].strip(), to = c[1].isBlank() ? from : c[1].strip();
+            int lo = key(from, '0', ln), hi = key(to, '9', ln);
+            if (lo > hi) throw new IllegalArgumentException("bin_table_range_order (line " + ln + ")");
+            String brand = blankToNull(c[2]), type = c.length > 3 ? blankToNull(c[3]) : null;
+            return new Range(lo, hi, new BinInfo(brand, type), order);
+        }
+
+        /** BIN de 6 dígitos vira faixa de 8: início com "00", fim com "99" */
+        private static int key(String bin, char pad, int ln) {
+            if ((bin.length() != 6 && bin.length() != 8) || !bin.chars().allMatch(Character::isDigit))
+                throw new IllegalArgumentException("bin_table_bin_length (line " + ln + ")");
+            return Integer.parseInt(bin.length() == 6 ? bin + pad + pad : bin);
+        }
+
+        private static String blankToNull(String s) { s = s.strip(); return s.isEmpty() ? null : s.intern(); }
+    }
+
+    /** intervalos disjuntos ordenados: [starts[i], ends[i]] -> infos[i] */
+    private static final class Index {
+        static final Index EMPTY = new Index(new int[0], new int[0], new BinInfo[0]);
+
+        final int[] starts, ends;
+        final BinInfo[] infos;
+
+        private Index(int[] starts, int[] ends, BinInfo[] infos) { this.starts = starts; this.ends = ends; this.infos = infos; }
+
+        BinInfo find(String pan) {
+            if (pan == null || pan.length() < 8 || starts.length == 0) return UNKNOWN;
+            int key = 0;
+            for (int i = 0; i < 8; i++) {
+                int d = pan.charAt(i) - '0';
+                if (d < 0 || d > 9) return UNKNOWN;
+                key = key * 10 + d;
+            }
+            int i = Arrays.binarySearch(starts, key);
+            if (i < 0) i = -i - 2;                 // maior início <= key
+            return (i >= 0 && key <= ends[i]) ? infos[i] : UNKNOWN;
+        }
+
+        /**
+         * Varredura pelos pontos de fronteira mantendo as faixas ativas num heap ordenado por
+         * especificidade (largura asc, ordem desc); cada trecho elementar herda o topo do heap.
+         * O(n log n) na carga.
+         */
+        static Index build(List<Range> ranges) {
+            if (ranges.isEmpty()) return EMPTY;
+            var byLo = new ArrayList<>(ranges);
+            byLo.sort(Comparator.comparingInt(Range::lo));
+
+            int[] bounds = new int[ranges.size() * 2];
+            int nb = 0;
+            for (var r : ranges) { bounds[nb++] = r.lo(); bounds[nb++] = r.hi() + 1; }
+            Arrays.sort(bounds, 0, nb);
+            int u = 0;
+            for (int i = 0; i < nb; i++) if (u == 0 || bounds[i] != bounds[u - 1]) bounds[u++] = bounds[i];
+            nb = u;
+
+            var active = new PriorityQueue<Range>(Comparator.comparingInt(Range::width)
+                    .thenComparing(Comparator.comparingInt(Range::order).reversed()));
+            int[] s = new int[nb], e = new int[nb];
+            BinInfo[] inf = new BinInfo[nb];
+            int n = 0, next = 0;
+
+            for (int b = 0; b < nb - 1; b++) {
+                int from = bounds[b], to = bounds[b + 1] - 1;
+                while (next < byLo.size() && byLo.get(next).lo() <= from) active.add(byLo.get(next++));
+                while (!active.isEmpty() && active.peek().hi() < from) active.poll();
+                Range top = active.peek();
+                if (top == null) continue;
+                if (n > 0 && inf[n - 1].equals(top.info()) && e[n - 1] + 1 == from) { e[n - 1] = to; continue; } // funde vizinhos
+                s[n] = from; e[n] = to; inf[n] = top.info(); n++;
+            }
+            return new Index(Arrays.copyOf(s, n), Arrays.copyOf(e, n), Arrays.copyOf(inf, n));
+        }
+    }
+}
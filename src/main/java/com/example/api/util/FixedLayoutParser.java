@@ -39,10 +39,9 @@ public class FixedLayoutParser {
                 // DETALHE
                 if (line.charAt(0) != 'C') throw bad(ln, "invalid_identifier");
 
-                Integer seq = tryParseInt(take(line, 1, 6));       // [02-07]
-                String raw  = take(line, 7, 19).replaceAll("\\D",""); // [08-26]
-                if (raw.length() < 12) throw bad(ln, "pan_length");
-                String pan  = raw.length() > 19 ? raw.substring(0,19) : raw;
+                Integer seq = tryParseInt(line, 1, 6);             // [02-07]
+                String pan  = digits(line, 7, 19);                 // [08-26]
+                if (pan.length() < 12) throw bad(ln, "pan_length");
 
                 details.add(new Detail(ln, seq, pan));
                 ln++;
@@ -82,8 +81,29 @@ public class FixedLayoutParser {
         return l;
     }
 
-    private static Integer tryParseInt(String s) { try { return s.isBlank()? null : Integer.parseInt(s); } catch (Exception e) { return null; } }
-    private static IllegalArgumentException bad(int line, String code) { return new IllegalArgumentException(code + " (line " + line + ")"); }
+    /** inteiro em [from, from+len) (espaços à direita ignorados); null se vazio ou não numérico, sem lançar exceção */
+    private static Integer tryParseInt(String s, int from, int len) {
+        int i = from, j = Math.min(s.length(), from + len), v = 0;
+        while (j > i && Character.isWhitespace(s.charAt(j - 1))) j--;
+        if (i >= j) return null;
+        for (; i < j; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return null;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    /** só os dígitos de [from, from+len), sem regex */
+    private static String digits(String s, int from, int len) {
+        int j = Math.min(s.length(), from + len), k = 0;
+        if (from >= j) return "";
+        char[] out = new char[j - from];
+        for (int i = from; i < j; i++) { char c = s.charAt(i); if (c >= '0' && c <= '9') out[k++] = c; }
+        return new String(out, 0, k);
+    }
+
+    private static IllegalArgumentException bad(int line, String code) { return new ValidationException(code + " (line " + line + ")"); }
 
     /* ---------- modelos do parser ---------- */
     public record Header(String name, LocalDate date, String lot, int qty) {}
@@ -0,0 +1,282 @@
+package com.example.api.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Tabela hash fora do heap: HMAC do PAN (32 bytes) -> id/token/last4/validade.
+ * <p>
+ * Endereçamento aberto com sondagem linear sobre slots de 64 bytes (uma linha de cache), guardados em
+ * {@link ByteBuffer}s diretos ou mapeados de arquivo, em pedaços de 1 GiB (limite de um ByteBuffer).
+ * O slot inicial vem dos 8 primeiros bytes do HMAC, que já são uniformes; remoção por deslocamento para
+ * trás, sem tombstone. O GC só enxerga os objetos ByteBuffer, nunca as entradas.
+ * <p>
+ * Escrita com o lock exclusivo de um {@link StampedLock}; leitura otimista sem lock, validada no fim
+ * (se houve escrita no meio, refaz sob lock de leitura). Slot vazio = HMAC todo zero.
+ * <p>
+ * Layout do slot: {@code hmac[32] | id (msb, lsb) [16] | token sem "tok_" [12] | last4 (short) | validade
+ * (char, ano*12 + mês-1)}. Só entram tokens no formato do {@link TokenGenerator}.
+ * <p>
+ * Em arquivo, o cabeçalho guarda capacidade, tamanho, a identidade da chave HMAC e a flag de
+ * fechamento limpo: {@link #open} recusa arquivo de outra chave ou de um processo que caiu com ele aberto.
+ */
+public final class HmacTable implements Closeable {
+
+    public record Entry(UUID id, String token, String last4, int expiryMonth, int expiryYear) {}
+
+    static final int SLOT = 64, HEADER = 64, CHUNK_SHIFT = 24;     // 2^24 slots * 64 B = 1 GiB por pedaço
+    static final int SWEEP_BATCH = 4096;                             // slots por posse do lock na varredura
+    private static final long MAGIC = 0x4341524449445831L;          // "CARDIDX1"
+    private static final int H_MAGIC = 0, H_SLOTS = 8, H_SIZE = 16, H_KEY = 24, H_CLEAN = 32;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final ByteBuffer[] chunks;
+    private final ByteBuffer header;                                 // null = só memória
+    private final long slots, mask, maxEntries;
+    private final StampedLock lock = new StampedLock();
+    private volatile long size;
+
+    private HmacTable(ByteBuffer header, ByteBuffer[] chunks, long slots, long size) {
+        this.header = header;
+        this.chunks = chunks;
+        this.slots = slots;
+        this.mask = slots - 1;
+        this.maxEntries = slots / 4 * 3;                             // carga máxima 75%
+        this.size = size;
+    }
+
+    /** tabela em buffers diretos (não sobrevive ao restart) */
+    public static HmacTable allocate(long maxEntries) {
+        long slots = slotsFor(maxEntries);
+        var chunks = new ByteBuffer[chunkCount(slots)];
+        for (int i = 0; i < chunks.length; i++) chunks[i] = ByteBuffer.allocateDirect(chunkBytes(slots, i));
+        return new HmacTable(null, chunks, slots, 0);
+    }
+
+    /** tabela nova, vazia, mapeada em {@code file} (sobrescreve) */
+    public static HmacTable create(Path file, long maxEntries, long keyId) throws IOException {
+        long slots = slotsFor(maxEntries);
+        try (var raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(0);
+            raf.setLength(HEADER + slots * SLOT);                       // esparso: zeros = slots vazios
+            var t = map(raf.getChannel(), slots, 0);
+            t.header.putLong(H_MAGIC, MAGIC).putLong(H_SLOTS, slots).putLong(H_SIZE, 0).putLong(H_KEY, keyId).putInt(H_CLEAN, 0);
+            return t;
+        }
+    }
+
+    /** reabre uma tabela gravada por {@link #close()}; null se o arquivo não serve (outra chave, fechamento sujo, formato) */
+    public static HmacTable open(Path file, long keyId) throws IOException {
+        try (var raf = new RandomAccessFile(file.toFile(), "rw")) {
+            if (raf.length() < HEADER) return null;
+            var h = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            long slots = h.getLong(H_SLOTS);
+            if (h.getLong(H_MAGIC) != MAGIC || h.getLong(H_KEY) != keyId || h.getInt(H_CLEAN) != 1
+                    || Long.bitCount(slots) != 1 || raf.length() != HEADER + slots * SLOT) return null;
+            var t = map(raf.getChannel(), slots, h.getLong(H_SIZE));
+            t.header.putInt(H_CLEAN, 0);                                  // aberta: se cair, o próximo start reconstrói
+            ((MappedByteBuffer) t.header).force();
+            return t;
+        }
+    }
+
+    public Entry get(String hmacHex) {
+        long[] k = key(hmacHex);
+        if (k == null) return null;
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            Entry e = read(find(k));
+            if (lock.validate(stamp)) return e;
+        }
+        stamp = lock.readLock();
+        try { return read(find(k)); }
+        finally { lock.unlockRead(stamp); }
+    }
+
+    /** insere ou sobrescreve; false se a entrada não cabe no layout ou a tabela está cheia */
+    public boolean put(String hmacHex, Entry e) {
+        long[] k = key(hmacHex);
+        if (k == null || !fits(e)) return false;
+        long stamp = lock.writeLock();
+        try {
+            long s = k[0] & mask;
+            for (long i = 0; i < slots; i++, s = (s + 1) & mask) {
+                var b = chunk(s); int o = offset(s);
+                boolean empty = isEmpty(b, o);
+                if (!empty && !matches(b, o, k)) continue;
+                if (empty) {
+                    if (size >= maxEntries) return false;
+                    b.putLong(o, k[0]).putLong(o + 8, k[1]).putLong(o + 16, k[2]).putLong(o + 24, k[3]);
+                    size++;
+                }
+                write(b, o, e);
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean remove(String hmacHex) {
+        long[] k = key(hmacHex);
+        if (k == null) return false;
+        long stamp = lock.writeLock();
+        try {
+            long s = find(k);
+            if (s < 0) return false;
+            removeAt(s);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove as entradas com validade anterior a {@code before}. Varre {@value #SWEEP_BATCH} slots por vez e
+     * solta o lock entre os blocos para não parar as leituras; uma entrada deslocada por escrita concorrente
+     * para um bloco já varrido escapa e fica para a próxima varredura.
+     */
+    public long removeExpiredBefore(int year, int month) {
+        int cutoff = year * 12 + month - 1;
+        long removed = 0;
+        for (long from = 0; from < slots; from += SWEEP_BATCH) {
+            long stamp = lock.writeLock();
+            try {
+                for (long s = from, end = Math.min(slots, from + SWEEP_BATCH); s < end; ) {
+                    var b = chunk(s); int o = offset(s);
+                    if (isEmpty(b, o) || b.getChar(o + 62) >= cutoff) { s++; continue; }
+                    removeAt(s);                                         // o deslocamento pode trazer outra entrada para s
+                    removed++;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        return removed;
+    }
+
+    public long size() { return size; }
+    public long maxEntries() { return maxEntries; }
+    public boolean persistent() { return header != null; }
+
+    /** grava o tamanho e marca fechamento limpo; em memória não faz nada */
+    @Override
+    public void close() {
+        if (header == null) return;
+        long stamp = lock.writeLock();
+        try {
+            for (var c : chunks) ((MappedByteBuffer) c).force();
+            header.putLong(H_SIZE, size).putInt(H_CLEAN, 1);
+            ((MappedByteBuffer) header).force();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /* ---------- slots ---------- */
+
+    /** esvazia o slot (com o lock de escrita): deslocamento para trás de quem não ficaria mais alcançável */
+    private void removeAt(long hole) {
+        for (long j = (hole + 1) & mask; !isEmpty(chunk(j), offset(j)); j = (j + 1) & mask) {
+            long home = chunk(j).getLong(offset(j)) & mask;
+            boolean reachable = hole <= j ? (hole < home && home <= j) : (hole < home || home <= j);
+            if (!reachable) { copy(j, hole); hole = j; }
+        }
+        var b = chunk(hole); int o = offset(hole);
+        for (int i = 0; i < SLOT; i += 8) b.putLong(o + i, 0);
+        size--;
+    }
+
+    /** slot da chave ou -1; limitado a uma volta para não girar em estado inconsistente (leitura otimista) */
+    private long find(long[] k) {
+        long s = k[0] & mask;
+        for (long i = 0; i < slots; i++, s = (s + 1) & mask) {
+            var b = chunk(s); int o = offset(s);
+            if (isEmpty(b, o)) return -1;
+            if (matches(b, o, k)) return s;
+        }
+        return -1;
+    }
+
+    private Entry read(long s) {
+        if (s < 0) return null;
+        var b = chunk(s); int o = offset(s);
+        byte[] tok = new byte[12];
+        b.get(o + 48, tok);
+        int last4 = b.getShort(o + 60), exp = b.getChar(o + 62);
+        char[] l4 = {(char) ('0' + last4 / 1000 % 10), (char) ('0' + last4 / 100 % 10), (char) ('0' + last4 / 10 % 10), (char) ('0' + last4 % 10)};
+        return new Entry(new UUID(b.getLong(o + 32), b.getLong(o + 40)), "tok_" + HEX.formatHex(tok), new String(l4),
+                exp % 12 + 1, exp / 12);
+    }
+
+    private static void write(ByteBuffer b, int o, Entry e) {
+        b.putLong(o + 32, e.id().getMostSignificantBits()).putLong(o + 40, e.id().getLeastSignificantBits());
+        b.put(o + 48, HEX.parseHex(e.token(), 4, 28));
+        b.putShort(o + 60, (short) Integer.parseInt(e.last4()));
+        b.putChar(o + 62, (char) (e.expiryYear() * 12 + e.expiryMonth() - 1));
+    }
+
+    private void copy(long from, long to) {
+        var src = chunk(from); var dst = chunk(to);
+        int so = offset(from), d = offset(to);
+        for (int i = 0; i < SLOT; i += 8) dst.putLong(d + i, src.getLong(so + i));
+    }
+
+    private static boolean isEmpty(ByteBuffer b, int o) {
+        return (b.getLong(o) | b.getLong(o + 8) | b.getLong(o + 16) | b.getLong(o + 24)) == 0;
+    }
+
+    private static boolean matches(ByteBuffer b, int o, long[] k) {
+        return b.getLong(o) == k[0] && b.getLong(o + 8) == k[1] && b.getLong(o + 16) == k[2] && b.getLong(o + 24) == k[3];
+    }
+
+    private ByteBuffer chunk(long s) { return chunks[(int) (s >>> CHUNK_SHIFT)]; }
+    private static int offset(long s) { return (int) (s & ((1L << CHUNK_SHIFT) - 1)) * SLOT; }
+
+    /** HMAC hex (64) em 4 longs; null se inválido ou todo zero (zero marca slot vazio) */
+    private static long[] key(String h) {
+        if (h == null || h.length() != 64) return null;
+        for (int i = 0; i < 64; i++) if (Character.digit(h.charAt(i), 16) < 0) return null;
+        long[] k = new long[4];
+        for (int i = 0; i < 4; i++) k[i] = HexFormat.fromHexDigitsToLong(h, i * 16, i * 16 + 16);
+        return (k[0] | k[1] | k[2] | k[3]) == 0 ? null : k;
+    }
+
+    static boolean fits(Entry e) {
+        String t = e.token(), l = e.last4();
+        if (e.id() == null || t == null || t.length() != 28 || !t.startsWith("tok_")) return false;
+        for (int i = 4; i < 28; i++) { char c = t.charAt(i); if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) return false; }
+        if (l == null || l.length() != 4) return false;
+        for (int i = 0; i < 4; i++) if (!Character.isDigit(l.charAt(i))) return false;
+        return e.expiryMonth() >= 1 && e.expiryMonth() <= 12 && e.expiryYear() > 0 && e.expiryYear() < 5000;
+    }
+
+    /* ---------- alocação ---------- */
+
+    private static long slotsFor(long maxEntries) {
+        long want = Math.max(16, maxEntries / 3 * 4 + 4);
+        return Long.highestOneBit(want - 1) << 1;                       // próxima potência de 2
+    }
+
+    private static int chunkCount(long slots) { return (int) ((slots + (1L << CHUNK_SHIFT) - 1) >>> CHUNK_SHIFT); }
+
+    private static int chunkBytes(long slots, int i) {
+        return (int) (Math.min(1L << CHUNK_SHIFT, slots - ((long) i << CHUNK_SHIFT)) * SLOT);
+    }
+
+    private static HmacTable map(FileChannel ch, long slots, long size) throws IOException {
+        var chunks = new ByteBuffer[chunkCount(slots)];
+        for (int i = 0; i < chunks.length; i++)
+            chunks[i] = ch.map(FileChannel.MapMode.READ_WRITE, HEADER + ((long) i << CHUNK_SHIFT) * SLOT, chunkBytes(slots, i));
+        return new HmacTable(ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER), chunks, slots, size);
+    }
+}
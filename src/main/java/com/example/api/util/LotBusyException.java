@@ -0,0 +1,21 @@
+package com.example.api.util;
+
+import com.example.api.DTO.LotProgress;
+
+import java.time.Duration;
+
+/** o lote está sendo processado por outro upload (este ou outro nó) com lease válido -> 409 */
+public class LotBusyException extends RuntimeException {
+
+    private final transient LotProgress progress;
+    private final Duration retryAfter;
+
+    public LotBusyException(LotProgress progress, Duration retryAfter) {
+        super("lot_in_progress");
+        this.progress = progress;
+        this.retryAfter = retryAfter;
+    }
+
+    public LotProgress progress() { return progress; }
+    public Duration retryAfter() { return retryAfter; }
+}
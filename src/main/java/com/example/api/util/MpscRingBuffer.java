@@ -0,0 +1,72 @@
+package com.example.api.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Fila circular limitada, sem lock, para vários produtores e um único consumidor.
+ * <p>
+ * Cada slot tem um número de sequência (esquema de Vyukov): o produtor reserva a posição com um CAS
+ * no {@code tail}, escreve o elemento e publica com {@code setRelease} na sequência do slot.
+ * {@link #offer} nunca bloqueia: cheia, devolve {@code false} e quem chamou decide (ex.: contar descarte).
+ */
+public final class MpscRingBuffer<T> {
+
+    private final Object[] slots;
+    private final AtomicLongArray seq;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();   // só o consumidor escreve
+
+    public MpscRingBuffer(int capacity) {
+        int cap = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1; // próxima potência de 2
+        slots = new Object[cap];
+        seq = new AtomicLongArray(cap);
+        mask = cap - 1;
+        for (int i = 0; i < cap; i++) seq.set(i, i);
+    }
+
+    public boolean offer(T e) {
+        long pos = tail.get();
+        for (;;) {
+            int idx = (int) (pos & mask);
+            long dif = seq.getAcquire(idx) - pos;
+            if (dif == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots[idx] = e;
+                    seq.setRelease(idx, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (dif < 0) {
+                return false;                              // cheia
+            } else {
+                pos = tail.get();                          // outro produtor avançou
+            }
+        }
+    }
+
+    /** consome até {@code max} elementos na ordem de chegada; só pode ser chamado pela thread consumidora */
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<? super T> sink, int max) {
+        long h = head.get();
+        int n = 0;
+        while (n < max) {
+            int idx = (int) (h & mask);
+            if (seq.getAcquire(idx) != h + 1) break;      // vazia ou produtor ainda publicando
+            T e = (T) slots[idx];
+            slots[idx] = null;
+            seq.setRelease(idx, h + mask + 1);
+            head.lazySet(++h);
+            n++;
+            sink.accept(e);
+        }
+        return n;
+    }
+
+    /** tamanho aproximado (leituras não atômicas entre si) */
+    public int size() { return (int) Math.max(0, tail.get() - head.get()); }
+
+    public int capacity() { return mask + 1; }
+}
@@ -6,18 +6,42 @@ import org.springframework.stereotype.Component;
 @Component
 public class PanService {
 
+    /** motivos de rejeição do PAN; {@link #code()} é a string pública de erro */
+    public enum Reject {
+        LENGTH("invalid_pan_length"), LUHN("invalid_pan_luhn");
+        private final String code;
+        Reject(String code) { this.code = code; }
+        public String code() { return code; }
+    }
+
     @Value("${cards.validation.require-luhn:false}")
     private boolean requireLuhn;
 
     public String normalize(String raw){
-        String d = raw.replaceAll("\\D", "");
-        if (d.length() < 12) throw new IllegalArgumentException("invalid_pan_length");
-        // Se vier "PAN+CVV" no layout, mantemos só os 16 primeiros dígitos
-        if (d.length() > 16) d = d.substring(0, 16);
-        if (requireLuhn && !luhn(d)) throw new IllegalArgumentException("invalid_pan_luhn");
+        String d = digits(raw);
+        Reject r = check(d);
+        if (r != null) throw new ValidationException(r.code());
         return d;
     }
 
+    /** só os dígitos, truncado em 16 (se vier "PAN+CVV" no layout, mantemos só os 16 primeiros) */
+    public String digits(String raw){
+        int n = raw.length(), k = 0;
+        boolean clean = n <= 16;
+        for (int i = 0; i < n && clean; i++) { char c = raw.charAt(i); clean = c >= '0' && c <= '9'; }
+        if (clean) return raw;                                 // caminho comum: nada a copiar
+        char[] out = new char[Math.min(n, 16)];
+        for (int i = 0; i < n && k < out.length; i++) { char c = raw.charAt(i); if (c >= '0' && c <= '9') out[k++] = c; }
+        return new String(out, 0, k);
+    }
+
+    /** valida sem exceção: null se o PAN (já em dígitos) é aceito, senão o motivo */
+    public Reject check(String digits){
+        if (digits.length() < 12) return Reject.LENGTH;
+        if (requireLuhn && !luhn(digits)) return Reject.LUHN;
+        return null;
+    }
+
     private static boolean luhn(String s){
         int sum=0, alt=0;
         for (int i=s.length()-1;i>=0;i--,alt^=1){
@@ -29,4 +53,4 @@ public class PanService {
     }
     public String bin(String pan){ int n=Math.max(6, Math.min(8, pan.length()-4)); return pan.substring(0,n); }
     public String last4(String pan){ return pan.substring(pan.length()-4); }
-}
\ No newline at end of file
+}
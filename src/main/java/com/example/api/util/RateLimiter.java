@@ -0,0 +1,62 @@
+package com.example.api.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket sem lock (GCRA): o estado de cada balde é um único {@code long} (instante teórico da
+ * próxima chegada) atualizado por CAS.
+ * <p>
+ * Para clientes quentes o balde é dividido em stripes, cada um com taxa e rajada proporcionais; a
+ * requisição sorteia um stripe e, se ele recusar, tenta o vizinho antes de recusar — menos disputa
+ * no CAS sem mudar a taxa total. Rajadas pequenas usam menos stripes (cada um precisa de ≥ 1 ficha).
+ */
+public final class RateLimiter {
+
+    private final AtomicLong[] tat;
+    private final long interval;     // ns entre fichas, por stripe
+    private final long[] tolerance;  // quanto o tat pode ficar à frente de "agora" (rajada), por stripe
+
+    /** {@code permitsPerSecond} &gt; 0; {@code burst} ≥ 1 */
+    public RateLimiter(double permitsPerSecond, int burst, int stripes) {
+        if (permitsPerSecond <= 0 || burst < 1) throw new IllegalArgumentException("rate_limiter_config");
+        int n = Math.max(1, Math.min(stripes, burst));
+        tat = new AtomicLong[n];
+        long now = System.nanoTime();
+        for (int i = 0; i < n; i++) tat[i] = new AtomicLong(now);
+        interval = (long) (n * 1e9 / permitsPerSecond);
+        tolerance = new long[n];
+        for (int i = 0; i < n; i++) tolerance[i] = (burst / n + (i < burst % n ? 1 : 0)) * interval; // sobra nos primeiros
+    }
+
+    /** 0 = liberado; &gt; 0 = recusado, com os ns até haver ficha */
+    public long tryAcquire() {
+        long now = System.nanoTime();
+        int first = tat.length == 1 ? 0 : ThreadLocalRandom.current().nextInt(tat.length);
+        long wait = tryAcquire(first, now);
+        if (wait > 0 && tat.length > 1) {
+            long other = tryAcquire((first + 1) % tat.length, now);
+            wait = other == 0 ? 0 : Math.min(wait, other);
+        }
+        return wait;
+    }
+
+    /** balde cheio (nada consumido na janela): pode ser descartado sem mudar o comportamento */
+    public boolean idle() {
+        long now = System.nanoTime();
+        for (AtomicLong s : tat) if (s.get() - now > 0) return false;
+        return true;
+    }
+
+    private long tryAcquire(int stripe, long now) {
+        AtomicLong s = tat[stripe];
+        long tol = tolerance[stripe];
+        for (;;) {
+            long t = s.get();
+            long next = Math.max(t - now, 0) + now + interval;
+            long over = next - now - tol;
+            if (over > 0) return over;
+            if (s.compareAndSet(t, next)) return 0;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.api.util;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gerador barato de request-id: {@code <nó>-<contador>} em hex, ex. {@code 3f9a01c2-0192d4c81a2b0001}.
+ * <p>
+ * O prefixo de nó é sorteado uma vez por processo; o contador é monotônico e começa no relógio
+ * (ms &lt;&lt; 16), então ids não se repetem entre restarts nem entre réplicas (salvo colisão do prefixo).
+ * Custa um {@code getAndIncrement} e uma formatação sem alocação intermediária — sem {@code SecureRandom}
+ * por requisição e sem estado por thread (seguro com virtual threads).
+ */
+public final class RequestIds {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final char[] NODE = hex(new SecureRandom().nextInt() & 0xffffffffL, 8);
+    private static final AtomicLong SEQ = new AtomicLong(System.currentTimeMillis() << 16);
+
+    private RequestIds() {}
+
+    public static String next() {
+        long n = SEQ.getAndIncrement();
+        char[] c = new char[8 + 1 + 16];
+        System.arraycopy(NODE, 0, c, 0, 8);
+        c[8] = '-';
+        for (int i = 24; i > 8; i--, n >>>= 4) c[i] = HEX[(int) (n & 0xf)];
+        return new String(c);
+    }
+
+    public static String node() { return new String(NODE); }
+
+    private static char[] hex(long v, int len) {
+        char[] c = new char[len];
+        for (int i = len - 1; i >= 0; i--, v >>>= 4) c[i] = HEX[(int) (v & 0xf)];
+        return c;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.api.util;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Aleatoriedade criptográfica compartilhada, sem ponto único de contenção.
+ * <p>
+ * Um único {@code SecureRandom} padrão (NativePRNG) serializa todo mundo num {@code synchronized}
+ * que ainda lê {@code /dev/urandom}: com virtual threads isso prende a carrier thread. Aqui há
+ * N instâncias DRBG (semeadas uma vez, geração em memória), cada uma protegida por um
+ * {@link ReentrantLock}; quem chega tenta um stripe livre e só espera (sem prender a carrier) se
+ * todos estiverem ocupados. Nada é por thread, então serve igual para virtual threads.
+ */
+public final class SecureRandoms {
+
+    private static final SecureRandom[] RNG;
+    private static final ReentrantLock[] LOCK;
+    private static final int MASK;
+
+    static {
+        int n = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1) << 1;
+        RNG = new SecureRandom[n];
+        LOCK = new ReentrantLock[n];
+        MASK = n - 1;
+        for (int i = 0; i < n; i++) { RNG[i] = drbg(); LOCK[i] = new ReentrantLock(); }
+    }
+
+    private SecureRandoms() {}
+
+    public static void nextBytes(byte[] out) {
+        int start = ThreadLocalRandom.current().nextInt() & MASK;
+        for (int i = 0; i <= MASK; i++) {
+            int s = (start + i) & MASK;
+            if (LOCK[s].tryLock()) {
+                try { RNG[s].nextBytes(out); return; }
+                finally { LOCK[s].unlock(); }
+            }
+        }
+        LOCK[start].lock();                              // todos ocupados: espera (park, não pin)
+        try { RNG[start].nextBytes(out); }
+        finally { LOCK[start].unlock(); }
+    }
+
+    /** UUID v4 a partir do DRBG listrado (mesmo formato de {@link UUID#randomUUID()}) */
+    public static UUID randomUUID() {
+        byte[] b = new byte[16];
+        nextBytes(b);
+        b[6] = (byte) ((b[6] & 0x0f) | 0x40);            // versão 4
+        b[8] = (byte) ((b[8] & 0x3f) | 0x80);            // variante IETF
+        long msb = 0, lsb = 0;
+        for (int i = 0; i < 8; i++) msb = (msb << 8) | (b[i] & 0xff);
+        for (int i = 8; i < 16; i++) lsb = (lsb << 8) | (b[i] & 0xff);
+        return new UUID(msb, lsb);
+    }
+
+    public static int stripes() { return RNG.length; }
+
+    private static SecureRandom drbg() {
+        try { return SecureRandom.getInstance("DRBG"); }
+        catch (NoSuchAlgorithmException e) { return new SecureRandom(); }
+    }
+}
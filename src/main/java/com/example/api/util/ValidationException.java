@@ -0,0 +1,16 @@
+package com.example.api.util;
+
+/**
+ * Erro de validação de entrada sem stack trace.
+ * <p>
+ * Linhas inválidas num lote são esperadas e podem ser muitas; montar o stack trace de cada
+ * uma custava mais que a própria validação. Continua sendo {@link IllegalArgumentException},
+ * então os handlers existentes (400/422) seguem valendo.
+ */
+public class ValidationException extends IllegalArgumentException {
+
+    public ValidationException(String code) { super(code); }
+
+    @Override
+    public Throwable fillInStackTrace() { return this; }
+}
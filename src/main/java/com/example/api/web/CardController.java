@@ -1,6 +1,10 @@
 package com.example.api.web;
 
+import com.example.api.DTO.CardPage;
+import com.example.api.DTO.LotProgress;
 import com.example.api.service.CardIngestionService;
+import com.example.api.service.CardListingService;
+import com.example.api.service.LotCheckpoints;
 import com.example.api.service.interfaces.CardSecureService;
 import com.example.api.util.UploadResult;
 import com.example.api.web.request.CardCreateRequest;
@@ -12,6 +16,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.time.YearMonth;
 import java.util.Map;
 
 @RestController
@@ -21,6 +26,8 @@ public class CardController {
 
     private final CardSecureService secureService;
     private final CardIngestionService ingestionService;
+    private final LotCheckpoints lots;
+    private final CardListingService listing;
 
 
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
@@ -28,12 +35,31 @@ public class CardController {
         return secureService.createOrGet(req, null, null);
     }
 
+    /**
+     * listagem paginada por cursor; {@code expiryFrom}/{@code expiryTo} no formato {@code yyyy-MM}.
+     * Passe {@code next} da resposta como {@code cursor} com os mesmos filtros.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public CardPage list(@RequestParam(required = false) String bin,
+                         @RequestParam(required = false) YearMonth expiryFrom,
+                         @RequestParam(required = false) YearMonth expiryTo,
+                         @RequestParam(defaultValue = "100") int limit,
+                         @RequestParam(required = false) String cursor) {
+        return listing.page(bin, expiryFrom, expiryTo, limit, cursor);
+    }
+
     @PostMapping(value="/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE)
     public UploadResult uploadFixed(@RequestPart("file") MultipartFile file) throws IOException {
         return ingestionService.ingestFixed(file.getInputStream());
     }
 
+    /** progresso de um lote (útil para quem recebeu 409 no upload enquanto outro nó processa) */
+    @GetMapping("/lots/{lot}")
+    public ResponseEntity<LotProgress> lot(@PathVariable String lot) {
+        return ResponseEntity.of(lots.progress(lot));
+    }
+
     @GetMapping("/lookup")
     public ResponseEntity<Map<String, Object>> lookup(
             @RequestHeader(name = "X-Card-Pan", required = false) String panHeader
@@ -0,0 +1,31 @@
+package com.example.api.web;
+
+import com.example.api.service.CardDetokenizeService;
+import com.example.api.web.request.DetokenizeRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/** token -> PAN; só para o escopo {@code card:detokenize} (ver SecurityConfig) */
+@RestController
+@RequestMapping("/cards")
+@RequiredArgsConstructor
+public class DetokenizeController {
+
+    static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final CardDetokenizeService detokenizer;
+
+    @PostMapping(value = "/detokenize", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> detokenize(@Valid @RequestBody DetokenizeRequest req) {
+        var tokens = detokenizer.validate(req.tokens());
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .cacheControl(CacheControl.noStore())
+                .body(out -> detokenizer.write(tokens, out));
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.api.web;
+
+import com.example.api.service.CardExportService;
+import com.example.api.service.CardExportService.Format;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+/** exportação completa dos metadados (sem PAN); só para o escopo {@code card:export} (ver SecurityConfig) */
+@RestController
+@RequestMapping("/cards")
+@RequiredArgsConstructor
+public class ExportController {
+
+    private final CardExportService exporter;
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "csv") String format,
+                                                        @RequestParam(defaultValue = "false") boolean gzip) {
+        var f = Format.of(format);
+        var type = gzip ? MediaType.parseMediaType("application/gzip")
+                : f == Format.CSV ? MediaType.parseMediaType("text/csv;charset=UTF-8") : DetokenizeController.NDJSON;
+        return ResponseEntity.ok()
+                .contentType(type)
+                .cacheControl(CacheControl.noStore())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(CardExportService.fileName(f, gzip, LocalDate.now())).build().toString())
+                .body(out -> exporter.export(f, gzip, out));
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.api.web;
+
+import com.example.api.DTO.CardStats;
+import com.example.api.service.CardStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/** contagens agregadas para dashboards; lê card_stats, nunca card_tokens */
+@RestController
+@RequestMapping("/cards")
+@RequiredArgsConstructor
+public class StatsController {
+
+    private final CardStatsService stats;
+
+    @GetMapping(value = "/stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    public CardStats stats() {
+        return stats.snapshot();
+    }
+}
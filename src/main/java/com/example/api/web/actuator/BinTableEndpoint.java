@@ -0,0 +1,36 @@
+package com.example.api.web.actuator;
+
+import com.example.api.util.BinTable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** GET /actuator/bintable (estado) e POST /actuator/bintable (recarrega o CSV sem restart) */
+@Component
+@Endpoint(id = "bintable")
+@RequiredArgsConstructor
+public class BinTableEndpoint {
+
+    private final BinTable bins;
+
+    @ReadOperation
+    public Map<String, Object> info() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("location", bins.location());
+        out.put("ranges", bins.ranges());
+        out.put("intervals", bins.intervals());
+        out.put("loadedAt", bins.loadedAt() != null ? bins.loadedAt().toString() : null);
+        return out;
+    }
+
+    @WriteOperation
+    public Map<String, Object> reload() {
+        bins.reload();
+        return info();
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.api.web.actuator;
+
+import com.example.api.DTO.CardStats;
+import com.example.api.service.CardStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** GET /actuator/cardstats (resumo) e POST /actuator/cardstats (recalcula card_stats a partir de card_tokens) */
+@Component
+@Endpoint(id = "cardstats")
+@RequiredArgsConstructor
+public class CardStatsEndpoint {
+
+    private final CardStatsService stats;
+
+    @ReadOperation
+    public Map<String, Object> info() {
+        return summary(stats.snapshot());
+    }
+
+    @WriteOperation
+    public Map<String, Object> rebuild() {
+        return summary(stats.rebuild());
+    }
+
+    private static Map<String, Object> summary(CardStats s) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("total", s.total());
+        out.put("bins", s.bins().size());
+        out.put("brands", s.brands().size());
+        out.put("expiryMonths", s.expiry().size());
+        out.put("flushedAt", s.flushedAt() != null ? s.flushedAt().toString() : null);
+        return out;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.api.web.actuator;
+
+import com.example.api.observability.PinningMonitor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** GET /actuator/pinning: virtual threads presas à carrier, por local de código */
+@Component
+@Endpoint(id = "pinning")
+@RequiredArgsConstructor
+public class PinningEndpoint {
+
+    private final PinningMonitor monitor;
+
+    @ReadOperation
+    public Map<String, Object> pinning() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("monitoring", monitor.running());
+        out.put("virtualThreads", Thread.currentThread().isVirtual());
+        out.put("total", monitor.total());
+        out.put("sites", monitor.sites());
+        return out;
+    }
+}
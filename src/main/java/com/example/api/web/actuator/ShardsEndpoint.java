@@ -0,0 +1,46 @@
+package com.example.api.web.actuator;
+
+import com.example.api.service.ShardRebalancer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GET /actuator/shards (faixas de baldes e migração em curso) e
+ * POST /actuator/shards {"firstBucket":0,"lastBucket":4095,"to":2} (move a faixa online; repetir retoma)
+ */
+@Component
+@Endpoint(id = "shards")
+@RequiredArgsConstructor
+public class ShardsEndpoint {
+
+    private final ShardRebalancer rebalancer;
+
+    @ReadOperation
+    public Map<String, Object> info() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        List<Map<String, Object>> ranges = rebalancer.map().stream().map(r -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("firstBucket", r.getFirstBucket());
+            m.put("lastBucket", r.getLastBucket());
+            m.put("shard", r.getShard());
+            m.put("movingFrom", r.getMovingFrom());
+            return m;
+        }).toList();
+        out.put("ranges", ranges);
+        out.put("move", rebalancer.status());
+        return out;
+    }
+
+    @WriteOperation
+    public Map<String, Object> move(int firstBucket, int lastBucket, int to) {
+        rebalancer.start(firstBucket, lastBucket, to);
+        return info();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.api.web.actuator;
+
+import com.example.api.observability.UploadRecorder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.*;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Gravação JFR escopada a um upload:
+ * POST /actuator/uploadrecording {"lot":"LOTE0001"} arma o lote (a gravação começa quando o upload dele chega
+ * e é gravada em disco ao terminar); DELETE /actuator/uploadrecording/{lot} desarma ou para e grava na hora.
+ */
+@Component
+@Endpoint(id = "uploadrecording")
+@RequiredArgsConstructor
+public class UploadRecordingEndpoint {
+
+    private final UploadRecorder recorder;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("armed", recorder.armedLots());
+        out.put("running", recorder.runningLots());
+        out.put("dumps", recorder.recentDumps());
+        return out;
+    }
+
+    @WriteOperation
+    public Map<String, Object> start(String lot) {
+        recorder.arm(lot);
+        return status();
+    }
+
+    @DeleteOperation
+    public Map<String, Object> stop(@Selector String lot) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("lot", lot);
+        out.put("file", recorder.stop(lot).map(Path::toString).orElse(null));
+        return out;
+    }
+}
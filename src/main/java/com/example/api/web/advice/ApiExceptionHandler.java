@@ -1,10 +1,12 @@
 package com.example.api.web.advice;
 
 
+import com.example.api.util.LotBusyException;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestControllerAdvice
@@ -18,4 +20,16 @@ public class ApiExceptionHandler {
                 "message", ex.getMessage()
         ));
     }
-}
\ No newline at end of file
+
+    /** lote em processamento por outro upload: 409 com o progresso atual para o cliente acompanhar */
+    @ExceptionHandler(LotBusyException.class)
+    public ResponseEntity<Map<String,Object>> handleLotBusy(LotBusyException ex) {
+        var body = new LinkedHashMap<String,Object>();
+        body.put("timestamp", Instant.now().toString());
+        body.put("error", ex.getMessage());
+        if (ex.progress() != null) body.put("progress", ex.progress());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, ex.retryAfter().toSeconds())))
+                .body(body);
+    }
+}
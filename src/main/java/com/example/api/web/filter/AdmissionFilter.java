@@ -0,0 +1,234 @@
+package com.example.api.web.filter;
+
+import com.example.api.config.properties.AdmissionProperties;
+import com.example.api.util.RateLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Controle de admissão em {@code /cards/**}, por client id ({@code azp}/{@code client_id} do JWT).
+ * <p>
+ * Quatro lanes com baldes próprios ({@link RateLimiter}): lookup (interativa), escrita, upload (carga) e
+ * bulk (export e detokenize em massa). Upload e bulk têm ainda um teto de simultâneos por cliente e global,
+ * para que uma requisição longa não ocupe o pool do banco e não degrade os lookups de todo mundo.
+ * Nada espera aqui: excedeu = 429 com Retry-After.
+ * Roda logo depois do Spring Security e antes da idempotência.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 50)
+@RequiredArgsConstructor
+public class AdmissionFilter extends OncePerRequestFilter implements MeterBinder {
+
+    enum Lane { LOOKUP, WRITE, UPLOAD, BULK }
+
+    private static final int MAX_TRACKED = 10_000;
+
+    private final AdmissionProperties props;
+
+    private final Map<String, RateLimiter> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Integer> inFlightPerClient = new ConcurrentHashMap<>();   // chave: lane + client
+    private final AtomicInteger uploadsGlobal = new AtomicInteger(), bulkGlobal = new AtomicInteger();
+    private final AtomicLong lastSweep = new AtomicLong();
+    private final LongAdder[] rateLimited = adders(), concurrencyLimited = adders();
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest req) {
+        if (!props.enabled()) return true;
+        String uri = req.getRequestURI(), base = req.getContextPath() + "/cards";
+        return !uri.equals(base) && !uri.startsWith(base + "/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
+            throws ServletException, IOException {
+
+        Lane lane = lane(req);
+        String client = Callers.current();
+
+        RateLimiter bucket = bucket(lane, client);
+        long waitNanos = bucket == null ? 0 : bucket.tryAcquire();
+        if (waitNanos > 0) {
+            rateLimited[lane.ordinal()].increment();
+            reject(res, "rate_limited", waitNanos);
+            return;
+        }
+        var cap = switch (lane) {
+            case UPLOAD -> props.upload();
+            case BULK   -> props.bulk();
+            default     -> null;
+        };
+        if (cap == null) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        String key = lane.ordinal() + client;
+        AtomicInteger global = lane == Lane.UPLOAD ? uploadsGlobal : bulkGlobal;
+        if (!acquire(key, cap.maxPerClient())) {
+            concurrencyLimited[lane.ordinal()].increment();
+            reject(res, lane == Lane.UPLOAD ? "too_many_uploads" : "too_many_bulk_requests", cap.retryAfter().toNanos());
+            return;
+        }
+        if (!tryIncrement(global, cap.maxGlobal())) {
+            release(key);
+            concurrencyLimited[lane.ordinal()].increment();
+            reject(res, "server_busy", cap.retryAfter().toNanos());
+            return;
+        }
+        boolean async = false;
+        try {
+            chain.doFilter(req, res);
+            if (req.isAsyncStarted()) {           // StreamingResponseBody: a vaga fica até o fim do stream
+                req.getAsyncContext().addListener(new Done(global, key));
+                async = true;
+            }
+        } finally {
+            if (!async) done(global, key);
+        }
+    }
+
+    static Lane lane(HttpServletRequest req) {
+        String path = req.getRequestURI().substring(req.getContextPath().length());
+        if (!"POST".equals(req.getMethod())) return path.equals("/cards/export") ? Lane.BULK : Lane.LOOKUP;
+        return switch (path) {
+            case "/cards/upload"     -> Lane.UPLOAD;
+            case "/cards/detokenize" -> Lane.BULK;
+            default                  -> Lane.WRITE;
+        };
+    }
+
+    public int uploadsInFlight() { return uploadsGlobal.get(); }
+
+    int bulkInFlight() { return bulkGlobal.get(); }
+
+    /** pares (lane, cliente) com upload/bulk em andamento; quem zera sai do mapa */
+    int clientsInFlight() { return inFlightPerClient.size(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Lane l : Lane.values()) {
+            String lane = l.name().toLowerCase();
+            FunctionCounter.builder("cards.admission.rejected", rateLimited[l.ordinal()], LongAdder::sum)
+                    .tags("lane", lane, "reason", "rate").register(registry);
+            FunctionCounter.builder("cards.admission.rejected", concurrencyLimited[l.ordinal()], LongAdder::sum)
+                    .tags("lane", lane, "reason", "concurrency").register(registry);
+        }
+        Gauge.builder("cards.admission.uploads.inflight", uploadsGlobal, AtomicInteger::get)
+                .description("uploads admitted and running")
+                .register(registry);
+        Gauge.builder("cards.admission.bulk.inflight", bulkGlobal, AtomicInteger::get)
+                .description("export/detokenize requests admitted and running")
+                .register(registry);
+    }
+
+    private RateLimiter bucket(Lane lane, String client) {
+        var cfg = switch (lane) {
+            case LOOKUP -> props.lookup();
+            case WRITE  -> props.write();
+            case UPLOAD -> props.upload().lane();
+            case BULK   -> props.bulk().lane();
+        };
+        if (cfg.rate() <= 0) return null;
+        String key = lane.ordinal() + client;
+        RateLimiter b = buckets.get(key);
+        if (b != null) return b;
+        if (buckets.size() >= MAX_TRACKED) sweep();
+        return buckets.computeIfAbsent(key, k -> new RateLimiter(cfg.rate(), cfg.burst(), props.stripes()));
+    }
+
+    /** descarta baldes cheios (ociosos); no máximo uma vez por segundo */
+    private void sweep() {
+        long now = System.currentTimeMillis(), last = lastSweep.get();
+        if (now - last < 1000 || !lastSweep.compareAndSet(last, now)) return;
+        buckets.values().removeIf(RateLimiter::idle);
+    }
+
+    /**
+     * Reserva uma vaga (upload/bulk) do cliente. Teste e incremento correm sob o lock do bin do mapa, o mesmo
+     * que {@link #release} usa para remover a entrada ao zerar: não há como um contador ser descartado
+     * entre a leitura e o incremento.
+     */
+    private boolean acquire(String key, int max) {
+        boolean[] ok = {false};
+        inFlightPerClient.compute(key, (k, n) -> {
+            int c = n == null ? 0 : n;
+            if (max > 0 && c >= max) return n;
+            ok[0] = true;
+            return c + 1;
+        });
+        return ok[0];
+    }
+
+    private void done(AtomicInteger global, String key) {
+        global.decrementAndGet();
+        release(key);
+    }
+
+    /** devolve a vaga quando a resposta assíncrona termina (erro/timeout seguidos de complete: conta uma vez) */
+    private final class Done implements AsyncListener {
+        private final AtomicInteger global;
+        private final String key;
+        private final AtomicBoolean fired = new AtomicBoolean();
+
+        Done(AtomicInteger global, String key) { this.global = global; this.key = key; }
+
+        private void fire() { if (fired.compareAndSet(false, true)) done(global, key); }
+
+        @Override public void onComplete(AsyncEvent e) { fire(); }
+        @Override public void onTimeout(AsyncEvent e)  { fire(); }
+        @Override public void onError(AsyncEvent e)    { fire(); }
+        @Override public void onStartAsync(AsyncEvent e) { }
+    }
+
+    private void release(String key) {
+        inFlightPerClient.computeIfPresent(key, (k, n) -> n > 1 ? n - 1 : null);
+    }
+
+    /** incrementa se abaixo do teto (max <= 0 = sem teto), sem lock */
+    private static boolean tryIncrement(AtomicInteger n, int max) {
+        if (max <= 0) { n.incrementAndGet(); return true; }
+        for (;;) {
+            int c = n.get();
+            if (c >= max) return false;
+            if (n.compareAndSet(c, c + 1)) return true;
+        }
+    }
+
+    private static void reject(HttpServletResponse res, String code, long waitNanos) throws IOException {
+        long secs = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        res.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        res.setHeader("Retry-After", Long.toString(secs));
+        res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        res.getOutputStream().write(("{\"error\":\"" + code + "\"}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static LongAdder[] adders() {
+        var a = new LongAdder[Lane.values().length];
+        for (int i = 0; i < a.length; i++) a[i] = new LongAdder();
+        return a;
+    }
+}
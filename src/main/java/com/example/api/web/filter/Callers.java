@@ -0,0 +1,20 @@
+package com.example.api.web.filter;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+/** chave do chamador para limites e idempotência: client id do token, senão o subject */
+final class Callers {
+
+    private Callers() {}
+
+    static String current() {
+        Authentication a = SecurityContextHolder.getContext().getAuthentication();
+        if (a instanceof JwtAuthenticationToken jwt) {
+            String c = RequestContextLoggingFilter.clientId(jwt.getToken());
+            return c != null ? c : "sub:" + jwt.getName();
+        }
+        return a != null ? "name:" + a.getName() : "anonymous";
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.api.web.filter;
+
+import com.example.api.util.SecureRandoms;
+import jakarta.servlet.*;
+import jakarta.servlet.http.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * {@code Idempotency-Key} no {@code POST /cards}: a primeira resposta por (client id, chave) é guardada
+ * no {@link IdempotencyStore} e devolvida igual nas retentativas, sem passar por normalização, HMAC ou banco.
+ * <p>
+ * Mesma chave com corpo diferente = 422; original ainda em andamento além da espera = 409 com Retry-After.
+ * Roda depois do Spring Security (ordem padrão de filtros {@code @Component}), então o client id já está no contexto.
+ * O corpo entra na comparação só como SHA-256 com sal do processo (o PAN não fica guardado em claro).
+ */
+@Component
+@RequiredArgsConstructor
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255, MAX_BODY = 16 * 1024;
+    private static final byte[] SALT = new byte[32];
+    static { SecureRandoms.nextBytes(SALT); }
+
+    private final IdempotencyStore store;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest req) {
+        return !"POST".equals(req.getMethod())
+                || !(req.getContextPath() + "/cards").equals(req.getRequestURI())
+                || req.getHeader(HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
+            throws ServletException, IOException {
+
+        String idemKey = req.getHeader(HEADER);
+        if (idemKey.isBlank() || idemKey.length() > MAX_KEY_LENGTH) {
+            error(res, HttpStatus.BAD_REQUEST, "invalid_idempotency_key");
+            return;
+        }
+        byte[] body = req.getInputStream().readNBytes(MAX_BODY + 1);
+        if (body.length > MAX_BODY) {
+            error(res, HttpStatus.PAYLOAD_TOO_LARGE, "payload_too_large");
+            return;
+        }
+
+        String key = Callers.current() + '\u0000' + idemKey;
+        var claim = store.claim(key, fingerprint(req, body));
+        switch (claim.kind()) {
+            case REPLAY -> replay(res, claim.response());
+            case MISMATCH -> error(res, HttpStatus.UNPROCESSABLE_ENTITY, "idempotency_key_reused");
+            case IN_PROGRESS -> {
+                res.setHeader("Retry-After", "1");
+                error(res, HttpStatus.CONFLICT, "idempotency_key_in_progress");
+            }
+            case BYPASS -> chain.doFilter(new CachedBodyRequest(req, body), res);
+            case LEAD -> lead(req, res, chain, body, key, claim.lease());
+        }
+    }
+
+    private void lead(HttpServletRequest req, HttpServletResponse res, FilterChain chain,
+                      byte[] body, String key, Object lease) throws ServletException, IOException {
+        var out = new ContentCachingResponseWrapper(res);
+        IdempotencyStore.Stored stored = null;
+        try {
+            chain.doFilter(new CachedBodyRequest(req, body), out);
+            if (storable(out.getStatus())) stored = new IdempotencyStore.Stored(out.getStatus(), out.getContentType(), out.getContentAsByteArray());
+        } finally {
+            store.complete(key, lease, stored);
+            out.copyBodyToResponse();
+        }
+    }
+
+    /** 2xx e 4xx determinísticos; 5xx, 409 e 429 podem dar outro resultado na próxima tentativa */
+    private static boolean storable(int status) {
+        return status < 500 && status != 409 && status != 429;
+    }
+
+    private static void replay(HttpServletResponse res, IdempotencyStore.Stored s) throws IOException {
+        res.setStatus(s.status());
+        if (s.contentType() != null) res.setContentType(s.contentType());
+        res.setHeader(REPLAYED, "true");
+        res.setContentLength(s.body().length);
+        res.getOutputStream().write(s.body());
+    }
+
+    private static void error(HttpServletResponse res, HttpStatus status, String code) throws IOException {
+        res.setStatus(status.value());
+        res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        res.getOutputStream().write(("{\"error\":\"" + code + "\"}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] fingerprint(HttpServletRequest req, byte[] body) {
+        try {
+            var md = MessageDigest.getInstance("SHA-256");
+            md.update(SALT);
+            md.update(String.valueOf(req.getContentType()).getBytes(StandardCharsets.UTF_8));
+            md.update(body);
+            return md.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** devolve ao resto da cadeia o corpo que já foi lido aqui */
+    static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest req, byte[] body) { super(req); this.body = body; }
+
+        @Override public int getContentLength() { return body.length; }
+        @Override public long getContentLengthLong() { return body.length; }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            var in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override public int read() { return in.read(); }
+                @Override public int read(byte[] b, int off, int len) { return in.read(b, off, len); }
+                @Override public boolean isFinished() { return in.available() == 0; }
+                @Override public boolean isReady() { return true; }
+                /** corpo já em memória: tudo disponível agora, então avisa na hora (leitura não bloqueante) */
+                @Override public void setReadListener(ReadListener l) {
+                    Objects.requireNonNull(l, "listener");
+                    try {
+                        if (!isFinished()) l.onDataAvailable();
+                        if (isFinished()) l.onAllDataRead();
+                    } catch (IOException e) {
+                        l.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String enc = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    enc == null ? StandardCharsets.UTF_8 : Charset.forName(enc)));
+        }
+    }
+}
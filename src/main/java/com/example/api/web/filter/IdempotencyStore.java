@@ -0,0 +1,160 @@
+package com.example.api.web.filter;
+
+import com.example.api.service.events.CardsPurgedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Respostas guardadas por (client id, Idempotency-Key), em memória, com TTL e limite de entradas.
+ * <p>
+ * A primeira requisição de uma chave vira "dona" ({@link Claim.Kind#LEAD}) e executa normalmente;
+ * retentativas simultâneas esperam a dona terminar e recebem a mesma resposta. Respostas não
+ * armazenáveis (5xx/exceção) liberam a chave para a próxima tentativa.
+ * Cheio: varre expirados no máximo uma vez por segundo e, se continuar cheio, não guarda (a requisição
+ * segue sem idempotência) — mesmo critério do {@code CachingJwtDecoder}.
+ */
+@Component
+public class IdempotencyStore implements MeterBinder {
+
+    /** resposta armazenada, devolvida byte a byte */
+    public record Stored(int status, String contentType, byte[] body) {}
+
+    public record Claim(Kind kind, Stored response, Object lease) {
+        public enum Kind { LEAD, REPLAY, IN_PROGRESS, MISMATCH, BYPASS }
+    }
+
+    private static final class Entry {
+        final byte[] fingerprint;
+        final CompletableFuture<Stored> done = new CompletableFuture<>();
+        volatile long expiresAt;
+        Entry(byte[] fingerprint, long expiresAt) { this.fingerprint = fingerprint; this.expiresAt = expiresAt; }
+    }
+
+    @Value("${cards.idempotency.ttl:24h}")
+    private Duration ttl = Duration.ofHours(24);
+
+    @Value("${cards.idempotency.max-entries:50000}")
+    private int maxEntries = 50_000;
+
+    /** quanto uma retentativa espera a original antes de responder 409 */
+    @Value("${cards.idempotency.wait:10s}")
+    private Duration wait = Duration.ofSeconds(10);
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong();
+    private final LongAdder leads = new LongAdder(), replays = new LongAdder(), waited = new LongAdder(),
+            conflicts = new LongAdder(), mismatches = new LongAdder(), bypassed = new LongAdder();
+
+    public Claim claim(String key, byte[] fingerprint) {
+        for (;;) {
+            long now = System.currentTimeMillis();
+            Entry e = entries.get(key);
+            if (e != null && e.done.isDone() && e.expiresAt <= now) { entries.remove(key, e); e = null; }
+            if (e == null) {
+                if (entries.size() >= maxEntries && (!sweep(now) || entries.size() >= maxEntries)) {
+                    bypassed.increment();
+                    return new Claim(Claim.Kind.BYPASS, null, null);
+                }
+                var mine = new Entry(fingerprint, now + ttl.toMillis());
+                e = entries.putIfAbsent(key, mine);
+                if (e == null) { leads.increment(); return new Claim(Claim.Kind.LEAD, null, mine); }
+            }
+            if (!Arrays.equals(e.fingerprint, fingerprint)) {
+                mismatches.increment();
+                return new Claim(Claim.Kind.MISMATCH, null, null);
+            }
+            boolean wasDone = e.done.isDone();
+            Stored s;
+            try {
+                s = e.done.get(wait.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                conflicts.increment();
+                return new Claim(Claim.Kind.IN_PROGRESS, null, null);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                conflicts.increment();
+                return new Claim(Claim.Kind.IN_PROGRESS, null, null);
+            } catch (ExecutionException ex) {
+                s = null;
+            }
+            if (s == null) continue;                        // original não guardou nada: tenta ser a dona
+            if (!wasDone) waited.increment();
+            replays.increment();
+            return new Claim(Claim.Kind.REPLAY, s, null);
+        }
+    }
+
+    /** fecha a chave da dona: com resposta = guarda e libera quem espera; null = descarta a chave */
+    public void complete(String key, Object lease, Stored response) {
+        Entry e = (Entry) lease;
+        if (response == null) entries.remove(key, e);
+        e.done.complete(response);
+    }
+
+    /** cartões apagados pelo purge: o replay não pode devolver um id que não existe mais */
+    @EventListener
+    public void on(CardsPurgedEvent e) {
+        if (entries.isEmpty()) return;
+        var ids = new HashSet<>(e.ids());
+        entries.values().removeIf(en -> {
+            var s = en.done.isDone() && !en.done.isCompletedExceptionally() ? en.done.getNow(null) : null;
+            return s != null && ids.contains(cardId(s.body()));
+        });
+    }
+
+    /** {@code "id"} do corpo de {@code POST /cards} (PersistResult), sem parsear o JSON inteiro */
+    static String cardId(byte[] body) {
+        String json = new String(body, StandardCharsets.ISO_8859_1);
+        int i = json.indexOf("\"id\":\"");
+        if (i < 0) return null;
+        int from = i + 6, to = json.indexOf('"', from);
+        return to < 0 ? null : json.substring(from, to);
+    }
+
+    public int size() { return entries.size(); }
+    public long replays() { return replays.sum(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counter(registry, "lead", leads);
+        counter(registry, "replay", replays);
+        counter(registry, "in_progress", conflicts);
+        counter(registry, "mismatch", mismatches);
+        counter(registry, "bypass", bypassed);
+        FunctionCounter.builder("cards.idempotency.waited", waited, LongAdder::sum)
+                .description("retries that waited for the original request to finish")
+                .register(registry);
+        Gauge.builder("cards.idempotency.entries", entries, Map::size)
+                .description("stored idempotency keys")
+                .register(registry);
+    }
+
+    private static void counter(MeterRegistry registry, String result, LongAdder n) {
+        FunctionCounter.builder("cards.idempotency.requests", n, LongAdder::sum)
+                .description("POST /cards requests carrying an Idempotency-Key")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /** remove expirados; no máximo uma varredura por segundo */
+    private boolean sweep(long now) {
+        long last = lastSweep.get();
+        if (now - last < 1000 || !lastSweep.compareAndSet(last, now)) return false;
+        entries.entrySet().removeIf(en -> en.getValue().done.isDone() && en.getValue().expiresAt <= now);
+        return true;
+    }
+}
@@ -1,55 +1,80 @@
 package com.example.api.web.filter;
 
+import com.example.api.observability.AuditLog;
+import com.example.api.util.RequestIds;
 import jakarta.servlet.*;
 import jakarta.servlet.http.*;
-import org.slf4j.MDC;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.UUID;
 
+/**
+ * Request id + MDC e uma linha de auditoria por requisição. Roda antes da cadeia do Spring Security:
+ * 401/403 também são auditados e o código de segurança já loga com o request id.
+ */
 @Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 10)
+@RequiredArgsConstructor
 public class RequestContextLoggingFilter extends OncePerRequestFilter {
 
-    private static final Logger LOG = LoggerFactory.getLogger("http.audit");
+    static final String HEADER = "X-Request-ID";
+    private static final int MAX_ID_LENGTH = 128;   // id do cliente vai para o log; não aceita qualquer tamanho
+
+    private final AuditLog audit;
 
     @Override
     protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
             throws ServletException, IOException {
 
-        String reqId = firstNonBlank(req.getHeader("X-Request-ID"), UUID.randomUUID().toString());
+        String reqId = requestId(req.getHeader(HEADER));
+        String remote = firstNonBlank(req.getHeader("X-Forwarded-For"), req.getRemoteAddr());
+        String userAgent = firstNonBlank(req.getHeader("User-Agent"), "-");
+        String method = req.getMethod(), path = req.getRequestURI();
         long start = System.nanoTime();
-        MDC.put("requestId", reqId);
-        MDC.put("method", req.getMethod());
-        MDC.put("path", req.getRequestURI());
-        MDC.put("remote", firstNonBlank(req.getHeader("X-Forwarded-For"), req.getRemoteAddr()));
-        MDC.put("userAgent", firstNonBlank(req.getHeader("User-Agent"), "-"));
 
-        try {
+        try (var mdc = RequestMdc.open(reqId, method, path, remote, userAgent)) {
             chain.doFilter(req, res);
         } finally {
-            Authentication a = SecurityContextHolder.getContext().getAuthentication();
-            if (a instanceof JwtAuthenticationToken jwt) {
-                String clientId = jwt.getToken().getClaimAsString("azp");
-                if (clientId == null) clientId = jwt.getToken().getClaimAsString("client_id");
-                if (clientId != null) MDC.put("clientId", clientId);
-                MDC.put("sub", jwt.getName());
-            }
             long ms = (System.nanoTime() - start) / 1_000_000;
-            LOG.info("http completed status={} durationMs={}", res.getStatus(), ms);
-            MDC.clear();
+            Jwt jwt = jwt(req);
+            // uma linha consolidada por requisição; formatação e I/O ficam na thread do AuditLog
+            audit.offer(new AuditLog.Entry(System.currentTimeMillis(), reqId, method, path, res.getStatus(), ms,
+                    remote, userAgent, jwt == null ? null : clientId(jwt), jwt == null ? null : jwt.getSubject()));
         }
     }
 
+    /** client id do token: {@code azp} (Keycloak) ou {@code client_id} (client credentials) */
+    public static String clientId(Jwt jwt) {
+        String c = jwt.getClaimAsString("azp");
+        return c != null ? c : jwt.getClaimAsString("client_id");
+    }
+
+    /**
+     * a cadeia de segurança já limpou o SecurityContextHolder quando voltamos dela; o resource server guarda
+     * o contexto autenticado num atributo da requisição
+     */
+    private static Jwt jwt(HttpServletRequest req) {
+        Authentication a = req.getAttribute(RequestAttributeSecurityContextRepository.DEFAULT_REQUEST_ATTR_NAME) instanceof SecurityContext c
+                ? c.getAuthentication() : SecurityContextHolder.getContext().getAuthentication();
+        return a instanceof JwtAuthenticationToken t ? t.getToken() : null;
+    }
+
+    private static String requestId(String header) {
+        return header == null || header.isBlank() || header.length() > MAX_ID_LENGTH ? RequestIds.next() : header;
+    }
+
     private static String firstNonBlank(String... vs) {
         for (String v : vs) if (v != null && !v.isBlank()) return v;
         return null;
     }
 }
-
@@ -0,0 +1,40 @@
+package com.example.api.web.filter;
+
+import org.slf4j.MDC;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Campos de MDC da requisição aplicados de uma vez ({@link MDC#setContextMap}) em vez de um
+ * {@code MDC.put} por campo; {@link #close()} devolve o MDC de antes (chaves de quem veio antes, ex.:
+ * tracing, continuam lá). O MDC é por thread, então abra e feche na mesma thread que atende a
+ * requisição (vale igual para virtual threads).
+ */
+final class RequestMdc implements AutoCloseable {
+
+    private static final RequestMdc CLEAR = new RequestMdc(null);
+
+    private final Map<String, String> previous;    // null = MDC estava vazio
+
+    private RequestMdc(Map<String, String> previous) { this.previous = previous; }
+
+    static RequestMdc open(String requestId, String method, String path, String remote, String userAgent) {
+        var before = MDC.getCopyOfContextMap();
+        boolean empty = before == null || before.isEmpty();
+        var m = empty ? new HashMap<String, String>(8) : new HashMap<>(before);
+        m.put("requestId", requestId);
+        m.put("method", method);
+        m.put("path", path);
+        if (remote != null) m.put("remote", remote); else m.remove("remote");
+        m.put("userAgent", userAgent);
+        MDC.setContextMap(m);
+        return empty ? CLEAR : new RequestMdc(before);
+    }
+
+    @Override
+    public void close() {
+        if (previous == null) MDC.clear();
+        else MDC.setContextMap(previous);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.api.web.request;
+
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public record DetokenizeRequest(@NotEmpty List<String> tokens) {}
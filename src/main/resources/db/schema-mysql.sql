@@ -0,0 +1,85 @@
+-- Schema do card-api (MySQL 8). Aplicado no start do perfil prod (spring.sql.init) no lugar do ddl-auto:
+-- idempotente, sem introspecção. Também é o DDL dos shards 1..N (cards.shards.urls).
+-- Mudou uma entidade em com.example.api.entity? Atualize aqui.
+
+CREATE TABLE IF NOT EXISTS card_tokens (
+    id            BINARY(16)   NOT NULL,
+    token         VARCHAR(32)  NOT NULL,
+    pan_hmac_hex  VARCHAR(64)  NOT NULL,
+    pan_enc       LONGTEXT     NOT NULL,
+    bin           VARCHAR(8)   NOT NULL,
+    last4         VARCHAR(4)   NOT NULL,
+    brand         VARCHAR(255),
+    card_type     VARCHAR(16),
+    expiry_month  INT          NOT NULL,
+    expiry_year   INT          NOT NULL,
+    created_at    DATETIME(6),
+    updated_at    DATETIME(6),
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_card_tokens_token (token),
+    UNIQUE KEY uk_card_tokens_pan_hmac_hex (pan_hmac_hex),
+    KEY idx_expiry (expiry_year, expiry_month, id),
+    KEY idx_bin (bin, id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS card_outbox (
+    id          BIGINT       NOT NULL AUTO_INCREMENT,
+    type        VARCHAR(32)  NOT NULL,
+    card_id     VARCHAR(36)  NOT NULL,
+    token       VARCHAR(32)  NOT NULL,
+    last4       VARCHAR(4)   NOT NULL,
+    bin         VARCHAR(8)   NOT NULL,
+    created_at  DATETIME(6),
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS card_stats (
+    bucket      VARCHAR(80)  NOT NULL,
+    cards       BIGINT       NOT NULL,
+    updated_at  DATETIME(6),
+    PRIMARY KEY (bucket)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS lot_ingestion (
+    lot          VARCHAR(16)  NOT NULL,
+    name         VARCHAR(32)  NOT NULL,
+    file_date    DATE         NOT NULL,
+    qty          INT          NOT NULL,
+    status       VARCHAR(16)  NOT NULL,
+    processed    INT          NOT NULL,
+    last_line    INT          NOT NULL,
+    last_seq     INT,
+    created      INT          NOT NULL,
+    duplicates   INT          NOT NULL,
+    failed       INT          NOT NULL,
+    attempts     INT          NOT NULL,
+    owner        VARCHAR(32),
+    lease_until  DATETIME(6),
+    started_at   DATETIME(6),
+    updated_at   DATETIME(6),
+    PRIMARY KEY (lot)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS job_lease (
+    name         VARCHAR(32)  NOT NULL,
+    owner        VARCHAR(32),
+    lease_until  DATETIME(6),
+    PRIMARY KEY (name)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS shard_ranges (
+    first_bucket  INT          NOT NULL,
+    last_bucket   INT          NOT NULL,
+    shard         INT          NOT NULL,
+    moving_from   INT,
+    updated_at    DATETIME(6),
+    PRIMARY KEY (first_bucket)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS card_directory (
+    token   VARCHAR(32)  NOT NULL,
+    id      BINARY(16)   NOT NULL,
+    bucket  INT          NOT NULL,
+    PRIMARY KEY (token),
+    UNIQUE KEY uk_card_directory_id (id)
+) ENGINE=InnoDB;
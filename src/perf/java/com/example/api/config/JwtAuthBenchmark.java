@@ -0,0 +1,33 @@
+package com.example.api.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Clock;
+import java.time.Instant;
+
+/** Custo de autenticação por requisição: verificação RSA a cada chamada vs. cache de JWT validado */
+class JwtAuthBenchmark {
+
+    static final int CALLS = 50_000;
+
+    @Test
+    void decode_same_token() throws Exception {
+        try (var jwks = new LocalJwks()) {
+            String token = jwks.token("bench", Instant.now().plusSeconds(300));
+            var source = JwtDecoderConfig.jwkSource(jwks.uri(), 300_000, 60_000);
+
+            JwtDecoder uncached = JwtDecoderConfig.jwtDecoder(source, LocalJwks.ISSUER, 0, Clock.systemUTC());
+            JwtDecoder cached   = JwtDecoderConfig.jwtDecoder(source, LocalJwks.ISSUER, 10_000, Clock.systemUTC());
+
+            System.out.printf("jwt-auth: uncached=%.2f us/req cached=%.2f us/req%n", run(uncached, token), run(cached, token));
+        }
+    }
+
+    private static double run(JwtDecoder decoder, String token) {
+        for (int i = 0; i < CALLS / 10; i++) decoder.decode(token);   // aquecimento
+        long t0 = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) decoder.decode(token);
+        return (System.nanoTime() - t0) / 1e3 / CALLS;
+    }
+}
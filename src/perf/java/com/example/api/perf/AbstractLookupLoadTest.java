@@ -0,0 +1,125 @@
+package com.example.api.perf;
+
+import com.example.api.CardApiApplication;
+import com.example.api.service.interfaces.CardSecureService;
+import com.example.api.web.request.CardCreateRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Carga em {@code GET /cards/lookup} com {@value #CLIENTS} clientes simultâneos contra o app real
+ * (Tomcat + segurança + JPA). As subclasses só mudam o modelo de threads do servidor.
+ * <p>
+ * Banco: o H2 do perfil {@code test} por padrão; para medir contra um MySQL local, exporte
+ * {@code SPRING_DATASOURCE_URL/USERNAME/PASSWORD} e {@code SPRING_DATASOURCE_DRIVER_CLASS_NAME} antes do
+ * {@code ./gradlew perfTest} (variáveis de ambiente vencem o application-test.yml).
+ * <p>
+ * Admissão desligada: todos os clientes saem com o mesmo azp, e a lane de lookup (200 req/s) devolveria
+ * 429 para quase toda a carga. Aqui se mede o servidor, não o limitador.
+ */
+@SpringBootTest(classes = CardApiApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "cards.admission.enabled=false")
+@ActiveProfiles("test")
+@Import(AbstractLookupLoadTest.PerfAuth.class)
+abstract class AbstractLookupLoadTest {
+
+    static final int CLIENTS = 1_000, REQUESTS_PER_CLIENT = 50, CARDS = 2_000, WARMUP_PER_CLIENT = 5;
+
+    @LocalServerPort int port;
+    @Autowired CardSecureService secureService;
+
+    abstract String mode();
+
+    @Test
+    void lookup_under_concurrent_clients() throws Exception {
+        String[] pans = new String[CARDS];
+        for (int i = 0; i < CARDS; i++) {
+            pans[i] = String.format("5555%012d", i);
+            secureService.createOrGet(new CardCreateRequest(pans[i], "UNKNOWN", 12, 2099, null, null), null, null);
+        }
+
+        var http = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        URI uri = URI.create("http://localhost:" + port + "/cards/lookup");
+
+        run(http, uri, pans, WARMUP_PER_CLIENT, null);
+        long[] lat = new long[CLIENTS * REQUESTS_PER_CLIENT];
+        long t0 = System.nanoTime();
+        int errors = run(http, uri, pans, REQUESTS_PER_CLIENT, lat);
+        double secs = (System.nanoTime() - t0) / 1e9;
+
+        Arrays.sort(lat);
+        System.out.printf("lookup-load [%s threads]: %d clients x %d req -> %.0f req/s p50=%.1f ms p99=%.1f ms max=%.1f ms errors=%d%n",
+                mode(), CLIENTS, REQUESTS_PER_CLIENT, lat.length / secs,
+                lat[lat.length / 2] / 1e6, lat[(int) (lat.length * 0.99)] / 1e6, lat[lat.length - 1] / 1e6, errors);
+        assertThat(errors).isZero();
+    }
+
+    /** cada cliente é uma virtual thread com requisições sequenciais; devolve o nº de erros */
+    private static int run(HttpClient http, URI uri, String[] pans, int perClient, long[] lat) throws Exception {
+        var go = new CountDownLatch(1);
+        var errors = new AtomicInteger();
+        var clients = new ArrayList<Thread>(CLIENTS);
+        for (int c = 0; c < CLIENTS; c++) {
+            int client = c;
+            clients.add(Thread.ofVirtual().start(() -> {
+                try {
+                    go.await();
+                    for (int i = 0; i < perClient; i++) {
+                        var req = HttpRequest.newBuilder(uri)
+                                .header("Authorization", "Bearer perf")
+                                .header("X-Card-Pan", pans[ThreadLocalRandom.current().nextInt(pans.length)])
+                                .timeout(Duration.ofSeconds(60))
+                                .GET().build();
+                        long t = System.nanoTime();
+                        var res = http.send(req, HttpResponse.BodyHandlers.discarding());
+                        if (lat != null) lat[client * perClient + i] = System.nanoTime() - t;
+                        if (res.statusCode() != 200) errors.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                }
+            }));
+        }
+        go.countDown();
+        for (var t : clients) t.join();
+        return errors.get();
+    }
+
+    /** autenticação fora da medição: qualquer bearer vira o mesmo JWT */
+    @TestConfiguration
+    static class PerfAuth {
+        @Bean @Primary
+        JwtDecoder perfJwtDecoder() {
+            Jwt jwt = Jwt.withTokenValue("perf").header("alg", "none").subject("perf-client")
+                    .claim("azp", "perf").issuedAt(Instant.now()).expiresAt(Instant.now().plus(Duration.ofDays(1))).build();
+            return token -> jwt;
+        }
+    }
+}
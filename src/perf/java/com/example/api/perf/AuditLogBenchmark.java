@@ -0,0 +1,59 @@
+package com.example.api.perf;
+
+import com.example.api.observability.AuditLog;
+import com.example.api.web.filter.RequestContextLoggingFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Vazão do filtro de auditoria com a auditoria ligada x desligada ({@code cards.audit.enabled}).
+ * A cadeia é vazia, então a diferença é o custo que a auditoria adiciona à thread da requisição.
+ * Rode com o appender real (logback do projeto) para incluir o custo de I/O do writer.
+ */
+class AuditLogBenchmark {
+
+    static final int THREADS = 8, REQUESTS = 200_000, ROUNDS = 3;
+
+    @Test
+    void filter_throughput_audit_on_vs_off() throws Exception {
+        for (boolean enabled : new boolean[]{false, true, false, true}) {
+            var audit = new AuditLog();
+            ReflectionTestUtils.setField(audit, "enabled", enabled);
+            audit.start();
+            var filter = new RequestContextLoggingFilter(audit);
+            double best = 0;
+            for (int r = 0; r < ROUNDS; r++) best = Math.max(best, run(filter));
+            audit.stop();
+            System.out.printf("audit %-3s: %d threads best=%.0f req/s dropped=%d written=%d%n",
+                    enabled ? "on" : "off", THREADS, best, audit.dropped(), audit.written());
+        }
+    }
+
+    private static double run(RequestContextLoggingFilter filter) throws Exception {
+        var go = new CountDownLatch(1);
+        var threads = new ArrayList<Thread>();
+        for (int t = 0; t < THREADS; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    go.await();
+                    for (int i = 0; i < REQUESTS; i++) {
+                        var req = new MockHttpServletRequest("GET", "/cards/tok_abc");
+                        req.addHeader("User-Agent", "bench/1.0");
+                        filter.doFilter(req, new MockHttpServletResponse(), (q, s) -> { });
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        long t0 = System.nanoTime();
+        go.countDown();
+        for (var t : threads) t.join();
+        return (double) THREADS * REQUESTS / ((System.nanoTime() - t0) / 1e9);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.api.perf;
+
+import com.example.api.CardApiApplication;
+import com.example.api.repository.CardTokenRepository;
+import com.example.api.service.CardDetokenizeService;
+import com.example.api.service.CardDirectory;
+import com.example.api.service.interfaces.CardSecureService;
+import com.example.api.service.interfaces.CryptoService;
+import com.example.api.web.request.CardCreateRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Vazão de {@code POST /cards/detokenize} sem HTTP: lotes de 10k tokens, variando o paralelismo do decrypt.
+ * O banco (H2) é o mesmo para todas as rodadas, então a diferença entre elas é o decrypt.
+ * Para medir contra MySQL, exporte SPRING_DATASOURCE_* como no {@link AbstractLookupLoadTest}.
+ */
+@SpringBootTest(classes = CardApiApplication.class)
+@ActiveProfiles("test")
+class DetokenizeBenchmark {
+
+    static final int BATCH = 10_000, ROUNDS = 5;
+    static final int[] PARALLELISM = {1, 2, 4, Runtime.getRuntime().availableProcessors()};
+
+    @Autowired CardSecureService secureService;
+    @Autowired CardTokenRepository repo;
+    @Autowired CardDirectory directory;
+    @Autowired CryptoService crypto;
+
+    @Test
+    void throughput_10k_tokens() throws Exception {
+        var tokens = seed();
+        for (int p : PARALLELISM) {
+            var service = service(p);
+            try {
+                run(service, tokens);                         // aquecimento
+                long t0 = System.nanoTime();
+                for (int r = 0; r < ROUNDS; r++) run(service, tokens);
+                double perSec = (double) BATCH * ROUNDS / ((System.nanoTime() - t0) / 1e9);
+                System.out.printf("detokenize: batch=%d parallelism=%d -> %.0f tokens/s%n", BATCH, p, perSec);
+            } finally {
+                ReflectionTestUtils.invokeMethod(service, "stop");
+            }
+        }
+    }
+
+    private void run(CardDetokenizeService service, List<String> tokens) throws Exception {
+        var sink = new CountingSink();
+        service.write(service.validate(tokens), sink);
+        assertThat(sink.lines).isEqualTo(BATCH);
+    }
+
+    private CardDetokenizeService service(int parallelism) {
+        var s = new CardDetokenizeService(repo, crypto, directory);
+        ReflectionTestUtils.setField(s, "parallelism", parallelism);
+        ReflectionTestUtils.invokeMethod(s, "start");
+        return s;
+    }
+
+    private List<String> seed() {
+        var tokens = new ArrayList<String>(BATCH);
+        long pan = 4_100_000_000_000_000L;
+        for (int from = 0; from < BATCH; from += 500) {
+            var reqs = new ArrayList<CardCreateRequest>(500);
+            for (int i = 0; i < 500; i++) reqs.add(new CardCreateRequest(Long.toString(pan++), "PERF", 12, 2099, null, null));
+            for (var r : secureService.createOrGetBatch(reqs)) tokens.add(r.result().token());
+        }
+        return tokens;
+    }
+
+    /** descarta a saída contando linhas (sem custo de I/O na medida) */
+    static final class CountingSink extends OutputStream {
+        int lines;
+        @Override public void write(int b) { if (b == '\n') lines++; }
+        @Override public void write(byte[] b, int off, int len) { for (int i = off; i < off + len; i++) if (b[i] == '\n') lines++; }
+    }
+}
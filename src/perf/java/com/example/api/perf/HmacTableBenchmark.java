@@ -0,0 +1,60 @@
+package com.example.api.perf;
+
+import com.example.api.util.HmacTable;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.HexFormat;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Custo do índice HMAC fora do heap ({@link HmacTable}) com alguns milhões de entradas: carga, consulta
+ * acertando e errando, e quanto do heap a tabela ocupa (deve ficar perto de zero). Com mais entradas,
+ * suba {@code -XX:MaxDirectMemorySize} ou use o modo arquivo.
+ */
+class HmacTableBenchmark {
+
+    static final int ENTRIES = 2_000_000, LOOKUPS = 5_000_000;
+
+    @Test
+    void lookup_2m_entries() {
+        var mem = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heap0 = mem.getHeapMemoryUsage().getUsed();
+
+        var t = HmacTable.allocate(ENTRIES);
+        var keys = new String[ENTRIES];
+        var rnd = new SplittableRandom(7);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < ENTRIES; i++) {
+            keys[i] = hmac(rnd);
+            t.put(keys[i], new HmacTable.Entry(new UUID(rnd.nextLong(), i), String.format("tok_%024x", i), "1234", 1, 2030));
+        }
+        System.out.printf("hmac table: load %d entries in %d ms%n", ENTRIES, (System.nanoTime() - t0) / 1_000_000);
+
+        long hits = 0;
+        t0 = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) if (t.get(keys[rnd.nextInt(ENTRIES)]) != null) hits++;
+        System.out.printf("hmac table: hit  %.0f ns/lookup%n", (System.nanoTime() - t0) / (double) LOOKUPS);
+        assertThat(hits).isEqualTo(LOOKUPS);
+
+        var misses = new String[10_000];
+        for (int i = 0; i < misses.length; i++) misses[i] = hmac(rnd);
+        t0 = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) t.get(misses[i % misses.length]);
+        System.out.printf("hmac table: miss %.0f ns/lookup%n", (System.nanoTime() - t0) / (double) LOOKUPS);
+
+        keys = null;                                           // só a tabela continua viva
+        System.gc();
+        System.out.printf("hmac table: heap delta %d KiB for %d entries (off-heap)%n",
+                (mem.getHeapMemoryUsage().getUsed() - heap0) / 1024, t.size());
+    }
+
+    private static String hmac(SplittableRandom rnd) {
+        var h = HexFormat.of();
+        return h.toHexDigits(rnd.nextLong()) + h.toHexDigits(rnd.nextLong()) + h.toHexDigits(rnd.nextLong()) + h.toHexDigits(rnd.nextLong());
+    }
+}
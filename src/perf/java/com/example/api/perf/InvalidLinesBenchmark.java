@@ -0,0 +1,80 @@
+package com.example.api.perf;
+
+import com.example.api.observability.CardMetrics;
+import com.example.api.observability.UploadRecorder;
+import com.example.api.entity.LotIngestion;
+import com.example.api.service.CardIngestionService;
+import com.example.api.service.LotCheckpoints;
+import com.example.api.service.interfaces.CardSecureService;
+import com.example.api.util.FixedLayoutParser;
+import com.example.api.util.PanService;
+import com.example.api.web.request.CardCreateRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Custo do caminho de validação num lote com 50% de linhas inválidas (Luhn ligado).
+ * O serviço seguro é um stub, então o tempo medido é parse + validação + montagem do resultado.
+ */
+class InvalidLinesBenchmark {
+
+    static final int LINES = 200_000, WARMUP = 3, ROUNDS = 5;
+
+    @Test
+    void ingest_half_invalid_lot() {
+        var secure = mock(CardSecureService.class, withSettings().stubOnly());
+        when(secure.createOrGet(any(CardCreateRequest.class), any(), any()))
+                .thenReturn(new CardSecureService.PersistResult("id", "tok", "0000", false));
+        var lots = mock(LotCheckpoints.class, withSettings().stubOnly());
+        when(lots.open(any())).thenAnswer(inv -> LotIngestion.builder().owner("bench").build()); // sempre lote novo
+        when(lots.checkpoint(any(), any(), anyInt(), anyInt(), any(), anyInt(), anyInt(), anyInt(), anyBoolean())).thenReturn(true);
+        var pan = new PanService();
+        ReflectionTestUtils.setField(pan, "requireLuhn", true);
+        var service = new CardIngestionService(new FixedLayoutParser(), secure, pan,
+                new CardMetrics(new SimpleMeterRegistry()), new UploadRecorder(), lots);
+
+        byte[] file = halfInvalidLot(LINES);
+        for (int i = 0; i < WARMUP; i++) service.ingestFixed(new ByteArrayInputStream(file));
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long t0 = System.nanoTime();
+            var r = service.ingestFixed(new ByteArrayInputStream(file));
+            best = Math.min(best, System.nanoTime() - t0);
+            assertThat(r.summary().failed()).isEqualTo(LINES / 2);
+        }
+        System.out.printf("invalid-lines: %d lines (50%% invalid) best=%.1f ms -> %.0f lines/s%n",
+                LINES, best / 1e6, LINES / (best / 1e9));
+    }
+
+    /** PANs válidos (Luhn) nas linhas pares, dígito verificador trocado nas ímpares */
+    static byte[] halfInvalidLot(int n) {
+        var sb = new StringBuilder(n * 30);
+        sb.append(String.format("%-29s%s%-8s%06d%n", "BENCH", "20240101", "LOTE0001", n));
+        for (int i = 1; i <= n; i++) {
+            String body = String.format("411111%09d", i);
+            int check = luhnCheckDigit(body);
+            if ((i & 1) == 1) check = (check + 1) % 10;
+            sb.append(String.format("C%-6d%-19s%n", i, body + check));
+        }
+        sb.append(String.format("%-8s%06d%n", "LOTE0001", n));
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static int luhnCheckDigit(String body) {
+        int sum = 0;
+        for (int i = body.length() - 1, alt = 1; i >= 0; i--, alt ^= 1) {
+            int d = body.charAt(i) - '0';
+            if (alt == 1) { d <<= 1; if (d > 9) d -= 9; }
+            sum += d;
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.api.perf;
+
+import org.springframework.test.context.TestPropertySource;
+
+/** pool de threads de plataforma do Tomcat (padrão: 200) */
+@TestPropertySource(properties = "spring.threads.virtual.enabled=false")
+class PlatformThreadsLookupLoadTest extends AbstractLookupLoadTest {
+    @Override String mode() { return "platform"; }
+}
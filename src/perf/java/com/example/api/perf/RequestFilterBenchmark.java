@@ -0,0 +1,63 @@
+package com.example.api.perf;
+
+import com.example.api.observability.AuditLog;
+import com.example.api.util.RequestIds;
+import com.example.api.web.filter.RequestContextLoggingFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Overhead do filtro de contexto por requisição (cadeia vazia, auditoria desligada) e do gerador de id
+ * isolado: {@link UUID#randomUUID()} (como era) x {@link RequestIds#next()}.
+ */
+class RequestFilterBenchmark {
+
+    static final int N = 1_000_000, ROUNDS = 5;
+
+    @Test
+    void request_id_generators() {
+        bench("uuid.randomUUID", () -> UUID.randomUUID().toString());
+        bench("RequestIds.next", RequestIds::next);
+        bench("uuid.randomUUID", () -> UUID.randomUUID().toString());
+        bench("RequestIds.next", RequestIds::next);
+    }
+
+    @Test
+    void filter_overhead_per_request() throws Exception {
+        var audit = new AuditLog();
+        ReflectionTestUtils.setField(audit, "enabled", false);
+        audit.start();
+        var filter = new RequestContextLoggingFilter(audit);
+        for (boolean withHeader : new boolean[]{false, true, false, true}) {
+            double best = Double.MAX_VALUE;
+            for (int r = 0; r < ROUNDS; r++) {
+                long t0 = System.nanoTime();
+                for (int i = 0; i < N; i++) {
+                    var req = new MockHttpServletRequest("GET", "/cards/tok_abc");
+                    if (withHeader) req.addHeader("X-Request-ID", "client-supplied-id");
+                    filter.doFilter(req, new MockHttpServletResponse(), (q, s) -> { });
+                }
+                best = Math.min(best, (System.nanoTime() - t0) / (double) N);
+            }
+            System.out.printf("filter (%s X-Request-ID): %.0f ns/request (inclui mocks de request/response)%n",
+                    withHeader ? "with" : "without", best);
+        }
+        audit.stop();
+    }
+
+    private static void bench(String name, Supplier<String> gen) {
+        double best = Double.MAX_VALUE;
+        int sink = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < N; i++) sink += gen.get().length();
+            best = Math.min(best, (System.nanoTime() - t0) / (double) N);
+        }
+        System.out.printf("%s: %.1f ns/id (%d)%n", name, best, sink);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.api.perf;
+
+import com.example.api.CardApiApplication;
+import com.example.api.messaging.CardCreateMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.stream.binder.test.InputDestination;
+import org.springframework.cloud.stream.binder.test.OutputDestination;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Vazão do consumidor {@code cardCreate} por tamanho de lote (binder de teste, H2).
+ * Cada rodada usa PANs novos, então mede o caminho de criação (consulta IN + batch de INSERTs).
+ * Para medir contra MySQL, exporte SPRING_DATASOURCE_* como no {@link AbstractLookupLoadTest}.
+ */
+@SpringBootTest(classes = CardApiApplication.class)
+@ActiveProfiles("test")
+@Import(TestChannelBinderConfiguration.class)
+class StreamBatchBenchmark {
+
+    static final int CARDS_PER_ROUND = 20_000;
+    static final int[] BATCH_SIZES = {1, 10, 50, 200, 500};
+
+    @Autowired InputDestination input;
+    @Autowired OutputDestination output;
+    @Autowired ObjectMapper om;
+
+    private long nextPan = 4_000_000_000_000_000L;
+
+    @Test
+    void throughput_by_batch_size() throws Exception {
+        run(200, 2_000);                                  // aquecimento
+        for (int size : BATCH_SIZES) {
+            double perSec = run(size, CARDS_PER_ROUND);
+            System.out.printf("stream-batch: batch=%d -> %.0f cards/s%n", size, perSec);
+        }
+    }
+
+    private double run(int batchSize, int cards) throws Exception {
+        long t0 = System.nanoTime();
+        for (int sent = 0; sent < cards; sent += batchSize) {
+            var batch = new ArrayList<CardCreateMessage>(batchSize);
+            for (int i = 0; i < batchSize && sent + i < cards; i++) {
+                batch.add(new CardCreateMessage(null, Long.toString(nextPan++), null, null, null, null));
+            }
+            input.send(MessageBuilder.withPayload(om.writeValueAsBytes(batch))
+                    .setHeader("contentType", "application/json").build(), "cards.create");
+        }
+        for (int i = 0; i < cards; i++) assertThat(output.receive(10_000, "cards.create.result")).isNotNull();
+        return cards / ((System.nanoTime() - t0) / 1e9);
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.api.perf;
+
+import com.example.api.CardApiApplication;
+import com.example.api.service.LotCheckpoints;
+import com.example.api.util.LotFileGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Ingestão ponta a ponta: arquivos do {@link LotFileGenerator} enviados em {@code POST /cards/upload}
+ * (Tomcat + segurança + controller + {@code CardIngestionService} + JPA) contra o H2 do perfil {@code test}.
+ * <p>
+ * Por rodada: linhas/s do upload inteiro, p50/p99 por trecho entre checkpoints ({@code cards.upload.checkpoint-every}
+ * linhas, medidos nas chamadas de {@link LotCheckpoints}), pico de heap amostrado e comandos JDBC executados
+ * (contados num proxy do {@code dataSource}, por verbo). Cada rodada usa um lote novo e cartões novos.
+ * O relay do outbox fica parado ({@code linger=1h}) para não misturar os comandos dele aos do upload.
+ * <p>
+ * Tamanho e regressão por propriedades de sistema (o {@code perfTest} repassa {@code cards.perf.*}):
+ * <pre>
+ * ./gradlew perfTest --tests '*UploadThroughputSuite' -Dcards.perf.upload.lines=200000 \
+ *     -Dcards.perf.upload.baseline-lines-per-sec=4000 -Dcards.perf.upload.max-regression=0.15
+ * </pre>
+ * Falha se a mediana das rodadas ficar abaixo de {@code baseline * (1 - max-regression)} ou de
+ * {@code min-lines-per-sec}. Sem essas propriedades só reporta.
+ */
+@SpringBootTest(classes = CardApiApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.datasource.url=jdbc:h2:mem:upload-perf;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "spring.servlet.multipart.max-file-size=-1",
+                "spring.servlet.multipart.max-request-size=-1",
+                "cards.validation.require-luhn=true",
+                "cards.admission.upload.rate=1000",
+                "cards.admission.upload.burst=1000",
+                "cards.outbox.linger=1h"
+        })
+@ActiveProfiles("test")
+@Import({AbstractLookupLoadTest.PerfAuth.class, UploadThroughputSuite.Counting.class})
+class UploadThroughputSuite {
+
+    static final int LINES = Integer.getInteger("cards.perf.upload.lines", 50_000);
+    static final int ROUNDS = Integer.getInteger("cards.perf.upload.rounds", 3);
+    static final int WARMUP_LINES = Integer.getInteger("cards.perf.upload.warmup-lines", 5_000);
+    static final double DUPLICATES = dbl("cards.perf.upload.duplicate-ratio", 0.10);
+    static final double INVALID = dbl("cards.perf.upload.invalid-ratio", 0.05);
+    static final double MIN_LINES_PER_SEC = dbl("cards.perf.upload.min-lines-per-sec", 0);
+    static final double BASELINE = dbl("cards.perf.upload.baseline-lines-per-sec", 0);
+    static final double MAX_REGRESSION = dbl("cards.perf.upload.max-regression", 0.20);
+
+    @LocalServerPort int port;
+    @Autowired ObjectMapper json;
+    @MockitoSpyBean LotCheckpoints lots;
+
+    /** instantes de open/checkpoint da rodada corrente (o upload é sequencial, uma thread só) */
+    private final List<Long> marks = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    void upload_throughput() throws Exception {
+        doAnswer(inv -> { var r = inv.callRealMethod(); marks.add(System.nanoTime()); return r; }).when(lots).open(any());
+        doAnswer(inv -> { var r = inv.callRealMethod(); marks.add(System.nanoTime()); return r; }).when(lots)
+                .checkpoint(anyString(), anyString(), anyInt(), anyInt(), any(), anyInt(), anyInt(), anyInt(), anyBoolean());
+
+        var http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        long cards = 0;
+        var warm = upload(http, spec(0, WARMUP_LINES, cards));
+        cards += warm.expected().cards();
+
+        double[] rates = new double[ROUNDS];
+        for (int r = 1; r <= ROUNDS; r++) {
+            var round = upload(http, spec(r, LINES, cards));
+            cards += round.expected().cards();
+            rates[r - 1] = round.linesPerSec();
+            System.out.printf("upload-throughput [round %d]: %d lines (%.0f%% dup, %.0f%% invalid) %.1f s -> %.0f lines/s "
+                            + "chunk p50=%.1f ms p99=%.1f ms (%d chunks) heap peak=%.0f MiB statements=%d (%.2f/line) %s commits=%d%n",
+                    r, LINES, DUPLICATES * 100, INVALID * 100, round.seconds(), round.linesPerSec(),
+                    round.chunkP50() / 1e6, round.chunkP99() / 1e6, round.chunks(), round.heapPeak() / 1048576.0,
+                    round.statements().values().stream().mapToLong(Long::longValue).sum(),
+                    round.statements().values().stream().mapToLong(Long::longValue).sum() / (double) LINES,
+                    round.statements(), round.commits());
+        }
+
+        Arrays.sort(rates);
+        double median = rates[rates.length / 2];
+        System.out.printf("upload-throughput: median %.0f lines/s over %d rounds (baseline %s)%n",
+                median, ROUNDS, BASELINE > 0 ? String.format("%.0f, max regression %.0f%%", BASELINE, MAX_REGRESSION * 100) : "-");
+        assertThat(median).as("lines/s").isGreaterThanOrEqualTo(MIN_LINES_PER_SEC);
+        if (BASELINE > 0) assertThat(median).as("lines/s vs baseline %.0f", BASELINE).isGreaterThanOrEqualTo(BASELINE * (1 - MAX_REGRESSION));
+    }
+
+    record Round(LotFileGenerator.Summary expected, double seconds, long chunkP50, long chunkP99, int chunks,
+                 long heapPeak, Map<String, Long> statements, long commits) {
+        double linesPerSec() { return expected.lines() / seconds; }
+    }
+
+    private static LotFileGenerator.Spec spec(int round, int lines, long firstCard) {
+        return LotFileGenerator.Spec.of(String.format("LOTE%04d", round), lines)
+                .withDuplicates(DUPLICATES).withInvalid(INVALID).startingAt(firstCard).withSeed(round);
+    }
+
+    private Round upload(HttpClient http, LotFileGenerator.Spec spec) throws Exception {
+        var lot = LotFileGenerator.generate(spec);
+        var body = multipart(lot.bytes());
+        var req = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/cards/upload"))
+                .header("Authorization", "Bearer perf")
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .timeout(Duration.ofMinutes(30))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body)).build();
+
+        System.gc();
+        marks.clear();
+        Counting.reset();
+        try (var heap = new HeapSampler()) {
+            long t0 = System.nanoTime();
+            var res = http.send(req, HttpResponse.BodyHandlers.ofInputStream());
+            JsonNode summary;
+            try (var in = res.body()) {
+                assertThat(res.statusCode()).as("upload %s", spec.lot()).isEqualTo(200);
+                summary = json.readTree(in).get("summary");
+            }
+            double secs = (System.nanoTime() - t0) / 1e9;
+
+            var e = lot.summary();
+            assertThat(summary.get("received").asInt()).isEqualTo(e.lines());
+            assertThat(summary.get("created").asInt()).isEqualTo(e.created());
+            assertThat(summary.get("duplicates").asInt()).isEqualTo(e.duplicates());
+            assertThat(summary.get("failed").asInt()).isEqualTo(e.invalid());
+
+            long[] chunks;
+            synchronized (marks) {
+                chunks = new long[Math.max(0, marks.size() - 1)];
+                for (int i = 1; i < marks.size(); i++) chunks[i - 1] = marks.get(i) - marks.get(i - 1);
+            }
+            Arrays.sort(chunks);
+            long p50 = chunks.length == 0 ? 0 : chunks[chunks.length / 2];
+            long p99 = chunks.length == 0 ? 0 : chunks[Math.min(chunks.length - 1, (int) (chunks.length * 0.99))];
+            return new Round(e, secs, p50, p99, chunks.length, heap.peak(), Counting.snapshot(), Counting.COMMITS.sum());
+        }
+    }
+
+    private static final String BOUNDARY = "upload-perf-boundary";
+
+    private static byte[] multipart(byte[] file) {
+        var out = new ByteArrayOutputStream(file.length + 256);
+        out.writeBytes(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"lot.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(file);
+        out.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    private static double dbl(String key, double def) {
+        String v = System.getProperty(key);
+        return v == null || v.isBlank() ? def : Double.parseDouble(v);
+    }
+
+    /** maior heap usado visto a cada 5 ms enquanto aberto */
+    static final class HeapSampler implements AutoCloseable {
+        private final AtomicLong peak = new AtomicLong();
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        HeapSampler() {
+            var memory = ManagementFactory.getMemoryMXBean();
+            thread = Thread.ofPlatform().daemon().name("heap-sampler").start(() -> {
+                while (running) {
+                    peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                    try { Thread.sleep(5); } catch (InterruptedException e) { return; }
+                }
+            });
+        }
+
+        long peak() { return peak.get(); }
+
+        @Override public void close() throws InterruptedException { running = false; thread.join(); }
+    }
+
+    /**
+     * Envolve o {@code dataSource} da aplicação: conta cada execute/executeQuery/executeUpdate/executeBatch
+     * (um por ida ao banco) pelo primeiro verbo do SQL, e os commits. Contadores estáticos: uma suíte por JVM.
+     */
+    @TestConfiguration
+    static class Counting {
+        static final Map<String, LongAdder> EXECUTED = new ConcurrentHashMap<>();
+        static final LongAdder COMMITS = new LongAdder();
+
+        static void reset() { EXECUTED.clear(); COMMITS.reset(); }
+
+        static Map<String, Long> snapshot() {
+            var m = new TreeMap<String, Long>();
+            EXECUTED.forEach((verb, n) -> m.put(verb, n.sum()));
+            return m;
+        }
+
+        @Bean
+        static BeanPostProcessor countingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String name) {
+                    if (!"dataSource".equals(name) || !(bean instanceof DataSource ds)) return bean;
+                    return new DelegatingDataSource(ds) {
+                        @Override public Connection getConnection() throws SQLException { return connection(super.getConnection()); }
+                        @Override public Connection getConnection(String u, String p) throws SQLException { return connection(super.getConnection(u, p)); }
+                    };
+                }
+            };
+        }
+
+        static Connection connection(Connection c) {
+            return proxy(Connection.class, c, (p, m, args) -> {
+                Object r = invoke(c, m, args);
+                switch (m.getName()) {
+                    case "commit" -> COMMITS.increment();
+                    case "prepareStatement", "prepareCall" -> { return statement((Statement) r, (String) args[0]); }
+                    case "createStatement" -> { return statement((Statement) r, null); }
+                    default -> { }
+                }
+                return r;
+            });
+        }
+
+        static Statement statement(Statement s, String prepared) {
+            Class<? extends Statement> type = s instanceof CallableStatement ? CallableStatement.class
+                    : s instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+            return proxy(type, s, (p, m, args) -> {
+                if (m.getName().startsWith("execute")) {
+                    String sql = prepared != null ? prepared : args != null && args.length > 0 && args[0] instanceof String q ? q : "";
+                    EXECUTED.computeIfAbsent(verb(sql), k -> new LongAdder()).increment();
+                }
+                return invoke(s, m, args);
+            });
+        }
+
+        static String verb(String sql) {
+            var t = sql.stripLeading();
+            int end = 0;
+            while (end < t.length() && Character.isLetter(t.charAt(end))) end++;
+            return end == 0 ? "other" : t.substring(0, end).toLowerCase(Locale.ROOT);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, InvocationHandler h) {
+            return (T) Proxy.newProxyInstance(Counting.class.getClassLoader(), new Class<?>[]{type}, h);
+        }
+
+        private static Object invoke(Object target, java.lang.reflect.Method m, Object[] args) throws Throwable {
+            try { return m.invoke(target, args); }
+            catch (InvocationTargetException e) { throw e.getCause(); }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.api.perf;
+
+import org.springframework.test.context.TestPropertySource;
+
+/** uma virtual thread por requisição; o monitor de pinning fica ligado e reporta no log */
+@TestPropertySource(properties = {"spring.threads.virtual.enabled=true", "cards.vthreads.pinning.enabled=true"})
+class VirtualThreadsLookupLoadTest extends AbstractLookupLoadTest {
+    @Override String mode() { return "virtual"; }
+}
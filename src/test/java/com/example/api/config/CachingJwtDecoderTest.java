@@ -0,0 +1,111 @@
+package com.example.api.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+class CachingJwtDecoderTest {
+
+    private LocalJwks jwks;
+
+    @BeforeEach
+    void setUp() throws Exception { jwks = new LocalJwks(); }
+
+    @AfterEach
+    void tearDown() { jwks.close(); }
+
+    @Test
+    @DisplayName("decode: token repetido -> verifica assinatura uma vez só")
+    void decode_repeatedToken_verifiesOnce() throws Exception {
+        var calls = new AtomicInteger();
+        var decoder = counting(calls, Clock.systemUTC());
+        String token = jwks.token("user-1", Instant.now().plusSeconds(300));
+
+        Jwt a = decoder.decode(token);
+        Jwt b = decoder.decode(token);
+
+        assertThat(b).isSameAs(a);
+        assertThat(b.getSubject()).isEqualTo("user-1");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("decode: depois do exp a entrada não é usada (revalida no delegate)")
+    void decode_honorsExp() throws Exception {
+        var now = Instant.now();
+        var clock = new MutableClock(now);
+        var calls = new AtomicInteger();
+        var decoder = counting(calls, clock);
+        String token = jwks.token("user-1", now.plusSeconds(120));
+
+        decoder.decode(token);
+        decoder.decode(token);
+        clock.now = now.plusSeconds(121);     // só o relógio do cache avança
+        decoder.decode(token);
+
+        assertThat(calls).hasValue(2);
+        assertThat(decoder.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("decode: token inválido não entra no cache")
+    void decode_invalid_notCached() throws Exception {
+        var decoder = JwtDecoderConfig.jwtDecoder(JwtDecoderConfig.jwkSource(jwks.uri(), 300_000, 60_000),
+                "http://outro-issuer", 100, Clock.systemUTC());
+        String token = jwks.token("user-1", Instant.now().plusSeconds(300));
+
+        assertThatThrownBy(() -> decoder.decode(token)).isInstanceOf(JwtException.class);
+        assertThat(decoder.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("decode: cheio -> não passa do limite")
+    void decode_bounded() throws Exception {
+        var decoder = counting(new AtomicInteger(), Clock.systemUTC(), 2);
+        for (int i = 0; i < 5; i++) decoder.decode(jwks.token("u" + i, Instant.now().plusSeconds(300)));
+        assertThat(decoder.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("JWKS: rotação de chave -> token novo valida após refresh, sem reiniciar")
+    void jwks_keyRotation() throws Exception {
+        var decoder = JwtDecoderConfig.jwtDecoder(JwtDecoderConfig.jwkSource(jwks.uri(), 300_000, 60_000),
+                LocalJwks.ISSUER, 100, Clock.systemUTC());
+
+        decoder.decode(jwks.token("before", Instant.now().plusSeconds(300)));
+        jwks.rotate();
+        Jwt after = decoder.decode(jwks.token("after", Instant.now().plusSeconds(300)));
+
+        assertThat(after.getSubject()).isEqualTo("after");
+        assertThat(jwks.fetches()).isGreaterThanOrEqualTo(2);
+    }
+
+    private CachingJwtDecoder counting(AtomicInteger calls, Clock clock) throws Exception {
+        return counting(calls, clock, 100);
+    }
+
+    private CachingJwtDecoder counting(AtomicInteger calls, Clock clock, int max) throws Exception {
+        JwtDecoder real = JwtDecoderConfig.jwtDecoder(JwtDecoderConfig.jwkSource(jwks.uri(), 300_000, 60_000),
+                LocalJwks.ISSUER, 0, Clock.systemUTC());
+        return new CachingJwtDecoder(t -> { calls.incrementAndGet(); return real.decode(t); }, max, clock);
+    }
+
+    static final class MutableClock extends Clock {
+        volatile Instant now;
+        MutableClock(Instant now) { this.now = now; }
+        @Override public ZoneOffset getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(java.time.ZoneId zone) { return this; }
+        @Override public Instant instant() { return now; }
+    }
+}
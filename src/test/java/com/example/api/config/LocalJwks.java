@@ -0,0 +1,68 @@
+package com.example.api.config;
+
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** JWKS local (HTTP na loopback) no lugar do Keycloak: assina tokens e conta os downloads do JWKS */
+public class LocalJwks implements AutoCloseable {
+
+    public static final String ISSUER = "http://localhost:8081/realms/cards";
+
+    private final HttpServer server;
+    private final AtomicInteger fetches = new AtomicInteger();
+    private volatile RSAKey key;
+
+    public LocalJwks() throws Exception {
+        key = newKey();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/certs", ex -> {
+            fetches.incrementAndGet();
+            byte[] body = new JWKSet(key.toPublicJWK()).toString().getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().add("Content-Type", "application/json");
+            ex.sendResponseHeaders(200, body.length);
+            try (OutputStream os = ex.getResponseBody()) { os.write(body); }
+        });
+        server.start();
+    }
+
+    public String uri() { return "http://127.0.0.1:" + server.getAddress().getPort() + "/certs"; }
+
+    public int fetches() { return fetches.get(); }
+
+    /** troca a chave de assinatura (novo kid), como numa rotação no Keycloak */
+    public void rotate() throws Exception { key = newKey(); }
+
+    public String token(String subject, Instant expiresAt) throws Exception {
+        var claims = new JWTClaimsSet.Builder()
+                .issuer(ISSUER).subject(subject).claim("azp", "cards-client").claim("scope", "card:read card:write")
+                .issueTime(new Date()).expirationTime(Date.from(expiresAt))
+                .build();
+        var jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256)
+                .keyID(key.getKeyID()).type(JOSEObjectType.JWT).build(), claims);
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+
+    private static RSAKey newKey() throws Exception {
+        return new RSAKeyGenerator(2048).keyID(UUID.randomUUID().toString()).generate();
+    }
+
+    @Override
+    public void close() { server.stop(0); }
+}
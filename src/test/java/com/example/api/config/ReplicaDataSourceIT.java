@@ -0,0 +1,144 @@
+package com.example.api.config;
+
+import com.example.api.CardApiApplication;
+import com.example.api.repository.CardListingRepository;
+import com.example.api.repository.CardListingRepository.Filter;
+import com.example.api.service.interfaces.CardSecureService;
+import com.example.api.service.interfaces.CryptoService;
+import com.example.api.web.request.CardCreateRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// dois H2 independentes no papel de primário e réplica (sem replicação: cada teste escreve onde quer)
+@SpringBootTest(classes = CardApiApplication.class, properties = {
+        "spring.datasource.url=" + ReplicaDataSourceIT.PRIMARY,
+        "cards.datasource.replica.url=" + ReplicaDataSourceIT.REPLICA,
+        "cards.datasource.replica.hikari.maximum-pool-size=3",
+        "spring.datasource.hikari.maximum-pool-size=5"})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class ReplicaDataSourceIT {
+
+    static final String PRIMARY = "jdbc:h2:mem:rw-primary;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+    static final String REPLICA = "jdbc:h2:mem:rw-replica;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+
+    @Autowired CardSecureService secureService;
+    @Autowired CardListingRepository listing;
+    @Autowired CryptoService crypto;
+    @Autowired JdbcTemplate jdbc;                  // DataSource roteado: fora de ReadRouting = primário
+    @Autowired MeterRegistry meters;
+    @Autowired MockMvc mvc;
+
+    JdbcTemplate primary, replica;
+    Connection replicaConn;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        primary = jdbc;
+        replicaConn = DriverManager.getConnection(REPLICA, "sa", "");
+        replica = new JdbcTemplate(new SingleConnectionDataSource(replicaConn, true));
+        var schema = Files.createTempFile("schema", ".sql");
+        try {
+            primary.execute("script nodata to '" + schema + "'");        // a réplica ganha o schema do primário
+            replica.execute("drop all objects");
+            replica.execute("runscript from '" + schema + "'");
+        } finally {
+            Files.deleteIfExists(schema);
+        }
+        primary.update("delete from card_outbox");
+        primary.update("delete from card_tokens");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception { replicaConn.close(); }
+
+    @Test
+    @DisplayName("escrita no primário; lookup que a réplica ainda não tem é confirmado no primário; duplicata detectada")
+    void write_goesToPrimary_readYourWrites() {
+        var req = new CardCreateRequest("4000000000000309", "VISA", 1, 2099, null, null);
+        var created = secureService.createOrGet(req, null, null);
+
+        assertThat(count(primary)).isEqualTo(1);
+        assertThat(count(replica)).isZero();
+        assertThat(secureService.findByPan("4000000000000309")).hasValueSatisfying(c -> assertThat(c.id()).isEqualTo(created.id()));
+        assertThat(secureService.createOrGet(req, null, null).duplicate()).isTrue();   // checagem de duplicata no primário
+    }
+
+    @Test
+    @DisplayName("lookup e listagem leem da réplica")
+    void reads_goToReplica() {
+        String hmac = crypto.macHex("4000000000000317");
+        replica.update("insert into card_tokens (id, token, pan_hmac_hex, pan_enc, bin, last4, brand, card_type, expiry_month, expiry_year) "
+                + "values (?, 'tok_000000000000000000000317', ?, 'x', '40000000', '0317', 'VISA', 'CREDIT', 1, 2099)",
+                CardListingRepository.bytes(UUID.randomUUID()), hmac);
+
+        assertThat(secureService.findByPan("4000000000000317"))
+                .hasValueSatisfying(c -> assertThat(c.token()).isEqualTo("tok_000000000000000000000317"));
+        assertThat(listing.page(new Filter(null, null, null), null, 10))
+                .singleElement().satisfies(c -> assertThat(c.token()).isEqualTo("tok_000000000000000000000317"));
+        assertThat(count(primary)).isZero();
+    }
+
+    @Test
+    @DisplayName("HTTP: POST /cards e logo depois GET /cards/lookup acha no primário o que a réplica ainda não tem")
+    void http_readYourWrites() throws Exception {
+        var id = mvc.perform(post("/cards").with(jwt()).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cardNumber\":\"4000000000000325\",\"holderName\":\"X\",\"expiryMonth\":1,\"expiryYear\":2099}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(count(replica)).isZero();
+
+        mvc.perform(get("/cards/lookup").with(jwt()).header("X-Card-Pan", "4000000000000325"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.exists").value(true));
+        assertThat(id).contains(jdbc.queryForObject("select token from card_tokens", String.class));
+    }
+
+    @Test
+    @DisplayName("HTTP: ausência na réplica de cartão não gravado por aqui não vai ao primário")
+    void http_missStaysOnReplica() throws Exception {
+        String hmac = crypto.macHex("4000000000000333");
+        primary.update("insert into card_tokens (id, token, pan_hmac_hex, pan_enc, bin, last4, brand, card_type, expiry_month, expiry_year) "
+                + "values (?, 'tok_000000000000000000000333', ?, 'x', '40000000', '0333', 'VISA', 'CREDIT', 1, 2099)",
+                CardListingRepository.bytes(UUID.randomUUID()), hmac);
+
+        mvc.perform(get("/cards/lookup").with(jwt()).header("X-Card-Pan", "4000000000000333"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.exists").value(false));
+    }
+
+    @Test
+    @DisplayName("pools separados, cada um com seu tamanho e métricas hikaricp")
+    void separatePools() {
+        listing.page(new Filter(null, null, null), null, 1);        // o pool da réplica sobe no 1º uso
+        assertThat(meters.get("hikaricp.connections.max").tag("pool", "primary").gauge().value()).isEqualTo(5);
+        assertThat(meters.get("hikaricp.connections.max").tag("pool", "replica").gauge().value()).isEqualTo(3);
+    }
+
+    private static int count(JdbcTemplate t) {
+        return t.queryForObject("select count(*) from card_tokens", Integer.class);
+    }
+}
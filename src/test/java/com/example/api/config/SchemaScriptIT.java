@@ -0,0 +1,82 @@
+package com.example.api.config;
+
+import com.example.api.CardApiApplication;
+import com.example.api.entity.ShardRange;
+import com.example.api.repository.ShardRangeRepository;
+import com.example.api.service.CardIngestionService;
+import com.example.api.service.CardStatsService;
+import com.example.api.service.interfaces.CardSecureService;
+import com.example.api.util.LotFileGenerator;
+import com.example.api.web.request.CardCreateRequest;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// o que o perfil prod faz no start: sem ddl-auto nem metadados JDBC, tabelas vindas de db/schema-mysql.sql
+@SpringBootTest(classes = CardApiApplication.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:schema-script;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.jpa.properties.hibernate.boot.allow_jdbc_metadata_access=false",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:db/schema-mysql.sql",
+        "cards.startup.lazy-packages=com.example.api.config.OpenAPIConfig",
+        "cards.stats.flush-interval=1h",
+        "cards.outbox.linger=1h"})
+@ActiveProfiles("test")
+class SchemaScriptIT {
+
+    @Autowired EntityManager em;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired CardSecureService secureService;
+    @Autowired CardIngestionService ingestion;
+    @Autowired CardStatsService stats;
+    @Autowired ShardRangeRepository ranges;
+    @Autowired ConfigurableApplicationContext context;
+
+    @Test
+    @DisplayName("script: toda entidade lê todas as colunas mapeadas")
+    void everyEntity_selectsAllColumns() {
+        for (var entity : em.getMetamodel().getEntities())
+            em.createQuery("select e from " + entity.getName() + " e").setMaxResults(1).getResultList();
+    }
+
+    @Test
+    @DisplayName("script: criação, upload com checkpoint, outbox, stats e faixas gravam nas tabelas do script")
+    void writePaths_workOnScriptSchema() {
+        var pr = secureService.createOrGet(new CardCreateRequest("4111111111111111", "UNKNOWN", 12, 2099, null, null), null, null);
+        assertThat(secureService.findByPan("4111111111111111")).isPresent();
+
+        var lot = LotFileGenerator.generate(LotFileGenerator.Spec.of("LOTE5001", 30).withDuplicates(0.2));
+        var r = ingestion.ingestFixed(new ByteArrayInputStream(lot.bytes()));
+        assertThat(r.summary().created()).isEqualTo(lot.summary().created());
+
+        stats.flush();
+        ranges.save(ShardRange.builder().firstBucket(0).lastBucket(65535).shard(0).updatedAt(Instant.now()).build());
+
+        assertThat(jdbc.queryForObject("select count(*) from card_tokens", Long.class)).isEqualTo(1L + lot.summary().created());
+        assertThat(jdbc.queryForObject("select count(*) from card_outbox where card_id = ?", Long.class, pr.id())).isOne();
+        assertThat(jdbc.queryForObject("select status from lot_ingestion where lot = 'LOTE5001'", String.class)).isEqualTo("COMPLETED");
+        assertThat(jdbc.queryForObject("select count(*) from card_stats", Long.class)).isPositive();
+        assertThat(ranges.findAllByOrderByFirstBucketAsc()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("start: Tink não é registrado nem gera chave; pacotes de cards.startup.lazy-packages ficam lazy")
+    void nonCriticalBeans_areLazy() {
+        var bf = context.getBeanFactory();
+        assertThat(bf.containsSingleton("aead")).isFalse();
+        assertThat(bf.containsSingleton("mac")).isFalse();
+        assertThat(bf.getBeanDefinition("openAPIConfig").isLazyInit()).isTrue();
+        assertThat(bf.getBeanDefinition("cryptoConfig").isLazyInit()).isFalse();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.api.config;
+
+import com.example.api.entity.ShardRange;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ShardRouterTest {
+
+    private final ShardRouter router = new ShardRouter("jdbc:h2:mem:a,jdbc:h2:mem:b", null, null);
+
+    @Test
+    @DisplayName("faixas iguais cobrem os 65536 baldes sem buraco; balde = 4 primeiros hex")
+    void uniform_coversAllBuckets() {
+        var ranges = ShardRouter.uniform(3);
+
+        assertThat(ranges).extracting(ShardRange::getFirstBucket).containsExactly(0, 21846, 43691);
+        assertThat(ranges.get(2).getLastBucket()).isEqualTo(65535);
+        assertThat(router.ownerOf("0000" + "ab".repeat(30))).isZero();
+        assertThat(router.ownerOf("8000" + "ab".repeat(30))).isEqualTo(1);
+        assertThat(router.ownerOf("ffff" + "ab".repeat(30))).isEqualTo(2);
+        assertThat(router.previousOf("ffff" + "ab".repeat(30))).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("mapa com buraco ou shard desconhecido é recusado e o atual continua valendo")
+    void apply_rejectsInvalidMap() {
+        var gap = new ArrayList<>(ShardRouter.uniform(3));
+        gap.remove(1);
+        var unknown = List.of(ShardRange.builder().firstBucket(0).lastBucket(65535).shard(5).build());
+
+        assertThatThrownBy(() -> router.apply(gap)).hasMessageContaining("shard_range_gap");
+        assertThatThrownBy(() -> router.apply(unknown)).hasMessageContaining("shard_range_unknown_shard");
+        assertThat(router.ownerOf("ffff" + "ab".repeat(30))).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("on: shard da thread vale só dentro do bloco e aninha; sem shards roda direto")
+    void on_scopesShard() {
+        assertThat(router.on(2, () -> router.on(1, ShardRouter::current) + "/" + ShardRouter.current())).isEqualTo("1/2");
+        assertThat(ShardRouter.current()).isNull();
+        assertThat(new ShardRouter().on(2, ShardRouter::current)).isNull();
+    }
+}
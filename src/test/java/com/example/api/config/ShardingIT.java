@@ -0,0 +1,263 @@
+package com.example.api.config;
+
+import com.example.api.CardApiApplication;
+import com.example.api.DTO.CardListItem;
+import com.example.api.entity.ShardRange;
+import com.example.api.repository.CardListingRepository;
+import com.example.api.repository.CardListingRepository.Filter;
+import com.example.api.repository.ShardRangeRepository;
+import com.example.api.service.CardDetokenizeService;
+import com.example.api.service.ShardRebalancer;
+import com.example.api.service.interfaces.CardSecureService;
+import com.example.api.service.interfaces.CryptoService;
+import com.example.api.util.FixedLayoutParser;
+import com.example.api.util.LotFileGenerator;
+import com.example.api.web.request.CardCreateRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// três H2 independentes: shard 0 (spring.datasource, com as tabelas globais) e os shards 1 e 2
+@SpringBootTest(classes = CardApiApplication.class, properties = {
+        "spring.datasource.url=" + ShardingIT.SHARD0,
+        "cards.shards.urls=" + ShardingIT.SHARD1 + "," + ShardingIT.SHARD2,
+        "cards.shards.move-grace=0s",
+        "cards.shards.move-chunk=7",
+        "cards.shards.refresh=1h",
+        "cards.outbox.linger=1h"})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class ShardingIT {
+
+    static final String SHARD0 = "jdbc:h2:mem:shard-0;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+    static final String SHARD1 = "jdbc:h2:mem:shard-1;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+    static final String SHARD2 = "jdbc:h2:mem:shard-2;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+
+    @Autowired CardSecureService secureService;
+    @Autowired CardListingRepository listing;
+    @Autowired CardDetokenizeService detokenize;
+    @Autowired ShardRebalancer rebalancer;
+    @Autowired ShardRangeRepository ranges;
+    @Autowired ShardRouter router;
+    @Autowired CryptoService crypto;
+    @Autowired MockMvc mvc;
+
+    final List<Connection> conns = new ArrayList<>();
+    final List<JdbcTemplate> shard = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        for (String url : List.of(SHARD0, SHARD1, SHARD2)) {
+            var c = DriverManager.getConnection(url, "sa", "");
+            conns.add(c);
+            shard.add(new JdbcTemplate(new SingleConnectionDataSource(c, true)));
+        }
+        var schema = Files.createTempFile("schema", ".sql");
+        try {
+            shard.get(0).execute("script nodata to '" + schema + "'");     // os shards 1..N ganham o schema do 0
+            for (int s = 1; s < 3; s++) {
+                shard.get(s).execute("drop all objects");
+                shard.get(s).execute("runscript from '" + schema + "'");
+            }
+        } finally {
+            Files.deleteIfExists(schema);
+        }
+        shard.get(0).update("delete from card_outbox");
+        shard.get(0).update("delete from card_tokens");
+        shard.get(0).update("delete from card_directory");
+        shard.get(0).update("delete from shard_ranges");
+        shard.get(0).update("delete from lot_ingestion");
+        rebalancer.load();                                               // faixas iguais de novo
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (var c : conns) c.close();
+    }
+
+    @Test
+    @DisplayName("createOrGet grava no shard dono do HMAC; lookup e duplicata acham lá; diretório no shard 0")
+    void createOrGet_routesToOwner() {
+        var created = new HashMap<String, String>();
+        for (int i = 0; i < 40; i++) created.put(pan(i), secureService.createOrGet(req(pan(i)), null, null).id());
+
+        for (int s = 0; s < 3; s++) assertThat(count(s)).as("shard %d", s).isPositive();
+        assertThat(count(0) + count(1) + count(2)).isEqualTo(40);
+        for (int i = 0; i < 40; i++) {
+            String pan = pan(i), hmac = crypto.macHex(pan);
+            assertThat(shard.get(router.ownerOf(hmac)).queryForObject(
+                    "select count(*) from card_tokens where pan_hmac_hex = ?", Integer.class, hmac)).isEqualTo(1);
+            assertThat(secureService.findByPan(pan)).hasValueSatisfying(c -> assertThat(c.id()).isEqualTo(created.get(pan)));
+        }
+        assertThat(secureService.createOrGet(req(pan(3)), null, null).duplicate()).isTrue();
+        assertThat(count(0) + count(1) + count(2)).isEqualTo(40);
+        assertThat(shard.get(0).queryForObject("select count(*) from card_directory", Integer.class)).isEqualTo(40);
+    }
+
+    @Test
+    @DisplayName("POST /cards/upload: o checkpoint do lote no shard 0 não prende a requisição nele; cada cartão vai ao seu dono")
+    void upload_overHttp_routesEachCardToOwner() throws Exception {
+        var lot = LotFileGenerator.generate(LotFileGenerator.Spec.of("LOTE4801", 40).withDuplicates(0.1));
+
+        mvc.perform(multipart("/cards/upload").file(new MockMultipartFile("file", "lot.txt", "text/plain", lot.bytes())).with(jwt()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.summary.created").value(lot.summary().created()))
+                .andExpect(jsonPath("$.summary.duplicates").value(lot.summary().duplicates()));
+
+        for (var d : new FixedLayoutParser().parse(new ByteArrayInputStream(lot.bytes())).details()) {
+            String hmac = crypto.macHex(d.pan());
+            assertThat(shard.get(router.ownerOf(hmac)).queryForObject(
+                    "select count(*) from card_tokens where pan_hmac_hex = ?", Integer.class, hmac)).as("line %d", d.line()).isEqualTo(1);
+        }
+        for (int s = 0; s < 3; s++) assertThat(count(s)).as("shard %d", s).isPositive();
+        assertThat(count(0) + count(1) + count(2)).isEqualTo(lot.summary().created());
+    }
+
+    @Test
+    @DisplayName("lote: cada shard grava a sua parte; ordem e duplicatas do lote preservadas")
+    void batch_fansOutPerShard() {
+        var reqs = new ArrayList<CardCreateRequest>();
+        for (int i = 0; i < 30; i++) reqs.add(req(pan(i)));
+        reqs.add(req(pan(0)));                                           // repetido no próprio lote
+        secureService.createOrGet(req(pan(1)), null, null);              // já existia
+
+        var out = secureService.createOrGetBatch(reqs);
+
+        assertThat(out).hasSize(31);
+        assertThat(out.get(0).result().duplicate()).isFalse();
+        assertThat(out.get(1).result().duplicate()).isTrue();
+        assertThat(out.get(30).result().duplicate()).isTrue();
+        assertThat(out.get(30).result().id()).isEqualTo(out.get(0).result().id());
+        assertThat(count(0) + count(1) + count(2)).isEqualTo(30);
+        for (int i = 0; i < 30; i++) {
+            String hmac = crypto.macHex(pan(i));
+            assertThat(shard.get(router.ownerOf(hmac)).queryForObject(
+                    "select count(*) from card_tokens where pan_hmac_hex = ?", Integer.class, hmac)).isEqualTo(1);
+        }
+    }
+
+    @Test
+    @DisplayName("detokenização acha o shard de cada token pelo diretório")
+    void detokenize_acrossShards() throws Exception {
+        var tokens = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) tokens.add(secureService.createOrGet(req(pan(i)), null, null).token());
+        tokens.add("tok_000000000000000000000000");
+
+        var out = new ByteArrayOutputStream();
+        detokenize.write(detokenize.validate(tokens), out);
+
+        var lines = out.toString(StandardCharsets.US_ASCII).split("\n");
+        for (int i = 0; i < 20; i++) assertThat(lines[i]).contains(tokens.get(i)).contains("\"pan\":\"" + pan(i) + "\"");
+        assertThat(lines[20]).contains("not_found");
+    }
+
+    @Test
+    @DisplayName("listagem intercala as páginas dos shards na ordem do índice")
+    void listing_mergesShards() {
+        for (int i = 0; i < 25; i++) secureService.createOrGet(req(pan(i)), null, null);
+        var f = new Filter(null, null, null);
+
+        var seen = new ArrayList<CardListItem>();
+        List<Object> after = null;
+        for (;;) {
+            var page = listing.page(f, after, 7);
+            seen.addAll(page);
+            if (page.size() < 7) break;
+            after = CardListingRepository.keyOf(f.order(), page.get(page.size() - 1));
+        }
+
+        assertThat(seen).hasSize(25);
+        assertThat(seen).isSortedAccordingTo(Comparator.comparing(
+                (CardListItem r) -> keyBytes(r), Arrays::compareUnsigned));
+        try (var all = listing.streamAll(5)) { assertThat(all.count()).isEqualTo(25); }
+    }
+
+    @Test
+    @DisplayName("faixa em migração: escrita vai ao novo dono, mas duplicata e lookup ainda acham no anterior")
+    void movingRange_readsBothShards() {
+        var first = secureService.createOrGet(req(pan(1)), null, null);
+        String hmac = crypto.macHex(pan(1));
+        int bucket = ShardRouter.bucket(hmac), from = router.ownerOf(hmac), to = (from + 1) % 3;
+        var moving = new ArrayList<ShardRange>();
+        for (var r : ShardRouter.uniform(3)) {
+            if (r.getFirstBucket() <= bucket && bucket <= r.getLastBucket()) {
+                r.setShard(to);
+                r.setMovingFrom(from);
+            }
+            moving.add(r);
+        }
+        router.apply(moving);
+
+        var again = secureService.createOrGet(req(pan(1)), null, null);
+
+        assertThat(again.duplicate()).isTrue();
+        assertThat(again.id()).isEqualTo(first.id());
+        assertThat(count(to)).isZero();
+        assertThat(secureService.findByPan(pan(1))).hasValueSatisfying(c -> assertThat(c.id()).isEqualTo(first.id()));
+    }
+
+    @Test
+    @DisplayName("rebalanceamento move a faixa online: copia, troca o dono e limpa a origem")
+    void rebalance_movesRange() throws Exception {
+        var ids = new HashMap<String, String>();
+        for (int i = 0; i < 40; i++) ids.put(pan(i), secureService.createOrGet(req(pan(i)), null, null).id());
+        var r1 = ShardRouter.uniform(3).get(1);
+        int before1 = count(1), before2 = count(2);
+
+        rebalancer.start(r1.getFirstBucket(), r1.getLastBucket(), 2);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!List.of("done", "failed").contains(rebalancer.status().state()) && System.currentTimeMillis() < deadline)
+            Thread.sleep(20);
+
+        assertThat(rebalancer.status().state()).isEqualTo("done");
+        assertThat(rebalancer.status().copied()).isEqualTo(before1);
+        assertThat(count(1)).isZero();
+        assertThat(count(2)).isEqualTo(before1 + before2);
+        assertThat(ranges.findAllByOrderByFirstBucketAsc()).noneMatch(r -> r.getMovingFrom() != null);
+        for (int i = 0; i < 40; i++) {
+            String pan = pan(i);
+            assertThat(secureService.findByPan(pan)).hasValueSatisfying(c -> assertThat(c.id()).isEqualTo(ids.get(pan)));
+            assertThat(secureService.createOrGet(req(pan), null, null).duplicate()).isTrue();
+        }
+        assertThat(count(0) + count(1) + count(2)).isEqualTo(40);
+    }
+
+    private int count(int s) {
+        return shard.get(s).queryForObject("select count(*) from card_tokens", Integer.class);
+    }
+
+    private static String pan(int i) {
+        return String.format("4%015d", 1000 + i);
+    }
+
+    private static CardCreateRequest req(String pan) {
+        return new CardCreateRequest(pan, "VISA", 12, 2099, null, null);
+    }
+
+    private static byte[] keyBytes(CardListItem r) {
+        return (byte[]) CardListingRepository.keyOf(CardListingRepository.Order.ID, r).get(0);
+    }
+}
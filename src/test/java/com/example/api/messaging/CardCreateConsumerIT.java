@@ -0,0 +1,103 @@
+package com.example.api.messaging;
+
+import com.example.api.CardApiApplication;
+import com.example.api.repository.CardTokenRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.stream.binder.test.InputDestination;
+import org.springframework.cloud.stream.binder.test.OutputDestination;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Cloud Stream com o binder de teste (sem broker), app e banco H2 reais
+@SpringBootTest(classes = CardApiApplication.class)
+@ActiveProfiles("test")
+@Import(TestChannelBinderConfiguration.class)
+class CardCreateConsumerIT {
+
+    static final String IN = "cards.create", OUT = "cards.create.result";
+
+    @Autowired InputDestination input;
+    @Autowired OutputDestination output;
+    @Autowired ObjectMapper om;
+    @Autowired CardTokenRepository repo;
+
+    @Test
+    @DisplayName("lote: cria, marca repetido e inválido; um resultado por cartão, na ordem")
+    void batch_publishesOneResultPerCard() throws Exception {
+        long before = repo.count();
+        var batch = List.of(
+                new CardCreateMessage("r1", "4000000000000101", "ANA", 10, 2030, null),
+                new CardCreateMessage("r2", "4000000000000101", "ANA", 10, 2030, null),
+                new CardCreateMessage("r3", "12", null, null, null, null),
+                new CardCreateMessage("r4", "5100000000000107", null, null, null, null));
+
+        input.send(MessageBuilder.withPayload(om.writeValueAsBytes(batch))
+                .setHeader("contentType", "application/json").build(), IN);
+
+        var results = receive(4);
+        assertThat(results).extracting(CardCreateResult::requestId).containsExactly("r1", "r2", "r3", "r4");
+        assertThat(results).extracting(CardCreateResult::status).containsExactly("created", "duplicate", "invalid", "created");
+        assertThat(results.get(1).id()).isEqualTo(results.get(0).id());
+        assertThat(results.get(2).error()).isEqualTo("invalid_pan_length");
+        assertThat(repo.count()).isEqualTo(before + 2);
+    }
+
+    @Test
+    @DisplayName("reentrega do mesmo lote: nada novo no banco, tudo duplicate")
+    void redelivery_isIdempotent() throws Exception {
+        var batch = List.of(new CardCreateMessage("x1", "4000000000000200", null, null, null, null),
+                new CardCreateMessage("x2", "4000000000000218", null, null, null, null));
+        byte[] payload = om.writeValueAsBytes(batch);
+
+        input.send(MessageBuilder.withPayload(payload).setHeader("contentType", "application/json").build(), IN);
+        receive(2);
+        long after = repo.count();
+        input.send(MessageBuilder.withPayload(payload).setHeader("contentType", "application/json").build(), IN);
+
+        assertThat(receive(2)).extracting(CardCreateResult::status).containsOnly("duplicate");
+        assertThat(repo.count()).isEqualTo(after);
+    }
+
+    @Test
+    @DisplayName("validade fora da faixa volta invalid e não grava; o resto do lote segue")
+    void invalidExpiry_isRejectedPerItem() throws Exception {
+        long before = repo.count();
+        var batch = List.of(
+                new CardCreateMessage("e1", "4000000000000226", null, 13, 2030, null),
+                new CardCreateMessage("e2", "4000000000000234", null, 0, 2030, null),
+                new CardCreateMessage("e3", "4000000000000242", null, 5, 1999, null),
+                new CardCreateMessage("e4", "4000000000000259", null, 5, 2030, null));
+
+        input.send(MessageBuilder.withPayload(om.writeValueAsBytes(batch))
+                .setHeader("contentType", "application/json").build(), IN);
+
+        var results = receive(4);
+        assertThat(results).extracting(CardCreateResult::requestId).containsExactly("e1", "e2", "e3", "e4");
+        assertThat(results).extracting(CardCreateResult::error)
+                .containsExactly("invalid_expiry_month", "invalid_expiry_month", "invalid_expiry_year", null);
+        assertThat(results.get(3).status()).isEqualTo("created");
+        assertThat(repo.count()).isEqualTo(before + 1);
+    }
+
+    private List<CardCreateResult> receive(int n) throws Exception {
+        var out = new ArrayList<CardCreateResult>(n);
+        for (int i = 0; i < n; i++) {
+            Message<byte[]> m = output.receive(5000, OUT);
+            assertThat(m).as("result %d", i).isNotNull();
+            out.add(om.readValue(m.getPayload(), CardCreateResult.class));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.api.messaging;
+
+import com.example.api.CardApiApplication;
+import com.example.api.config.ShardRouter;
+import com.example.api.repository.CardOutboxRepository;
+import com.example.api.repository.JobLeaseRepository;
+import com.example.api.service.interfaces.CardSecureService;
+import com.example.api.web.request.CardCreateRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.stream.binder.test.OutputDestination;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// relay manual (linger alto para o agendamento não competir com o teste)
+@SpringBootTest(classes = CardApiApplication.class, properties = {"cards.outbox.linger=1h", "cards.outbox.batch-size=2"})
+@ActiveProfiles("test")
+@Import(TestChannelBinderConfiguration.class)
+class OutboxRelayIT {
+
+    static final String OUT = "cards.created";
+
+    @Autowired CardSecureService secureService;
+    @Autowired CardOutboxRepository outbox;
+    @Autowired OutboxRelay relay;
+    @Autowired OutputDestination output;
+    @Autowired TransactionTemplate tx;
+    @Autowired ObjectMapper om;
+    @Autowired StreamBridge bridge;
+    @Autowired ShardRouter shards;
+    @Autowired JobLeaseRepository leases;
+
+    @BeforeEach
+    void clean() {
+        relay.drain();
+        output.clear();
+    }
+
+    @Test
+    @DisplayName("criação grava no outbox na mesma transação; relay publica em ordem e esvazia")
+    void created_isRelayedInOrder() throws Exception {
+        var a = secureService.createOrGet(new CardCreateRequest("4000000000000309", "A", 1, 2099, null, null), null, null);
+        var b = secureService.createOrGet(new CardCreateRequest("4000000000000317", "B", 1, 2099, null, null), null, null);
+        var c = secureService.createOrGet(new CardCreateRequest("4000000000000325", "C", 1, 2099, null, null), null, null);
+        secureService.createOrGet(new CardCreateRequest("4000000000000309", "A", 1, 2099, null, null), null, null); // duplicado: sem evento
+        assertThat(outbox.count()).isEqualTo(3);
+
+        assertThat(relay.drain()).isEqualTo(3);                           // 2 lotes (batch-size=2)
+
+        var got = List.of(next(), next(), next());
+        assertThat(got).extracting(CardCreatedMessage::id).containsExactly(a.id(), b.id(), c.id());
+        assertThat(got.get(0).token()).isEqualTo(a.token());
+        assertThat(got.get(0).bin()).isEqualTo("400000");
+        assertThat(got.get(0).sequence()).isLessThan(got.get(1).sequence());
+        assertThat(output.receive(200, OUT)).isNull();
+        assertThat(outbox.count()).isZero();
+    }
+
+    @Test
+    @DisplayName("rollback da criação -> nada no outbox, nada publicado")
+    void rolledBack_notPublished() {
+        tx.executeWithoutResult(s -> {
+            secureService.createOrGet(new CardCreateRequest("4000000000000333", "R", 1, 2099, null, null), null, null);
+            s.setRollbackOnly();
+        });
+
+        assertThat(outbox.count()).isZero();
+        assertThat(relay.drain()).isZero();
+        assertThat(output.receive(200, OUT)).isNull();
+    }
+
+    @Test
+    @DisplayName("payload nunca contém o PAN")
+    void payload_hasNoPan() {
+        secureService.createOrGet(new CardCreateRequest("4000000000000341", "P", 1, 2099, null, null), null, null);
+        relay.drain();
+
+        String json = new String(output.receive(1000, OUT).getPayload(), StandardCharsets.UTF_8);
+        assertThat(json).doesNotContain("4000000000000341").contains("\"last4\":\"0341\"");
+    }
+
+    @Test
+    @DisplayName("dois nós: só quem tem o lease publica; soltou, o outro assume")
+    void lease_singleRelay() throws Exception {
+        var other = new OutboxRelay(outbox, bridge, tx, shards, leases);     // "segundo nó"
+        ReflectionTestUtils.setField(other, "waitConfirms", false);
+        var a = secureService.createOrGet(new CardCreateRequest("4000000000000358", "L", 1, 2099, null, null), null, null);
+
+        assertThat(other.drain()).isZero();                               // lease com o relay do contexto
+        assertThat(outbox.count()).isEqualTo(1);
+        assertThat(output.receive(200, OUT)).isNull();
+
+        relay.stop();
+        assertThat(other.drain()).isEqualTo(1);
+        assertThat(next().id()).isEqualTo(a.id());
+        assertThat(relay.drain()).isZero();                               // agora o lease é do outro
+
+        other.stop();
+        assertThat(relay.drain()).isZero();                               // retoma (outbox vazio)
+        assertThat(leases.findById(OutboxRelay.LEASE).orElseThrow().getOwner()).isNotNull();
+    }
+
+    private CardCreatedMessage next() throws Exception {
+        var m = output.receive(1000, OUT);
+        assertThat(m).isNotNull();
+        return om.readValue(m.getPayload(), CardCreatedMessage.class);
+    }
+}
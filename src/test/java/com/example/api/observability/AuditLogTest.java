@@ -0,0 +1,55 @@
+package com.example.api.observability;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditLogTest {
+
+    private static AuditLog.Entry entry(int i) {
+        return new AuditLog.Entry(System.currentTimeMillis(), "req-" + i, "GET", "/cards", 200, 1, "127.0.0.1", "curl/8", null, null);
+    }
+
+    @Test
+    @DisplayName("offer: writer drena a fila e conta o que escreveu")
+    void writerDrains() throws Exception {
+        var audit = new AuditLog();
+        audit.start();
+        for (int i = 0; i < 1000; i++) assertThat(audit.offer(entry(i))).isTrue();
+        audit.stop();                                 // esvazia antes de parar
+
+        assertThat(audit.written()).isEqualTo(1000);
+        assertThat(audit.pending()).isZero();
+        assertThat(audit.dropped()).isZero();
+    }
+
+    @Test
+    @DisplayName("offer: fila cheia descarta sem bloquear e conta")
+    void fullQueue_drops() throws Exception {
+        var audit = new AuditLog();
+        ReflectionTestUtils.setField(audit, "capacity", 4);
+        ReflectionTestUtils.setField(audit, "idlePark", java.time.Duration.ofSeconds(30));
+        audit.start();
+        Thread.sleep(50);                             // writer estacionado (fila vazia)
+
+        int accepted = 0;
+        for (int i = 0; i < 10; i++) if (audit.offer(entry(i))) accepted++;
+        audit.stop();
+
+        assertThat(accepted).isEqualTo(4);
+        assertThat(audit.dropped()).isEqualTo(6);
+        assertThat(audit.written()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("kv: aspas só quando necessário")
+    void logfmt_quoting() {
+        var sb = new StringBuilder();
+        AuditLog.kv(sb, "path", "/cards");
+        AuditLog.kv(sb, "userAgent", "Mozilla/5.0 (X11)");
+        AuditLog.kv(sb, "sub", null);
+        assertThat(sb).hasToString(" path=/cards userAgent=\"Mozilla/5.0 (X11)\"");
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.api.observability;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PinningMonitorTest {
+
+    private final Object lock = new Object();
+
+    @Test
+    @DisplayName("virtual thread bloqueando dentro de synchronized -> evento contado e local registrado")
+    void detectsPinning() throws Exception {
+        var registry = new SimpleMeterRegistry();
+        var monitor = new PinningMonitor(registry);
+        ReflectionTestUtils.setField(monitor, "enabled", true);
+        ReflectionTestUtils.setField(monitor, "threshold", Duration.ofMillis(5));
+        monitor.start();
+        try {
+            Thread.ofVirtual().start(this::pinFor50ms).join();
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (monitor.total() == 0 && System.nanoTime() < deadline) Thread.sleep(100); // stream faz flush ~1s
+
+            assertThat(monitor.total()).isPositive();
+            assertThat(monitor.sites().keySet()).anyMatch(s -> s.contains("PinningMonitorTest.pinFor50ms"));
+            assertThat(registry.get("cards.vthread.pinned").counter().count()).isPositive();
+        } finally {
+            monitor.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("desligado -> não abre stream JFR")
+    void disabled() {
+        var monitor = new PinningMonitor(new SimpleMeterRegistry());
+        monitor.start();
+        assertThat(monitor.running()).isFalse();
+    }
+
+    private void pinFor50ms() {
+        synchronized (lock) {
+            try { Thread.sleep(50); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }
+    }
+}
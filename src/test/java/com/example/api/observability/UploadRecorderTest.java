@@ -0,0 +1,78 @@
+package com.example.api.observability;
+
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.*;
+
+class UploadRecorderTest {
+
+    @TempDir Path dir;
+    private UploadRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        recorder = new UploadRecorder();
+        ReflectionTestUtils.setField(recorder, "dumpDir", dir);
+        ReflectionTestUtils.setField(recorder, "lineThreshold", Duration.ZERO);
+        ReflectionTestUtils.setField(recorder, "cryptoThreshold", Duration.ZERO);
+        ReflectionTestUtils.setField(recorder, "executionSamplePeriod", Duration.ofMillis(20));
+        ReflectionTestUtils.setField(recorder, "maxDuration", Duration.ofMinutes(1));
+    }
+
+    @Test
+    @DisplayName("begin: lote não armado -> não grava nada")
+    void begin_notArmed_noop() {
+        try (var scope = recorder.begin("LOTE0001")) {
+            assertThat(recorder.runningLots()).isEmpty();
+        }
+        assertThat(recorder.recentDumps()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("begin/close: lote armado -> grava eventos do upload em disco e desarma")
+    void armedLot_dumpsRecording() throws Exception {
+        recorder.arm("LOTE0001");
+
+        try (var scope = recorder.begin("LOTE0001")) {
+            assertThat(recorder.runningLots()).containsExactly("LOTE0001");
+            var ev = new UploadEvent();
+            ev.begin();
+            ev.lot = "LOTE0001";
+            ev.lines = 3;
+            ev.commit();
+        }
+
+        assertThat(recorder.armedLots()).isEmpty();
+        assertThat(recorder.recentDumps()).hasSize(1);
+        Path file = Path.of(recorder.recentDumps().get(0));
+        assertThat(Files.exists(file)).isTrue();
+        var events = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().equals("cards.Upload"))
+                .toList();
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getString("lot")).isEqualTo("LOTE0001");
+        assertThat(events.get(0).getInt("lines")).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("stop: gravação em andamento -> para e grava na hora")
+    void stop_running_dumpsNow() {
+        recorder.arm("L2");
+        var scope = recorder.begin("L2");
+
+        var file = recorder.stop("L2");
+        scope.close(); // já parada: não grava de novo
+
+        assertThat(file).isPresent();
+        assertThat(recorder.recentDumps()).hasSize(1);
+    }
+}
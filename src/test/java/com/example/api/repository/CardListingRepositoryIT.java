@@ -0,0 +1,121 @@
+package com.example.api.repository;
+
+import com.example.api.CardApiApplication;
+import com.example.api.DTO.CardListItem;
+import com.example.api.repository.CardListingRepository.Filter;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// banco próprio: a massa grande não vaza para os outros testes
+@SpringBootTest(classes = CardApiApplication.class,
+        properties = "spring.datasource.url=jdbc:h2:mem:listing;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CardListingRepositoryIT {
+
+    static final int ROWS = 60_000, LIMIT = 100;
+    static final Pattern SCAN = Pattern.compile("scanCount: (\\d+)");
+
+    @Autowired CardListingRepository listing;
+    @Autowired JdbcTemplate jdbc;
+
+    @BeforeAll
+    void seed() {
+        jdbc.update("delete from card_tokens");
+        var rows = new ArrayList<Object[]>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            String bin = "4" + String.format("%05d", (i * 7919) % 40);      // 40 BINs, ~1500 cartões cada
+            rows.add(new Object[]{CardListingRepository.bytes(UUID.randomUUID()), String.format("tok_%024x", i),
+                    String.format("%064x", i), "x", bin, String.format("%04d", i % 10_000), "VISA", "CREDIT",
+                    1 + i % 12, 2026 + (i / 12) % 10});
+        }
+        jdbc.batchUpdate("insert into card_tokens (id, token, pan_hmac_hex, pan_enc, bin, last4, brand, card_type, "
+                + "expiry_month, expiry_year) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    @Test
+    @DisplayName("keyset por BIN: percorre tudo na ordem (bin, id), sem repetir nem pular")
+    void walk_byBin_isCompleteAndOrdered() {
+        var f = new Filter("4000", null, null);
+        var seen = walk(f, 500);
+        var expected = jdbc.queryForList("select token from card_tokens where bin like '4000%' order by bin, id", String.class);
+        assertThat(seen).extracting(CardListItem::token).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    @DisplayName("keyset por validade: faixa [2027-06, 2029-03] completa, na ordem (ano, mês, id)")
+    void walk_byExpiry_isCompleteAndOrdered() {
+        var f = new Filter(null, YearMonth.of(2027, 6), YearMonth.of(2029, 3));
+        var seen = walk(f, 700);
+        var expected = jdbc.queryForList("select token from card_tokens where expiry_year * 100 + expiry_month between 202706 and 202903 "
+                + "order by expiry_year, expiry_month, id", String.class);
+        assertThat(seen).extracting(CardListItem::token).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    @DisplayName("custo por página constante: a página 500 lê tantas linhas quanto a 1ª (OFFSET leria ~50 mil)")
+    void perPageCost_isConstant() {
+        for (var f : List.of(new Filter("4", null, null), new Filter(null, YearMonth.of(2026, 1), null), new Filter(null, null, null))) {
+            int columns = f.order().columns.length;
+            long first = scanned(CardListingRepository.sql(f, null, LIMIT + 1));
+
+            List<Object> after = null;
+            for (int page = 1; page < 500; page++) {
+                var rows = listing.page(f, after, LIMIT);
+                after = CardListingRepository.keyOf(f.order(), rows.get(rows.size() - 1));
+            }
+            long deep = scanned(CardListingRepository.sql(f, after, LIMIT + 1));
+
+            assertThat(first).as("page 1 %s", f).isLessThanOrEqualTo(LIMIT + 2);
+            assertThat(deep).as("page 500 %s", f).isLessThanOrEqualTo((long) columns * (LIMIT + 2));
+
+            // controle: o mesmo ponto por OFFSET varre tudo o que veio antes
+            long offset = scanned(new CardListingRepository.Sql("select " + CardListingRepository.COLUMNS
+                    + " from card_tokens order by " + String.join(", ", f.order().columns) + " limit 101 offset 49900", List.of()));
+            assertThat(offset).isGreaterThan(40 * deep);
+        }
+    }
+
+    @Test
+    @DisplayName("streamAll: cursor forward-only entrega todas as linhas")
+    void streamAll_readsEveryRow() {
+        try (var rows = listing.streamAll(500)) {
+            assertThat(rows.map(CardListItem::token).distinct().count()).isEqualTo(ROWS);
+        }
+    }
+
+    private List<CardListItem> walk(Filter f, int limit) {
+        var out = new ArrayList<CardListItem>();
+        List<Object> after = null;
+        while (true) {
+            var rows = listing.page(f, after, limit);
+            out.addAll(rows);
+            if (rows.size() < limit) return out;
+            after = CardListingRepository.keyOf(f.order(), rows.get(rows.size() - 1));
+        }
+    }
+
+    /** linhas lidas segundo o plano do H2 (soma dos scanCount de cada acesso à tabela) */
+    private long scanned(CardListingRepository.Sql q) {
+        String plan = jdbc.queryForObject("explain analyze " + q.sql(), String.class, q.args().toArray());
+        var m = SCAN.matcher(plan);
+        long total = 0;
+        while (m.find()) total += Long.parseLong(m.group(1));
+        assertThat(plan).contains("scanCount");
+        return total;
+    }
+}
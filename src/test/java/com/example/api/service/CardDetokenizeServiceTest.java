@@ -0,0 +1,116 @@
+package com.example.api.service;
+
+import com.example.api.config.ShardRouter;
+import com.example.api.repository.CardTokenRepository;
+import com.example.api.service.interfaces.CryptoService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CardDetokenizeServiceTest {
+
+    private final CardTokenRepository repo = mock(CardTokenRepository.class);
+    private final CryptoService crypto = mock(CryptoService.class);
+    private final Queue<byte[]> handedOut = new ConcurrentLinkedQueue<>();
+    private CardDetokenizeService service;
+
+    /** "enc:<pan>" no banco; o mock devolve o PAN e guarda o array para conferir que foi zerado */
+    private void setUp(int chunkSize, int parallelism, Map<String, String> stored) {
+        when(repo.findByTokenIn(anyCollection())).thenAnswer(inv -> {
+            Collection<String> asked = inv.getArgument(0);
+            List<CardTokenRepository.TokenCipher> rows = new ArrayList<>();
+            for (String t : asked) if (stored.containsKey(t)) rows.add(row(t, stored.get(t)));
+            return rows;
+        });
+        when(crypto.decrypt(anyString())).thenAnswer(inv -> {
+            String enc = inv.getArgument(0);
+            if (enc.equals("enc:broken")) throw new IllegalStateException("decrypt_failed: AEADBadTagException");
+            byte[] pan = enc.substring(4).getBytes(StandardCharsets.US_ASCII);
+            handedOut.add(pan);
+            return pan;
+        });
+        service = new CardDetokenizeService(repo, crypto, new CardDirectory(new ShardRouter()));
+        ReflectionTestUtils.setField(service, "chunkSize", chunkSize);
+        ReflectionTestUtils.setField(service, "parallelism", parallelism);
+        service.start();
+    }
+
+    @AfterEach
+    void tearDown() { if (service != null) service.stop(); }
+
+    @Test
+    @DisplayName("NDJSON na ordem pedida; desconhecido -> not_found; falha de decrypt não derruba o resto")
+    void write_ordered_withMissingAndFailed() throws Exception {
+        setUp(1000, 1, Map.of(tok(1), "enc:4456897999999999", tok(3), "enc:broken", tok(4), "enc:5555444433331111"));
+
+        var out = new ByteArrayOutputStream();
+        service.write(service.validate(List.of(tok(1), tok(2), tok(3), tok(4), tok(1))), out);
+
+        assertThat(out.toString(StandardCharsets.US_ASCII).split("\n")).containsExactly(
+                "{\"token\":\"" + tok(1) + "\",\"pan\":\"4456897999999999\"}",
+                "{\"token\":\"" + tok(2) + "\",\"error\":\"not_found\"}",
+                "{\"token\":\"" + tok(3) + "\",\"error\":\"decrypt_failed\"}",
+                "{\"token\":\"" + tok(4) + "\",\"pan\":\"5555444433331111\"}",
+                "{\"token\":\"" + tok(1) + "\",\"pan\":\"4456897999999999\"}");
+    }
+
+    @Test
+    @DisplayName("blocos: um IN por chunk-size tokens; em paralelo o resultado continua na ordem")
+    void write_chunked_andParallel() throws Exception {
+        var stored = new HashMap<String, String>();
+        var tokens = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++) { tokens.add(tok(i)); stored.put(tok(i), "enc:4" + String.format("%015d", i)); }
+        setUp(300, 4, stored);
+
+        var out = new ByteArrayOutputStream();
+        service.write(service.validate(tokens), out);
+
+        verify(repo, times(4)).findByTokenIn(anyCollection());
+        var lines = out.toString(StandardCharsets.US_ASCII).split("\n");
+        assertThat(lines).hasSize(1000);
+        for (int i = 0; i < 1000; i++) assertThat(lines[i]).contains(tok(i)).contains(String.format("\"pan\":\"4%015d\"", i));
+    }
+
+    @Test
+    @DisplayName("todo PAN decifrado é zerado depois de escrito")
+    void write_wipesPlaintext() throws Exception {
+        setUp(2, 1, Map.of(tok(1), "enc:4456897999999999", tok(2), "enc:5555444433331111", tok(3), "enc:4000000000000002"));
+
+        service.write(service.validate(List.of(tok(1), tok(2), tok(3))), new ByteArrayOutputStream());
+
+        assertThat(handedOut).hasSize(3);
+        for (byte[] p : handedOut) assertThat(p).containsOnly((byte) 0);
+    }
+
+    @Test
+    @DisplayName("validate: token mal formado ou lote grande demais -> 400 antes de abrir a resposta")
+    void validate_rejects() {
+        setUp(1000, 1, Map.of());
+        ReflectionTestUtils.setField(service, "maxTokens", 2);
+
+        assertThatThrownBy(() -> service.validate(List.of(tok(1), "tok_\"injected\"")))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("invalid_token (index 1)");
+        assertThatThrownBy(() -> service.validate(List.of(tok(1), tok(2), tok(3))))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("too_many_tokens");
+        verifyNoInteractions(repo, crypto);
+    }
+
+    private static String tok(int i) { return "tok_" + String.format("%024x", i); }
+
+    private static CardTokenRepository.TokenCipher row(String token, String enc) {
+        return new CardTokenRepository.TokenCipher() {
+            @Override public String getToken() { return token; }
+            @Override public String getPanEnc() { return enc; }
+        };
+    }
+}
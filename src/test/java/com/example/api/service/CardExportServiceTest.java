@@ -0,0 +1,93 @@
+package com.example.api.service;
+
+import com.example.api.DTO.CardListItem;
+import com.example.api.repository.CardListingRepository;
+import com.example.api.service.CardExportService.Format;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class CardExportServiceTest {
+
+    static final CardListItem A = new CardListItem("00000000-0000-0000-0000-000000000001", "tok_a", "445689", "9999", "VISA", "CREDIT", 12, 2030);
+    static final CardListItem B = new CardListItem("00000000-0000-0000-0000-000000000002", "tok_b", "555544", "1111", "Acme, \"Gold\"", null, 1, 2027);
+
+    private final CardListingRepository listing = mock(CardListingRepository.class);
+    private final ObjectMapper om = new ObjectMapper();
+    private final AtomicBoolean streamClosed = new AtomicBoolean();
+    private CardExportService service;
+
+    @BeforeEach
+    void setUp() {
+        when(listing.streamAll(anyInt())).thenAnswer(inv -> Stream.of(A, B).onClose(() -> streamClosed.set(true)));
+        service = new CardExportService(listing, om);
+    }
+
+    @Test
+    @DisplayName("CSV: cabeçalho + uma linha por cartão; aspas RFC 4180 só onde precisa; cursor fechado")
+    void csv() throws Exception {
+        var out = new ByteArrayOutputStream();
+        assertThat(service.export(Format.CSV, false, out)).isEqualTo(2);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(CardExportService.CSV_HEADER
+                + "00000000-0000-0000-0000-000000000001,tok_a,445689,9999,VISA,CREDIT,12,2030\n"
+                + "00000000-0000-0000-0000-000000000002,tok_b,555544,1111,\"Acme, \"\"Gold\"\"\",,1,2027\n");
+        assertThat(streamClosed).isTrue();
+    }
+
+    @Test
+    @DisplayName("NDJSON + gzip: um objeto por linha, sem separador extra")
+    void ndjson_gzip() throws Exception {
+        var out = new ByteArrayOutputStream();
+        service.export(Format.NDJSON, true, out);
+
+        String text;
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        var lines = text.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[1]).startsWith("{");
+        Map<?, ?> b = om.readValue(lines[1], Map.class);
+        assertThat(b.get("brand")).isEqualTo("Acme, \"Gold\"");
+        assertThat(b.get("expiryYear")).isEqualTo(2027);
+        assertThat(b).doesNotContainKey("pan");
+    }
+
+    @Test
+    @DisplayName("arquivo: nome com data/formato, gravado inteiro (sem .tmp sobrando)")
+    void toFile(@TempDir Path dir) throws Exception {
+        ReflectionTestUtils.setField(service, "dir", dir);
+
+        Path file = service.exportToFile(Format.CSV, false, LocalDate.of(2025, 1, 31));
+
+        assertThat(file.getFileName().toString()).isEqualTo("cards-2025-01-31.csv");
+        assertThat(Files.readAllLines(file)).hasSize(3);
+        try (var files = Files.list(dir)) { assertThat(files).containsExactly(file); }
+    }
+
+    @Test
+    @DisplayName("formato desconhecido -> 400")
+    void format_invalid() {
+        assertThat(Format.of(" NdJson ")).isEqualTo(Format.NDJSON);
+        assertThatThrownBy(() -> Format.of("xml")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
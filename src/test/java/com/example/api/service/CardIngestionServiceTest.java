@@ -1,17 +1,26 @@
 package com.example.api.service;
 
+import com.example.api.entity.LotIngestion;
+import com.example.api.observability.CardMetrics;
+import com.example.api.observability.UploadRecorder;
 import com.example.api.service.interfaces.CardSecureService;
 import com.example.api.util.FixedLayoutParser;
+import com.example.api.util.LotBusyException;
+import com.example.api.util.PanService;
 import com.example.api.util.UploadResult;
 import com.example.api.web.request.CardCreateRequest;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
@@ -25,9 +34,20 @@ class CardIngestionServiceTest {
 
     @Mock FixedLayoutParser parser;
     @Mock CardSecureService secureService;
+    @Mock PanService pan;
+    @Mock CardMetrics metrics;
+    @Mock UploadRecorder recorder;
+    @Mock LotCheckpoints lots;
 
     @InjectMocks CardIngestionService service;
 
+    @BeforeEach
+    void freshLot() {
+        // por padrão todo lote é novo; os testes de retomada sobrescrevem
+        lenient().when(lots.open(any())).thenAnswer(inv -> state(inv.getArgument(0), 0, 0, LotIngestion.Status.RUNNING));
+        lenient().when(lots.checkpoint(any(), any(), anyInt(), anyInt(), any(), anyInt(), anyInt(), anyInt(), anyBoolean())).thenReturn(true);
+    }
+
     @Test
     void ingestFixed_summarizes_created_duplicate_failed_and_builds_items() {
         // Header/Details reais do parser (records)
@@ -93,6 +113,10 @@ class CardIngestionServiceTest {
         verify(secureService).createOrGet(any(CardCreateRequest.class), eq("LOTE0001000010"), eq(2));
         verify(secureService).createOrGet(any(CardCreateRequest.class), eq("LOTE0001000010"), eq(3));
         verifyNoMoreInteractions(secureService);
+
+        // pré-checagem em estágio próprio; NORMALIZE fica só com o serviço (mockado aqui)
+        verify(metrics, times(3)).stop(eq(CardMetrics.Stage.VALIDATE), anyLong());
+        verify(metrics, never()).stop(eq(CardMetrics.Stage.NORMALIZE), anyLong());
     }
 
     @Test
@@ -129,4 +153,152 @@ class CardIngestionServiceTest {
         assertEquals(id, result.items().get(0).id());
         verify(secureService).createOrGet(any(CardCreateRequest.class), eq("LOTEAAAA0001"), isNull());
     }
-}
\ No newline at end of file
+
+    @Test
+    void ingestFixed_invalid_pan_is_reported_without_calling_service() {
+        var header = new FixedLayoutParser.Header("X", LocalDate.now(), "LOTEBBBB0001", 2);
+        var ok     = new FixedLayoutParser.Detail(2, 1, "4456897999999999");
+        var bad    = new FixedLayoutParser.Detail(3, 2, "4456897999999998");
+        when(parser.parse(any())).thenReturn(new FixedLayoutParser.FixedBatch(header, List.of(ok, bad)));
+        when(pan.digits(anyString())).thenAnswer(inv -> inv.getArgument(0));
+        when(pan.check(anyString())).thenAnswer(inv ->
+                "4456897999999998".equals(inv.getArgument(0)) ? PanService.Reject.LUHN : null);
+
+        var id = UUID.randomUUID().toString();
+        when(secureService.createOrGet(any(CardCreateRequest.class), eq("LOTEBBBB0001"), eq(1)))
+                .thenReturn(new CardSecureService.PersistResult(id, "tok", "9999", false));
+
+        var result = service.ingestFixed(new ByteArrayInputStream(new byte[0]));
+
+        assertEquals(1, result.summary().created());
+        assertEquals(1, result.summary().failed());
+        var it = result.items().get(1);
+        assertEquals(3, it.line());
+        assertEquals("invalid", it.status());
+        assertEquals("invalid_pan_luhn", it.error());
+        verify(secureService).createOrGet(any(CardCreateRequest.class), eq("LOTEBBBB0001"), eq(1));
+        verifyNoMoreInteractions(secureService);
+    }
+
+    @Test
+    void ingestFixed_checkpoints_every_chunk_and_completes() {
+        ReflectionTestUtils.setField(service, "checkpointEvery", 2);
+        var header = new FixedLayoutParser.Header("X", LocalDate.now(), "LOTECCCC0001", 5);
+        var details = List.of(
+                new FixedLayoutParser.Detail(2, 1, "4456897999999999"), new FixedLayoutParser.Detail(3, 2, "4456897999999999"),
+                new FixedLayoutParser.Detail(4, 3, "4456897999999999"), new FixedLayoutParser.Detail(5, 4, "4456897999999999"),
+                new FixedLayoutParser.Detail(6, 5, "4456897999999999"));
+        when(parser.parse(any())).thenReturn(new FixedLayoutParser.FixedBatch(header, details));
+        when(secureService.createOrGet(any(CardCreateRequest.class), eq("LOTECCCC0001"), any()))
+                .thenReturn(new CardSecureService.PersistResult("id", "tok", "9999", false));
+
+        service.ingestFixed(new ByteArrayInputStream(new byte[0]));
+
+        var order = inOrder(lots);
+        order.verify(lots).checkpoint("LOTECCCC0001", "me", 2, 3, 2, 2, 0, 0, false);
+        order.verify(lots).checkpoint("LOTECCCC0001", "me", 4, 5, 4, 2, 0, 0, false);
+        order.verify(lots).checkpoint("LOTECCCC0001", "me", 5, 6, 5, 1, 0, 0, true);
+    }
+
+    @Test
+    void ingestFixed_resumes_after_checkpoint_and_merges_summary() {
+        var header = new FixedLayoutParser.Header("X", LocalDate.now(), "LOTEDDDD0001", 3);
+        var d1 = new FixedLayoutParser.Detail(2, 1, "4456897999999999");
+        var d2 = new FixedLayoutParser.Detail(3, 2, "4456897919999999");
+        var d3 = new FixedLayoutParser.Detail(4, 3, "4456897929999999");
+        when(parser.parse(any())).thenReturn(new FixedLayoutParser.FixedBatch(header, List.of(d1, d2, d3)));
+        var prev = state(header, 2, 3, LotIngestion.Status.RUNNING);
+        prev.setCreated(1); prev.setFailed(1);
+        when(lots.open(any())).thenReturn(prev);
+        when(secureService.createOrGet(any(CardCreateRequest.class), eq("LOTEDDDD0001"), eq(3)))
+                .thenReturn(new CardSecureService.PersistResult("id3", "tok3", "9999", false));
+
+        var result = service.ingestFixed(new ByteArrayInputStream(new byte[0]));
+
+        assertEquals(2, result.summary().created());
+        assertEquals(1, result.summary().failed());
+        assertEquals(2, result.summary().skipped());
+        assertEquals(1, result.items().size());
+        assertEquals(4, result.items().get(0).line());
+        verify(secureService).createOrGet(any(CardCreateRequest.class), eq("LOTEDDDD0001"), eq(3));
+        verifyNoMoreInteractions(secureService);
+        verify(lots).checkpoint("LOTEDDDD0001", "me", 3, 4, 3, 1, 0, 0, true);
+    }
+
+    @Test
+    void ingestFixed_completed_lot_does_no_work() {
+        var header = new FixedLayoutParser.Header("X", LocalDate.now(), "LOTEEEEE0001", 1);
+        when(parser.parse(any())).thenReturn(new FixedLayoutParser.FixedBatch(header,
+                List.of(new FixedLayoutParser.Detail(2, 1, "4456897999999999"))));
+        var done = state(header, 1, 2, LotIngestion.Status.COMPLETED);
+        done.setDuplicates(1);
+        when(lots.open(any())).thenReturn(done);
+
+        var result = service.ingestFixed(new ByteArrayInputStream(new byte[0]));
+
+        assertEquals(1, result.summary().duplicates());
+        assertEquals(1, result.summary().skipped());
+        assertTrue(result.items().isEmpty());
+        verifyNoInteractions(secureService);
+        verify(lots, never()).checkpoint(any(), any(), anyInt(), anyInt(), any(), anyInt(), anyInt(), anyInt(), anyBoolean());
+    }
+
+    @Test
+    void ingestFixed_checkpoint_not_matching_file_is_rejected() {
+        var header = new FixedLayoutParser.Header("X", LocalDate.now(), "LOTEFFFF0001", 2);
+        when(parser.parse(any())).thenReturn(new FixedLayoutParser.FixedBatch(header, List.of(
+                new FixedLayoutParser.Detail(2, 1, "4456897999999999"), new FixedLayoutParser.Detail(3, 2, "4456897919999999"))));
+        when(lots.open(any())).thenReturn(state(header, 1, 9, LotIngestion.Status.RUNNING));
+
+        var ex = assertThrows(IllegalArgumentException.class, () -> service.ingestFixed(new ByteArrayInputStream(new byte[0])));
+        assertEquals("lot_checkpoint_mismatch", ex.getMessage());
+        verifyNoInteractions(secureService);
+    }
+
+    @Test
+    void ingestFixed_database_failure_aborts_instead_of_failing_lines() {
+        var header = new FixedLayoutParser.Header("X", LocalDate.now(), "LOTEGGGG0001", 2);
+        when(parser.parse(any())).thenReturn(new FixedLayoutParser.FixedBatch(header, List.of(
+                new FixedLayoutParser.Detail(2, 1, "4456897999999999"), new FixedLayoutParser.Detail(3, 2, "4456897919999999"))));
+        when(secureService.createOrGet(any(CardCreateRequest.class), eq("LOTEGGGG0001"), eq(1)))
+                .thenThrow(new DataAccessResourceFailureException("db down"));
+
+        assertThrows(DataAccessResourceFailureException.class, () -> service.ingestFixed(new ByteArrayInputStream(new byte[0])));
+        verify(lots).release("LOTEGGGG0001", "me");                     // reenvio não espera o TTL
+        verify(lots, never()).checkpoint(any(), any(), anyInt(), anyInt(), any(), anyInt(), anyInt(), anyInt(), anyBoolean());
+    }
+
+    @Test
+    void ingestFixed_lost_lease_stops_with_conflict() {
+        ReflectionTestUtils.setField(service, "checkpointEvery", 1);
+        var header = new FixedLayoutParser.Header("X", LocalDate.now(), "LOTEHHHH0001", 3);
+        when(parser.parse(any())).thenReturn(new FixedLayoutParser.FixedBatch(header, List.of(
+                new FixedLayoutParser.Detail(2, 1, "4456897999999999"), new FixedLayoutParser.Detail(3, 2, "4456897919999999"),
+                new FixedLayoutParser.Detail(4, 3, "4456897929999999"))));
+        when(secureService.createOrGet(any(CardCreateRequest.class), eq("LOTEHHHH0001"), eq(1)))
+                .thenReturn(new CardSecureService.PersistResult("id", "tok", "9999", false));
+        when(lots.checkpoint(eq("LOTEHHHH0001"), eq("me"), eq(1), anyInt(), any(), anyInt(), anyInt(), anyInt(), eq(false))).thenReturn(false);
+
+        assertThrows(LotBusyException.class, () -> service.ingestFixed(new ByteArrayInputStream(new byte[0])));
+        verify(secureService).createOrGet(any(CardCreateRequest.class), eq("LOTEHHHH0001"), eq(1));
+        verifyNoMoreInteractions(secureService);                      // nada depois de perder o lote
+    }
+
+    @Test
+    void ingestFixed_busy_lot_is_rejected_before_any_work() {
+        var header = new FixedLayoutParser.Header("X", LocalDate.now(), "LOTEIIII0001", 1);
+        when(parser.parse(any())).thenReturn(new FixedLayoutParser.FixedBatch(header,
+                List.of(new FixedLayoutParser.Detail(2, 1, "4456897999999999"))));
+        when(lots.open(any())).thenThrow(new LotBusyException(null, Duration.ofSeconds(5)));
+
+        assertThrows(LotBusyException.class, () -> service.ingestFixed(new ByteArrayInputStream(new byte[0])));
+        verifyNoInteractions(secureService);
+        verify(lots, never()).release(any(), any());
+    }
+
+    private static LotIngestion state(FixedLayoutParser.Header h, int processed, int lastLine, LotIngestion.Status status) {
+        return LotIngestion.builder().lot(h.lot()).name(h.name()).fileDate(h.date()).qty(h.qty())
+                .status(status).processed(processed).lastLine(lastLine).attempts(1)
+                .owner(status == LotIngestion.Status.RUNNING ? "me" : null).build();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.api.service;
+
+import com.example.api.DTO.CardListItem;
+import com.example.api.repository.CardListingRepository;
+import com.example.api.repository.CardListingRepository.Filter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardListingServiceTest {
+
+    @Mock CardListingRepository listing;
+    @InjectMocks CardListingService service;
+
+    @Test
+    @DisplayName("busca limite+1; com sobra devolve o cursor da última linha entregue")
+    void page_hasNext_whenMoreRows() {
+        var rows = rows(3);
+        when(listing.page(any(), isNull(), eq(3))).thenReturn(rows);
+
+        var page = service.page("4456", null, null, 2, null);
+
+        assertThat(page.items()).containsExactly(rows.get(0), rows.get(1));
+        assertThat(page.next()).isNotNull();
+        var after = CardListingService.decode(page.next(), new Filter("4456", null, null));
+        assertThat(after.get(0)).isEqualTo(rows.get(1).bin());
+        assertThat((byte[]) after.get(1)).isEqualTo(CardListingRepository.keyOf(CardListingRepository.Order.BIN, rows.get(1)).get(1));
+    }
+
+    @Test
+    @DisplayName("última página: next null")
+    void page_last_noNext() {
+        when(listing.page(any(), isNull(), eq(11))).thenReturn(rows(4));
+        assertThat(service.page(null, null, null, 10, null).next()).isNull();
+    }
+
+    @Test
+    @DisplayName("cursor de validade ida e volta; o repositório recebe (ano, mês, id)")
+    void cursor_expiry_roundTrip() {
+        var f = CardListingService.filter(null, YearMonth.of(2026, 1), YearMonth.of(2030, 12));
+        var last = rows(1).get(0);
+        var after = CardListingService.decode(CardListingService.encode(f, last), f);
+        assertThat(after.subList(0, 2)).containsExactly(last.expiryYear(), last.expiryMonth());
+    }
+
+    @Test
+    @DisplayName("cursor com outros filtros, adulterado ou lixo -> 400")
+    void cursor_rejected() {
+        var f = new Filter("4456", null, null);
+        String next = CardListingService.encode(f, rows(1).get(0));
+
+        assertThatThrownBy(() -> service.page("5555", null, null, 10, next)).hasMessage("cursor_mismatch");
+        assertThatThrownBy(() -> service.page("4456", null, null, 10, next.substring(0, 10))).hasMessage("invalid_cursor");
+        assertThatThrownBy(() -> service.page("4456", null, null, 10, "%%%")).hasMessage("invalid_cursor");
+        verifyNoInteractions(listing);
+    }
+
+    @Test
+    @DisplayName("filtros e limite inválidos -> 400")
+    void filters_rejected() {
+        assertThatThrownBy(() -> service.page("44a6", null, null, 10, null)).hasMessage("invalid_bin_prefix");
+        assertThatThrownBy(() -> service.page("123456789", null, null, 10, null)).hasMessage("invalid_bin_prefix");
+        assertThatThrownBy(() -> service.page(null, YearMonth.of(2030, 1), YearMonth.of(2029, 1), 10, null)).hasMessage("invalid_expiry_range");
+        assertThatThrownBy(() -> service.page(null, null, null, 0, null)).hasMessageStartingWith("invalid_limit");
+        assertThatThrownBy(() -> service.page(null, null, null, 1001, null)).hasMessageStartingWith("invalid_limit");
+        verifyNoInteractions(listing);
+    }
+
+    private static List<CardListItem> rows(int n) {
+        var out = new ArrayList<CardListItem>();
+        for (int i = 0; i < n; i++)
+            out.add(new CardListItem(UUID.randomUUID().toString(), "tok_" + i, "445689", "999" + i, "VISA", "CREDIT", 1 + i, 2027 + i));
+        return out;
+    }
+}
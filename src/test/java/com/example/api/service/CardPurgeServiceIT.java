@@ -0,0 +1,98 @@
+package com.example.api.service;
+
+import com.example.api.CardApiApplication;
+import com.example.api.repository.CardListingRepository;
+import com.example.api.service.events.CardsPurgedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// banco próprio: o purge apaga a tabela inteira de vencidos
+@SpringBootTest(classes = CardApiApplication.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:purge;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "cards.purge.chunk-size=7",
+        "cards.purge.max-rows-per-sec=0",
+        "cards.purge.grace-months=3"})
+@ActiveProfiles("test")
+@RecordApplicationEvents
+class CardPurgeServiceIT {
+
+    static final int EXPIRED = 40, VALID = 25;
+
+    @Autowired CardPurgeService purge;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired ApplicationEvents events;
+
+    YearMonth before;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("delete from card_tokens");
+        before = YearMonth.now().minusMonths(3);
+        var rows = new ArrayList<Object[]>();
+        for (int i = 0; i < EXPIRED; i++) rows.add(row(i, before.minusMonths(1 + i % 30)));   // inclui o mês logo antes do corte
+        for (int i = 0; i < VALID; i++) rows.add(row(EXPIRED + i, before.plusMonths(i % 8))); // dentro da carência ou em dia
+        jdbc.batchUpdate("insert into card_tokens (id, token, pan_hmac_hex, pan_enc, bin, last4, brand, card_type, "
+                + "expiry_month, expiry_year) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    @Test
+    @DisplayName("dry-run: conta os vencidos em blocos e não apaga nada")
+    void dryRun_countsOnly() {
+        var r = purge.purge(true);
+
+        assertThat(r.matched()).isEqualTo(EXPIRED);
+        assertThat(r.deleted()).isZero();
+        assertThat(r.before()).isEqualTo(before);
+        assertThat(count()).isEqualTo(EXPIRED + VALID);
+        assertThat(events.stream(CardsPurgedEvent.class)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("purge: apaga só o que venceu antes da carência e avisa os caches bloco a bloco")
+    void purge_deletesExpiredOnly() {
+        var r = purge.purge(false);
+
+        assertThat(r.deleted()).isEqualTo(EXPIRED);
+        assertThat(count()).isEqualTo(VALID);
+        assertThat(jdbc.queryForObject("select count(*) from card_tokens where expiry_year * 100 + expiry_month < ?",
+                Integer.class, before.getYear() * 100 + before.getMonthValue())).isZero();
+
+        var published = events.stream(CardsPurgedEvent.class).toList();
+        assertThat(published).hasSize((EXPIRED + 6) / 7);
+        assertThat(published.stream().mapToInt(e -> e.ids().size()).sum()).isEqualTo(EXPIRED);
+        assertThat(published.get(0).tokens()).allMatch(t -> t.startsWith("tok_"));
+    }
+
+    @Test
+    @DisplayName("purge: segunda passada não encontra mais nada")
+    void purge_isIdempotent() {
+        purge.purge(false);
+        var r = purge.purge(false);
+
+        assertThat(r.matched()).isZero();
+        assertThat(count()).isEqualTo(VALID);
+    }
+
+    private int count() {
+        return jdbc.queryForObject("select count(*) from card_tokens", Integer.class);
+    }
+
+    private static Object[] row(int i, YearMonth exp) {
+        return new Object[]{CardListingRepository.bytes(UUID.randomUUID()), String.format("tok_%024x", i),
+                String.format("%064x", i), "x", "400000", String.format("%04d", i), "VISA", "CREDIT",
+                exp.getMonthValue(), exp.getYear()};
+    }
+}
@@ -1,19 +1,40 @@
 package com.example.api.service;
 
+import com.example.api.DTO.CardRef;
+import com.example.api.config.ReadRouting;
+import com.example.api.config.ShardRouter;
 import com.example.api.entity.CardToken;
+import com.example.api.observability.CardMetrics;
+import com.example.api.observability.UploadRecorder;
 import com.example.api.repository.CardTokenRepository;
+import com.example.api.service.events.CardCreatedEvent;
 import com.example.api.service.interfaces.CryptoService;
+import com.example.api.service.interfaces.HmacIndex;
+import com.example.api.util.BinTable;
 import com.example.api.util.PanService;
 import com.example.api.util.TokenGenerator;
+import com.example.api.util.ValidationException;
 import com.example.api.web.request.CardCreateRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -24,6 +45,9 @@ class CardSecureServiceImplTest {
     private CryptoService crypto;
     private PanService pan;
     private TokenGenerator tokens;
+    private BinTable bins;
+    private ApplicationEventPublisher events;
+    private HmacIndex index;
 
     private CardSecureServiceImpl service;
 
@@ -33,7 +57,11 @@ class CardSecureServiceImplTest {
         crypto = mock(CryptoService.class);
         pan = mock(PanService.class);
         tokens = mock(TokenGenerator.class);
-        service = new CardSecureServiceImpl(repo, crypto, pan, tokens);
+        bins = new BinTable(new DefaultResourceLoader()); // vazia: bandeira fica a informada
+        events = mock(ApplicationEventPublisher.class);
+        index = mock(HmacIndex.class);
+        var router = new ShardRouter();
+        service = new CardSecureServiceImpl(repo, crypto, pan, tokens, bins, mock(CardMetrics.class), mock(UploadRecorder.class), events, index, new ReadRouting(), router, new CardDirectory(router));
     }
 
     @Test
@@ -76,6 +104,30 @@ class CardSecureServiceImplTest {
 
         verify(repo, times(1)).findByPanHmacHex(hmac);
         verify(crypto).encryptUtf8(norm);
+        verify(events).publishEvent(new CardCreatedEvent(id.toString(), tok, "9999", "445689", "VISA", 12, 2099)); // outbox
+    }
+
+    @Test
+    @DisplayName("createOrGet: novo cartão -> bandeira/tipo vêm da tabela BIN")
+    void createOrGet_new_enrichesFromBinTable() throws Exception {
+        bins.load(new ByteArrayInputStream("506699,506778,ELO,DEBIT\n".getBytes(StandardCharsets.UTF_8)));
+        var req = new CardCreateRequest("5067001234567890", "UNKNOWN", 12, 2099, null, null);
+        var norm = "5067001234567890";
+
+        when(pan.normalize(req.cardNumber())).thenReturn(norm);
+        when(crypto.macHex(norm)).thenReturn("H");
+        when(repo.findByPanHmacHex("H")).thenReturn(Optional.empty());
+        when(tokens.newId()).thenReturn(UUID.randomUUID());
+        when(tokens.newToken()).thenReturn("tok");
+        when(pan.last4(norm)).thenReturn("7890");
+        when(repo.saveAndFlush(any(CardToken.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        service.createOrGet(req, null, null);
+
+        var captor = ArgumentCaptor.forClass(CardToken.class);
+        verify(repo).saveAndFlush(captor.capture());
+        assertThat(captor.getValue().getBrand()).isEqualTo("ELO");
+        assertThat(captor.getValue().getCardType()).isEqualTo("DEBIT");
     }
 
     @Test
@@ -104,6 +156,7 @@ class CardSecureServiceImplTest {
 
         verify(repo, never()).saveAndFlush(any());
         verify(crypto, never()).encryptUtf8(any());
+        verifyNoInteractions(events);
     }
 
     @Test
@@ -186,4 +239,206 @@ class CardSecureServiceImplTest {
 
         verifyNoInteractions(repo);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("createOrGet: chamadas concorrentes com o mesmo PAN -> uma só faz cripto/DB, a outra reaproveita sem abrir transação")
+    void createOrGet_concurrentSamePan_coalesces() throws Exception {
+        var txManager = mock(PlatformTransactionManager.class);
+        when(txManager.getTransaction(any())).thenAnswer(inv -> new SimpleTransactionStatus());
+        var router = new ShardRouter("", null, txManager);
+        service = new CardSecureServiceImpl(repo, crypto, pan, tokens, bins, mock(CardMetrics.class), mock(UploadRecorder.class), events, index, new ReadRouting(), router, new CardDirectory(router));
+        var req = new CardCreateRequest("4111111111111111", "X", 1, 2099, null, null);
+        var norm = "4111111111111111";
+        var id = UUID.randomUUID();
+        var leaderInside = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        when(pan.normalize(req.cardNumber())).thenReturn(norm);
+        when(crypto.macHex(norm)).thenReturn("HSF");
+        when(repo.findByPanHmacHex("HSF")).thenAnswer(inv -> {
+            leaderInside.countDown();
+            assertThat(release.await(5, TimeUnit.SECONDS)).isTrue();
+            return Optional.empty();
+        });
+        when(tokens.newId()).thenReturn(id);
+        when(tokens.newToken()).thenReturn("tok_sf");
+        when(crypto.encryptUtf8(norm)).thenReturn("ENC");
+        when(pan.last4(norm)).thenReturn("1111");
+        when(repo.saveAndFlush(any(CardToken.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        var pool = Executors.newFixedThreadPool(2);
+        try {
+            var first = pool.submit(() -> service.createOrGet(req, null, null));
+            assertThat(leaderInside.await(5, TimeUnit.SECONDS)).isTrue();
+            var second = pool.submit(() -> service.createOrGet(req, null, null));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (service.coalescedCalls() == 0 && System.nanoTime() < deadline) Thread.onSpinWait();
+            release.countDown();
+
+            var r1 = first.get(5, TimeUnit.SECONDS);
+            var r2 = second.get(5, TimeUnit.SECONDS);
+            assertThat(r1.duplicate()).isFalse();
+            assertThat(r2.duplicate()).isTrue();
+            assertThat(r2.id()).isEqualTo(r1.id()).isEqualTo(id.toString());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        verify(repo, times(1)).findByPanHmacHex("HSF");
+        verify(crypto, times(1)).encryptUtf8(norm);
+        verify(repo, times(1)).saveAndFlush(any());
+        verify(txManager, times(1)).getTransaction(any());           // o seguidor esperou fora de transação
+        assertThat(service.coalescedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("createOrGetBatch: uma consulta IN, um persistAll; repetido no lote e inválido resolvidos por item")
+    void createOrGetBatch_mixed() {
+        var a = new CardCreateRequest("4111111111111111", "X", 1, 2099, null, null);
+        var b = new CardCreateRequest("5555555555554444", "X", 1, 2099, null, null);
+        var bad = new CardCreateRequest("12", "X", 1, 2099, null, null);
+        var existing = CardToken.builder().id(UUID.randomUUID()).token("tok_b").last4("4444").panHmacHex("HB").build();
+        var newId = UUID.randomUUID();
+
+        when(pan.normalize(a.cardNumber())).thenReturn(a.cardNumber());
+        when(pan.normalize(b.cardNumber())).thenReturn(b.cardNumber());
+        when(pan.normalize("12")).thenThrow(new ValidationException("invalid_pan_length"));
+        when(crypto.macHex(a.cardNumber())).thenReturn("HA");
+        when(crypto.macHex(b.cardNumber())).thenReturn("HB");
+        when(repo.findByPanHmacHexIn(any())).thenReturn(List.of(existing));
+        when(tokens.newId()).thenReturn(newId);
+        when(tokens.newToken()).thenReturn("tok_a");
+        when(pan.last4(a.cardNumber())).thenReturn("1111");
+
+        var out = service.createOrGetBatch(List.of(a, b, bad, a));
+
+        assertThat(out).hasSize(4);
+        assertThat(out.get(0).result().duplicate()).isFalse();
+        assertThat(out.get(0).result().id()).isEqualTo(newId.toString());
+        assertThat(out.get(1).result().token()).isEqualTo("tok_b");
+        assertThat(out.get(1).result().duplicate()).isTrue();
+        assertThat(out.get(2).error()).isEqualTo("invalid_pan_length");
+        assertThat(out.get(3).result().id()).isEqualTo(newId.toString());
+        assertThat(out.get(3).result().duplicate()).isTrue();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<CardToken>> saved = ArgumentCaptor.forClass(List.class);
+        verify(repo).persistAll(saved.capture());
+        assertThat(saved.getValue()).extracting(CardToken::getPanHmacHex).containsExactly("HA");
+        verify(repo, times(1)).findByPanHmacHexIn(any());
+        verify(repo, never()).saveAndFlush(any());
+        verify(crypto, times(1)).encryptUtf8(any());
+    }
+
+    @Test
+    @DisplayName("createOrGetBatch: PAN em criação por outra chamada -> o lote espera o líder e não grava de novo")
+    void createOrGetBatch_waitsForInFlightCreate() throws Exception {
+        var a = new CardCreateRequest("4111111111111111", "X", 1, 2099, null, null);
+        var b = new CardCreateRequest("5555555555554444", "X", 1, 2099, null, null);
+        var leaderInside = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var idA = UUID.randomUUID();
+
+        var batchThread = new AtomicReference<Thread>();
+        when(pan.normalize(a.cardNumber())).thenReturn(a.cardNumber());
+        when(pan.normalize(b.cardNumber())).thenAnswer(inv -> { batchThread.set(Thread.currentThread()); return b.cardNumber(); });
+        when(crypto.macHex(a.cardNumber())).thenReturn("HA");
+        when(crypto.macHex(b.cardNumber())).thenReturn("HB");
+        when(repo.findByPanHmacHex("HA")).thenAnswer(inv -> {
+            leaderInside.countDown();
+            assertThat(release.await(5, TimeUnit.SECONDS)).isTrue();
+            return Optional.empty();
+        });
+        when(repo.saveAndFlush(any(CardToken.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(tokens.newId()).thenReturn(idA, UUID.randomUUID());
+        when(tokens.newToken()).thenReturn("tok_a", "tok_b");
+
+        var pool = Executors.newFixedThreadPool(2);
+        try {
+            var single = pool.submit(() -> service.createOrGet(a, null, null));
+            assertThat(leaderInside.await(5, TimeUnit.SECONDS)).isTrue();
+            var batch = pool.submit(() -> service.createOrGetBatch(List.of(a, b)));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);   // o lote chega e fica esperando o líder
+            while ((batchThread.get() == null || batchThread.get().getState() != Thread.State.TIMED_WAITING)
+                    && System.nanoTime() < deadline) Thread.onSpinWait();
+            release.countDown();
+
+            assertThat(single.get(5, TimeUnit.SECONDS).duplicate()).isFalse();
+            var out = batch.get(5, TimeUnit.SECONDS);
+            assertThat(out.get(0).result().id()).isEqualTo(idA.toString());
+            assertThat(out.get(0).result().duplicate()).isTrue();
+            assertThat(out.get(1).result().duplicate()).isFalse();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> looked = ArgumentCaptor.forClass(Collection.class);
+        verify(repo).findByPanHmacHexIn(looked.capture());
+        assertThat(looked.getValue()).containsExactly("HB");
+        assertThat(service.coalescedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("createOrGet: PAN que um lote está gravando -> espera o commit do lote e devolve o mesmo cartão")
+    void createOrGet_joinsBatchInFlight() throws Exception {
+        var a = new CardCreateRequest("4111111111111111", "X", 1, 2099, null, null);
+        var batchInside = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var id = UUID.randomUUID();
+
+        when(pan.normalize(a.cardNumber())).thenReturn(a.cardNumber());
+        when(crypto.macHex(a.cardNumber())).thenReturn("HA");
+        when(repo.findByPanHmacHexIn(any())).thenAnswer(inv -> {
+            batchInside.countDown();
+            assertThat(release.await(5, TimeUnit.SECONDS)).isTrue();
+            return List.of();
+        });
+        when(tokens.newId()).thenReturn(id);
+        when(tokens.newToken()).thenReturn("tok_a");
+
+        var pool = Executors.newFixedThreadPool(2);
+        try {
+            var batch = pool.submit(() -> service.createOrGetBatch(List.of(a)));
+            assertThat(batchInside.await(5, TimeUnit.SECONDS)).isTrue();
+            var single = pool.submit(() -> service.createOrGet(a, null, null));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (service.coalescedCalls() == 0 && System.nanoTime() < deadline) Thread.onSpinWait();
+            release.countDown();
+
+            assertThat(batch.get(5, TimeUnit.SECONDS).get(0).result().duplicate()).isFalse();
+            var r = single.get(5, TimeUnit.SECONDS);
+            assertThat(r.id()).isEqualTo(id.toString());
+            assertThat(r.duplicate()).isTrue();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        verify(repo, never()).findByPanHmacHex(any());
+        verify(repo, never()).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("findByPan: acerto no índice local -> responde sem consultar o banco")
+    void findByPan_indexHit_skipsDb() {
+        when(pan.normalize("4111")).thenReturn("4111111111111111");
+        when(crypto.macHex("4111111111111111")).thenReturn("H");
+        when(index.find("H")).thenReturn(Optional.of(new CardRef("id-1", "tok_1", "1111")));
+
+        assertThat(service.findByPan("4111")).contains(new CardRef("id-1", "tok_1", "1111"));
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    @DisplayName("findByPan: erro no índice -> consulta o banco e alimenta o índice")
+    void findByPan_indexMiss_readsThrough() {
+        var e = CardToken.builder().id(UUID.randomUUID()).token("tok_2").panHmacHex("H").last4("2222")
+                .expiryMonth(1).expiryYear(2099).build();
+        when(pan.normalize("4111")).thenReturn("4111111111111111");
+        when(crypto.macHex("4111111111111111")).thenReturn("H");
+        when(repo.findByPanHmacHex("H")).thenReturn(Optional.of(e));
+
+        assertThat(service.findByPan("4111")).contains(new CardRef(e.getId().toString(), "tok_2", "2222"));
+        verify(index).put(e);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.api.service;
+
+import com.example.api.CardApiApplication;
+import com.example.api.DTO.CardListItem;
+import com.example.api.repository.CardListingRepository;
+import com.example.api.service.events.CardsPurgedEvent;
+import com.example.api.service.interfaces.CardSecureService;
+import com.example.api.web.request.CardCreateRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// banco próprio: as contagens dependem de a tabela começar vazia
+@SpringBootTest(classes = CardApiApplication.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:stats;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "cards.stats.flush-interval=1h"})
+@ActiveProfiles("test")
+class CardStatsServiceIT {
+
+    @Autowired CardStatsService stats;
+    @Autowired CardSecureService secureService;
+    @Autowired JdbcTemplate jdbc;
+
+    @BeforeEach
+    void clean() {
+        jdbc.update("delete from card_outbox");
+        jdbc.update("delete from card_tokens");
+        stats.rebuild();                                   // zera tabela e pendentes
+    }
+
+    @Test
+    @DisplayName("criação: conta por BIN/validade depois do commit; duplicata não conta; flush grava na tabela")
+    void create_countsOnceAndFlushes() {
+        create("4000000000000309", 1, 2030);
+        create("4000000000000317", 1, 2030);
+        create("5100000000000008", 7, 2031);
+        create("4000000000000309", 1, 2030);               // duplicado
+
+        var before = stats.snapshot();                     // pendente em memória já aparece
+        assertThat(before.total()).isEqualTo(3);
+        assertThat(before.expiry()).containsEntry("2030-01", 2L).containsEntry("2031-07", 1L);
+        assertThat(before.bins().values().stream().mapToLong(Long::longValue).sum()).isEqualTo(3);
+
+        assertThat(stats.flush()).isPositive();
+        assertThat(stats.flush()).isZero();                // nada novo
+        assertThat(jdbc.queryForObject("select cards from card_stats where bucket = 'expiry:2030-01'", Long.class)).isEqualTo(2);
+        assertThat(stats.snapshot()).usingRecursiveComparison().ignoringFields("flushedAt").isEqualTo(before);
+    }
+
+    @Test
+    @DisplayName("purge: bloco inteiro apagado desconta; bloco parcial não mexe (fica para o rebuild)")
+    void purge_decrements() {
+        var a = create("4000000000000309", 1, 2030);
+        create("4000000000000317", 1, 2030);
+        stats.flush();
+        var item = jdbc.queryForObject("select bin, brand from card_tokens where id = ?",
+                (rs, i) -> new CardListItem(a.id(), a.token(), rs.getString(1), a.last4(), rs.getString(2), null, 1, 2030),
+                CardListingRepository.bytes(UUID.fromString(a.id())));
+
+        stats.on(new CardsPurgedEvent(List.of(item, item), 1));   // parcial
+        assertThat(stats.snapshot().total()).isEqualTo(2);
+
+        stats.on(new CardsPurgedEvent(List.of(item), 1));
+        assertThat(stats.snapshot().expiry()).containsEntry("2030-01", 1L);
+        stats.flush();
+        assertThat(stats.snapshot().total()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("rebuild: corrige deriva recalculando de card_tokens")
+    void rebuild_repairsDrift() {
+        create("4000000000000309", 1, 2030);
+        create("5100000000000008", 7, 2031);
+        stats.flush();
+        jdbc.update("update card_stats set cards = cards + 40 where bucket like 'expiry:%'");
+        jdbc.update("insert into card_stats (bucket, cards) values ('bin:999999', 5)");
+
+        var fixed = stats.rebuild();
+
+        assertThat(fixed.total()).isEqualTo(2);
+        assertThat(fixed.expiry()).containsExactly(Map.entry("2030-01", 1L), Map.entry("2031-07", 1L));
+        assertThat(fixed.bins()).doesNotContainKey("999999");
+    }
+
+    @Test
+    @DisplayName("chaves de balde: bandeira normalizada, mês com dois dígitos")
+    void bucketKeys() {
+        assertThat(CardStatsService.brandKey(null)).isEqualTo("brand:UNKNOWN");
+        assertThat(CardStatsService.brandKey(" visa ")).isEqualTo("brand:VISA");
+        assertThat(CardStatsService.expiryKey(2027, 5)).isEqualTo("expiry:2027-05");
+        assertThat(CardStatsService.expiryKey(2027, 11)).isEqualTo("expiry:2027-11");
+    }
+
+    @Test
+    @DisplayName("POST /actuator/cardstats: rebuild só com o escopo card:admin; leitura segue para qualquer autenticado")
+    void rebuildEndpoint_requiresAdminScope() throws Exception {
+        create("4000000000000309", 1, 2030);
+
+        mvc.perform(post("/actuator/cardstats").contentType(MediaType.APPLICATION_JSON).with(jwt())).andExpect(status().isForbidden());
+        mvc.perform(get("/actuator/cardstats").with(jwt())).andExpect(status().isOk());
+        mvc.perform(post("/actuator/cardstats").contentType(MediaType.APPLICATION_JSON).with(jwt().authorities(new SimpleGrantedAuthority("SCOPE_card:admin"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(1));
+    }
+
+    private CardSecureService.PersistResult create(String pan, int month, int year) {
+        return secureService.createOrGet(new CardCreateRequest(pan, "VISA", month, year, null, null), null, null);
+    }
+}
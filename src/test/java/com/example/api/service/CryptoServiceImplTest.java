@@ -53,6 +53,27 @@ class CryptoServiceImplTest {
         assertThat(out).isEqualTo(plain);
     }
 
+    @Test
+    @DisplayName("AES-GCM: decrypt abre o que encryptUtf8 gerou (Cipher reaproveitado entre chamadas)")
+    void decrypt_roundTrip_ok() {
+        for (String plain : new String[]{"4456897999999999", "5555444433331111", "4000000000000002"}) {
+            assertThat(new String(service.decrypt(service.encryptUtf8(plain)), StandardCharsets.UTF_8)).isEqualTo(plain);
+        }
+    }
+
+    @Test
+    @DisplayName("AES-GCM: ciphertext adulterado -> decrypt_failed (tag não confere)")
+    void decrypt_tampered_fails() {
+        byte[] packed = Base64.getDecoder().decode(service.encryptUtf8("4456897999999999"));
+        packed[packed.length - 1] ^= 1;
+        String bad = Base64.getEncoder().encodeToString(packed);
+
+        assertThatThrownBy(() -> service.decrypt(bad))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("decrypt_failed");
+        assertThat(new String(service.decrypt(service.encryptUtf8("ok")), StandardCharsets.UTF_8)).isEqualTo("ok");
+    }
+
     @Test
     @DisplayName("AES-GCM: mesmo texto duas vezes => IV aleatório => ciphertexts diferentes")
     void encrypt_randomIv_changesCiphertext() {
@@ -0,0 +1,109 @@
+package com.example.api.service;
+
+import com.example.api.CardApiApplication;
+import com.example.api.entity.LotIngestion;
+import com.example.api.util.FixedLayoutParser;
+import com.example.api.util.LotBusyException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.*;
+
+// dois "nós" (dois contextos da aplicação) disputando o mesmo lote num H2 compartilhado
+class LotLeaseIT {
+
+    static final String DB = "jdbc:h2:mem:lots;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+
+    static ConfigurableApplicationContext nodeA, nodeB;
+    static LotCheckpoints a, b;
+
+    @BeforeAll
+    static void start() {
+        nodeA = node("300ms");
+        nodeB = node("30s");
+        a = nodeA.getBean(LotCheckpoints.class);
+        b = nodeB.getBean(LotCheckpoints.class);
+    }
+
+    @AfterAll
+    static void stop() {
+        if (nodeB != null) nodeB.close();
+        if (nodeA != null) nodeA.close();
+    }
+
+    @Test
+    @DisplayName("segundo nó recebe 409 enquanto o lease vale; depois do TTL sem heartbeat ele assume")
+    void lease_isExclusive_andStolenAfterExpiry() throws Exception {
+        var h = header("LEASE001", 10);
+
+        var mine = a.open(h);
+        assertThat(mine.getOwner()).isNotNull();
+        assertThat(a.checkpoint(h.lot(), mine.getOwner(), 4, 5, 4, 4, 0, 0, false)).isTrue();
+
+        assertThatThrownBy(() -> b.open(h))
+                .isInstanceOfSatisfying(LotBusyException.class, e -> {
+                    assertThat(e.progress().processed()).isEqualTo(4);
+                    assertThat(e.progress().active()).isTrue();
+                });
+
+        Thread.sleep(400);                                       // lease de A (300ms) vence sem heartbeat
+
+        var taken = b.open(h);
+        assertThat(taken.getOwner()).isNotEqualTo(mine.getOwner());
+        assertThat(taken.getProcessed()).isEqualTo(4);           // B retoma do checkpoint de A
+        assertThat(taken.getAttempts()).isEqualTo(2);
+
+        // A volta do "GC pause": o checkpoint dele não vale mais
+        assertThat(a.checkpoint(h.lot(), mine.getOwner(), 6, 7, 6, 2, 0, 0, false)).isFalse();
+        assertThat(b.checkpoint(h.lot(), taken.getOwner(), 10, 11, 10, 6, 0, 0, true)).isTrue();
+
+        var done = a.find(h.lot()).orElseThrow();
+        assertThat(done.getStatus()).isEqualTo(LotIngestion.Status.COMPLETED);
+        assertThat(done.getCreated()).isEqualTo(10);
+        assertThat(done.getOwner()).isNull();
+        assertThat(a.open(h).getOwner()).isNull();               // concluído: reenvio não disputa lease
+    }
+
+    @Test
+    @DisplayName("release: falha do dono libera o lote na hora para o outro nó")
+    void release_letsOtherNodeIn() {
+        var h = header("LEASE002", 3);
+        var mine = b.open(h);
+        assertThatThrownBy(() -> a.open(h)).isInstanceOf(LotBusyException.class);
+
+        b.release(h.lot(), mine.getOwner());
+
+        assertThat(a.open(h).getOwner()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("mesmo nó, dois uploads do mesmo lote: também exclusivos")
+    void sameNode_isExclusive() {
+        var h = header("LEASE003", 3);
+        b.open(h);
+        assertThatThrownBy(() -> b.open(h)).isInstanceOf(LotBusyException.class);
+    }
+
+    private static FixedLayoutParser.Header header(String lot, int qty) {
+        return new FixedLayoutParser.Header("DESAFIO", LocalDate.of(2018, 5, 24), lot, qty);
+    }
+
+    private static ConfigurableApplicationContext node(String leaseTtl) {
+        return new SpringApplicationBuilder(CardApiApplication.class, TestChannelBinderConfiguration.class)
+                .profiles("test")
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=" + DB,
+                        "spring.jpa.hibernate.ddl-auto=update",     // o 2º nó não pode derrubar o schema do 1º
+                        "cards.upload.lease-ttl=" + leaseTtl,
+                        "cards.outbox.linger=1h")
+                .run();
+    }
+}
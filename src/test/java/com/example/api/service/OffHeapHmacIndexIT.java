@@ -0,0 +1,136 @@
+package com.example.api.service;
+
+import com.example.api.CardApiApplication;
+import com.example.api.entity.CardToken;
+import com.example.api.repository.CardListingRepository;
+import com.example.api.service.events.CardsPurgedEvent;
+import com.example.api.service.interfaces.CardSecureService;
+import com.example.api.service.interfaces.CryptoService;
+import com.example.api.util.HmacTable;
+import com.example.api.web.request.CardCreateRequest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// banco e arquivo próprios: o índice reflete a tabela inteira
+@SpringBootTest(classes = CardApiApplication.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:hmacindex;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "cards.index.enabled=true",
+        "cards.index.max-entries=1000"})
+@ActiveProfiles("test")
+class OffHeapHmacIndexIT {
+
+    static final Path DIR = tempDir();
+
+    @DynamicPropertySource
+    static void file(DynamicPropertyRegistry r) { r.add("cards.index.file", () -> DIR.resolve("hmac.idx").toString()); }
+
+    @AfterAll
+    static void cleanup() throws IOException {
+        try (var files = Files.list(DIR)) { for (var f : files.toList()) Files.deleteIfExists(f); }
+        Files.deleteIfExists(DIR);
+    }
+
+    @Autowired OffHeapHmacIndex index;
+    @Autowired CardSecureService secureService;
+    @Autowired CryptoService crypto;
+    @Autowired JdbcTemplate jdbc;
+
+    @Test
+    @DisplayName("criação: entra no índice depois do commit; lookup responde dele")
+    void created_isIndexed() throws Exception {
+        awaitReady();
+        var r = secureService.createOrGet(new CardCreateRequest("4000000000000309", "VISA", 1, 2099, null, null), null, null);
+
+        assertThat(index.find(crypto.macHex("4000000000000309")))
+                .hasValueSatisfying(c -> assertThat(c.token()).isEqualTo(r.token()));
+        assertThat(secureService.findByPan("4000000000000309")).hasValueSatisfying(c -> assertThat(c.id()).isEqualTo(r.id()));
+    }
+
+    @Test
+    @DisplayName("rebuild: lê card_tokens, deixa de fora o que o purge já pode ter apagado, e reabre do arquivo")
+    void rebuild_fromTable_andReopen() throws Exception {
+        awaitReady();                                         // a reconstrução do start não pode correr junto
+        String valid = hmac(1), expired = hmac(2);
+        insert(valid, YearMonth.now().plusYears(2));
+        insert(expired, YearMonth.now().minusYears(2));
+
+        index.rebuild();
+
+        assertThat(index.find(valid)).isPresent();
+        assertThat(index.find(expired)).isEmpty();
+
+        index.close();
+        var reopened = HmacTable.open(DIR.resolve("hmac.idx"), HexFormat.fromHexDigitsToLong(crypto.macHex("cards.index.key-check"), 0, 16));
+        assertThat(reopened).isNotNull();
+        assertThat(reopened.get(valid)).isNotNull();
+        reopened.close();
+        index.start();                                        // volta a servir (reabre o arquivo)
+        assertThat(index.find(valid)).isPresent();
+    }
+
+    @Test
+    @DisplayName("purge: cartão na janela do purge não entra; o evento varre do índice o que entrou na janela")
+    void purgeWindow_notIndexed_andSweptOnPurge() throws Exception {
+        awaitReady();
+        String soon = hmac(3), expired = hmac(4);
+        index.put(card(soon, YearMonth.now().plusMonths(1)));
+        index.put(card(expired, YearMonth.now().minusYears(2)));
+        assertThat(table().get(soon)).isNotNull();
+        assertThat(table().get(expired)).isNull();
+
+        ReflectionTestUtils.setField(index, "graceMonths", -1);        // a janela passa a cobrir o próximo mês
+        try {
+            index.on(new CardsPurgedEvent(List.of(), 0));
+            assertThat(table().get(soon)).isNull();
+        } finally {
+            ReflectionTestUtils.setField(index, "graceMonths", 3);
+        }
+    }
+
+    private void awaitReady() throws InterruptedException {
+        for (int i = 0; i < 500 && !index.ready(); i++) Thread.sleep(10);
+        assertThat(index.ready()).isTrue();
+    }
+
+    private void insert(String hmac, YearMonth exp) {
+        jdbc.update("insert into card_tokens (id, token, pan_hmac_hex, pan_enc, bin, last4, brand, card_type, expiry_month, expiry_year) "
+                        + "values (?, ?, ?, 'x', '400000', '0001', 'VISA', 'CREDIT', ?, ?)",
+                CardListingRepository.bytes(UUID.randomUUID()), "tok_" + hmac.substring(40), hmac, exp.getMonthValue(), exp.getYear());
+    }
+
+    private HmacTable table() {
+        return (HmacTable) ReflectionTestUtils.getField(index, "table");
+    }
+
+    private static CardToken card(String hmac, YearMonth exp) {
+        return CardToken.builder().id(UUID.randomUUID()).token("tok_" + hmac.substring(40)).panHmacHex(hmac).last4("0001")
+                .expiryMonth(exp.getMonthValue()).expiryYear(exp.getYear()).build();
+    }
+
+    private static String hmac(int n) {
+        return String.format("%064x", n).replace('0', 'c');
+    }
+
+    private static Path tempDir() {
+        try { return Files.createTempDirectory("hmac-index"); }
+        catch (IOException e) { throw new IllegalStateException(e); }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.api.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.*;
+
+class BinTableTest {
+
+    private BinTable table;
+
+    @BeforeEach
+    void setUp() {
+        table = new BinTable(new DefaultResourceLoader());
+    }
+
+    private void load(String csv) throws IOException {
+        table.load(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    @DisplayName("lookup: faixa de 6 dígitos cobre todos os BINs de 8 com o mesmo prefixo")
+    void lookup_sixDigitRange() throws Exception {
+        load("""
+                # comentário
+                start,end,brand,type
+                400000,499999,VISA,CREDIT
+                """);
+
+        assertThat(table.lookup("4111111111111111")).isEqualTo(new BinTable.BinInfo("VISA", "CREDIT"));
+        assertThat(table.lookup("4999999999999999").brand()).isEqualTo("VISA");
+        assertThat(table.lookup("5111111111111111")).isSameAs(BinTable.UNKNOWN);
+    }
+
+    @Test
+    @DisplayName("lookup: sobreposição -> vence a faixa mais estreita (6 e 8 dígitos)")
+    void lookup_overlapping_mostSpecificWins() throws Exception {
+        load("""
+                400000,499999,VISA,
+                438935,,ELO,
+                43893512,43893599,ELO,PREPAID
+                """);
+
+        assertThat(table.lookup("4389351234567890")).isEqualTo(new BinTable.BinInfo("ELO", "PREPAID"));
+        assertThat(table.lookup("4389350034567890")).isEqualTo(new BinTable.BinInfo("ELO", null));
+        assertThat(table.lookup("4389360000000000").brand()).isEqualTo("VISA");
+        assertThat(table.lookup("4389349999999999").brand()).isEqualTo("VISA");
+    }
+
+    @Test
+    @DisplayName("lookup: mesma largura -> vence a última linha")
+    void lookup_sameWidth_lastLineWins() throws Exception {
+        load("""
+                510000,519999,MASTERCARD,CREDIT
+                510000,519999,MASTERCARD,DEBIT
+                """);
+
+        assertThat(table.lookup("5100000000000000").type()).isEqualTo("DEBIT");
+    }
+
+    @Test
+    @DisplayName("lookup: PAN curto ou não numérico -> UNKNOWN")
+    void lookup_invalidInput() throws Exception {
+        load("400000,499999,VISA,\n");
+
+        assertThat(table.lookup(null)).isSameAs(BinTable.UNKNOWN);
+        assertThat(table.lookup("4111")).isSameAs(BinTable.UNKNOWN);
+        assertThat(table.lookup("4x11111111111111")).isSameAs(BinTable.UNKNOWN);
+    }
+
+    @Test
+    @DisplayName("load: linha inválida -> erro e mantém o índice anterior")
+    void load_invalid_keepsPrevious() throws Exception {
+        load("400000,499999,VISA,\n");
+
+        assertThatThrownBy(() -> load("4000,4999,VISA,\n"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("bin_table_bin_length");
+        assertThat(table.lookup("4111111111111111").brand()).isEqualTo("VISA");
+    }
+
+    @Test
+    @DisplayName("reload: tabela padrão do classpath carrega e reconhece Elo dentro da faixa Visa")
+    void reload_defaultClasspathTable() {
+        ReflectionTestUtils.setField(table, "location", "classpath:bin-ranges.csv");
+
+        assertThat(table.reload()).isPositive();
+        assertThat(table.lookup("4389351111111111").brand()).isEqualTo("ELO");
+        assertThat(table.lookup("4111111111111111").brand()).isEqualTo("VISA");
+        assertThat(table.lookup("3841001111111111").brand()).isEqualTo("HIPERCARD");
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.api.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HmacTableTest {
+
+    @TempDir Path dir;
+
+    @Test
+    @DisplayName("put/get: devolve id/token/last4/validade; sobrescreve sem duplicar")
+    void putGet_roundTrip() {
+        var t = HmacTable.allocate(100);
+        var e = entry(7, "0042", 3, 2031);
+
+        assertThat(t.put(hmac(1, 1), e)).isTrue();
+        assertThat(t.get(hmac(1, 1))).isEqualTo(e);
+        assertThat(t.get(hmac(1, 2))).isNull();
+
+        var e2 = entry(8, "9999", 12, 2099);
+        assertThat(t.put(hmac(1, 1), e2)).isTrue();
+        assertThat(t.get(hmac(1, 1))).isEqualTo(e2);
+        assertThat(t.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("remove: deslocamento para trás mantém alcançáveis as chaves da mesma cadeia")
+    void remove_keepsCollisionChain() {
+        var t = HmacTable.allocate(100);
+        for (int i = 0; i < 6; i++) t.put(hmac(5, i), entry(i, "0001", 1, 2030));   // mesmo slot inicial
+        t.put(hmac(6, 0), entry(6, "0001", 1, 2030));                               // vizinho empurrado pela cadeia
+
+        assertThat(t.remove(hmac(5, 1))).isTrue();
+        assertThat(t.remove(hmac(5, 1))).isFalse();
+
+        assertThat(t.get(hmac(5, 1))).isNull();
+        for (int i : new int[]{0, 2, 3, 4, 5}) assertThat(t.get(hmac(5, i))).isNotNull();
+        assertThat(t.get(hmac(6, 0))).isNotNull();
+        assertThat(t.size()).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("removeExpiredBefore: tira só as vencidas, inclusive no meio de cadeias, e as demais seguem alcançáveis")
+    void removeExpiredBefore_keepsValid() {
+        var t = HmacTable.allocate(20_000);
+        for (int i = 0; i < 10_000; i++) t.put(hmac(i % 97, i), entry(i, "0001", 1 + i % 12, i % 3 == 0 ? 2020 : 2030));
+
+        long removed = t.removeExpiredBefore(2025, 1);
+
+        assertThat(removed).isEqualTo(3_334);
+        assertThat(t.size()).isEqualTo(6_666);
+        for (int i = 0; i < 10_000; i++) {
+            if (i % 3 == 0) assertThat(t.get(hmac(i % 97, i))).isNull();
+            else assertThat(t.get(hmac(i % 97, i))).isEqualTo(entry(i, "0001", 1 + i % 12, 2030));
+        }
+        assertThat(t.removeExpiredBefore(2025, 1)).isZero();
+    }
+
+    @Test
+    @DisplayName("put: recusa token fora do formato e tabela cheia (carga 75%)")
+    void put_rejects() {
+        var t = HmacTable.allocate(12);                      // arredonda para 32 slots, 24 entradas
+        assertThat(t.put(hmac(1, 1), new HmacTable.Entry(UUID.randomUUID(), "tok_legacy", "0001", 1, 2030))).isFalse();
+        assertThat(t.put("00".repeat(32), entry(1, "0001", 1, 2030))).isFalse();   // zero = slot vazio
+        for (int i = 0; i < t.maxEntries(); i++) assertThat(t.put(hmac(i, 9), entry(i, "0001", 1, 2030))).isTrue();
+        assertThat(t.put(hmac(99, 9), entry(99, "0001", 1, 2030))).isFalse();
+    }
+
+    @Test
+    @DisplayName("arquivo: fechamento limpo reabre igual; aberto (queda) ou outra chave não reabre")
+    void file_reopen() throws Exception {
+        Path f = dir.resolve("idx");
+        var t = HmacTable.create(f, 1000, 42);
+        for (int i = 0; i < 500; i++) t.put(hmac(i, i), entry(i, String.format("%04d", i), 1 + i % 12, 2030));
+        t.close();
+
+        var back = HmacTable.open(f, 42);
+        assertThat(back).isNotNull();
+        assertThat(back.size()).isEqualTo(500);
+        assertThat(back.get(hmac(123, 123))).isEqualTo(entry(123, "0123", 4, 2030));
+
+        assertThat(HmacTable.open(f, 42)).as("ainda aberto = sujo").isNull();
+        back.close();
+        assertThat(HmacTable.open(f, 43)).as("outra chave").isNull();
+        assertThat(HmacTable.open(f, 42)).isNotNull();
+    }
+
+    @Test
+    @DisplayName("leitura concorrente com escrita/remoção: nunca devolve a entrada de outra chave")
+    void concurrentReaders_neverSeeWrongEntry() throws Exception {
+        var t = HmacTable.allocate(4096);
+        int keys = 2000;
+        for (int i = 0; i < keys; i++) t.put(hmac(i % 64, i), entry(i, "0001", 1, 2030));   // cadeias longas
+        var stop = new AtomicBoolean();
+        var error = new AtomicReference<String>();
+        var started = new CountDownLatch(4);
+        var readers = new ArrayList<Thread>();
+        for (int r = 0; r < 4; r++) {
+            readers.add(Thread.ofPlatform().start(() -> {
+                var rnd = new Random();
+                started.countDown();
+                while (!stop.get()) {
+                    int i = rnd.nextInt(keys);
+                    var e = t.get(hmac(i % 64, i));
+                    if (e != null && e.id().getLeastSignificantBits() != i) error.set("key " + i + " -> " + e);
+                }
+            }));
+        }
+        started.await();
+        var rnd = new Random(1);
+        for (int n = 0; n < 50_000; n++) {
+            int i = rnd.nextInt(keys);
+            if (rnd.nextBoolean()) t.remove(hmac(i % 64, i));
+            else t.put(hmac(i % 64, i), entry(i, "0001", 1, 2030));
+        }
+        stop.set(true);
+        for (var th : readers) th.join();
+        assertThat(error.get()).isNull();
+    }
+
+    /** HMAC sintético: {@code home} decide o slot inicial, {@code n} diferencia as chaves */
+    private static String hmac(int home, int n) {
+        return HexFormat.of().toHexDigits((long) home) + HexFormat.of().toHexDigits((long) n) + "ab".repeat(16);
+    }
+
+    private static HmacTable.Entry entry(long id, String last4, int month, int year) {
+        return new HmacTable.Entry(new UUID(0, id), String.format("tok_%024x", id), last4, month, year);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.api.util;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Arquivos de lote sintéticos no layout fixo do {@link FixedLayoutParser}, reprodutíveis pela semente.
+ * <p>
+ * Cada linha de detalhe é um cartão novo, a repetição de um cartão válido anterior do mesmo arquivo
+ * ({@code duplicateRatio}) ou um PAN com dígito verificador errado ({@code invalidRatio}; só é rejeitado com
+ * {@code cards.validation.require-luhn=true} — PAN curto derruba o arquivo inteiro no parser, então não sai
+ * daqui). O PAN do cartão {@code j} depende só de {@code j}: prefixo sorteado por peso em {@code bins} e
+ * corpo = permutação afim de {@code j} módulo 10^k, então cartões distintos nunca colidem e arquivos com
+ * faixas {@code firstCard} disjuntas não repetem cartões entre si.
+ */
+public final class LotFileGenerator {
+
+    private static final DateTimeFormatter YYYYMMDD = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final long MULTIPLIER = 999_983;          // primo, coprimo com 10: bijeção mod 10^k sem estourar long
+
+    /**
+     * @param lot       8 caracteres começando com {@code LOTE} (o parser acha o trailer por esse prefixo)
+     * @param bins      prefixo (6 a 8 dígitos) -> peso
+     * @param panLength 13 a 19
+     * @param firstCard índice do primeiro cartão novo; cada cartão novo ou inválido consome um índice
+     */
+    public record Spec(String name, LocalDate date, String lot, int lines, double duplicateRatio, double invalidRatio,
+                       Map<String, Integer> bins, int panLength, long firstCard, long seed) {
+
+        public Spec {
+            if (lot.length() != 8 || !lot.startsWith("LOTE")) throw new IllegalArgumentException("lot must be LOTE + 4 chars");
+            if (lines < 0 || lines > 999_999) throw new IllegalArgumentException("lines must fit 6 digits");
+            if (duplicateRatio < 0 || invalidRatio < 0 || duplicateRatio + invalidRatio > 1) throw new IllegalArgumentException("ratios");
+            if (panLength < 13 || panLength > 19) throw new IllegalArgumentException("panLength");
+            if (bins.isEmpty() || bins.values().stream().anyMatch(w -> w <= 0)
+                    || bins.keySet().stream().anyMatch(b -> b.length() < 6 || b.length() > 8 || !b.chars().allMatch(Character::isDigit)))
+                throw new IllegalArgumentException("bins");
+            bins = Collections.unmodifiableMap(new LinkedHashMap<>(bins));
+        }
+
+        /** só cartões novos e válidos, BINs de teste das bandeiras comuns */
+        public static Spec of(String lot, int lines) {
+            var bins = new LinkedHashMap<String, Integer>();
+            bins.put("411111", 50);                 // VISA
+            bins.put("555555", 35);                 // MASTERCARD
+            bins.put("378282", 10);                 // AMEX
+            bins.put("601111", 5);                  // DISCOVER
+            return new Spec("PERF", LocalDate.of(2024, 1, 1), lot, lines, 0, 0, bins, 16, 0, 42);
+        }
+
+        public Spec withDuplicates(double ratio)     { return new Spec(name, date, lot, lines, ratio, invalidRatio, bins, panLength, firstCard, seed); }
+        public Spec withInvalid(double ratio)        { return new Spec(name, date, lot, lines, duplicateRatio, ratio, bins, panLength, firstCard, seed); }
+        public Spec withBins(Map<String, Integer> b) { return new Spec(name, date, lot, lines, duplicateRatio, invalidRatio, b, panLength, firstCard, seed); }
+        public Spec withPanLength(int n)             { return new Spec(name, date, lot, lines, duplicateRatio, invalidRatio, bins, n, firstCard, seed); }
+        public Spec startingAt(long card)            { return new Spec(name, date, lot, lines, duplicateRatio, invalidRatio, bins, panLength, card, seed); }
+        public Spec withSeed(long s)                 { return new Spec(name, date, lot, lines, duplicateRatio, invalidRatio, bins, panLength, firstCard, s); }
+    }
+
+    /** o que o upload deve responder (com Luhn ligado); {@code cards} = índices consumidos */
+    public record Summary(int lines, int created, int duplicates, int invalid, long cards) {}
+
+    public record Lot(byte[] bytes, Summary summary) {}
+
+    private LotFileGenerator() {}
+
+    public static Lot generate(Spec spec) {
+        var out = new ByteArrayOutputStream(spec.lines() * 28 + 64);
+        var summary = write(spec, out);
+        return new Lot(out.toByteArray(), summary);
+    }
+
+    /** escreve o arquivo em {@code out} (não fecha o stream) */
+    public static Summary write(Spec spec, OutputStream out) {
+        var pans = new Pans(spec);
+        var rnd = new SplittableRandom(spec.seed());
+        int[] valid = new int[Math.max(16, (int) (spec.lines() * (1 - spec.duplicateRatio() - spec.invalidRatio())) + 16)];
+        int created = 0, duplicates = 0, invalid = 0, used = 0;
+        try {
+            var w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII), 1 << 16);
+            w.write(String.format("%-29s%s%-8s%06d%n", spec.name(), spec.date().format(YYYYMMDD), spec.lot(), spec.lines()));
+            for (int line = 1; line <= spec.lines(); line++) {
+                double roll = rnd.nextDouble();
+                String pan;
+                if (created > 0 && roll < spec.duplicateRatio()) {
+                    pan = pans.pan(spec.firstCard() + valid[rnd.nextInt(created)], false);
+                    duplicates++;
+                } else if (roll < spec.duplicateRatio() + spec.invalidRatio()) {
+                    pan = pans.pan(spec.firstCard() + used++, true);
+                    invalid++;
+                } else {
+                    if (created == valid.length) valid = Arrays.copyOf(valid, created * 2);
+                    valid[created++] = used;
+                    pan = pans.pan(spec.firstCard() + used++, false);
+                }
+                w.write(String.format("C%-6d%-19s%n", line, pan));
+            }
+            w.write(String.format("%-8s%06d%n", spec.lot(), spec.lines()));
+            w.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Summary(spec.lines(), created, duplicates, invalid, used);
+    }
+
+    /** PAN do cartão {@code j} de {@code spec}; {@code broken} troca o dígito verificador */
+    public static String pan(Spec spec, long j, boolean broken) { return new Pans(spec).pan(j, broken); }
+
+    static int luhnCheckDigit(CharSequence body) {
+        int sum = 0;
+        for (int i = body.length() - 1, dbl = 1; i >= 0; i--, dbl ^= 1) {
+            int d = body.charAt(i) - '0';
+            if (dbl == 1) { d <<= 1; if (d > 9) d -= 9; }
+            sum += d;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    private static final class Pans {
+        final Spec spec;
+        final String[] prefixes;
+        final int[] cumulative;
+        final int total;
+        final long offset;
+        final StringBuilder sb = new StringBuilder(19);
+
+        Pans(Spec spec) {
+            this.spec = spec;
+            prefixes = spec.bins().keySet().toArray(String[]::new);
+            cumulative = new int[prefixes.length];
+            int t = 0;
+            for (int i = 0; i < prefixes.length; i++) cumulative[i] = t += spec.bins().get(prefixes[i]);
+            total = t;
+            offset = mix(spec.seed());
+        }
+
+        String pan(long j, boolean broken) {
+            String prefix = prefixes[pick((int) Long.remainderUnsigned(mix(j ^ offset), total))];
+            int k = spec.panLength() - 1 - prefix.length();
+            long mod = pow10(k);
+            if (j < 0 || j >= mod) throw new IllegalArgumentException("card index " + j + " does not fit " + k + " digits");
+            long body = (j * (MULTIPLIER % mod) % mod + Math.floorMod(offset, mod)) % mod;
+            sb.setLength(0);
+            sb.append(prefix);
+            String b = Long.toString(body);
+            for (int i = b.length(); i < k; i++) sb.append('0');
+            sb.append(b);
+            int check = luhnCheckDigit(sb);
+            return sb.append(broken ? (check + 1) % 10 : check).toString();
+        }
+
+        private int pick(int r) {
+            int i = Arrays.binarySearch(cumulative, r + 1);
+            return i >= 0 ? i : -i - 1;
+        }
+    }
+
+    private static long pow10(int k) {
+        long p = 1;
+        for (int i = 0; i < k; i++) p *= 10;
+        return p;
+    }
+
+    /** splitmix64: espalha o índice antes de sortear o prefixo */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
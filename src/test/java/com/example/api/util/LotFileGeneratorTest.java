@@ -0,0 +1,83 @@
+package com.example.api.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+class LotFileGeneratorTest {
+
+    private final FixedLayoutParser parser = new FixedLayoutParser();
+
+    @Test
+    @DisplayName("generate: header, detalhes e trailer passam no parser; contagens batem com o resumo")
+    void generate_parsesAndCountsMatch() {
+        var spec = LotFileGenerator.Spec.of("LOTE0042", 5_000).withDuplicates(0.2).withInvalid(0.1);
+        var lot = LotFileGenerator.generate(spec);
+
+        var batch = parser.parse(new ByteArrayInputStream(lot.bytes()));
+        var s = lot.summary();
+
+        assertThat(batch.header().lot()).isEqualTo("LOTE0042");
+        assertThat(batch.header().qty()).isEqualTo(5_000);
+        assertThat(batch.details()).hasSize(5_000);
+        assertThat(s.created() + s.duplicates() + s.invalid()).isEqualTo(5_000);
+        assertThat(s.duplicates()).isBetween(900, 1_100);
+        assertThat(s.invalid()).isBetween(400, 600);
+
+        var pan = new PanService();
+        ReflectionTestUtils.setField(pan, "requireLuhn", true);
+        var distinctValid = new HashSet<String>();
+        int invalid = 0, validLines = 0;
+        for (var d : batch.details()) {
+            assertThat(d.pan()).hasSize(16);
+            if (pan.check(d.pan()) != null) invalid++;
+            else { validLines++; distinctValid.add(d.pan()); }
+        }
+        assertThat(invalid).isEqualTo(s.invalid());
+        assertThat(distinctValid).hasSize(s.created());
+        assertThat(validLines - distinctValid.size()).isEqualTo(s.duplicates());
+    }
+
+    @Test
+    @DisplayName("generate: mesma semente -> mesmo arquivo; faixas de firstCard disjuntas não repetem cartões")
+    void generate_reproducibleAndDisjoint() {
+        var a = LotFileGenerator.Spec.of("LOTE0001", 2_000);
+        assertThat(LotFileGenerator.generate(a).bytes()).isEqualTo(LotFileGenerator.generate(a).bytes());
+
+        var first = pans(LotFileGenerator.generate(a).bytes());
+        var second = pans(LotFileGenerator.generate(a.startingAt(2_000)).bytes());
+        assertThat(first).hasSize(2_000).doesNotContainAnyElementsOf(second);
+    }
+
+    @Test
+    @DisplayName("generate: prefixos seguem os pesos; tamanho do PAN configurável")
+    void generate_binWeightsAndLength() {
+        var spec = LotFileGenerator.Spec.of("LOTE0002", 10_000)
+                .withBins(Map.of("41111111", 3, "555555", 1)).withPanLength(19);
+        var pans = pans(LotFileGenerator.generate(spec).bytes());
+
+        long visa = pans.stream().filter(p -> p.startsWith("41111111")).count();
+        assertThat(pans).allSatisfy(p -> assertThat(p).hasSize(19));
+        assertThat(pans.stream().filter(p -> p.startsWith("555555")).count()).isEqualTo(10_000 - visa);
+        assertThat(visa).isBetween(7_200L, 7_800L);
+    }
+
+    @Test
+    @DisplayName("Spec: lote fora do formato do trailer é recusado")
+    void spec_rejectsBadLot() {
+        assertThatThrownBy(() -> LotFileGenerator.Spec.of("BATCH001", 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LotFileGenerator.Spec.of("LOTE0001", 10).withDuplicates(0.7).withInvalid(0.5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Set<String> pans(byte[] file) {
+        var out = new LinkedHashSet<String>();
+        for (var d : parser.parse(new ByteArrayInputStream(file)).details()) out.add(d.pan());
+        return out;
+    }
+}
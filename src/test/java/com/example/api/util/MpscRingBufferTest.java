@@ -0,0 +1,53 @@
+package com.example.api.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MpscRingBufferTest {
+
+    @Test
+    @DisplayName("offer/drain: FIFO e capacidade arredondada para potência de 2")
+    void fifo_and_capacity() {
+        var rb = new MpscRingBuffer<Integer>(3);
+        assertThat(rb.capacity()).isEqualTo(4);
+        for (int i = 0; i < 4; i++) assertThat(rb.offer(i)).isTrue();
+        assertThat(rb.offer(99)).isFalse();           // cheia: não bloqueia
+
+        List<Integer> out = new ArrayList<>();
+        assertThat(rb.drain(out::add, 2)).isEqualTo(2);
+        assertThat(rb.offer(4)).isTrue();
+        rb.drain(out::add, 10);
+        assertThat(out).containsExactly(0, 1, 2, 3, 4);
+        assertThat(rb.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("vários produtores: nada se perde nem se duplica")
+    void concurrent_producers() throws Exception {
+        var rb = new MpscRingBuffer<Long>(256);
+        int producers = 4, perProducer = 100_000;
+        var go = new CountDownLatch(1);
+        var threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                try { go.await(); } catch (InterruptedException e) { return; }
+                for (long i = 1; i <= perProducer; i++) while (!rb.offer(i)) Thread.onSpinWait();
+            }));
+        }
+        go.countDown();
+        var sum = new AtomicLong();
+        long got = 0;
+        while (got < (long) producers * perProducer) got += rb.drain(sum::addAndGet, 64);
+        for (var t : threads) t.join();
+
+        assertThat(sum.get()).isEqualTo(producers * ((long) perProducer * (perProducer + 1) / 2));
+        assertThat(rb.size()).isZero();
+    }
+}
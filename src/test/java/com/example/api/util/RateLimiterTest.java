@@ -0,0 +1,42 @@
+package com.example.api.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RateLimiterTest {
+
+    @Test
+    @DisplayName("rajada: libera exatamente burst fichas e depois informa a espera")
+    void burstThenWait() {
+        var r = new RateLimiter(1, 5, 4);      // 1/s: nada repõe durante o teste
+        int ok = 0;
+        for (int i = 0; i < 20; i++) if (r.tryAcquire() == 0) ok++;
+
+        assertThat(ok).isEqualTo(5);
+        assertThat(r.tryAcquire()).isPositive();
+        assertThat(r.idle()).isFalse();
+    }
+
+    @Test
+    @DisplayName("concorrência: total liberado não passa da rajada")
+    void concurrentCallers_respectBurst() {
+        var r = new RateLimiter(0.5, 100, 8);
+        var ok = new AtomicInteger();
+        try (var ex = Executors.newFixedThreadPool(8)) {
+            for (int t = 0; t < 8; t++) ex.submit(() -> { for (int i = 0; i < 1000; i++) if (r.tryAcquire() == 0) ok.incrementAndGet(); });
+        }
+        assertThat(ok).hasValue(100);
+    }
+
+    @Test
+    @DisplayName("balde novo é ocioso; configuração inválida é recusada")
+    void idleAndConfig() {
+        assertThat(new RateLimiter(10, 1, 4).idle()).isTrue();
+        assertThatThrownBy(() -> new RateLimiter(0, 1, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.api.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestIdsTest {
+
+    @Test
+    @DisplayName("next: formato nó-contador e ordem crescente")
+    void format_and_order() {
+        String a = RequestIds.next(), b = RequestIds.next();
+        assertThat(a).matches("[0-9a-f]{8}-[0-9a-f]{16}").startsWith(RequestIds.node() + "-");
+        assertThat(b).isGreaterThan(a);
+    }
+
+    @Test
+    @DisplayName("next: únicos sob concorrência (virtual threads)")
+    void unique_concurrently() {
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        try (var ex = Executors.newVirtualThreadPerTaskExecutor()) {
+            IntStream.range(0, 10_000).forEach(i -> ex.submit(() -> ids.add(RequestIds.next())));
+        }
+        assertThat(ids).hasSize(10_000);
+    }
+}
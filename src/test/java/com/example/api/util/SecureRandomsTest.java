@@ -0,0 +1,35 @@
+package com.example.api.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SecureRandomsTest {
+
+    @Test
+    @DisplayName("randomUUID: versão 4, variante IETF")
+    void uuid_v4() {
+        UUID u = SecureRandoms.randomUUID();
+        assertThat(u.version()).isEqualTo(4);
+        assertThat(u.variant()).isEqualTo(2);
+        assertThat(UUID.fromString(u.toString())).isEqualTo(u);
+    }
+
+    @Test
+    @DisplayName("nextBytes: sem repetição sob concorrência (virtual threads)")
+    void concurrent_unique() {
+        Set<UUID> ids = ConcurrentHashMap.newKeySet();
+        try (var ex = Executors.newVirtualThreadPerTaskExecutor()) {
+            IntStream.range(0, 20_000).forEach(i -> ex.submit(() -> ids.add(SecureRandoms.randomUUID())));
+        }
+        assertThat(ids).hasSize(20_000);
+        assertThat(SecureRandoms.stripes()).isGreaterThanOrEqualTo(2);
+    }
+}
@@ -1,8 +1,16 @@
 package com.example.api.web;
 
 import com.example.api.DTO.CardRef;
+import com.example.api.observability.AuditLog;
+import com.example.api.DTO.CardListItem;
+import com.example.api.DTO.CardPage;
+import com.example.api.DTO.LotProgress;
 import com.example.api.service.CardIngestionService;
+import com.example.api.service.CardListingService;
+import com.example.api.service.LotCheckpoints;
 import com.example.api.service.interfaces.CardSecureService;
+import com.example.api.util.LotBusyException;
+import com.example.api.web.filter.IdempotencyStore;
 import com.example.api.web.request.CardCreateRequest;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.DisplayName;
@@ -11,6 +19,7 @@ import org.mockito.ArgumentMatchers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.TestPropertySource;
@@ -18,6 +27,9 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,6 +47,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
         "springdoc.api-docs.enabled=false",
         "springdoc.swagger-ui.enabled=false"
 })
+@Import(IdempotencyStore.class)                    // usado pelo IdempotencyFilter
 class CardControllerIT {
 
     @Autowired MockMvc mvc;
@@ -43,6 +56,9 @@ class CardControllerIT {
     // Dependências do controller são mockadas
     @MockitoBean CardSecureService secureService;
     @MockitoBean CardIngestionService ingestionService;
+    @MockitoBean LotCheckpoints lots;
+    @MockitoBean CardListingService listing;
+    @MockitoBean AuditLog auditLog;                 // usado pelo RequestContextLoggingFilter
 
     /* ---------------------- POST /cards (JSON) ---------------------- */
 
@@ -68,6 +84,48 @@ class CardControllerIT {
         verify(secureService).createOrGet(eq(req), isNull(), isNull());
     }
 
+    @Test
+    @DisplayName("POST /cards - Idempotency-Key repetida devolve a mesma resposta sem chamar o serviço")
+    void create_idempotencyKey_replay() throws Exception {
+        var req = new CardCreateRequest("4456897999999998", "UNKNOWN", 12, 2099, null, null);
+        var resp = new CardSecureService.PersistResult("id-idem", "tok_idem", "9998", false);
+        when(secureService.createOrGet(eq(req), isNull(), isNull())).thenReturn(resp);
+        String body = om.writeValueAsString(req);
+
+        var first = mvc.perform(post("/cards").with(jwt()).header("Idempotency-Key", "k-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        mvc.perform(post("/cards").with(jwt()).header("Idempotency-Key", "k-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(content().bytes(first));
+
+        verify(secureService, times(1)).createOrGet(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("POST /cards - mesma Idempotency-Key com outro corpo -> 422")
+    void create_idempotencyKey_reusedWithOtherBody_422() throws Exception {
+        when(secureService.createOrGet(any(), isNull(), isNull()))
+                .thenReturn(new CardSecureService.PersistResult("id", "tok", "0000", false));
+
+        mvc.perform(post("/cards").with(jwt()).header("Idempotency-Key", "k-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(new CardCreateRequest("4456897999999997", "UNKNOWN", 12, 2099, null, null))))
+                .andExpect(status().isOk());
+        mvc.perform(post("/cards").with(jwt()).header("Idempotency-Key", "k-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(new CardCreateRequest("4456897999999996", "UNKNOWN", 12, 2099, null, null))))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.error", is("idempotency_key_reused")));
+
+        verify(secureService, times(1)).createOrGet(any(), any(), any());
+    }
+
     /* ---------------------- POST /cards/upload (multipart) ---------------------- */
 
     @Test
@@ -103,6 +161,54 @@ class CardControllerIT {
         verify(ingestionService).ingestFixed(any());
     }
 
+    @Test
+    @DisplayName("POST /cards/upload - lote em processamento em outro nó -> 409 com progresso e Retry-After")
+    void upload_lotBusy_409() throws Exception {
+        var file = new MockMultipartFile("file", "lote.txt", "text/plain", "x".getBytes(StandardCharsets.UTF_8));
+        var progress = new LotProgress("LOTE0001", "RUNNING", 10, 4, 3, 1, 0, true, Instant.now());
+        when(ingestionService.ingestFixed(ArgumentMatchers.any())).thenThrow(new LotBusyException(progress, Duration.ofSeconds(12)));
+
+        mvc.perform(multipart("/cards/upload").file(file).with(jwt()))
+                .andExpect(status().isConflict())
+                .andExpect(header().string("Retry-After", "12"))
+                .andExpect(jsonPath("$.error", is("lot_in_progress")))
+                .andExpect(jsonPath("$.progress.processed", is(4)))
+                .andExpect(jsonPath("$.progress.active", is(true)));
+    }
+
+    @Test
+    @DisplayName("GET /cards/lots/{lot} - progresso do lote; 404 se desconhecido")
+    void lotProgress() throws Exception {
+        when(lots.progress("LOTE0001")).thenReturn(Optional.of(
+                new LotProgress("LOTE0001", "COMPLETED", 2, 2, 1, 1, 0, false, Instant.now())));
+        when(lots.progress("NOPE")).thenReturn(Optional.empty());
+
+        mvc.perform(get("/cards/lots/LOTE0001").with(jwt()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("COMPLETED")))
+                .andExpect(jsonPath("$.processed", is(2)));
+        mvc.perform(get("/cards/lots/NOPE").with(jwt()))
+                .andExpect(status().isNotFound());
+    }
+
+    /* ---------------------- GET /cards ---------------------- */
+
+    @Test
+    @DisplayName("GET /cards - filtros (yyyy-MM) e cursor repassados; resposta com items e next")
+    void list_ok() throws Exception {
+        var item = new CardListItem("uuid-1", "tok_1", "445689", "9999", "VISA", "CREDIT", 12, 2030);
+        when(listing.page("4456", YearMonth.of(2026, 1), YearMonth.of(2030, 12), 50, "abc"))
+                .thenReturn(new CardPage(List.of(item), "def"));
+
+        mvc.perform(get("/cards").with(jwt())
+                        .param("bin", "4456").param("expiryFrom", "2026-01").param("expiryTo", "2030-12")
+                        .param("limit", "50").param("cursor", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].token", is("tok_1")))
+                .andExpect(jsonPath("$.items[0].last4", is("9999")))
+                .andExpect(jsonPath("$.next", is("def")));
+    }
+
     /* ---------------------- GET /cards/lookup ---------------------- */
 
     @Test
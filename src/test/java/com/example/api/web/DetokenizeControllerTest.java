@@ -0,0 +1,90 @@
+package com.example.api.web;
+
+import com.example.api.config.SecurityConfig;
+import com.example.api.observability.AuditLog;
+import com.example.api.service.CardDetokenizeService;
+import com.example.api.util.ValidationException;
+import com.example.api.web.filter.IdempotencyStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = DetokenizeController.class)
+@AutoConfigureMockMvc(addFilters = true)
+@TestPropertySource(properties = {
+        "springdoc.api-docs.enabled=false",
+        "springdoc.swagger-ui.enabled=false"
+})
+@Import({SecurityConfig.class, IdempotencyStore.class})
+class DetokenizeControllerTest {
+
+    static final String TOKENS = "{\"tokens\":[\"tok_000000000000000000000001\"]}";
+
+    @Autowired MockMvc mvc;
+
+    @MockitoBean CardDetokenizeService detokenizer;
+    @MockitoBean JwtDecoder jwtDecoder;
+    @MockitoBean AuditLog auditLog;
+
+    @Test
+    @DisplayName("POST /cards/detokenize - sem o escopo card:detokenize -> 403, nada é lido")
+    void withoutScope_forbidden() throws Exception {
+        mvc.perform(post("/cards/detokenize").with(jwt())
+                        .contentType(MediaType.APPLICATION_JSON).content(TOKENS))
+                .andExpect(status().isForbidden());
+        verifyNoInteractions(detokenizer);
+    }
+
+    @Test
+    @DisplayName("POST /cards/detokenize - com escopo: NDJSON em stream, no-store")
+    void withScope_streamsNdjson() throws Exception {
+        var line = "{\"token\":\"tok_000000000000000000000001\",\"pan\":\"4456897999999999\"}\n";
+        when(detokenizer.validate(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        doAnswer(inv -> { inv.getArgument(1, OutputStream.class).write(line.getBytes(StandardCharsets.US_ASCII)); return null; })
+                .when(detokenizer).write(anyList(), any());
+
+        var async = mvc.perform(post("/cards/detokenize")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("SCOPE_card:detokenize")))
+                        .contentType(MediaType.APPLICATION_JSON).content(TOKENS))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(async))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(header().string("Cache-Control", "no-store"))
+                .andExpect(content().string(line));
+        verify(detokenizer).write(eq(List.of("tok_000000000000000000000001")), any());
+    }
+
+    @Test
+    @DisplayName("POST /cards/detokenize - token inválido -> 400 antes do stream")
+    void invalidToken_400() throws Exception {
+        when(detokenizer.validate(anyList())).thenThrow(new ValidationException("invalid_token (index 0)"));
+
+        mvc.perform(post("/cards/detokenize")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("SCOPE_card:detokenize")))
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"tokens\":[\"x\"]}"))
+                .andExpect(status().isBadRequest());
+        verify(detokenizer, never()).write(anyList(), any());
+    }
+}
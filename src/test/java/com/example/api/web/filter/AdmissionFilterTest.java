@@ -0,0 +1,178 @@
+package com.example.api.web.filter;
+
+import com.example.api.config.properties.AdmissionProperties;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionFilterTest {
+
+    private static AdmissionProperties props(AdmissionProperties.Lane lookup, AdmissionProperties.Capped upload) {
+        return new AdmissionProperties(true, 1, lookup, null, upload, null);
+    }
+
+    private static MockHttpServletResponse call(AdmissionFilter f, String method, String uri, FilterChain chain) throws Exception {
+        var res = new MockHttpServletResponse();
+        f.doFilter(new MockHttpServletRequest(method, uri), res, chain);
+        return res;
+    }
+
+    @Test
+    @DisplayName("lookup acima da taxa -> 429 com Retry-After")
+    void lookupRateLimited() throws Exception {
+        var f = new AdmissionFilter(props(new AdmissionProperties.Lane(1, 2), null));
+        FilterChain ok = (q, s) -> { };
+
+        assertThat(call(f, "GET", "/cards/lookup", ok).getStatus()).isEqualTo(200);
+        assertThat(call(f, "GET", "/cards/lookup", ok).getStatus()).isEqualTo(200);
+        var res = call(f, "GET", "/cards/lookup", ok);
+
+        assertThat(res.getStatus()).isEqualTo(429);
+        assertThat(res.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(res.getContentAsString()).contains("rate_limited");
+    }
+
+    @Test
+    @DisplayName("upload em andamento: segundo upload do mesmo cliente -> 429; lookup segue liberado")
+    void uploadConcurrencyCap() throws Exception {
+        var f = new AdmissionFilter(props(null,
+                new AdmissionProperties.Capped(100, 100, 1, 4, Duration.ofSeconds(7))));
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return call(f, "POST", "/cards/upload", (q, s) -> {
+                    started.countDown();
+                    try { release.await(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+                }).getStatus();
+            } catch (Exception e) { throw new IllegalStateException(e); }
+        });
+        started.await();
+
+        var second = call(f, "POST", "/cards/upload", (q, s) -> { });
+        var lookup = call(f, "GET", "/cards/lookup", (q, s) -> { });
+        assertThat(f.uploadsInFlight()).isEqualTo(1);
+        release.countDown();
+
+        assertThat(second.getStatus()).isEqualTo(429);
+        assertThat(second.getHeader("Retry-After")).isEqualTo("7");
+        assertThat(lookup.getStatus()).isEqualTo(200);
+        assertThat(first.get()).isEqualTo(200);
+        assertThat(f.uploadsInFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("export/detokenize na lane bulk: teto de simultâneos próprio; lookup e upload seguem")
+    void bulkConcurrencyCap() throws Exception {
+        var f = new AdmissionFilter(new AdmissionProperties(true, 1, null, null, null,
+                new AdmissionProperties.Capped(100, 100, 1, 1, Duration.ofSeconds(3))));
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var export = CompletableFuture.supplyAsync(() -> {
+            try {
+                return call(f, "GET", "/cards/export", (q, s) -> {
+                    started.countDown();
+                    try { release.await(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+                }).getStatus();
+            } catch (Exception e) { throw new IllegalStateException(e); }
+        });
+        started.await();
+
+        var detokenize = call(f, "POST", "/cards/detokenize", (q, s) -> { });
+        var lookup = call(f, "GET", "/cards/lookup", (q, s) -> { });
+        var upload = call(f, "POST", "/cards/upload", (q, s) -> { });
+        assertThat(f.bulkInFlight()).isEqualTo(1);
+        release.countDown();
+
+        assertThat(detokenize.getStatus()).isEqualTo(429);
+        assertThat(detokenize.getHeader("Retry-After")).isEqualTo("3");
+        assertThat(detokenize.getContentAsString()).contains("too_many_bulk_requests");
+        assertThat(lookup.getStatus()).isEqualTo(200);
+        assertThat(upload.getStatus()).isEqualTo(200);
+        assertThat(export.get()).isEqualTo(200);
+        assertThat(f.bulkInFlight()).isZero();
+        assertThat(f.clientsInFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("bulk com resposta assíncrona (stream): a vaga só volta no fim da resposta")
+    void bulkAsync_holdsSlotUntilComplete() throws Exception {
+        var f = new AdmissionFilter(new AdmissionProperties(true, 1, null, null, null,
+                new AdmissionProperties.Capped(100, 100, 1, 1, Duration.ofSeconds(3))));
+        var req = new MockHttpServletRequest("POST", "/cards/detokenize");
+        req.setAsyncSupported(true);
+        f.doFilter(req, new MockHttpServletResponse(), (q, s) -> q.startAsync());
+
+        assertThat(f.bulkInFlight()).isEqualTo(1);
+        assertThat(call(f, "GET", "/cards/export", (q, s) -> { }).getStatus()).isEqualTo(429);
+
+        req.getAsyncContext().complete();
+        assertThat(f.bulkInFlight()).isZero();
+        assertThat(f.clientsInFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("lanes: export e detokenize são bulk; POST /cards é escrita; GET é lookup")
+    void laneByPath() {
+        assertThat(AdmissionFilter.lane(new MockHttpServletRequest("GET", "/cards/export"))).isEqualTo(AdmissionFilter.Lane.BULK);
+        assertThat(AdmissionFilter.lane(new MockHttpServletRequest("POST", "/cards/detokenize"))).isEqualTo(AdmissionFilter.Lane.BULK);
+        assertThat(AdmissionFilter.lane(new MockHttpServletRequest("POST", "/cards/upload"))).isEqualTo(AdmissionFilter.Lane.UPLOAD);
+        assertThat(AdmissionFilter.lane(new MockHttpServletRequest("POST", "/cards"))).isEqualTo(AdmissionFilter.Lane.WRITE);
+        assertThat(AdmissionFilter.lane(new MockHttpServletRequest("GET", "/cards/lookup"))).isEqualTo(AdmissionFilter.Lane.LOOKUP);
+    }
+
+    @Test
+    @DisplayName("fora de /cards não passa pela admissão")
+    void otherPaths_notLimited() throws Exception {
+        var f = new AdmissionFilter(props(new AdmissionProperties.Lane(1, 1), null));
+        for (int i = 0; i < 5; i++) assertThat(call(f, "GET", "/actuator/health", (q, s) -> { }).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("/cardsX não é /cards: só /cards e /cards/** passam pela admissão")
+    void prefixOnlyOnSegment() throws Exception {
+        var f = new AdmissionFilter(props(new AdmissionProperties.Lane(1, 1), null));
+        for (int i = 0; i < 3; i++) assertThat(call(f, "GET", "/cardsX/lookup", (q, s) -> { }).getStatus()).isEqualTo(200);
+        assertThat(call(f, "GET", "/cards", (q, s) -> { }).getStatus()).isEqualTo(200);
+        assertThat(call(f, "GET", "/cards", (q, s) -> { }).getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    @DisplayName("uploads concorrentes do mesmo cliente nunca passam do teto; contador sai do mapa ao zerar")
+    void perClientCapUnderContention() throws Exception {
+        var f = new AdmissionFilter(props(null,
+                new AdmissionProperties.Capped(0, 0, 2, 0, Duration.ofSeconds(1))));
+        var running = new AtomicInteger();
+        var peak = new AtomicInteger();
+        FilterChain chain = (q, s) -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.onSpinWait();
+            running.decrementAndGet();
+        };
+        try (var pool = Executors.newFixedThreadPool(8)) {
+            var calls = new ArrayList<CompletableFuture<Integer>>();
+            for (int i = 0; i < 2_000; i++) {
+                calls.add(CompletableFuture.supplyAsync(() -> {
+                    try { return call(f, "POST", "/cards/upload", chain).getStatus(); }
+                    catch (Exception e) { throw new IllegalStateException(e); }
+                }, pool));
+            }
+            calls.forEach(CompletableFuture::join);
+        }
+
+        assertThat(peak.get()).isLessThanOrEqualTo(2);
+        assertThat(f.clientsInFlight()).isZero();
+        assertThat(f.uploadsInFlight()).isZero();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.api.web.filter;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyFilterTest {
+
+    @Test
+    @DisplayName("corpo em cache: ReadListener recebe onDataAvailable e onAllDataRead na hora (leitura não bloqueante)")
+    void cachedBody_readListener() {
+        var body = "{\"cardNumber\":\"4111111111111111\"}".getBytes(StandardCharsets.UTF_8);
+        var in = new IdempotencyFilter.CachedBodyRequest(new MockHttpServletRequest("POST", "/cards"), body).getInputStream();
+        var calls = new ArrayList<String>();
+        var read = new ByteArrayOutputStream();
+
+        in.setReadListener(listener(in, calls, read));
+
+        assertThat(calls).containsExactly("data", "all");
+        assertThat(read.toByteArray()).isEqualTo(body);
+        assertThat(in.isFinished()).isTrue();
+    }
+
+    @Test
+    @DisplayName("corpo vazio: só onAllDataRead")
+    void emptyBody_onlyAllDataRead() {
+        var in = new IdempotencyFilter.CachedBodyRequest(new MockHttpServletRequest("POST", "/cards"), new byte[0]).getInputStream();
+        var calls = new ArrayList<String>();
+
+        in.setReadListener(listener(in, calls, new ByteArrayOutputStream()));
+
+        assertThat(calls).containsExactly("all");
+    }
+
+    /** lê enquanto isReady(), como um container assíncrono faria */
+    private static ReadListener listener(ServletInputStream in, List<String> calls, ByteArrayOutputStream read) {
+        return new ReadListener() {
+            @Override public void onDataAvailable() throws IOException {
+                calls.add("data");
+                var buf = new byte[8];
+                while (in.isReady() && !in.isFinished()) read.write(buf, 0, in.read(buf));
+            }
+            @Override public void onAllDataRead() { calls.add("all"); }
+            @Override public void onError(Throwable t) { calls.add("error"); }
+        };
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.api.web.filter;
+
+import com.example.api.DTO.CardListItem;
+import com.example.api.service.events.CardsPurgedEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyStoreTest {
+
+    private static final byte[] FP = {1, 2, 3};
+    private static final IdempotencyStore.Stored OK =
+            new IdempotencyStore.Stored(200, "application/json", "{\"id\":\"1\"}".getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    @DisplayName("retentativa simultânea espera a original e recebe a mesma resposta")
+    void concurrentRetry_waitsForOriginal() throws Exception {
+        var store = new IdempotencyStore();
+        var lead = store.claim("c\u0000k", FP);
+        assertThat(lead.kind()).isEqualTo(IdempotencyStore.Claim.Kind.LEAD);
+
+        var retry = CompletableFuture.supplyAsync(() -> store.claim("c\u0000k", FP));
+        Thread.sleep(50);
+        assertThat(retry).isNotDone();
+        store.complete("c\u0000k", lead.lease(), OK);
+
+        var r = retry.get();
+        assertThat(r.kind()).isEqualTo(IdempotencyStore.Claim.Kind.REPLAY);
+        assertThat(r.response().body()).isEqualTo(OK.body());
+        assertThat(store.replays()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("original sem resposta armazenável libera a chave")
+    void failedOriginal_releasesKey() {
+        var store = new IdempotencyStore();
+        var lead = store.claim("k", FP);
+        store.complete("k", lead.lease(), null);
+
+        assertThat(store.claim("k", FP).kind()).isEqualTo(IdempotencyStore.Claim.Kind.LEAD);
+    }
+
+    @Test
+    @DisplayName("original demorando além da espera -> IN_PROGRESS")
+    void slowOriginal_inProgress() {
+        var store = new IdempotencyStore();
+        ReflectionTestUtils.setField(store, "wait", Duration.ofMillis(20));
+        store.claim("k", FP);
+
+        assertThat(store.claim("k", FP).kind()).isEqualTo(IdempotencyStore.Claim.Kind.IN_PROGRESS);
+        assertThat(store.claim("k", new byte[]{9}).kind()).isEqualTo(IdempotencyStore.Claim.Kind.MISMATCH);
+    }
+
+    @Test
+    @DisplayName("expirada -> nova execução; cheio -> segue sem idempotência")
+    void ttl_and_bound() {
+        var store = new IdempotencyStore();
+        ReflectionTestUtils.setField(store, "ttl", Duration.ZERO);
+        ReflectionTestUtils.setField(store, "maxEntries", 1);
+        var first = store.claim("a", FP);
+        store.complete("a", first.lease(), OK);
+
+        assertThat(store.claim("a", FP).kind()).isEqualTo(IdempotencyStore.Claim.Kind.LEAD);  // expirou
+        assertThat(store.claim("b", FP).kind()).isEqualTo(IdempotencyStore.Claim.Kind.BYPASS); // "a" em andamento ocupa a vaga
+    }
+
+    @Test
+    @DisplayName("purge: respostas que apontam para cartões apagados saem do store; as demais ficam")
+    void purgedCards_dropStoredResponses() {
+        var store = new IdempotencyStore();
+        var a = store.claim("c\u0000a", FP);
+        store.complete("c\u0000a", a.lease(), OK);                        // id "1"
+        var b = store.claim("c\u0000b", FP);
+        store.complete("c\u0000b", b.lease(), new IdempotencyStore.Stored(200, "application/json",
+                "{\"id\":\"2\",\"token\":\"tok\"}".getBytes(StandardCharsets.UTF_8)));
+        store.claim("c\u0000c", FP);                                       // em andamento: intocado
+
+        store.on(new CardsPurgedEvent(List.of(new CardListItem("1", "tok_1", "400000", "0001", "VISA", null, 1, 2020)), 1));
+
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.claim("c\u0000a", FP).kind()).isEqualTo(IdempotencyStore.Claim.Kind.LEAD);
+        assertThat(store.claim("c\u0000b", FP).kind()).isEqualTo(IdempotencyStore.Claim.Kind.REPLAY);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.api.web.filter;
+
+import com.example.api.CardApiApplication;
+import com.example.api.observability.AuditLog;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = CardApiApplication.class, properties =
+        "spring.datasource.url=jdbc:h2:mem:auditfilter;MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class RequestContextLoggingFilterIT {
+
+    @Autowired MockMvc mvc;
+    @MockitoBean AuditLog audit;
+
+    @Test
+    @DisplayName("sem token -> 401 também é auditado, com o request id do cliente")
+    void unauthenticated_isAudited() throws Exception {
+        mvc.perform(get("/cards/lookup").param("pan", "4111111111111111").header(RequestContextLoggingFilter.HEADER, "req-401"))
+                .andExpect(status().isUnauthorized());
+
+        var entry = ArgumentCaptor.forClass(AuditLog.Entry.class);
+        verify(audit).offer(entry.capture());
+        assertThat(entry.getValue().status()).isEqualTo(401);
+        assertThat(entry.getValue().requestId()).isEqualTo("req-401");
+        assertThat(entry.getValue().path()).isEqualTo("/cards/lookup");
+        assertThat(entry.getValue().clientId()).isNull();
+    }
+
+    @Test
+    @DisplayName("token sem o escopo exigido -> 403 também é auditado")
+    void forbidden_isAudited() throws Exception {
+        mvc.perform(post("/actuator/cardstats").contentType(MediaType.APPLICATION_JSON).with(jwt()))
+                .andExpect(status().isForbidden());
+
+        var entry = ArgumentCaptor.forClass(AuditLog.Entry.class);
+        verify(audit).offer(entry.capture());
+        assertThat(entry.getValue().status()).isEqualTo(403);
+    }
+}
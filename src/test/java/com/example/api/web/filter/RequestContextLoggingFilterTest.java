@@ -0,0 +1,73 @@
+package com.example.api.web.filter;
+
+import com.example.api.observability.AuditLog;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class RequestContextLoggingFilterTest {
+
+    private final AuditLog audit = mock(AuditLog.class);
+    private final RequestContextLoggingFilter filter = new RequestContextLoggingFilter(audit);
+
+    @Test
+    @DisplayName("MDC preenchido durante a cadeia e limpo no fim; um registro de auditoria")
+    void mdc_and_audit() throws Exception {
+        var req = new MockHttpServletRequest("GET", "/cards/tok_1");
+        req.addHeader("User-Agent", "test/1");
+        Map<String, String> seen = new HashMap<>();
+
+        filter.doFilter(req, new MockHttpServletResponse(), (q, s) -> seen.putAll(MDC.getCopyOfContextMap()));
+
+        assertThat(seen).containsEntry("method", "GET").containsEntry("path", "/cards/tok_1")
+                .containsEntry("userAgent", "test/1").containsKey("requestId");
+        assertThat(MDC.getCopyOfContextMap()).isNullOrEmpty();
+        var entry = ArgumentCaptor.forClass(AuditLog.Entry.class);
+        verify(audit).offer(entry.capture());
+        assertThat(entry.getValue().requestId()).isEqualTo(seen.get("requestId"));
+        assertThat(entry.getValue().status()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("MDC de quem chamou é preservado durante a requisição e restaurado no fim")
+    void upstream_mdc_preserved() throws Exception {
+        MDC.put("traceId", "t-1");
+        MDC.put("path", "/outer");
+        try {
+            Map<String, String> seen = new HashMap<>();
+            filter.doFilter(new MockHttpServletRequest("GET", "/cards"), new MockHttpServletResponse(),
+                    (q, s) -> seen.putAll(MDC.getCopyOfContextMap()));
+
+            assertThat(seen).containsEntry("traceId", "t-1").containsEntry("path", "/cards").containsKey("requestId");
+            assertThat(MDC.getCopyOfContextMap()).containsExactlyInAnyOrderEntriesOf(Map.of("traceId", "t-1", "path", "/outer"));
+        } finally {
+            MDC.clear();
+        }
+    }
+
+    @Test
+    @DisplayName("X-Request-ID do cliente é reaproveitado; longo demais é trocado")
+    void client_request_id() throws Exception {
+        var ok = new MockHttpServletRequest("GET", "/cards");
+        ok.addHeader(RequestContextLoggingFilter.HEADER, "abc-123");
+        var tooLong = new MockHttpServletRequest("GET", "/cards");
+        tooLong.addHeader(RequestContextLoggingFilter.HEADER, "x".repeat(500));
+
+        filter.doFilter(ok, new MockHttpServletResponse(), (q, s) -> { });
+        filter.doFilter(tooLong, new MockHttpServletResponse(), (q, s) -> { });
+
+        var entry = ArgumentCaptor.forClass(AuditLog.Entry.class);
+        verify(audit, times(2)).offer(entry.capture());
+        assertThat(entry.getAllValues().get(0).requestId()).isEqualTo("abc-123");
+        assertThat(entry.getAllValues().get(1).requestId()).hasSize(25);
+    }
+}